@@ -0,0 +1,15 @@
+@echo off
+rem Starts Tetris from the dist folder. If "ant cds" has made a class data
+rem sharing archive, the game's classes and the Swing and sound classes it
+rem uses are mapped from the archive instead of being loaded one by one,
+rem which makes the window come up sooner. The archive only fits the jar and
+rem the Java it was made with; with any other, the game starts the usual way.
+setlocal
+set DIR=%~dp0
+set JAVA=java
+if defined JAVA_HOME set JAVA=%JAVA_HOME%\bin\java
+if exist "%DIR%Tetris.jsa" (
+    "%JAVA%" -Xshare:auto -XX:SharedArchiveFile="%DIR%Tetris.jsa" -cp "%DIR%Tetris.jar" Tetris %*
+) else (
+    "%JAVA%" -cp "%DIR%Tetris.jar" Tetris %*
+)
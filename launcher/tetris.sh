@@ -0,0 +1,16 @@
+#!/bin/sh
+# Starts Tetris from the dist folder. If "ant cds" has made a class data
+# sharing archive, the game's classes and the Swing and sound classes it uses
+# are mapped from the archive instead of being loaded one by one, which makes
+# the window come up sooner. The archive only fits the jar and the Java it was
+# made with; with any other, the game starts the usual way.
+DIR=$(cd "$(dirname "$0")" && pwd)
+JAVA=java
+if [ -n "$JAVA_HOME" ]; then
+    JAVA="$JAVA_HOME/bin/java"
+fi
+if [ -f "$DIR/Tetris.jsa" ]; then
+    exec "$JAVA" -Xshare:auto -XX:SharedArchiveFile="$DIR/Tetris.jsa" \
+        -cp "$DIR/Tetris.jar" Tetris "$@"
+fi
+exec "$JAVA" -cp "$DIR/Tetris.jar" Tetris "$@"
@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+
+/**
+ * The {@code AssetLoader} class loads the game's assets on background
+ * threads, so the window can be shown before they are ready. Each asset is
+ * handed back as a {@code Future} straight away, but only starts loading,
+ * in parallel with the others, once {@code start} is called, which the game
+ * does after showing its window. {@code get} waits for an asset on first
+ * use, which it rarely has to do since the player hasn't started a game yet.
+ * Loading times go into a {@code StartupReport}.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class AssetLoader {
+
+    /**
+     * The threads the assets are loaded on. They are daemons, so they never
+     * keep the game from closing.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The report the loading times go into.
+     */
+    private final StartupReport report;
+
+    /**
+     * The assets waiting for {@code start}.
+     */
+    private final List<Runnable> tasks;
+
+    /**
+     * The assets, in the order they were asked for.
+     */
+    private final List<CompletableFuture<?>> assets;
+
+    /**
+     * Creates a new AssetLoader with a thread per processor, up to the given
+     * number of threads.
+     *
+     * @param maxThreads The most threads to load on.
+     * @param report The report the loading times go into.
+     */
+    public AssetLoader(int maxThreads, StartupReport report) {
+        int threads = Math.max(1, Math.min(maxThreads,
+                Runtime.getRuntime().availableProcessors()));
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactory() {
+
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "asset-loader-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.report = report;
+        this.tasks = new ArrayList<Runnable>();
+        this.assets = new ArrayList<CompletableFuture<?>>();
+    }
+
+    /**
+     * Asks for a sound to be loaded once {@code start} is called.
+     *
+     * @param filename The resource the sound is in.
+     * @return The sound, once loaded.
+     */
+    public Future<SoundClip> loadSound(final String filename) {
+        final CompletableFuture<SoundClip> sound
+                = new CompletableFuture<SoundClip>();
+        tasks.add(new Runnable() {
+
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                SoundClip clip;
+                try {
+                    clip = new SoundClip(filename);
+                } catch (RuntimeException e) {
+                    //A sound that can't be read is played as silence.
+                    System.out.println("Error en " + e.toString());
+                    clip = new SoundClip();
+                }
+                report.asset(filename, System.nanoTime() - start);
+                sound.complete(clip);
+            }
+        });
+        assets.add(sound);
+        return sound;
+    }
+
+    /**
+     * Starts loading every asset asked for, tells the report once they are
+     * all loaded, and lets the threads finish after that.
+     */
+    public void start() {
+        CompletableFuture.allOf(assets.toArray(new CompletableFuture<?>[0]))
+                .whenComplete(new BiConsumer<Void, Throwable>() {
+
+            @Override
+            public void accept(Void result, Throwable error) {
+                report.loaded();
+            }
+        });
+        for (Runnable task : tasks) {
+            executor.execute(task);
+        }
+        tasks.clear();
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for an asset to be loaded.
+     *
+     * @param <T> The type of asset.
+     * @param asset The asset.
+     * @return The asset, or null if it couldn't be loaded.
+     */
+    public static <T> T get(Future<T> asset) {
+        try {
+            return asset.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Error en " + e.toString());
+        } catch (ExecutionException e) {
+            System.out.println("Error en " + e.toString());
+        }
+        return null;
+    }
+}
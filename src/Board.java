@@ -0,0 +1,924 @@
+import java.io.Serializable;
+
+/**
+ * The {@code Board} class holds the grid of locked tiles and the rules that
+ * work on it: collision tests, adding pieces and clearing lines. It knows
+ * nothing about Swing, so it can be used by the headless game server as well
+ * as by the {@code BoardPanel} that draws it.
+ *
+ * A board can be any size, up to stress sizes like 1000 columns by 10000
+ * rows. Each row is a bitset of longs, with the type of each tile in a byte
+ * beside it, and rows are reached through a table of slots, so clearing a
+ * line moves slot numbers rather than tiles. Collision tests only look at the
+ * words under the piece and line checks only look at the rows the last
+ * pieces touched, so neither depends on the size of the board. The board
+ * also keeps the range of rows whose tiles changed, so that whoever draws it
+ * only copies those.
+ *
+ * The {@code COL_COUNT} and {@code ROW_COUNT} constants are the size of a
+ * standard board, which is what a board is unless it is made bigger, and a
+ * standard board is played with the standard piece set. The bots, replays,
+ * versus matches and network games all play on standard boards.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class Board implements Serializable {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = -2306925424113650152L;
+
+    /**
+     * The number of columns on a standard board.
+     */
+    public static final int COL_COUNT = 10;
+
+    /**
+     * The number of visible rows on a standard board.
+     */
+    public static final int VISIBLE_ROW_COUNT = 20;
+
+    /**
+     * The number of rows that are hidden from view, on every board.
+     */
+    public static final int HIDDEN_ROW_COUNT = 2;
+
+    /**
+     * The total number of rows that a standard board contains.
+     */
+    public static final int ROW_COUNT = VISIBLE_ROW_COUNT + HIDDEN_ROW_COUNT;
+
+    /**
+     * The number of bits each cell takes up in a packed row.
+     */
+    public static final int PACKED_CELL_BITS = 3;
+
+    /**
+     * The number of columns in each word of a row.
+     */
+    private static final int WORD_BITS = 64;
+
+    /**
+     * The pieces the board is played with.
+     */
+    private PieceSet pieceSet;
+
+    /**
+     * The number of columns.
+     */
+    private int colCount;
+
+    /**
+     * The number of visible rows.
+     */
+    private int visibleRowCount;
+
+    /**
+     * The total number of rows.
+     */
+    private int rowCount;
+
+    /**
+     * The number of words in each row.
+     */
+    private int words;
+
+    /**
+     * The occupied cells of every slot, {@code words} longs per slot, with
+     * bit {@code col % 64} of word {@code col / 64} set when that column is
+     * occupied.
+     */
+    private long[] cells;
+
+    /**
+     * The type of the tile in each cell of every slot plus one, or 0 when
+     * the cell is empty, {@code colCount} bytes per slot.
+     */
+    private byte[] types;
+
+    /**
+     * The number of occupied cells in each slot.
+     */
+    private int[] fills;
+
+    /**
+     * The slot each row is kept in, from the top row down.
+     */
+    private int[] slots;
+
+    /**
+     * The height of each column: the number of rows from its top tile down
+     * to the floor, or 0 if it is empty. Kept up to date by every method
+     * that changes the board.
+     */
+    private int[] heights;
+
+    /**
+     * The number of occupied cells.
+     */
+    private int filledCount;
+
+    /**
+     * The highest row touched since the lines were last checked.
+     */
+    private int touchedTop;
+
+    /**
+     * The lowest row touched since the lines were last checked.
+     */
+    private int touchedBottom;
+
+    /**
+     * The highest row whose tiles changed since the changes were forgotten.
+     */
+    private int changedTop;
+
+    /**
+     * The lowest row whose tiles changed since the changes were forgotten.
+     */
+    private int changedBottom;
+
+    /**
+     * Creates a new, empty standard Board.
+     */
+    public Board() {
+        this(COL_COUNT, VISIBLE_ROW_COUNT, PieceSet.STANDARD);
+    }
+
+    /**
+     * Creates a new, empty Board of the given size, with
+     * {@code HIDDEN_ROW_COUNT} hidden rows above the visible ones.
+     *
+     * @param colCount The number of columns.
+     * @param visibleRowCount The number of visible rows.
+     * @param pieceSet The pieces the board is played with.
+     */
+    public Board(int colCount, int visibleRowCount, PieceSet pieceSet) {
+        resize(colCount, visibleRowCount, pieceSet);
+    }
+
+    /**
+     * Makes the board empty and of the given size.
+     *
+     * @param colCount The number of columns.
+     * @param visibleRowCount The number of visible rows.
+     * @param pieceSet The pieces the board is played with.
+     */
+    private void resize(int colCount, int visibleRowCount,
+            PieceSet pieceSet) {
+        if (colCount < pieceSet.getMaxDimension() || visibleRowCount < 1
+                || (long) colCount * (visibleRowCount + HIDDEN_ROW_COUNT)
+                > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Can't make a board of "
+                    + colCount + " by " + visibleRowCount);
+        }
+        this.pieceSet = pieceSet;
+        this.colCount = colCount;
+        this.visibleRowCount = visibleRowCount;
+        this.rowCount = visibleRowCount + HIDDEN_ROW_COUNT;
+        this.words = (colCount + WORD_BITS - 1) / WORD_BITS;
+        this.cells = new long[rowCount * words];
+        this.types = new byte[rowCount * colCount];
+        this.fills = new int[rowCount];
+        this.slots = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            slots[row] = row;
+        }
+        this.heights = new int[colCount];
+        this.filledCount = 0;
+        untouch();
+        this.changedTop = 0;
+        this.changedBottom = rowCount - 1;
+    }
+
+    /**
+     * Resets the board and clears away any tiles.
+     */
+    public void clear() {
+        /*
+         * Only rows with tiles need clearing, and those are all below the
+         * top of the tallest column.
+         */
+        int top = rowCount - getMaxHeight();
+        for (int row = top; row < rowCount; row++) {
+            clearSlot(slots[row]);
+        }
+        change(top, rowCount - 1);
+        for (int col = 0; col < colCount; col++) {
+            heights[col] = 0;
+        }
+        filledCount = 0;
+        untouch();
+    }
+
+    /**
+     * Makes this board a copy of another one of the same size, without
+     * allocating.
+     *
+     * @param other The board to copy.
+     */
+    public void copyFrom(Board other) {
+        if (other.colCount != colCount || other.rowCount != rowCount
+                || other.pieceSet != pieceSet) {
+            throw new IllegalArgumentException("Can't copy a board of "
+                    + "another size or piece set");
+        }
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        System.arraycopy(other.types, 0, types, 0, types.length);
+        System.arraycopy(other.fills, 0, fills, 0, rowCount);
+        System.arraycopy(other.slots, 0, slots, 0, rowCount);
+        System.arraycopy(other.heights, 0, heights, 0, colCount);
+        filledCount = other.filledCount;
+        touchedTop = other.touchedTop;
+        touchedBottom = other.touchedBottom;
+        change(0, rowCount - 1);
+    }
+
+    /**
+     * Copies the tiles of the board, from the top row down, into an array of
+     * {@code getColCount() * getRowCount()} bytes. Each byte holds 0 when
+     * its cell is empty and the type of its tile plus one otherwise.
+     *
+     * @param tiles The array to copy the tiles into.
+     */
+    public void copyTiles(byte[] tiles) {
+        copyTiles(tiles, 0, rowCount - 1);
+    }
+
+    /**
+     * Copies the tiles of some of the rows, the way {@code copyTiles} does,
+     * each into the place it has among every row. The rest of the array is
+     * left as it was.
+     *
+     * @param tiles The array to copy the tiles into.
+     * @param top The first row to copy.
+     * @param bottom The last row to copy.
+     */
+    public void copyTiles(byte[] tiles, int top, int bottom) {
+        for (int row = top; row <= bottom; row++) {
+            System.arraycopy(types, slots[row] * colCount, tiles,
+                    row * colCount, colCount);
+        }
+    }
+
+    /**
+     * Puts back tiles copied by {@code copyTiles} from a board of the same
+     * size and piece set.
+     *
+     * @param tiles The tiles.
+     */
+    public void setTiles(byte[] tiles) {
+        if (tiles.length != types.length) {
+            throw new IllegalArgumentException("Can't set the tiles of a "
+                    + "board of another size");
+        }
+
+        //Rows above both the old and the new tiles stay empty.
+        int oldTop = rowCount - getMaxHeight();
+
+        //The rows go back in their own slots, so the tiles are one copy.
+        System.arraycopy(tiles, 0, types, 0, types.length);
+        for (int row = 0; row < rowCount; row++) {
+            slots[row] = row;
+            for (int word = 0; word < words; word++) {
+                cells[row * words + word] = 0L;
+            }
+            for (int col = 0; col < colCount; col++) {
+                if (tiles[row * colCount + col] != 0) {
+                    cells[row * words + col / WORD_BITS] |= 1L << col;
+                }
+            }
+        }
+        recount();
+        touchedTop = 0;
+        touchedBottom = rowCount - 1;
+        change(Math.min(oldTop, rowCount - getMaxHeight()), rowCount - 1);
+    }
+
+    /**
+     * Determines whether or not a piece can be placed at the coordinates.
+     *
+     * @param type THe type of piece to use.
+     * @param x The x coordinate of the piece.
+     * @param y The y coordinate of the piece.
+     * @param rotation The rotation of the piece.
+     * @return Whether or not the position is valid.
+     */
+    public boolean isValidAndEmpty(TileType type, int x, int y,
+            int rotation) {
+        int left = type.getLeftInset(rotation);
+        int width = type.getDimension() - left
+                - type.getRightInset(rotation) + 1;
+
+        //Ensure the piece is in a valid column.
+        if (x < -left || x + left + width > colCount) {
+            return false;
+        }
+
+        //Ensure the piece is in a valid row.
+        if (y < -type.getTopInset(rotation)
+                || y + type.getDimension()
+                - type.getBottomInset(rotation) >= rowCount) {
+            return false;
+        }
+
+        /*
+         * Test each row of the piece against the word of the board row it
+         * covers, and the next word too when the piece straddles the two.
+         * Rows of the piece that have no tiles may hang off the board, so
+         * they are skipped before looking at the board.
+         */
+        int start = x + left;
+        int shift = start % WORD_BITS;
+        boolean isStraddling = shift + width > WORD_BITS;
+        for (int row = 0; row < type.getDimension(); row++) {
+            long shape = type.getShape(row, rotation);
+            if (shape == 0L) {
+                continue;
+            }
+            int word = slots[y + row] * words + start / WORD_BITS;
+            if ((cells[word] & shape << shift) != 0L) {
+                return false;
+            }
+            if (isStraddling
+                    && (cells[word + 1] & shape >>> -shift) != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the row a piece lands on when it is dropped straight down from
+     * the coordinates, which must be valid. Under each column of the piece,
+     * the first occupied cell is the top of the column, unless the piece is
+     * already below that top (under an overhang), in which case the column
+     * is searched from the piece down.
+     *
+     * @param type The type of piece to use.
+     * @param x The x coordinate of the piece.
+     * @param y The y coordinate of the piece.
+     * @param rotation The rotation of the piece.
+     * @return The row the piece lands on.
+     */
+    public int getLandingRow(TileType type, int x, int y, int rotation) {
+        int landing = Integer.MAX_VALUE;
+        for (int col = 0; col < type.getDimension(); col++) {
+            int bottom = type.getBottom(col, rotation);
+            if (bottom < 0) {
+                continue;
+            }
+            int below = y + bottom + 1;
+            int top = rowCount - heights[x + col];
+            if (below <= top) {
+                below = top;
+            } else {
+                while (below < rowCount && !isOccupied(x + col, below)) {
+                    below++;
+                }
+            }
+            landing = Math.min(landing, below - 1 - bottom);
+        }
+        return landing;
+    }
+
+    /**
+     * Adds a piece to the game board. Note: Doesn't check for existing pieces,
+     * and will overwrite them if they exist.
+     *
+     * @param type The type of piece to place.
+     * @param x The x coordinate of the piece.
+     * @param y The y coordinate of the piece.
+     * @param rotation The rotation of the piece.
+     */
+    public void addPiece(TileType type, int x, int y, int rotation) {
+        /*
+         * Loop through every tile within the piece and add it
+         * to the board only if the boolean that represents that
+         * tile is set to true.
+         */
+        for (int col = 0; col < type.getDimension(); col++) {
+            for (int row = 0; row < type.getDimension(); row++) {
+                if (type.isTile(col, row, rotation)) {
+                    setTile(col + x, row + y, type);
+                    heights[col + x] = Math.max(heights[col + x],
+                            rowCount - row - y);
+                    touchedTop = Math.min(touchedTop, row + y);
+                    touchedBottom = Math.max(touchedBottom, row + y);
+                }
+            }
+        }
+        change(Math.max(y, 0), Math.min(y + type.getDimension(), rowCount)
+                - 1);
+    }
+
+    /**
+     * Checks the board to see if any lines have been cleared, and removes them
+     * from the game. Only rows touched since the last check can have filled
+     * up, so only those are looked at.
+     *
+     * @return The number of lines that were cleared.
+     */
+    public int checkLines() {
+        int completedLines = 0;
+        int firstLine = rowCount;
+        int lastLine = -1;
+
+        /*
+         * Here we loop through every touched line and check it to see if
+         * it's been cleared or not. If it has, we increment the
+         * number of completed lines and check the next row.
+         *
+         * The checkLine function handles clearing the line and
+         * shifting the rest of the board down for us.
+         */
+        for (int row = touchedTop; row <= touchedBottom; row++) {
+            if (checkLine(row)) {
+                firstLine = Math.min(firstLine, row);
+                lastLine = row;
+                completedLines++;
+            }
+        }
+        untouch();
+        if (completedLines == 0) {
+            return 0;
+        }
+
+        //Everything from the top of the tallest column moved down.
+        change(rowCount - getMaxHeight(), lastLine);
+
+        /*
+         * A full top row is never moved, so it and its copies pushed down
+         * under it are still full next time.
+         */
+        if (fills[slots[0]] == colCount) {
+            touchedTop = 0;
+            touchedBottom = completedLines;
+        }
+
+        /*
+         * A column whose top was above the first cleared line just moved
+         * down with everything above it, and one with a tile in the top row
+         * kept it. Any other column had its top in a cleared line or below
+         * it, so it looks for its new top from there down.
+         */
+        for (int col = 0; col < colCount; col++) {
+            int top = rowCount - heights[col];
+            if (top == 0) {
+                continue;
+            }
+            if (top < firstLine) {
+                heights[col] -= completedLines;
+            } else {
+                while (top < rowCount && !isOccupied(col, top)) {
+                    top++;
+                }
+                heights[col] = rowCount - top;
+            }
+        }
+        return completedLines;
+    }
+
+    /**
+     * Checks whether or not {@code row} is full.
+     *
+     * @param line The row to check.
+     * @return Whether or not this row is full.
+     */
+    private boolean checkLine(int line) {
+        //The row is full when every one of its cells is occupied.
+        if (fills[slots[line]] != colCount) {
+            return false;
+        }
+
+        /*
+         * Since the line is filled, we need to 'remove' it from the game.
+         * To do this, we simply shift every row above it down by one. The
+         * slots are moved rather than the rows, and the slot of the cleared
+         * row is reused as the top row, which keeps what it had.
+         */
+        if (line > 0) {
+            int reused = slots[line];
+            System.arraycopy(slots, 0, slots, 1, line);
+            copySlot(slots[1], reused);
+            slots[0] = reused;
+            filledCount += fills[reused] - colCount;
+        }
+        return true;
+    }
+
+    /**
+     * Pushes the board up and fills the bottom rows with garbage: rows that
+     * are full except for a single hole. Whatever is pushed off the top is
+     * lost.
+     *
+     * @param count The number of garbage rows to add.
+     * @param holeCol The column of the hole.
+     * @param type The type of tile the garbage is made of.
+     * @return Whether or not any tile was pushed off the top of the board.
+     */
+    public boolean addGarbage(int count, int holeCol, TileType type) {
+        count = Math.min(count, rowCount);
+        change(Math.max(rowCount - getMaxHeight() - count, 0), rowCount - 1);
+        boolean isToppedOut = false;
+        for (int row = 0; row < count; row++) {
+            if (fills[slots[row]] > 0) {
+                isToppedOut = true;
+            }
+        }
+
+        /*
+         * Shift every row up by count, then reuse the slots of the rows
+         * pushed off the top for the rows that opened up at the bottom.
+         */
+        int[] lost = new int[count];
+        System.arraycopy(slots, 0, lost, 0, count);
+        System.arraycopy(slots, count, slots, 0, rowCount - count);
+        System.arraycopy(lost, 0, slots, rowCount - count, count);
+        for (int row = rowCount - count; row < rowCount; row++) {
+            filledCount -= fills[slots[row]];
+            clearSlot(slots[row]);
+            for (int col = 0; col < colCount; col++) {
+                if (col != holeCol) {
+                    setTile(col, row, type);
+                }
+            }
+        }
+
+        /*
+         * Every column grows by the garbage under it, but the hole only has
+         * garbage under it when its column had tiles, and a column that lost
+         * tiles off the top looks for its new top.
+         */
+        for (int col = 0; col < colCount; col++) {
+            if (col != holeCol || heights[col] > 0) {
+                heights[col] += count;
+            }
+            if (heights[col] > rowCount) {
+                int top = 0;
+                while (top < rowCount && !isOccupied(col, top)) {
+                    top++;
+                }
+                heights[col] = rowCount - top;
+            }
+        }
+        touchedTop = 0;
+        touchedBottom = rowCount - 1;
+        return isToppedOut;
+    }
+
+    /**
+     * Gets the highest row whose tiles changed since the changes were last
+     * forgotten, which is {@code getRowCount()} if none did.
+     *
+     * @return The row.
+     */
+    public int getChangedTop() {
+        return changedTop;
+    }
+
+    /**
+     * Gets the lowest row whose tiles changed since the changes were last
+     * forgotten, which is -1 if none did.
+     *
+     * @return The row.
+     */
+    public int getChangedBottom() {
+        return changedBottom;
+    }
+
+    /**
+     * Forgets which rows changed, once whoever draws the board has copied
+     * them.
+     */
+    public void forgetChanges() {
+        changedTop = rowCount;
+        changedBottom = -1;
+    }
+
+    /**
+     * Adds rows to the ones whose tiles changed.
+     *
+     * @param top The first row that changed.
+     * @param bottom The last row that changed.
+     */
+    private void change(int top, int bottom) {
+        if (top <= bottom) {
+            changedTop = Math.min(changedTop, top);
+            changedBottom = Math.max(changedBottom, bottom);
+        }
+    }
+
+    /**
+     * Forgets which rows were touched.
+     */
+    private void untouch() {
+        touchedTop = rowCount;
+        touchedBottom = -1;
+    }
+
+    /**
+     * Empties a slot.
+     *
+     * @param slot The slot.
+     */
+    private void clearSlot(int slot) {
+        for (int word = 0; word < words; word++) {
+            cells[slot * words + word] = 0L;
+        }
+        for (int col = 0; col < colCount; col++) {
+            types[slot * colCount + col] = 0;
+        }
+        fills[slot] = 0;
+    }
+
+    /**
+     * Copies a slot into another one.
+     *
+     * @param from The slot to copy.
+     * @param to The slot to copy it into.
+     */
+    private void copySlot(int from, int to) {
+        System.arraycopy(cells, from * words, cells, to * words, words);
+        System.arraycopy(types, from * colCount, types, to * colCount,
+                colCount);
+        fills[to] = fills[from];
+    }
+
+    /**
+     * Works out the column heights, row fills and the number of occupied
+     * cells from scratch.
+     */
+    private void recount() {
+        filledCount = 0;
+        for (int col = 0; col < colCount; col++) {
+            heights[col] = 0;
+        }
+        for (int row = rowCount - 1; row >= 0; row--) {
+            int slot = slots[row];
+            int fill = 0;
+            for (int word = 0; word < words; word++) {
+                long bits = cells[slot * words + word];
+                fill += Long.bitCount(bits);
+
+                //Going up, the last row a column has a tile in is its top.
+                while (bits != 0L) {
+                    heights[word * WORD_BITS
+                            + Long.numberOfTrailingZeros(bits)] =
+                            rowCount - row;
+                    bits &= bits - 1L;
+                }
+            }
+            fills[slot] = fill;
+            filledCount += fill;
+        }
+    }
+
+    /**
+     * Gets the number of columns.
+     *
+     * @return The number of columns.
+     */
+    public int getColCount() {
+        return colCount;
+    }
+
+    /**
+     * Gets the number of visible rows.
+     *
+     * @return The number of visible rows.
+     */
+    public int getVisibleRowCount() {
+        return visibleRowCount;
+    }
+
+    /**
+     * Gets the total number of rows, hidden ones included.
+     *
+     * @return The number of rows.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the pieces the board is played with.
+     *
+     * @return The piece set.
+     */
+    public PieceSet getPieceSet() {
+        return pieceSet;
+    }
+
+    /**
+     * Checks to see if this is a standard board.
+     *
+     * @return Whether or not the board is {@code COL_COUNT} by
+     * {@code ROW_COUNT} and played with the standard piece set.
+     */
+    public boolean isStandard() {
+        return colCount == COL_COUNT && rowCount == ROW_COUNT
+                && pieceSet == PieceSet.STANDARD;
+    }
+
+    /**
+     * Gets the column a piece spawns in, in the middle of the board.
+     *
+     * @param type The type of the piece.
+     * @return The column.
+     */
+    public int getSpawnColumn(TileType type) {
+        return colCount / 2 - (type.getDimension() >> 1);
+    }
+
+    /**
+     * Gets the height of a column: the number of rows from its top tile down
+     * to the floor.
+     *
+     * @param col The column.
+     * @return The height, or 0 if the column is empty.
+     */
+    public int getColumnHeight(int col) {
+        return heights[col];
+    }
+
+    /**
+     * Gets the height of the tallest column.
+     *
+     * @return The height.
+     */
+    public int getMaxHeight() {
+        int max = 0;
+        for (int col = 0; col < colCount; col++) {
+            max = Math.max(max, heights[col]);
+        }
+        return max;
+    }
+
+    /**
+     * Gets the number of occupied cells in a row.
+     *
+     * @param row The row.
+     * @return The number of cells.
+     */
+    public int getRowFill(int row) {
+        return fills[slots[row]];
+    }
+
+    /**
+     * Gets the number of holes: empty cells with a tile somewhere above
+     * them. Every cell under the top of a column is either occupied or a
+     * hole, so this is the sum of the heights less the occupied cells.
+     *
+     * @return The number of holes.
+     */
+    public int getHoleCount() {
+        int aggregateHeight = 0;
+        for (int col = 0; col < colCount; col++) {
+            aggregateHeight += heights[col];
+        }
+        return aggregateHeight - filledCount;
+    }
+
+    /**
+     * Checks to see if the tile is already occupied.
+     *
+     * @param x The x coordinate to check.
+     * @param y The y coordinate to check.
+     * @return Whether or not the tile is occupied.
+     */
+    public boolean isOccupied(int x, int y) {
+        return (cells[slots[y] * words + x / WORD_BITS] & 1L << x) != 0L;
+    }
+
+    /**
+     * Sets a tile located at the desired column and row, keeping the fills
+     * and the number of occupied cells up to date.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param type The value to set to the tile to.
+     */
+    private void setTile(int x, int y, TileType type) {
+        int slot = slots[y];
+        int word = slot * words + x / WORD_BITS;
+        int change = type == null ? 0 : 1;
+        if ((cells[word] & 1L << x) != 0L) {
+            change--;
+        }
+        types[slot * colCount + x] =
+                (byte) (type == null ? 0 : type.getType() + 1);
+        if (type == null) {
+            cells[word] &= ~(1L << x);
+        } else {
+            cells[word] |= 1L << x;
+        }
+        fills[slot] += change;
+        filledCount += change;
+    }
+
+    /**
+     * Gets a tile by it's column and row.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @return The tile.
+     */
+    public TileType getTile(int x, int y) {
+        int type = types[slots[y] * colCount + x];
+        return type == 0 ? null : pieceSet.get(type - 1);
+    }
+
+    /**
+     * Gets a row as a mask, with bit {@code col} set when that column is
+     * occupied. This is the form {@code BoardFeatures} works on, so it only
+     * holds a whole row on boards of up to 32 columns.
+     *
+     * @param row The row.
+     * @return The mask.
+     */
+    public int getRowMask(int row) {
+        return (int) cells[slots[row] * words];
+    }
+
+    /**
+     * Copies the mask of every row, from the top down, into an array. Like
+     * {@code getRowMask}, only for boards of up to 32 columns.
+     *
+     * @param rows Where to store the masks.
+     * @param offset Where to start storing them.
+     */
+    public void copyRowMasks(int[] rows, int offset) {
+        for (int row = 0; row < rowCount; row++) {
+            rows[offset + row] = (int) cells[slots[row] * words];
+        }
+    }
+
+    /**
+     * Packs a row of a standard board into a single int, using
+     * {@code PACKED_CELL_BITS} bits per cell starting from the lowest bits.
+     * Each cell holds 0 when it is empty and the type of its tile plus one
+     * otherwise. This is what the game server sends over the wire.
+     *
+     * @param row The row to pack.
+     * @return The packed row.
+     */
+    public int packRow(int row) {
+        int first = slots[row] * colCount;
+        int packed = 0;
+        for (int col = COL_COUNT - 1; col >= 0; col--) {
+            packed = (packed << PACKED_CELL_BITS) | types[first + col];
+        }
+        return packed;
+    }
+
+    /**
+     * @getMatrix
+     *
+     * Scans the board to see which tiles are empty and which ones are occupied.
+     * We use this method so we can save and load the game successfully.
+     *
+     * @Parameter: none
+     * @retrun: State
+     */
+    public int[][] getMatrix() {
+        int State[][] = new int[rowCount][colCount];
+
+        for (int iI = 0; iI < rowCount; iI++) {
+            for (int iJ = 0; iJ < colCount; iJ++) {
+                State[iI][iJ] = types[slots[iI] * colCount + iJ] - 1;
+            }
+        }
+        return State;
+    }
+
+    /**
+     * @setMatrix
+     *
+     * We use this method so we can save and load the game successfully. This
+     * setter is for the loading part specifically, and the board takes the
+     * size and piece set of the saved one.
+     *
+     * @Parameter: State, pieceSet
+     * @retrun: none
+     */
+    public void setMatrix(int[][] State, PieceSet pieceSet) {
+
+        resize(State[0].length, State.length - HIDDEN_ROW_COUNT, pieceSet);
+
+        for (int iC = 0; iC < State.length; iC++) {
+            for (int iJ = 0; iJ < State[0].length; iJ++) {
+
+                if (State[iC][iJ] != -1) {
+                    setTile(iJ, iC, pieceSet.get(State[iC][iJ]));
+                }
+            }
+        }
+        recount();
+
+        //A saved board may have full lines, so check them all next time.
+        touchedTop = 0;
+        touchedBottom = rowCount - 1;
+    }
+}
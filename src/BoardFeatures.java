@@ -0,0 +1,362 @@
+import java.util.Random;
+
+/**
+ * The {@code BoardFeatures} class works out the features the bot scores
+ * boards by, for whole batches of candidate boards at once.
+ *
+ * Boards are given as row masks: one int per row, from the top row down,
+ * with bit {@code col} set when that cell is occupied. The fast path works on
+ * every column of a row at once with bitwise operations and bit counts: a
+ * running OR of the rows seen so far marks which columns have started, so
+ * the heights, holes and bumpiness all fall out of counting bits row by row,
+ * with no per-column loop. The scalar path walks the cells one by one and is
+ * kept as the reference the fast path is checked against.
+ *
+ * Run on its own, this class checks both paths agree on random boards and
+ * times them.
+ *
+ * Usage: {@code java BoardFeatures [boards] [rounds]}
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class BoardFeatures {
+
+    /**
+     * The sum of the heights of the columns.
+     */
+    public static final int AGGREGATE_HEIGHT = 0;
+
+    /**
+     * The number of empty cells with a tile somewhere above them.
+     */
+    public static final int HOLES = 1;
+
+    /**
+     * The sum of the height differences between neighbouring columns.
+     */
+    public static final int BUMPINESS = 2;
+
+    /**
+     * The height of the tallest column.
+     */
+    public static final int MAX_HEIGHT = 3;
+
+    /**
+     * The number of times a row goes from filled to empty or back, with the
+     * walls counted as filled.
+     */
+    public static final int ROW_TRANSITIONS = 4;
+
+    /**
+     * The number of times a column goes from filled to empty or back, with
+     * the floor counted as filled.
+     */
+    public static final int COLUMN_TRANSITIONS = 5;
+
+    /**
+     * The sum of the depths of the wells: each empty cell with filled cells
+     * (or walls) on both sides counts as deep as the run of such cells
+     * above it, itself included.
+     */
+    public static final int WELLS = 6;
+
+    /**
+     * The number of features.
+     */
+    public static final int FEATURE_COUNT = 7;
+
+    /**
+     * The mask of a full row.
+     */
+    private static final int FULL_ROW = (1 << Board.COL_COUNT) - 1;
+
+    /**
+     * The walls either side of a row that has been shifted over by one.
+     */
+    private static final int WALLS = 1 << (Board.COL_COUNT + 1) | 1;
+
+    /**
+     * Creates a new BoardFeatures. There is nothing to create, as this class
+     * only holds static methods.
+     */
+    private BoardFeatures() {
+    }
+
+    /**
+     * Works out the features of a batch of boards.
+     *
+     * @param rows The row masks of the boards, {@code Board.ROW_COUNT} per
+     * board, one board after the other.
+     * @param boardCount The number of boards.
+     * @param features Where to store the features, {@code FEATURE_COUNT} per
+     * board, in the same order as the boards.
+     */
+    public static void extract(int[] rows, int boardCount, int[] features) {
+        for (int i = 0; i < boardCount; i++) {
+            extract(rows, i * Board.ROW_COUNT, features, i * FEATURE_COUNT);
+        }
+    }
+
+    /**
+     * Works out the features of one board.
+     *
+     * @param rows The row masks.
+     * @param offset Where the board starts in {@code rows}.
+     * @param features Where to store the features.
+     * @param featureOffset Where to start storing them.
+     */
+    public static void extract(int[] rows, int offset, int[] features,
+            int featureOffset) {
+        int aggregateHeight = 0;
+        int holes = 0;
+        int bumpiness = 0;
+        int maxHeight = 0;
+        int rowTransitions = 0;
+        int columnTransitions = 0;
+        int wells = 0;
+
+        /*
+         * seen has a bit set for every column whose top is on or above the
+         * current row, so each row adds one to the height of every column in
+         * it, and every empty cell in it is a hole. Two neighbouring columns
+         * differ in height by the number of rows where only one of them has
+         * started.
+         *
+         * The length of the run of well cells in each column is kept as a
+         * bit-sliced counter, with bit k of every column's run in depth[k],
+         * so all the columns are counted up or reset at once.
+         */
+        int seen = 0;
+        int above = 0;
+        int depth0 = 0;
+        int depth1 = 0;
+        int depth2 = 0;
+        int depth3 = 0;
+        int depth4 = 0;
+        for (int row = 0; row < Board.ROW_COUNT; row++) {
+            int mask = rows[offset + row];
+            if (seen == 0 && mask != 0) {
+                maxHeight = Board.ROW_COUNT - row;
+            }
+            holes += Integer.bitCount(seen & ~mask);
+            seen |= mask;
+            aggregateHeight += Integer.bitCount(seen);
+            bumpiness += Integer.bitCount((seen ^ (seen >>> 1))
+                    & (FULL_ROW >>> 1));
+
+            //Shift the row over by one to put a wall on either side.
+            int walled = mask << 1 | WALLS;
+            rowTransitions += Integer.bitCount((walled ^ (walled >>> 1))
+                    & (FULL_ROW << 1 | 1));
+            columnTransitions += Integer.bitCount(mask ^ above);
+            above = mask;
+
+            //Count up the runs that go on, and drop the ones that don't.
+            int well = ~mask & walled & (walled >>> 2) & FULL_ROW;
+            int carry = well;
+            depth0 &= well;
+            depth1 &= well;
+            depth2 &= well;
+            depth3 &= well;
+            depth4 &= well;
+            depth0 ^= carry;
+            carry &= ~depth0;
+            depth1 ^= carry;
+            carry &= ~depth1;
+            depth2 ^= carry;
+            carry &= ~depth2;
+            depth3 ^= carry;
+            carry &= ~depth3;
+            depth4 ^= carry;
+            wells += Integer.bitCount(depth0)
+                    + (Integer.bitCount(depth1) << 1)
+                    + (Integer.bitCount(depth2) << 2)
+                    + (Integer.bitCount(depth3) << 3)
+                    + (Integer.bitCount(depth4) << 4);
+        }
+        columnTransitions += Integer.bitCount(~above & FULL_ROW);
+
+        features[featureOffset + AGGREGATE_HEIGHT] = aggregateHeight;
+        features[featureOffset + HOLES] = holes;
+        features[featureOffset + BUMPINESS] = bumpiness;
+        features[featureOffset + MAX_HEIGHT] = maxHeight;
+        features[featureOffset + ROW_TRANSITIONS] = rowTransitions;
+        features[featureOffset + COLUMN_TRANSITIONS] = columnTransitions;
+        features[featureOffset + WELLS] = wells;
+    }
+
+    /**
+     * Works out the features of a batch of boards one cell at a time. This
+     * is slower than {@code extract}, and gives the same results.
+     *
+     * @param rows The row masks of the boards, {@code Board.ROW_COUNT} per
+     * board, one board after the other.
+     * @param boardCount The number of boards.
+     * @param features Where to store the features, {@code FEATURE_COUNT} per
+     * board, in the same order as the boards.
+     */
+    public static void extractScalar(int[] rows, int boardCount,
+            int[] features) {
+        for (int i = 0; i < boardCount; i++) {
+            extractScalar(rows, i * Board.ROW_COUNT, features,
+                    i * FEATURE_COUNT);
+        }
+    }
+
+    /**
+     * Works out the features of one board one cell at a time.
+     *
+     * @param rows The row masks.
+     * @param offset Where the board starts in {@code rows}.
+     * @param features Where to store the features.
+     * @param featureOffset Where to start storing them.
+     */
+    public static void extractScalar(int[] rows, int offset, int[] features,
+            int featureOffset) {
+        int aggregateHeight = 0;
+        int holes = 0;
+        int bumpiness = 0;
+        int maxHeight = 0;
+        int rowTransitions = 0;
+        int columnTransitions = 0;
+        int wells = 0;
+        int lastHeight = -1;
+
+        for (int col = 0; col < Board.COL_COUNT; col++) {
+            //Find the top of the column, then count the holes under it.
+            int top = 0;
+            while (top < Board.ROW_COUNT && !isSet(rows, offset, col, top)) {
+                top++;
+            }
+            for (int row = top + 1; row < Board.ROW_COUNT; row++) {
+                if (!isSet(rows, offset, col, row)) {
+                    holes++;
+                }
+            }
+            int height = Board.ROW_COUNT - top;
+            aggregateHeight += height;
+            maxHeight = Math.max(maxHeight, height);
+            if (lastHeight >= 0) {
+                bumpiness += Math.abs(height - lastHeight);
+            }
+            lastHeight = height;
+
+            //Walk down the column, with empty above it and the floor below.
+            boolean isAboveSet = false;
+            int run = 0;
+            for (int row = 0; row < Board.ROW_COUNT; row++) {
+                boolean isCellSet = isSet(rows, offset, col, row);
+                if (isCellSet != isAboveSet) {
+                    columnTransitions++;
+                }
+                isAboveSet = isCellSet;
+
+                boolean isLeftSet = col == 0
+                        || isSet(rows, offset, col - 1, row);
+                boolean isRightSet = col == Board.COL_COUNT - 1
+                        || isSet(rows, offset, col + 1, row);
+                run = !isCellSet && isLeftSet && isRightSet ? run + 1 : 0;
+                wells += run;
+            }
+            if (!isAboveSet) {
+                columnTransitions++;
+            }
+        }
+
+        for (int row = 0; row < Board.ROW_COUNT; row++) {
+            //The walls count as filled.
+            boolean isLastSet = true;
+            for (int col = 0; col <= Board.COL_COUNT; col++) {
+                boolean isCellSet = col == Board.COL_COUNT
+                        || isSet(rows, offset, col, row);
+                if (isCellSet != isLastSet) {
+                    rowTransitions++;
+                }
+                isLastSet = isCellSet;
+            }
+        }
+
+        features[featureOffset + AGGREGATE_HEIGHT] = aggregateHeight;
+        features[featureOffset + HOLES] = holes;
+        features[featureOffset + BUMPINESS] = bumpiness;
+        features[featureOffset + MAX_HEIGHT] = maxHeight;
+        features[featureOffset + ROW_TRANSITIONS] = rowTransitions;
+        features[featureOffset + COLUMN_TRANSITIONS] = columnTransitions;
+        features[featureOffset + WELLS] = wells;
+    }
+
+    /**
+     * Checks to see if a cell of a board is occupied.
+     *
+     * @param rows The row masks.
+     * @param offset Where the board starts in {@code rows}.
+     * @param col The column.
+     * @param row The row.
+     * @return Whether or not the cell is occupied.
+     */
+    private static boolean isSet(int[] rows, int offset, int col, int row) {
+        return (rows[offset + row] & (1 << col)) != 0;
+    }
+
+    /**
+     * Entry-point of the benchmark.
+     *
+     * @param args The number of boards per batch and the number of rounds.
+     */
+    public static void main(String[] args) {
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        /*
+         * Fill the boards like a game would: empty near the top, packed with
+         * a few holes near the bottom.
+         */
+        Random random = new Random(1);
+        int[] rows = new int[boards * Board.ROW_COUNT];
+        for (int i = 0; i < boards; i++) {
+            int top = random.nextInt(Board.ROW_COUNT);
+            for (int row = top; row < Board.ROW_COUNT; row++) {
+                int mask = 0;
+                for (int col = 0; col < Board.COL_COUNT; col++) {
+                    if (random.nextInt(Board.ROW_COUNT) <= row) {
+                        mask |= 1 << col;
+                    }
+                }
+                rows[i * Board.ROW_COUNT + row] = mask;
+            }
+        }
+
+        int[] fast = new int[boards * FEATURE_COUNT];
+        int[] scalar = new int[boards * FEATURE_COUNT];
+        extract(rows, boards, fast);
+        extractScalar(rows, boards, scalar);
+        for (int i = 0; i < fast.length; i++) {
+            if (fast[i] != scalar[i]) {
+                System.out.println("Mismatch on board " + i / FEATURE_COUNT
+                        + " feature " + i % FEATURE_COUNT + ": " + fast[i]
+                        + " != " + scalar[i]);
+                return;
+            }
+        }
+
+        //Run each a few times so both are compiled before they are timed.
+        for (int pass = 0; pass < 3; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                extractScalar(rows, boards, scalar);
+            }
+            long scalarNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                extract(rows, boards, fast);
+            }
+            long fastNanos = System.nanoTime() - start;
+
+            double count = (double) boards * rounds;
+            System.out.println(String.format("pass %d: scalar %.1f ns/board "
+                    + "bitwise %.1f ns/board speedup %.1fx", pass,
+                    scalarNanos / count, fastNanos / count,
+                    (double) scalarNanos / fastNanos));
+        }
+    }
+}
@@ -3,12 +3,32 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
 import java.io.Serializable;
 import javax.swing.JPanel;
 
 /**
- * The {@code BoardPanel} class is responsible for displaying the game grid and
- * handling things related to the game board.
+ * The {@code BoardPanel} class is responsible for displaying the game grid.
+ * The grid itself and the rules that work on it live in {@code Board}.
+ *
+ * A board bigger than the standard one is too big to show whole, so the panel
+ * is meant to sit in a scroll pane that follows the piece. Only the tiles and
+ * grid lines inside the clip are painted, and empty rows are skipped, so the
+ * time a frame takes depends on the area on screen, not the board. Each type
+ * of piece in the piece set is drawn once into a sprite, and its ghost into
+ * another, so a tile is a single image copy.
+ *
+ * The panel never reads the game while it is being played. The game's
+ * thread publishes a frame after its ticks, which holds the piece and only
+ * the rows of the board that changed since the last frame the panel took,
+ * and the panel copies those rows into tiles of its own that it paints
+ * from. So neither thread copies more than the rows that changed, however
+ * big the board is. Three frames take turns, so nobody allocates or waits on
+ * a frame being written. The boards of a {@code VersusGame} are published
+ * the same way, by their own threads.
  *
  * @author Brendan Jones
  *
@@ -38,25 +58,24 @@ public class BoardPanel extends JPanel implements Serializable {
     private static final int BORDER_WIDTH = 5;
 
     /**
-     * The number of columns on the board.
+     * The number of columns on a standard board.
      */
-    public static final int COL_COUNT = 10;
+    public static final int COL_COUNT = Board.COL_COUNT;
 
     /**
-     * The number of visible rows on the board.
+     * The number of visible rows on a standard board.
      */
-    private static final int VISIBLE_ROW_COUNT = 20;
+    private static final int VISIBLE_ROW_COUNT = Board.VISIBLE_ROW_COUNT;
 
     /**
      * The number of rows that are hidden from view.
      */
-    public static final int HIDDEN_ROW_COUNT = 2;
+    public static final int HIDDEN_ROW_COUNT = Board.HIDDEN_ROW_COUNT;
 
     /**
-     * The total number of rows that the board contains.
+     * The total number of rows that a standard board contains.
      */
-    public static final int ROW_COUNT = VISIBLE_ROW_COUNT
-            + HIDDEN_ROW_COUNT;
+    public static final int ROW_COUNT = Board.ROW_COUNT;
 
     /**
      * The number of pixels that a tile takes up.
@@ -69,23 +88,13 @@ public class BoardPanel extends JPanel implements Serializable {
     public static final int SHADE_WIDTH = 4;
 
     /**
-     * The central x coordinate on the game board.
-     */
-    private static final int CENTER_X = COL_COUNT * TILE_SIZE / 2;
-
-    /**
-     * The central y coordinate on the game board.
-     */
-    private static final int CENTER_Y = VISIBLE_ROW_COUNT * TILE_SIZE / 2;
-
-    /**
-     * The total width of the panel.
+     * The total width of the panel for a standard board.
      */
     public static final int PANEL_WIDTH = COL_COUNT * TILE_SIZE
             + BORDER_WIDTH * 2;
 
     /**
-     * The total height of the panel.
+     * The total height of the panel for a standard board.
      */
     public static final int PANEL_HEIGHT = VISIBLE_ROW_COUNT * TILE_SIZE
             + BORDER_WIDTH * 2;
@@ -103,20 +112,126 @@ public class BoardPanel extends JPanel implements Serializable {
             = new Font("Tahoma", Font.BOLD, 12);
 
     /**
-     * The Tetris instance.
+     * The game being played, which is only read to publish its frames.
+     */
+    private final GameEngine game;
+
+    /**
+     * Guards the handing over of frames.
+     */
+    private final Object frameLock = new Object();
+
+    /**
+     * The frame being written. Only used by the game's thread.
+     */
+    private Frame back;
+
+    /**
+     * The newest frame handed over, guarded by {@code frameLock}.
+     */
+    private Frame ready;
+
+    /**
+     * Whether or not {@code ready} hasn't been taken yet, guarded by
+     * {@code frameLock}.
+     */
+    private boolean isFresh;
+
+    /**
+     * The highest row that changed since the last frame the panel took.
+     * Every frame copies the rows that changed since then, so none are
+     * missed when a frame is published over one that wasn't taken. Only
+     * used by the game's thread.
+     */
+    private int pendingTop;
+
+    /**
+     * The lowest row that changed since the last frame the panel took. Only
+     * used by the game's thread.
+     */
+    private int pendingBottom = -1;
+
+    /**
+     * The key press stamp and the time of the state change that goes with
+     * the frames until one is taken, or a stamp of 0 if there is none. Only
+     * used by the game's thread.
      */
-    private Tetris tetris;
+    private final long[] pendingChange = new long[2];
 
     /**
-     * The tiles that make up the board.
+     * The frame being painted. Only used by the Swing event thread.
      */
-    public TileType[][] tiles;
+    private Frame front;
+
+    /**
+     * The tiles painted, a byte per cell as {@code Board.copyTiles} gives
+     * them, kept up to date with the rows of each frame taken. Only used by
+     * the Swing event thread.
+     */
+    private byte[] tiles;
+
+    /**
+     * The number of occupied cells in each row of {@code tiles}.
+     */
+    private int[] fills;
+
+    /**
+     * The width of the visible part of the board, in pixels.
+     */
+    private int boardWidth;
+
+    /**
+     * The height of the visible part of the board, in pixels.
+     */
+    private int boardHeight;
+
+    /**
+     * The sprite of each type of piece in the piece set, by type.
+     */
+    private Image[] sprites;
+
+    /**
+     * The sprite of the ghost of each type of piece in the piece set, by
+     * type.
+     */
+    private Image[] ghostSprites;
+
+    /**
+     * The piece set the sprite caches were made for.
+     */
+    private PieceSet spritesSet;
+
+    /**
+     * The profiler the paint time is recorded in.
+     */
+    private FrameProfiler profiler;
+
+    /**
+     * The tracker of key press to screen latency.
+     */
+    private InputLatencyTracker inputLatency;
+
+    /**
+     * The report told when the first frame is painted, or null once it has
+     * been told, or if there is none.
+     */
+    private StartupReport startup;
+
+    /**
+     * Whether or not the game is paused.
+     */
+    private boolean isPaused;
+
+    /**
+     * Whether or not the game is being rewound.
+     */
+    private boolean isRewinding;
 
     /**
      * The tiles that make up the board. the boolean is a flag so we can use the
      * animations in the game
      */
-    public boolean isAdded = false;
+    private volatile boolean isAdded = false;
 
     /**
      * Crates a new GameBoard instance.
@@ -124,181 +239,161 @@ public class BoardPanel extends JPanel implements Serializable {
      * @param tetris The Tetris instance to use.
      */
     public BoardPanel(Tetris tetris) {
-        this.tetris = tetris;
-        this.tiles = new TileType[ROW_COUNT][COL_COUNT];
-
-        setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
-        setBackground(Color.BLACK);
+        this(tetris.getEngine(), tetris.getProfiler(),
+                tetris.getInputLatency());
+        this.startup = tetris.getStartup();
     }
 
     /**
-     * Resets the board and clears away any tiles.
+     * Crates a new GameBoard instance that draws the given game. This is how
+     * the boards of a {@code VersusGame} are drawn side by side. The panel
+     * starts with a frame of the game as it is, and the thread that plays
+     * the game must then {@code publish} after its ticks.
+     *
+     * @param engine The game to draw.
+     * @param profiler The profiler to record the paint time in.
+     * @param inputLatency The tracker of key press to screen latency.
      */
-    public void clear() {
-        /*
-		 * Loop through every tile index and set it's value
-		 * to null to clear the board.
-         */
-        for (int i = 0; i < ROW_COUNT; i++) {
-            for (int j = 0; j < COL_COUNT; j++) {
-                tiles[i][j] = null;
-            }
-        }
+    public BoardPanel(GameEngine engine, FrameProfiler profiler,
+            InputLatencyTracker inputLatency) {
+        this.game = engine;
+        this.profiler = profiler;
+        this.inputLatency = inputLatency;
+
+        setBackground(Color.BLACK);
+        publish();
+        updateBoard();
     }
 
     /**
-     * Determines whether or not a piece can be placed at the coordinates.
-     *
-     * @param type THe type of piece to use.
-     * @param x The x coordinate of the piece.
-     * @param y The y coordinate of the piece.
-     * @param rotation The rotation of the piece.
-     * @return Whether or not the position is valid.
+     * Sizes the panel to the board and empties the sprite caches, which are
+     * filled in as each piece is first drawn. The board changes size and
+     * piece set when a saved game is loaded.
      */
-    public boolean isValidAndEmpty(TileType type, int x, int y,
-            int rotation) {
-
-        //Ensure the piece is in a valid column.
-        if (x < -type.getLeftInset(rotation) || x + type.getDimension()
-                - type.getRightInset(rotation) >= COL_COUNT) {
-            return false;
-        }
-
-        //Ensure the piece is in a valid row.
-        if (y < -type.getTopInset(rotation) || y + type.getDimension()
-                - type.getBottomInset(rotation) >= ROW_COUNT) {
-            return false;
-        }
-
-        /*
-		 * Loop through every tile in the piece and see if it 
-                 * conflicts with an existing tile.
-		 * 
-		 * Note: It's fine to do this even though it allows for wrapping 
-                 * because we've already
-		 * checked to make sure the piece is in a valid location.
-         */
-        for (int col = 0; col < type.getDimension(); col++) {
-            for (int row = 0; row < type.getDimension(); row++) {
-                if (type.isTile(col, row, rotation)
-                        && isOccupied(x + col, y + row)) {
-                    return false;
-                }
-            }
-        }
-        return true;
+    public void updateBoard() {
+        takeFrame();
+        fitBoard();
     }
 
     /**
-     * Adds a piece to the game board. Note: Doesn't check for existing pieces,
-     * and will overwrite them if they exist.
-     *
-     * @param type The type of piece to place.
-     * @param x The x coordinate of the piece.
-     * @param y The y coordinate of the piece.
-     * @param rotation The rotation of the piece.
+     * Sizes the panel to the board being drawn and empties the sprite caches
+     * for its piece set.
      */
-    public void addPiece(TileType type, int x, int y, int rotation) {
-        /*
-		 * Loop through every tile within the piece and add it
-		 * to the board only if the boolean that represents that
-		 * tile is set to true.
-         */
-        for (int col = 0; col < type.getDimension(); col++) {
-            for (int row = 0; row < type.getDimension(); row++) {
-                if (type.isTile(col, row, rotation)) {
-                    setTile(col + x, row + y, type);
-                }
-            }
-        }
+    private void fitBoard() {
+        this.spritesSet = front.pieceSet;
+        this.sprites = new Image[spritesSet.size()];
+        this.ghostSprites = new Image[spritesSet.size()];
+
+        this.boardWidth = front.colCount * TILE_SIZE;
+        this.boardHeight = (front.rowCount - HIDDEN_ROW_COUNT) * TILE_SIZE;
+        setPreferredSize(new Dimension(boardWidth + BORDER_WIDTH * 2,
+                boardHeight + BORDER_WIDTH * 2));
+        revalidate();
     }
 
     /**
-     * Checks the board to see if any lines have been cleared, and removes them
-     * from the game.
-     *
-     * @return The number of lines that were cleared.
+     * Hands a frame of the game to the panel, to be painted next. Called on
+     * the game's thread, between its ticks.
      */
-    public int checkLines() {
-        int completedLines = 0;
+    public void publish() {
+        Board board = game.getBoard();
+        boolean isTaken;
+        synchronized (frameLock) {
+            isTaken = !isFresh;
+        }
+        if (isTaken) {
+            pendingTop = board.getRowCount();
+            pendingBottom = -1;
+            pendingChange[0] = 0L;
+        }
 
-        /*
-		 * Here we loop through every line and check it to see if
-		 * it's been cleared or not. If it has, we increment the
-		 * number of completed lines and check the next row.
-		 * 
-		 * The checkLine function handles clearing the line and
-		 * shifting the rest of the board down for us.
-         */
-        for (int row = 0; row < ROW_COUNT; row++) {
-            if (checkLine(row)) {
-                completedLines++;
-            }
+        //A board with fewer rows may have been loaded since.
+        pendingBottom = Math.min(pendingBottom, board.getRowCount() - 1);
+        if (back == null || !back.fits(board)) {
+            //Only at first, and after a board of another size loads.
+            back = new Frame(board);
+            pendingTop = 0;
+            pendingBottom = board.getRowCount() - 1;
+        }
+        pendingTop = Math.min(pendingTop, board.getChangedTop());
+        pendingBottom = Math.max(pendingBottom, board.getChangedBottom());
+        board.forgetChanges();
+        back.take(game, pendingTop, pendingBottom);
+
+        //A key press shows up in the first frame published after it.
+        if (pendingChange[0] == 0L) {
+            inputLatency.takeStateChange(pendingChange);
+        }
+        back.stateInput = pendingChange[0];
+        back.stateTime = pendingChange[1];
+
+        synchronized (frameLock) {
+            Frame taken = back;
+            back = ready;
+            ready = taken;
+            isFresh = true;
         }
-        return completedLines;
     }
 
     /**
-     * Checks whether or not {@code row} is full.
-     *
-     * @param line The row to check.
-     * @return Whether or not this row is full.
+     * Takes the newest frame, if one came since the last time, and copies
+     * its rows into the tiles.
      */
-    private boolean checkLine(int line) {
-        /*
-		 * Iterate through every column in this row. If any of them are
-		 * empty, then the row is not full.
-         */
-        for (int col = 0; col < COL_COUNT; col++) {
-            if (!isOccupied(col, line)) {
-                return false;
+    private void takeFrame() {
+        synchronized (frameLock) {
+            if (!isFresh) {
+                return;
             }
+            Frame taken = ready;
+            ready = front;
+            front = taken;
+            isFresh = false;
         }
+        inputLatency.frameTaken(front.stateInput, front.stateTime);
 
         /*
-		 * Since the line is filled, we need to 'remove' it from the 
-                 * game.
-		 * To do this, we simply shift every row above it down by one.
+         * A frame of a board of another size has every row, since the board
+         * was new when it was published.
          */
-        for (int row = line - 1; row >= 0; row--) {
-            for (int col = 0; col < COL_COUNT; col++) {
-                setTile(col, row + 1, getTile(col, row));
-            }
+        if (tiles == null || tiles.length != front.tiles.length
+                || fills.length != front.rowCount) {
+            tiles = new byte[front.tiles.length];
+            fills = new int[front.rowCount];
+        }
+        if (front.top <= front.bottom) {
+            int first = front.top * front.colCount;
+            System.arraycopy(front.tiles, first, tiles, first,
+                    (front.bottom - front.top + 1) * front.colCount);
+            System.arraycopy(front.fills, front.top, fills, front.top,
+                    front.bottom - front.top + 1);
         }
-        return true;
-    }
-
-    /**
-     * Checks to see if the tile is already occupied.
-     *
-     * @param x The x coordinate to check.
-     * @param y The y coordinate to check.
-     * @return Whether or not the tile is occupied.
-     */
-    public boolean isOccupied(int x, int y) {
-        return tiles[y][x] != null;
-    }
 
-    /**
-     * Sets a tile located at the desired column and row.
-     *
-     * @param x The column.
-     * @param y The row.
-     * @param type The value to set to the tile to.
-     */
-    private void setTile(int x, int y, TileType type) {
-        tiles[y][x] = type;
+        //A loaded game may be painted before the panel is told about it.
+        if (front.pieceSet != spritesSet
+                || front.colCount * TILE_SIZE != boardWidth
+                || (front.rowCount - HIDDEN_ROW_COUNT) * TILE_SIZE
+                != boardHeight) {
+            fitBoard();
+        }
     }
 
     /**
-     * Gets a tile by it's column and row.
-     *
-     * @param x The column.
-     * @param y The row.
-     * @return The tile.
+     * Scrolls the scroll pane the panel is in, if any, so that the current
+     * piece is in view.
      */
-    public TileType getTile(int x, int y) {
-        return tiles[y][x];
+    public void followPiece() {
+        takeFrame();
+        if (front.isNewGame || front.isGameOver) {
+            return;
+        }
+        int dimension = front.pieceType.getDimension();
+        Rectangle piece = new Rectangle(BORDER_WIDTH + (front.pieceCol
+                - dimension) * TILE_SIZE, BORDER_WIDTH + (front.pieceRow
+                - HIDDEN_ROW_COUNT - dimension) * TILE_SIZE,
+                dimension * 3 * TILE_SIZE, dimension * 3 * TILE_SIZE);
+        if (!getVisibleRect().contains(piece)) {
+            scrollRectToVisible(piece);
+        }
     }
 
     /**
@@ -321,57 +416,27 @@ public class BoardPanel extends JPanel implements Serializable {
     }
 
     /**
-     * @getMatrix
-     *
-     * Scans the board to see which tiles are empty and which ones are occupied.
-     * We use this method so we can save and load the game successfully.
+     * Sets whether or not the game is paused.
      *
-     * @Parameter: none
-     * @retrun: State
+     * @param isPaused Whether or not the game is paused.
      */
-    public int[][] getMatrix() {
-        int State[][] = new int[tiles.length][tiles[0].length];
-
-        for (int iI = 0; iI < tiles.length; iI++) {
-            for (int iJ = 0; iJ < tiles[0].length; iJ++) {
-
-                if (tiles[iI][iJ] != null) {
-                    State[iI][iJ] = tiles[iI][iJ].getType();
-                } else {
-                    State[iI][iJ] = -1;
-                }
-            }
-        }
-        return State;
+    public void setPaused(boolean isPaused) {
+        this.isPaused = isPaused;
     }
 
     /**
-     * @setMatrix
-     *
-     * We use this method so we can save and load the game successfully. This
-     * setter is for the loading part specifically.
+     * Sets whether or not the game is being rewound.
      *
-     * @Parameter: none
-     * @retrun: State
+     * @param isRewinding Whether or not the game is being rewound.
      */
-    public void setMatrix(int[][] State) {
-
-        tiles = new TileType[State.length][State[0].length];
-
-        for (int iC = 0; iC < State.length; iC++) {
-            for (int iJ = 0; iJ < State[0].length; iJ++) {
-
-                if (State[iC][iJ] != -1) {
-                    tiles[iC][iJ] = TileType.values()[State[iC][iJ]];
-                } else {
-                    tiles[iC][iJ] = null;
-                }
-            }
-        }
+    public void setRewinding(boolean isRewinding) {
+        this.isRewinding = isRewinding;
     }
 
     @Override
     public void paintComponent(Graphics g) {
+        long paintStart = System.nanoTime();
+        takeFrame();
         super.paintComponent(g);
         
         // is a piece was recently added  changes background
@@ -380,17 +445,22 @@ public class BoardPanel extends JPanel implements Serializable {
         //This helps simplify the positioning of things.
         g.translate(BORDER_WIDTH, BORDER_WIDTH);
 
+        //Messages go in the middle of what's on screen.
+        Rectangle visible = getVisibleRect();
+        int centerX = visible.x - BORDER_WIDTH + visible.width / 2;
+        int centerY = visible.y - BORDER_WIDTH + visible.height / 2;
+
         /*
 	* Draw the board differently depending on the current game state.
          */
-        if (tetris.isPaused()) {
+        if (isPaused) {
             g.setFont(LARGE_FONT);
             g.setColor(Color.WHITE);
             String msg = "PAUSED";
-            g.drawString(msg, CENTER_X - g.getFontMetrics().
-                    stringWidth(msg) / 2, CENTER_Y);
-        } else if (tetris.isNewGame() || tetris.isGameOver()) {
-            drawNewOver(g);
+            g.drawString(msg, centerX - g.getFontMetrics().
+                    stringWidth(msg) / 2, centerY);
+        } else if (front.isNewGame || front.isGameOver) {
+            drawNewOver(g, centerX, visible.y - BORDER_WIDTH);
         } else {
             drawTilesBoard(g);
 
@@ -400,29 +470,31 @@ public class BoardPanel extends JPanel implements Serializable {
              * part of the board, it would need to be removed every frame which
              * would just be slow and confusing.
              */
-            TileType type = tetris.getPieceType();
-            int pieceCol = tetris.getPieceCol();
-            int pieceRow = tetris.getPieceRow();
-            int rotation = tetris.getPieceRotation();
+            TileType type = front.pieceType;
+            int pieceCol = front.pieceCol;
+            int pieceRow = front.pieceRow;
+            int rotation = front.pieceRotation;
             
             //Draw the piece onto the board.
             drawCurrentPiece(g, type, pieceCol, pieceRow, rotation);
             //Draw the ghost piece onto the board.
-            drawGhost(g, type, pieceCol, pieceRow, rotation);
+            drawGhost(g, type, pieceCol, front.ghostRow, rotation);
 
             /**
              * Draw the background grid above the pieces (serves as a useful
              * visual for players, and makes the pieces look nicer by breaking
              * them up.
              */
-            g.setColor(Color.DARK_GRAY);
-            for (int x = 0; x < COL_COUNT; x++) {
-                for (int y = 0; y < VISIBLE_ROW_COUNT; y++) {
-                    g.drawLine(0, y * TILE_SIZE, COL_COUNT 
-                            * TILE_SIZE, y * TILE_SIZE);
-                    g.drawLine(x * TILE_SIZE, 0, x
-                            * TILE_SIZE, VISIBLE_ROW_COUNT * TILE_SIZE);
-                }
+            drawGrid(g);
+
+            //The board scrubs back a frame at a time under the label.
+            if (isRewinding) {
+                g.setFont(SMALL_FONT);
+                g.setColor(Color.WHITE);
+                String msg = "<< REWIND";
+                g.drawString(msg, centerX - g.getFontMetrics().
+                        stringWidth(msg) / 2, visible.y - BORDER_WIDTH
+                        + TILE_SIZE);
             }
         }
 
@@ -430,48 +502,57 @@ public class BoardPanel extends JPanel implements Serializable {
 	 * Draw the outline.
          */
         g.setColor(Color.WHITE);
-        g.drawRect(0, 0, TILE_SIZE * COL_COUNT, TILE_SIZE * VISIBLE_ROW_COUNT);
+        g.drawRect(0, 0, boardWidth, boardHeight);
+
+        profiler.getBoardPaint().record(System.nanoTime()
+                - paintStart);
+
+        /*
+         * If this frame shows a key press, flush it to the screen before
+         * taking the time so the measurement includes getting it there.
+         */
+        if (inputLatency.isFrameTracked()) {
+            Toolkit.getDefaultToolkit().sync();
+            inputLatency.framePresented();
+        }
+        if (startup != null) {
+            startup.framePainted();
+            startup = null;
+        }
     }
     
     
     /**
      * drawGhost
      * Draw the ghost (semi-transparent piece that shows where the current piece
-     * will land). I couldn't think of a better way to implement this so it'll
-     * have to do for now. We simply take the current position and move down
-     * until we hit a row that would cause a collision.
+     * will land). The row the piece lands on is worked out by the game's
+     * thread, since the tiles of the panel don't keep the column heights.
      *
      * @param g
      * @param type
      * @param pieceCol
-     * @param pieceRow
+     * @param lowest The row the piece lands on.
      * @param rotation
      */
-    public void drawGhost(Graphics g, TileType type, int pieceCol, int pieceRow,
+    public void drawGhost(Graphics g, TileType type, int pieceCol, int lowest,
             int rotation) {
-        Color base = type.getBaseColor();
-        base = new Color(base.getRed(), base.getGreen(), base.getBlue(), 20);
-        
-        for (int lowest = pieceRow; lowest < ROW_COUNT; lowest++) {
-            //If no collision is detected, try the next row.
-            if (isValidAndEmpty(type, pieceCol, lowest, rotation)) {
-                continue;
-            }
-            //Draw the ghost one row higher than the one the collision took 
-                //place at.
-            lowest--;
-
-            //Draw the ghost piece.
-            for (int col = 0; col < type.getDimension(); col++) {
-                for (int row = 0; row < type.getDimension(); row++) {
-                    if (lowest + row >= 2 && type.isTile(col, row, rotation)) {
-                        drawTile(base, base.brighter(), base.darker(), 
-                                (pieceCol + col) * TILE_SIZE, (lowest + row
-                                - HIDDEN_ROW_COUNT) * TILE_SIZE, g);
-                    }
+        Image ghost = ghostSprites[type.getType()];
+        if (ghost == null) {
+            Color base = type.getBaseColor();
+            Color color = new Color(base.getRed(), base.getGreen(),
+                    base.getBlue(), 20);
+            ghost = createSprite(color, color.brighter(), color.darker());
+            ghostSprites[type.getType()] = ghost;
+        }
+        //Draw the ghost piece.
+        for (int col = 0; col < type.getDimension(); col++) {
+            for (int row = 0; row < type.getDimension(); row++) {
+                if (lowest + row >= 2 && type.isTile(col, row, rotation)) {
+                    g.drawImage(ghost, (pieceCol + col) * TILE_SIZE,
+                            (lowest + row - HIDDEN_ROW_COUNT) * TILE_SIZE,
+                            null);
                 }
             }
-            break;
         }
     }
 
@@ -499,21 +580,69 @@ public class BoardPanel extends JPanel implements Serializable {
     }
     
     /**
-     * Draws the tiles onto the board.
+     * Gets the part of the board that needs painting: the clip, or the whole
+     * board if there is no clip.
+     *
+     * @param g The graphics object.
+     * @return The area, in pixels from the top left of the board.
+     */
+    private Rectangle getPaintArea(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        Rectangle whole = new Rectangle(0, 0, boardWidth, boardHeight);
+        return clip == null ? whole : whole.intersection(clip);
+    }
+
+    /**
+     * Draws the tiles onto the board. Only the tiles in the clip are drawn,
+     * and rows with no tiles are skipped.
      */
     public void drawTilesBoard(Graphics g) {
-        //Run through matrix that represents the board
-        for (int x = 0; x < COL_COUNT; x++) {
-            for (int y = HIDDEN_ROW_COUNT; y < ROW_COUNT;
-                    y++) {
-                TileType tile = getTile(x, y);
-                if (tile != null) {
-                    drawTile(tile, x * TILE_SIZE, (y - HIDDEN_ROW_COUNT)
-                            * TILE_SIZE, g);
+        Rectangle area = getPaintArea(g);
+        if (area.isEmpty()) {
+            return;
+        }
+        int colCount = front.colCount;
+        int firstCol = area.x / TILE_SIZE;
+        int lastCol = Math.min(colCount - 1,
+                (area.x + area.width) / TILE_SIZE);
+        int firstRow = area.y / TILE_SIZE + HIDDEN_ROW_COUNT;
+        int lastRow = Math.min(front.rowCount - 1,
+                (area.y + area.height) / TILE_SIZE + HIDDEN_ROW_COUNT);
+
+        //Run through the part of the matrix that represents the clip.
+        for (int y = firstRow; y <= lastRow; y++) {
+            if (fills[y] == 0) {
+                continue;
+            }
+            for (int x = firstCol; x <= lastCol; x++) {
+                int tile = tiles[y * colCount + x];
+                if (tile != 0) {
+                    drawTile(front.pieceSet.get(tile - 1), x * TILE_SIZE,
+                            (y - HIDDEN_ROW_COUNT) * TILE_SIZE, g);
                 }
             }
         }
     }
+
+    /**
+     * Draws the background grid, one line per row and column in the clip.
+     *
+     * @param g The graphics object.
+     */
+    private void drawGrid(Graphics g) {
+        Rectangle area = getPaintArea(g);
+        int right = area.x + area.width;
+        int bottom = area.y + area.height;
+        g.setColor(Color.DARK_GRAY);
+        for (int y = area.y / TILE_SIZE * TILE_SIZE; y <= bottom;
+                y += TILE_SIZE) {
+            g.drawLine(area.x, y, right, y);
+        }
+        for (int x = area.x / TILE_SIZE * TILE_SIZE; x <= right;
+                x += TILE_SIZE) {
+            g.drawLine(x, area.y, x, bottom);
+        }
+    }
     
     /**
     * Determines the color of the background by checking if a piece was
@@ -521,10 +650,10 @@ public class BoardPanel extends JPanel implements Serializable {
     */
     public void changeBackground(){
         //added piece image
-        if (isAdded && !tetris.isGameOver() && !tetris.isPaused()) {
+        if (isAdded && !front.isGameOver && !isPaused) {
             //paints the background of the upcoming piece for 1 second
             // when the latter sets on the board 
-            setBackground(tetris.getPieceType().getBaseColor());
+            setBackground(front.pieceType.getBaseColor());
         } else {
             setBackground(Color.BLACK);
         }
@@ -535,17 +664,17 @@ public class BoardPanel extends JPanel implements Serializable {
     * nearly identical, we can handle them together and just use a ternary 
     * operator to change the messages that are displayed.
     */
-    public void drawNewOver(Graphics g) {
+    public void drawNewOver(Graphics g, int centerX, int top) {
         g.setFont(LARGE_FONT);
         g.setColor(Color.WHITE);
 
-        String msg = tetris.isNewGame() ? "TETRIS" : "GAMEOVER";
-        g.drawString(msg, CENTER_X- g.getFontMetrics().stringWidth(msg) / 2, 
-                150);
+        String msg = front.isNewGame ? "TETRIS" : "GAMEOVER";
+        g.drawString(msg, centerX- g.getFontMetrics().stringWidth(msg) / 2, 
+                top + 150);
         g.setFont(SMALL_FONT);
-        msg = "Press Enter to Play"+ (tetris.isNewGame() ? "" : " Again");
-        g.drawString(msg, CENTER_X - g.getFontMetrics().stringWidth(msg) / 2, 
-                300);
+        msg = "Press Enter to Play"+ (front.isNewGame ? "" : " Again");
+        g.drawString(msg, centerX - g.getFontMetrics().stringWidth(msg) / 2, 
+                top + 300);
     }
 
     /**
@@ -557,8 +686,29 @@ public class BoardPanel extends JPanel implements Serializable {
      * @param g The graphics object.
      */
     private void drawTile(TileType type, int x, int y, Graphics g) {
-        drawTile(type.getBaseColor(), type.getLightColor(),
-                type.getDarkColor(), x, y, g);
+        int index = type.getType();
+        if (sprites[index] == null) {
+            sprites[index] = createSprite(type.getBaseColor(),
+                    type.getLightColor(), type.getDarkColor());
+        }
+        g.drawImage(sprites[index], x, y, null);
+    }
+
+    /**
+     * Draws a tile into a sprite of its own.
+     *
+     * @param base The base color of tile.
+     * @param light The light color of the tile.
+     * @param dark The dark color of the tile.
+     * @return The sprite.
+     */
+    private static Image createSprite(Color base, Color light, Color dark) {
+        BufferedImage sprite = new BufferedImage(TILE_SIZE, TILE_SIZE,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics g = sprite.createGraphics();
+        drawTile(base, light, dark, 0, 0, g);
+        g.dispose();
+        return sprite;
     }
 
     /**
@@ -571,7 +721,7 @@ public class BoardPanel extends JPanel implements Serializable {
      * @param y The row.
      * @param g The graphics object.
      */
-    private void drawTile(Color base, Color light, Color dark, int x,
+    private static void drawTile(Color base, Color light, Color dark, int x,
             int y, Graphics g) {
 
         /*
@@ -602,4 +752,151 @@ public class BoardPanel extends JPanel implements Serializable {
             g.drawLine(x + i, y, x + i, y + TILE_SIZE - i - 1);
         }
     }
+
+    /**
+     * The {@code Frame} class holds what the panel paints of a game: the
+     * state of the piece, and the tiles of the rows that changed since the
+     * last frame the panel took. The tiles are kept at their place among
+     * every row, so a frame of a board of a size is always the same size.
+     */
+    private static final class Frame {
+
+        /**
+         * The number of columns of the board.
+         */
+        private final int colCount;
+
+        /**
+         * The total number of rows of the board.
+         */
+        private final int rowCount;
+
+        /**
+         * The pieces the board is played with.
+         */
+        private final PieceSet pieceSet;
+
+        /**
+         * The tiles of the rows from {@code top} to {@code bottom}, as
+         * {@code Board.copyTiles} gives them.
+         */
+        private final byte[] tiles;
+
+        /**
+         * The number of occupied cells in each of the rows from {@code top}
+         * to {@code bottom}.
+         */
+        private final int[] fills;
+
+        /**
+         * The first row the frame holds.
+         */
+        private int top;
+
+        /**
+         * The last row the frame holds, which is above {@code top} when it
+         * holds none.
+         */
+        private int bottom;
+
+        /**
+         * Whether or not no game has been played yet.
+         */
+        private boolean isNewGame;
+
+        /**
+         * Whether or not the game is over.
+         */
+        private boolean isGameOver;
+
+        /**
+         * The type of the current piece.
+         */
+        private TileType pieceType;
+
+        /**
+         * The column of the current piece.
+         */
+        private int pieceCol;
+
+        /**
+         * The row of the current piece.
+         */
+        private int pieceRow;
+
+        /**
+         * The rotation of the current piece.
+         */
+        private int pieceRotation;
+
+        /**
+         * The row the current piece lands on.
+         */
+        private int ghostRow;
+
+        /**
+         * The key press stamp of the state change the frame is the first to
+         * show, or 0 if there is none.
+         */
+        private long stateInput;
+
+        /**
+         * The time of the state change the frame is the first to show.
+         */
+        private long stateTime;
+
+        /**
+         * Creates a new, empty Frame for games on a board.
+         *
+         * @param board The board.
+         */
+        private Frame(Board board) {
+            this.colCount = board.getColCount();
+            this.rowCount = board.getRowCount();
+            this.pieceSet = board.getPieceSet();
+            this.tiles = new byte[colCount * rowCount];
+            this.fills = new int[rowCount];
+        }
+
+        /**
+         * Checks to see whether or not the frame fits games on a board.
+         *
+         * @param board The board.
+         * @return Whether or not the board is of the size and piece set the
+         * frame was made for.
+         */
+        private boolean fits(Board board) {
+            return board.getColCount() == colCount
+                    && board.getRowCount() == rowCount
+                    && board.getPieceSet() == pieceSet;
+        }
+
+        /**
+         * Copies the piece of a game and some of the rows of its board into
+         * the frame.
+         *
+         * @param game The game.
+         * @param top The first row to copy.
+         * @param bottom The last row to copy.
+         */
+        private void take(GameEngine game, int top, int bottom) {
+            Board board = game.getBoard();
+            board.copyTiles(tiles, top, bottom);
+            for (int row = top; row <= bottom; row++) {
+                fills[row] = board.getRowFill(row);
+            }
+            this.top = top;
+            this.bottom = bottom;
+
+            this.isNewGame = game.isNewGame();
+            this.isGameOver = game.isGameOver();
+            this.pieceType = game.getPieceType();
+            this.pieceCol = game.getPieceCol();
+            this.pieceRow = game.getPieceRow();
+            this.pieceRotation = game.getPieceRotation();
+            this.ghostRow = isNewGame || isGameOver || pieceType == null
+                    ? pieceRow : board.getLandingRow(pieceType, pieceCol,
+                            pieceRow, pieceRotation);
+        }
+    }
 }
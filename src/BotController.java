@@ -0,0 +1,400 @@
+/**
+ * The {@code BotController} class plays the game on its own. Whenever a new
+ * piece appears it tries every placement of the current piece that can be
+ * reached by rotating it where it spawned, sliding it sideways and dropping
+ * it, and for each one every placement of the next piece, and scores the
+ * boards that result with a {@code Heuristic}. It then steers the piece to
+ * the best placement through {@code Protocol.applyInput}, one input at a
+ * time, like a player would.
+ *
+ * Placements are tried on two scratch boards with the same
+ * {@code isValidAndEmpty}, {@code addPiece} and {@code checkLines} rules the
+ * game uses, and rotations go through the game's own
+ * {@code RotationSystem}, kicks and all, so the bot never plans a move the
+ * game wouldn't allow. The boards the next piece can leave
+ * are scored together, in one batch through {@code BoardFeatures}. Nothing is
+ * allocated once the bot is made, and a decision takes around a
+ * millisecond.
+ *
+ * A bot keeps state about the game it plays, so every game needs its own.
+ * Subclasses can pick placements some other way by overriding {@code plan},
+ * and still be steered the same way.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class BotController implements Controller {
+
+    /**
+     * The number of rotations a piece has.
+     */
+    protected static final int ROTATION_COUNT =
+            PlacementTable.ROTATION_COUNT;
+
+    /**
+     * The score of a placement that ends the game.
+     */
+    private static final float GAME_OVER = -1.0e9f;
+
+    /**
+     * The most placements a piece can have: every rotation in every column.
+     */
+    protected static final int MAX_PLACEMENTS = ROTATION_COUNT
+            * Board.COL_COUNT;
+
+    /**
+     * How boards are scored.
+     */
+    private final Heuristic heuristic;
+
+    /**
+     * The number of inputs the bot may press each tick.
+     */
+    private final int movesPerTick;
+
+    /**
+     * The board after placing the current piece.
+     */
+    private final Board first;
+
+    /**
+     * The board after placing the next piece.
+     */
+    private final Board second;
+
+    /**
+     * The column each rotation of the current piece ends up in.
+     */
+    private final int[] rotatedCol;
+
+    /**
+     * The row each rotation of the current piece ends up in.
+     */
+    private final int[] rotatedRow;
+
+    /**
+     * Whether or not each rotation of the current piece can be reached.
+     */
+    private final boolean[] isRotatable;
+
+    /**
+     * The column each rotation of the next piece ends up in.
+     */
+    private final int[] nextCol;
+
+    /**
+     * The row each rotation of the next piece ends up in.
+     */
+    private final int[] nextRow;
+
+    /**
+     * Whether or not each rotation of the next piece can be reached.
+     */
+    private final boolean[] isNextRotatable;
+
+    /**
+     * The row masks of the boards the next piece can leave.
+     */
+    private final int[] batchRows;
+
+    /**
+     * The features of the boards the next piece can leave.
+     */
+    private final int[] batchFeatures;
+
+    /**
+     * The number of lines cleared on the way to each of the boards the next
+     * piece can leave.
+     */
+    private final int[] batchLines;
+
+    /**
+     * The time each decision took.
+     */
+    private final LatencyHistogram decisionTimes;
+
+    /**
+     * The rule the game rotates pieces by, as of the last plan.
+     */
+    private RotationSystem rotationSystem;
+
+    /**
+     * The piece the plan was made for.
+     */
+    private int plannedPiece;
+
+    /**
+     * The rotation to turn the piece to.
+     */
+    private int targetRotation;
+
+    /**
+     * The column to move the piece to.
+     */
+    private int targetCol;
+
+    /**
+     * Whether or not the piece is turned anticlockwise to get to its
+     * rotation.
+     */
+    private boolean isAnticlockwise;
+
+    /**
+     * Creates a new BotController.
+     *
+     * @param heuristic How boards are scored.
+     * @param movesPerTick The number of inputs the bot may press each tick.
+     */
+    public BotController(Heuristic heuristic, int movesPerTick) {
+        this.heuristic = heuristic;
+        this.movesPerTick = movesPerTick;
+        this.first = new Board();
+        this.second = new Board();
+        this.rotatedCol = new int[ROTATION_COUNT];
+        this.rotatedRow = new int[ROTATION_COUNT];
+        this.isRotatable = new boolean[ROTATION_COUNT];
+        this.nextCol = new int[ROTATION_COUNT];
+        this.nextRow = new int[ROTATION_COUNT];
+        this.isNextRotatable = new boolean[ROTATION_COUNT];
+        this.batchRows = new int[MAX_PLACEMENTS * Board.ROW_COUNT];
+        this.batchFeatures = new int[MAX_PLACEMENTS
+                * BoardFeatures.FEATURE_COUNT];
+        this.batchLines = new int[MAX_PLACEMENTS];
+        this.decisionTimes = new LatencyHistogram("decision");
+        this.plannedPiece = -1;
+    }
+
+    @Override
+    public void control(GameEngine engine) {
+        if (engine.isNewGame() || engine.isGameOver()) {
+            return;
+        }
+        if (engine.getPieceCount() != plannedPiece) {
+            long start = System.nanoTime();
+            plan(engine);
+            decisionTimes.record(System.nanoTime() - start);
+            plannedPiece = engine.getPieceCount();
+        }
+
+        for (int moves = 0; moves < movesPerTick; moves++) {
+            byte input;
+            if (engine.getPieceRotation() != targetRotation) {
+                input = isAnticlockwise ? Protocol.INPUT_ROTATE_CCW
+                        : Protocol.INPUT_ROTATE_CW;
+            } else if (engine.getPieceCol() < targetCol) {
+                input = Protocol.INPUT_RIGHT;
+            } else if (engine.getPieceCol() > targetCol) {
+                input = Protocol.INPUT_LEFT;
+            } else {
+                Protocol.applyInput(engine, Protocol.INPUT_DROP_PRESS);
+                return;
+            }
+
+            //If the piece got stuck on the way, drop it where it is.
+            if (!Protocol.applyInput(engine, input)) {
+                Protocol.applyInput(engine, Protocol.INPUT_DROP_PRESS);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Picks the best placement for the current piece, and sets it as the
+     * target with {@code setTarget}.
+     *
+     * @param engine The game.
+     */
+    protected void plan(GameEngine engine) {
+        Board board = engine.getBoard();
+        TileType type = engine.getPieceType();
+        TileType next = engine.getNextPieceType();
+        int rotation = engine.getPieceRotation();
+        rotationSystem = engine.getRotationSystem();
+        findRotations(rotationSystem, board, type, engine.getPieceCol(),
+                engine.getPieceRow(), rotation, rotatedCol, rotatedRow,
+                isRotatable);
+
+        float best = Float.NEGATIVE_INFINITY;
+        setTarget(rotation, engine.getPieceCol(), rotation);
+
+        for (int r = 0; r < ROTATION_COUNT; r++) {
+            if (!isRotatable[r]) {
+                continue;
+            }
+            int row = rotatedRow[r];
+            int left = leftmost(board, type, rotatedCol[r], row, r);
+            int right = rightmost(board, type, rotatedCol[r], row, r);
+            for (int col = left; col <= right; col++) {
+                first.copyFrom(board);
+                first.addPiece(type, col,
+                        board.getLandingRow(type, col, row, r), r);
+                int lines = first.checkLines();
+                float score = bestNext(next, lines);
+                if (score > best) {
+                    best = score;
+                    setTarget(r, col, rotation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the placement to steer the piece to.
+     *
+     * @param rotation The rotation to turn the piece to.
+     * @param col The column to move the piece to.
+     * @param fromRotation The rotation the piece is in now.
+     */
+    protected void setTarget(int rotation, int col, int fromRotation) {
+        targetRotation = rotation;
+        targetCol = col;
+        isAnticlockwise = (rotation - fromRotation + ROTATION_COUNT)
+                % ROTATION_COUNT == 3;
+    }
+
+    /**
+     * Gets the score of the best placement of the next piece on the first
+     * scratch board.
+     *
+     * @param type The next piece.
+     * @param lines The number of lines the current piece cleared.
+     * @return The score.
+     */
+    private float bestNext(TileType type, int lines) {
+        int spawnCol = type.getSpawnColumn();
+        int spawnRow = type.getSpawnRow();
+        if (!first.isValidAndEmpty(type, spawnCol, spawnRow, 0)) {
+            return GAME_OVER;
+        }
+        findRotations(rotationSystem, first, type, spawnCol, spawnRow, 0,
+                nextCol, nextRow, isNextRotatable);
+
+        int count = 0;
+        for (int r = 0; r < ROTATION_COUNT; r++) {
+            if (!isNextRotatable[r]) {
+                continue;
+            }
+            int row = nextRow[r];
+            int left = leftmost(first, type, nextCol[r], row, r);
+            int right = rightmost(first, type, nextCol[r], row, r);
+            for (int col = left; col <= right; col++) {
+                second.copyFrom(first);
+                second.addPiece(type, col,
+                        first.getLandingRow(type, col, row, r), r);
+                batchLines[count] = lines + second.checkLines();
+                second.copyRowMasks(batchRows, count * Board.ROW_COUNT);
+                count++;
+            }
+        }
+
+        BoardFeatures.extract(batchRows, count, batchFeatures);
+        float best = GAME_OVER;
+        for (int i = 0; i < count; i++) {
+            best = Math.max(best, heuristic.evaluate(batchFeatures,
+                    i * BoardFeatures.FEATURE_COUNT, batchLines[i]));
+        }
+        return best;
+    }
+
+    /**
+     * Gets the leftmost column a piece can slide to.
+     *
+     * @param board The board.
+     * @param type The type of the piece.
+     * @param col The column of the piece.
+     * @param row The row of the piece.
+     * @param rotation The rotation of the piece.
+     * @return The column.
+     */
+    protected static int leftmost(Board board, TileType type, int col, int row,
+            int rotation) {
+        while (board.isValidAndEmpty(type, col - 1, row, rotation)) {
+            col--;
+        }
+        return col;
+    }
+
+    /**
+     * Gets the rightmost column a piece can slide to.
+     *
+     * @param board The board.
+     * @param type The type of the piece.
+     * @param col The column of the piece.
+     * @param row The row of the piece.
+     * @param rotation The rotation of the piece.
+     * @return The column.
+     */
+    protected static int rightmost(Board board, TileType type, int col, int row,
+            int rotation) {
+        while (board.isValidAndEmpty(type, col + 1, row, rotation)) {
+            col++;
+        }
+        return col;
+    }
+
+    /**
+     * Works out where every rotation of a piece ends up when it is turned
+     * from where it is, the shortest way round, one turn at a time like
+     * the game does.
+     *
+     * @param rotationSystem The rule the game rotates pieces by.
+     * @param board The board.
+     * @param type The type of the piece.
+     * @param col The column of the piece.
+     * @param row The row of the piece.
+     * @param rotation The rotation of the piece.
+     * @param cols Where to store the column of each rotation.
+     * @param rows Where to store the row of each rotation.
+     * @param isReachable Where to store whether each rotation can be reached.
+     */
+    protected static void findRotations(RotationSystem rotationSystem,
+            Board board, TileType type, int col, int row, int rotation,
+            int[] cols, int[] rows, boolean[] isReachable) {
+        for (int turns = 0; turns < ROTATION_COUNT; turns++) {
+            int r = (rotation + turns) % ROTATION_COUNT;
+            isReachable[r] = false;
+            int c = col;
+            int y = row;
+            int from = rotation;
+
+            //Three turns clockwise are one turn anticlockwise.
+            int steps = turns == 3 ? 1 : turns;
+            int direction = turns == 3 ? -1 : 1;
+            boolean isBlocked = false;
+            for (int i = 1; i <= steps; i++) {
+                int to = (from + direction + ROTATION_COUNT) % ROTATION_COUNT;
+                long position = rotationSystem.rotate(board, type, c, y, from,
+                        to);
+                if (position == GameEngine.BLOCKED) {
+                    isBlocked = true;
+                    break;
+                }
+                c = (int) position;
+                y = (int) (position >> 32);
+                from = to;
+            }
+            if (!isBlocked) {
+                isReachable[r] = true;
+                cols[r] = c;
+                rows[r] = y;
+            }
+        }
+    }
+
+    /**
+     * Gets how boards are scored.
+     *
+     * @return The heuristic.
+     */
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Gets the time each decision took.
+     *
+     * @return The histogram of decision times.
+     */
+    public LatencyHistogram getDecisionTimes() {
+        return decisionTimes;
+    }
+}
@@ -0,0 +1,408 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The {@code BotTuner} class tunes the weights of the bot's
+ * {@code Heuristic} with a genetic algorithm.
+ *
+ * Every generation, each set of weights plays the same fixed set of seeds
+ * headlessly, and its fitness is the average number of lines it clears before
+ * it tops out or runs out of ticks. Each set of weights is one task, so a
+ * worker plays a whole batch of games in a row without talking to the other
+ * workers, and every game is deterministic, so no random number generator is
+ * shared. The next generation is bred on the main thread from a generator
+ * seeded by the generation number, which makes a run repeatable.
+ *
+ * The population is written to a checkpoint after every generation (to a
+ * temporary file that is then renamed over the old one), and a run started
+ * with an existing checkpoint carries on from it.
+ *
+ * Usage: {@code java BotTuner checkpoint [generations] [population] [games]
+ * [ticks] [threads]}
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class BotTuner {
+
+    /**
+     * The first int of a checkpoint ("TTUN").
+     */
+    private static final int MAGIC = 0x5454554e;
+
+    /**
+     * The version of the checkpoint.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The number of individuals copied unchanged into the next generation.
+     */
+    private static final int ELITE_COUNT = 2;
+
+    /**
+     * The number of individuals that compete to be picked as a parent.
+     */
+    private static final int TOURNAMENT_SIZE = 3;
+
+    /**
+     * The chance that a child's weight is mutated.
+     */
+    private static final float MUTATION_CHANCE = 0.2f;
+
+    /**
+     * The size of a mutation.
+     */
+    private static final float MUTATION_SIZE = 0.2f;
+
+    /**
+     * The seed the seed set is made from.
+     */
+    private static final long SEED_SET_SEED = 0x7e7215L;
+
+    /**
+     * The file the population is saved to.
+     */
+    private final File checkpoint;
+
+    /**
+     * The number of games each individual plays.
+     */
+    private final int games;
+
+    /**
+     * The number of ticks each game may last.
+     */
+    private final int maxTicks;
+
+    /**
+     * The number of worker threads.
+     */
+    private final int threads;
+
+    /**
+     * The seeds every individual plays.
+     */
+    private final long[] seeds;
+
+    /**
+     * The weights of each individual.
+     */
+    private float[][] population;
+
+    /**
+     * The fitness of each individual.
+     */
+    private float[] fitness;
+
+    /**
+     * The number of generations evaluated so far.
+     */
+    private int generation;
+
+    /**
+     * Creates a new BotTuner.
+     *
+     * @param checkpoint The file the population is saved to.
+     * @param size The number of individuals, for a new population.
+     * @param games The number of games each individual plays.
+     * @param maxTicks The number of ticks each game may last.
+     * @param threads The number of worker threads.
+     * @throws IOException
+     */
+    public BotTuner(File checkpoint, int size, int games, int maxTicks,
+            int threads) throws IOException {
+        this.checkpoint = checkpoint;
+        this.games = games;
+        this.maxTicks = maxTicks;
+        this.threads = threads;
+
+        this.seeds = new long[games];
+        Random random = new Random(SEED_SET_SEED);
+        for (int i = 0; i < games; i++) {
+            seeds[i] = random.nextLong();
+        }
+
+        if (checkpoint.isFile()) {
+            load();
+            System.out.println("Resuming generation " + generation + " with "
+                    + population.length + " individuals from " + checkpoint);
+        } else {
+            //Start from random weights, with the known ones thrown in.
+            population = new float[size][];
+            population[0] = Heuristic.DEFAULT.getWeights();
+            Random start = new Random(SEED_SET_SEED + 1);
+            for (int i = 1; i < size; i++) {
+                population[i] = new float[Heuristic.FEATURE_COUNT];
+                for (int j = 0; j < Heuristic.FEATURE_COUNT; j++) {
+                    population[i][j] = start.nextFloat() * 2.0f - 1.0f;
+                }
+                normalize(population[i]);
+            }
+            fitness = new float[size];
+        }
+    }
+
+    /**
+     * Evaluates the population and breeds the next one, then saves it.
+     *
+     * @param pool The worker threads.
+     * @throws IOException
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    private void step(ExecutorService pool)
+            throws IOException, InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        List<Future<Float>> results = new ArrayList<Future<Float>>();
+        for (final float[] weights : population) {
+            results.add(pool.submit(new Callable<Float>() {
+                @Override
+                public Float call() {
+                    return evaluate(new Heuristic(weights));
+                }
+            }));
+        }
+        int best = 0;
+        float total = 0.0f;
+        for (int i = 0; i < population.length; i++) {
+            fitness[i] = results.get(i).get();
+            total += fitness[i];
+            if (fitness[i] > fitness[best]) {
+                best = i;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double gamesPerSecond = population.length * games / seconds;
+        System.out.println(String.format("generation %d: best=%.1f "
+                + "average=%.1f %s %.1f games/s %.1f games/s per core",
+                generation, fitness[best], total / population.length,
+                new Heuristic(population[best]), gamesPerSecond,
+                gamesPerSecond / threads));
+
+        population = breed();
+        generation++;
+        save();
+    }
+
+    /**
+     * Plays every seed with the given weights.
+     *
+     * @param heuristic The weights.
+     * @return The average number of lines cleared.
+     */
+    private float evaluate(Heuristic heuristic) {
+        long lines = 0;
+        for (long seed : seeds) {
+            GameEngine engine = new GameEngine(seed);
+            BotController bot = new BotController(heuristic,
+                    Integer.MAX_VALUE);
+            engine.reset();
+            for (int tick = 0; tick < maxTicks && !engine.isGameOver();
+                    tick++) {
+                bot.control(engine);
+                engine.tick();
+            }
+            lines += engine.getLines();
+        }
+        return (float) lines / seeds.length;
+    }
+
+    /**
+     * Breeds the next generation from the current one. The best individuals
+     * are kept, and the rest are children of two parents picked by
+     * tournament, with their weights averaged by fitness and then mutated.
+     *
+     * @return The next generation.
+     */
+    private float[][] breed() {
+        Random random = new Random(SEED_SET_SEED ^ generation);
+        float[][] next = new float[population.length][];
+
+        //Keep the best ones as they are.
+        Integer[] order = new Integer[population.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Float.compare(fitness[b], fitness[a]);
+            }
+        });
+        int elite = Math.min(ELITE_COUNT, population.length);
+        for (int i = 0; i < elite; i++) {
+            next[i] = population[order[i]].clone();
+        }
+
+        for (int i = elite; i < next.length; i++) {
+            int a = pick(random);
+            int b = pick(random);
+            float fa = Math.max(fitness[a], 0.0f);
+            float fb = Math.max(fitness[b], 0.0f);
+            float share = fa + fb == 0.0f ? 0.5f : fa / (fa + fb);
+
+            float[] child = new float[Heuristic.FEATURE_COUNT];
+            for (int j = 0; j < child.length; j++) {
+                child[j] = population[a][j] * share
+                        + population[b][j] * (1.0f - share);
+                if (random.nextFloat() < MUTATION_CHANCE) {
+                    child[j] += (random.nextFloat() * 2.0f - 1.0f)
+                            * MUTATION_SIZE;
+                }
+            }
+            normalize(child);
+            next[i] = child;
+        }
+        return next;
+    }
+
+    /**
+     * Picks a parent: the fittest of a few individuals picked at random.
+     *
+     * @param random The random number generator.
+     * @return The index of the parent.
+     */
+    private int pick(Random random) {
+        int best = random.nextInt(population.length);
+        for (int i = 1; i < TOURNAMENT_SIZE; i++) {
+            int other = random.nextInt(population.length);
+            if (fitness[other] > fitness[best]) {
+                best = other;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Scales weights to unit length. Only the direction of the weights
+     * changes which placement is best, so this keeps them from drifting.
+     *
+     * @param weights The weights.
+     */
+    private static void normalize(float[] weights) {
+        float length = 0.0f;
+        for (float weight : weights) {
+            length += weight * weight;
+        }
+        length = (float) Math.sqrt(length);
+        if (length > 0.0f) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= length;
+            }
+        }
+    }
+
+    /**
+     * Writes the population to the checkpoint.
+     *
+     * @throws IOException
+     */
+    private void save() throws IOException {
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        FileOutputStream file = new FileOutputStream(temp);
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(file));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(generation);
+            out.writeInt(population.length);
+            out.writeInt(Heuristic.FEATURE_COUNT);
+            for (float[] weights : population) {
+                for (float weight : weights) {
+                    out.writeFloat(weight);
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), checkpoint.toPath(),
+                StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the population from the checkpoint.
+     *
+     * @throws IOException
+     */
+    private void load() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(checkpoint)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(checkpoint + " is not a checkpoint");
+            }
+            generation = in.readInt();
+            int size = in.readInt();
+            int features = in.readInt();
+            if (features != Heuristic.FEATURE_COUNT) {
+                throw new IOException(checkpoint + " has " + features
+                        + " weights per individual, expected "
+                        + Heuristic.FEATURE_COUNT);
+            }
+            population = new float[size][features];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < features; j++) {
+                    population[i][j] = in.readFloat();
+                }
+            }
+            fitness = new float[size];
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Entry-point of the tuner.
+     *
+     * @param args The checkpoint file, the number of generations to run, the
+     * population size, the games per individual, the ticks per game and the
+     * number of threads.
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java BotTuner checkpoint [generations] "
+                    + "[population] [games] [ticks] [threads]");
+            return;
+        }
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int ticks = args.length > 4 ? Integer.parseInt(args[4]) : 10000;
+        int threads = args.length > 5 ? Integer.parseInt(args[5])
+                : Runtime.getRuntime().availableProcessors();
+
+        BotTuner tuner = new BotTuner(new File(args[0]), size, games, ticks,
+                threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < generations; i++) {
+                tuner.step(pool);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
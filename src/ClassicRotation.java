@@ -0,0 +1,71 @@
+import java.io.Serializable;
+
+/**
+ * The {@code ClassicRotation} class is the rotation rule the game first had.
+ * A piece turns in place, and if that would put it past an edge of the board
+ * it is nudged back in first; it never kicks off the stack. It is kept for
+ * players used to it, and is picked with {@code -Dtetris.rotation=classic}.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class ClassicRotation implements RotationSystem, Serializable {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = 2958041736650382741L;
+
+    @Override
+    public long rotate(Board board, TileType type, int col, int row,
+            int rotation, int newRotation) {
+        /*
+         * Sometimes pieces will need to be moved when rotated to avoid clipping
+         * out of the board (the I piece is a good example of this). Here we
+         * store temporary row and column in case we need to move the tile as
+         * well.
+         */
+        int newColumn = col;
+        int newRow = row;
+
+        /*
+         * Get the insets for each of the sides. These are used to determine how
+         * many empty rows or columns there are on a given side.
+         */
+        int left = type.getLeftInset(newRotation);
+        int right = type.getRightInset(newRotation);
+        int top = type.getTopInset(newRotation);
+        int bottom = type.getBottomInset(newRotation);
+        int colCount = board.getColCount();
+        int rowCount = board.getRowCount();
+
+        /*
+         * If the current piece is too far to the left or right, move the piece
+         * away from the edges so that the piece doesn't clip out of the map and
+         * automatically become invalid.
+         */
+        if (col < -left) {
+            newColumn -= col - left;
+        } else if (col + type.getDimension() - right >= colCount) {
+            newColumn -= (col + type.getDimension() - right) - colCount + 1;
+        }
+
+        /*
+         * If the current piece is too far to the top or bottom, move the piece
+         * away from the edges so that the piece doesn't clip out of the map and
+         * automatically become invalid.
+         */
+        if (row < -top) {
+            newRow -= row - top;
+        } else if (row + type.getDimension() - bottom >= rowCount) {
+            newRow -= (row + type.getDimension() - bottom) - rowCount + 1;
+        }
+
+        /*
+         * Check to see if the new position is acceptable.
+         */
+        if (board.isValidAndEmpty(type, newColumn, newRow, newRotation)) {
+            return (long) newRow << 32 | (newColumn & 0xffffffffL);
+        }
+        return GameEngine.BLOCKED;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * The {@code Controller} interface is whatever plays a headless game: a
+ * keyboard, a bot, or a script. Before every tick the game's thread asks its
+ * controller for inputs, which are applied through the same
+ * {@code Protocol.applyInput} a network player goes through.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public interface Controller {
+
+    /**
+     * Applies this tick's inputs to a game. Called by the thread that runs
+     * the game, before it ticks.
+     *
+     * @param engine The game.
+     */
+    void control(GameEngine engine);
+}
@@ -0,0 +1,378 @@
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code EventBus} class carries what happens in a game (spawns, locks,
+ * rotations, cleared lines, level ups and the end of the game) from the
+ * game's thread to the handlers that react to it, each on a thread of its
+ * own.
+ *
+ * Events are written into a preallocated ring of primitive slots, the way
+ * a disruptor does it. Publishing claims the next sequence number, writes
+ * the slot and stamps it with that number, and never takes a lock, waits or
+ * allocates. Each subscriber follows the ring at its own pace, handing every
+ * event that is ready to its handler as one batch, and parks when it has
+ * caught up until a new event wakes it. Nothing waits for a subscriber: one
+ * that falls a whole ring behind has its oldest events written over, and
+ * counts them as lost when it gets there.
+ *
+ * A slot is stamped as being written before its values change, and a
+ * subscriber checks the stamp both before and after reading them, so it
+ * never hands on a slot that was written over while it read.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class EventBus {
+
+    /**
+     * A new piece was spawned. a = type, b = type of the next piece.
+     */
+    public static final int SPAWN = 1;
+
+    /**
+     * A piece was locked. a = type, b = column, c = row, d = rotation.
+     */
+    public static final int LOCK = 2;
+
+    /**
+     * Lines were cleared. a = count, b = score, c = points added.
+     */
+    public static final int CLEAR = 3;
+
+    /**
+     * The level went up. a = level.
+     */
+    public static final int LEVEL_UP = 4;
+
+    /**
+     * The game is over. a = score, b = level, c = lines.
+     */
+    public static final int GAME_OVER = 5;
+
+    /**
+     * A key rotated the piece. a = 1 if clockwise, 0 if anticlockwise.
+     */
+    public static final int ROTATE = 6;
+
+    /**
+     * The events from now on name their types of piece from another set.
+     * a = the index of the set among those the game has played with.
+     */
+    public static final int PIECE_SET = 7;
+
+    /**
+     * The number of slots in the ring if none is given.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The stamp of a slot being written, which is lower than every sequence
+     * number, so it reads as not published yet.
+     */
+    private static final long WRITING = -1L;
+
+    /**
+     * The longest a subscriber parks before it looks at the ring again,
+     * in case it missed being woken, in nanoseconds.
+     */
+    private static final long MAX_PARK_NANOS = 10000000L;
+
+    /**
+     * Selects the slot of a sequence number.
+     */
+    private final int mask;
+
+    /**
+     * The sequence number each slot was last stamped with.
+     */
+    private final AtomicLongArray stamps;
+
+    /**
+     * The kinds of the events in the ring.
+     */
+    private final int[] kinds;
+
+    /**
+     * The first value of the events in the ring.
+     */
+    private final int[] valuesA;
+
+    /**
+     * The second value of the events in the ring.
+     */
+    private final int[] valuesB;
+
+    /**
+     * The third value of the events in the ring.
+     */
+    private final int[] valuesC;
+
+    /**
+     * The fourth value of the events in the ring.
+     */
+    private final int[] valuesD;
+
+    /**
+     * The sequence number of the next event.
+     */
+    private final AtomicLong claimed;
+
+    /**
+     * The subscribers, which publishing wakes. Replaced rather than changed,
+     * so publishing can go through it without a lock.
+     */
+    private volatile Subscriber[] subscribers;
+
+    /**
+     * Creates a new EventBus with the default capacity.
+     */
+    public EventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new EventBus.
+     *
+     * @param capacity The number of slots in the ring. Must be a power of
+     * two.
+     */
+    public EventBus(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a "
+                    + "power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.stamps = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            stamps.set(slot, WRITING);
+        }
+        this.kinds = new int[capacity];
+        this.valuesA = new int[capacity];
+        this.valuesB = new int[capacity];
+        this.valuesC = new int[capacity];
+        this.valuesD = new int[capacity];
+        this.claimed = new AtomicLong();
+        this.subscribers = new Subscriber[0];
+    }
+
+    /**
+     * Publishes an event. Safe to call from any thread, and never waits.
+     *
+     * @param kind The kind of event.
+     * @param a The first value.
+     * @param b The second value.
+     * @param c The third value.
+     * @param d The fourth value.
+     */
+    public void publish(int kind, int a, int b, int c, int d) {
+        long sequence = claimed.getAndIncrement();
+        int slot = (int) sequence & mask;
+
+        //Nobody may see the new values under the old stamp.
+        stamps.lazySet(slot, WRITING);
+        VarHandle.storeStoreFence();
+        kinds[slot] = kind;
+        valuesA[slot] = a;
+        valuesB[slot] = b;
+        valuesC[slot] = c;
+        valuesD[slot] = d;
+        stamps.set(slot, sequence);
+
+        Subscriber[] all = subscribers;
+        for (int i = 0; i < all.length; i++) {
+            all[i].wake();
+        }
+    }
+
+    /**
+     * Starts a thread that hands the events published from now on to a
+     * handler.
+     *
+     * @param name The name of the thread.
+     * @param handler The handler.
+     * @return The subscriber.
+     */
+    public synchronized Subscriber subscribe(String name,
+            GameEventHandler handler) {
+        Subscriber subscriber = new Subscriber(name, handler,
+                claimed.get());
+        Subscriber[] all = Arrays.copyOf(subscribers, subscribers.length + 1);
+        all[all.length - 1] = subscriber;
+        subscribers = all;
+        subscriber.thread.start();
+        return subscriber;
+    }
+
+    /**
+     * Stops every subscriber once it has handled the events published so
+     * far.
+     */
+    public synchronized void close() {
+        Subscriber[] all = subscribers;
+        subscribers = new Subscriber[0];
+        for (int i = 0; i < all.length; i++) {
+            all[i].close();
+        }
+    }
+
+    /**
+     * The {@code Subscriber} class follows the ring on a thread of its own
+     * and hands its events to a handler.
+     */
+    public final class Subscriber {
+
+        /**
+         * The handler the events are handed to.
+         */
+        private final GameEventHandler handler;
+
+        /**
+         * The thread the handler is called on.
+         */
+        private final Thread thread;
+
+        /**
+         * The sequence number of the next event to hand on. Only used by
+         * the thread.
+         */
+        private long next;
+
+        /**
+         * The number of events written over before they were handed on.
+         */
+        private volatile long lost;
+
+        /**
+         * Whether or not the thread is parked, or about to park.
+         */
+        private volatile boolean isWaiting;
+
+        /**
+         * Whether or not the thread should keep running.
+         */
+        private volatile boolean isRunning;
+
+        /**
+         * Creates a new Subscriber.
+         *
+         * @param name The name of the thread.
+         * @param handler The handler.
+         * @param next The sequence number of the first event to hand on.
+         */
+        private Subscriber(String name, GameEventHandler handler,
+                long next) {
+            this.handler = handler;
+            this.next = next;
+            this.isRunning = true;
+            this.thread = new Thread(name) {
+
+                @Override
+                public void run() {
+                    follow();
+                }
+
+            };
+            thread.setDaemon(true);
+        }
+
+        /**
+         * The body of the thread. Hands on batches of events until it is
+         * closed, parking whenever it has caught up.
+         */
+        private void follow() {
+            while (true) {
+                if (handleBatch()) {
+                    continue;
+                }
+                if (!isRunning) {
+                    break;
+                }
+
+                /*
+                 * Say that we are waiting before looking at the ring one
+                 * last time, so an event published after the look wakes us.
+                 */
+                isWaiting = true;
+                if (stamps.get((int) next & mask) < next && isRunning) {
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                }
+                isWaiting = false;
+            }
+        }
+
+        /**
+         * Hands every event that is ready to the handler.
+         *
+         * @return Whether or not there were any.
+         */
+        private boolean handleBatch() {
+            int count = 0;
+            while (true) {
+                int slot = (int) next & mask;
+                long stamp = stamps.get(slot);
+                if (stamp < next) {
+                    break;
+                }
+                int kind = kinds[slot];
+                int a = valuesA[slot];
+                int b = valuesB[slot];
+                int c = valuesC[slot];
+                int d = valuesD[slot];
+                VarHandle.acquireFence();
+                if (stamp != next || stamps.get(slot) != next) {
+                    //Written over by an event a whole ring later.
+                    lost++;
+                } else {
+                    try {
+                        handler.onEvent(kind, a, b, c, d);
+                    } catch (RuntimeException e) {
+                        //A handler that fails still gets the next events.
+                        System.out.println("Error en " + e.toString());
+                    }
+                    count++;
+                }
+                next++;
+            }
+            if (count > 0) {
+                handler.onBatchEnd();
+            }
+            return count > 0;
+        }
+
+        /**
+         * Wakes the thread if it is parked.
+         */
+        private void wake() {
+            if (isWaiting) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        /**
+         * Stops the thread once it has handled the events published so far,
+         * and waits for it.
+         */
+        private void close() {
+            isRunning = false;
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Gets the number of events written over before this subscriber got
+         * to them.
+         *
+         * @return The number of lost events.
+         */
+        public long getLost() {
+            return lost;
+        }
+    }
+}
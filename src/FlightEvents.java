@@ -0,0 +1,272 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The {@code FlightEvents} class holds the Java Flight Recorder events that
+ * the game emits, so gameplay hitches can be lined up against GC pauses and
+ * I/O stalls in a recording.
+ *
+ * Every event is disabled by default and has to be turned on in the
+ * recording settings, either in a custom {@code .jfc} file passed to
+ * {@code -XX:StartFlightRecording} or from JDK Mission Control. The helper
+ * methods check whether an event is enabled before creating it, so a
+ * disabled event costs a single field read on the game loop.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public final class FlightEvents {
+
+    /**
+     * The event type of {@code PieceSpawn}.
+     */
+    private static final EventType PIECE_SPAWN
+            = EventType.getEventType(PieceSpawn.class);
+
+    /**
+     * The event type of {@code PieceLock}.
+     */
+    private static final EventType PIECE_LOCK
+            = EventType.getEventType(PieceLock.class);
+
+    /**
+     * The event type of {@code LinesCleared}.
+     */
+    private static final EventType LINES_CLEARED
+            = EventType.getEventType(LinesCleared.class);
+
+    /**
+     * The event type of {@code LevelUp}.
+     */
+    private static final EventType LEVEL_UP
+            = EventType.getEventType(LevelUp.class);
+
+    /**
+     * The event type of {@code FrameOverrun}.
+     */
+    private static final EventType FRAME_OVERRUN
+            = EventType.getEventType(FrameOverrun.class);
+
+    /**
+     * This class only holds static members.
+     */
+    private FlightEvents() {
+    }
+
+    /**
+     * Emits a {@code PieceSpawn} event if it is enabled.
+     *
+     * @param type The type of the piece that was spawned.
+     * @param next The type of the next piece.
+     */
+    public static void pieceSpawned(TileType type, TileType next) {
+        if (PIECE_SPAWN.isEnabled()) {
+            PieceSpawn event = new PieceSpawn();
+            event.pieceType = type.getName();
+            event.nextType = next.getName();
+            event.commit();
+        }
+    }
+
+    /**
+     * Emits a {@code PieceLock} event if it is enabled.
+     *
+     * @param type The type of the piece that was locked.
+     * @param col The column of the piece.
+     * @param row The row of the piece.
+     * @param rotation The rotation of the piece.
+     */
+    public static void pieceLocked(TileType type, int col, int row,
+            int rotation) {
+        if (PIECE_LOCK.isEnabled()) {
+            PieceLock event = new PieceLock();
+            event.pieceType = type.getName();
+            event.column = col;
+            event.row = row;
+            event.rotation = rotation;
+            event.commit();
+        }
+    }
+
+    /**
+     * Emits a {@code LinesCleared} event if it is enabled.
+     *
+     * @param count The number of lines cleared at once.
+     * @param score The score after clearing them.
+     */
+    public static void linesCleared(int count, int score) {
+        if (LINES_CLEARED.isEnabled()) {
+            LinesCleared event = new LinesCleared();
+            event.count = count;
+            event.score = score;
+            event.commit();
+        }
+    }
+
+    /**
+     * Emits a {@code LevelUp} event if it is enabled.
+     *
+     * @param level The new level.
+     * @param gameSpeed The new game speed, in rows per second.
+     */
+    public static void levelUp(int level, float gameSpeed) {
+        if (LEVEL_UP.isEnabled()) {
+            LevelUp event = new LevelUp();
+            event.level = level;
+            event.gameSpeed = gameSpeed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Emits a {@code FrameOverrun} event if it is enabled.
+     *
+     * @param frameNanos The length of the frame, in nanoseconds.
+     * @param budgetNanos The frame budget, in nanoseconds.
+     */
+    public static void frameOverrun(long frameNanos, long budgetNanos) {
+        if (FRAME_OVERRUN.isEnabled()) {
+            FrameOverrun event = new FrameOverrun();
+            event.frameTime = frameNanos;
+            event.budget = budgetNanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * A new piece was spawned.
+     */
+    @Name("tetris.PieceSpawn")
+    @Label("Piece Spawn")
+    @Category("Tetris")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class PieceSpawn extends Event {
+
+        @Label("Piece Type")
+        String pieceType;
+
+        @Label("Next Type")
+        String nextType;
+    }
+
+    /**
+     * The current piece was locked onto the board.
+     */
+    @Name("tetris.PieceLock")
+    @Label("Piece Lock")
+    @Category("Tetris")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class PieceLock extends Event {
+
+        @Label("Piece Type")
+        String pieceType;
+
+        @Label("Column")
+        int column;
+
+        @Label("Row")
+        int row;
+
+        @Label("Rotation")
+        int rotation;
+    }
+
+    /**
+     * One or more lines were cleared by the last locked piece.
+     */
+    @Name("tetris.LinesCleared")
+    @Label("Lines Cleared")
+    @Category("Tetris")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class LinesCleared extends Event {
+
+        @Label("Count")
+        int count;
+
+        @Label("Score")
+        int score;
+    }
+
+    /**
+     * The level went up.
+     */
+    @Name("tetris.LevelUp")
+    @Label("Level Up")
+    @Category("Tetris")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class LevelUp extends Event {
+
+        @Label("Level")
+        int level;
+
+        @Label("Game Speed")
+        @Description("Rows fallen per second")
+        float gameSpeed;
+    }
+
+    /**
+     * A frame of the game loop took longer than {@code FRAME_TIME}.
+     */
+    @Name("tetris.FrameOverrun")
+    @Label("Frame Overrun")
+    @Category("Tetris")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class FrameOverrun extends Event {
+
+        @Label("Frame Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long frameTime;
+
+        @Label("Budget")
+        @Timespan(Timespan.NANOSECONDS)
+        long budget;
+    }
+
+    /**
+     * The game was saved to disk. This is a duration event, so it is begun
+     * before the file is opened and committed once it is closed.
+     */
+    @Name("tetris.SaveGame")
+    @Label("Save Game")
+    @Category({"Tetris", "I/O"})
+    @Enabled(false)
+    public static class SaveGame extends Event {
+
+        @Label("File")
+        String file;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    /**
+     * The game was loaded from disk. This is a duration event, so it is begun
+     * before the file is opened and committed once it is closed.
+     */
+    @Name("tetris.LoadGame")
+    @Label("Load Game")
+    @Category({"Tetris", "I/O"})
+    @Enabled(false)
+    public static class LoadGame extends Event {
+
+        @Label("File")
+        String file;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,161 @@
+import java.io.PrintStream;
+
+/**
+ * The {@code FrameProfiler} class keeps one {@code LatencyHistogram} for each
+ * phase of a frame (game update, render request, board and side panel
+ * painting, and the whole frame) and counts how many frames took longer than
+ * the frame budget.
+ *
+ * The update, render and frame histograms are written by the game loop and
+ * the paint histograms by the Swing thread, so every histogram still has a
+ * single writer.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class FrameProfiler {
+
+    /**
+     * The time spent in {@code Tetris.updateGame}.
+     */
+    private final LatencyHistogram update;
+
+    /**
+     * The time spent in {@code Tetris.renderGame}.
+     */
+    private final LatencyHistogram render;
+
+    /**
+     * The time spent in {@code BoardPanel.paintComponent}.
+     */
+    private final LatencyHistogram boardPaint;
+
+    /**
+     * The time spent in {@code SidePanel.paintComponent}.
+     */
+    private final LatencyHistogram sidePaint;
+
+    /**
+     * The time spent on a whole frame of the game loop, before sleeping.
+     */
+    private final LatencyHistogram frame;
+
+    /**
+     * The number of frames that took longer than the frame budget.
+     */
+    private long overruns;
+
+    /**
+     * Whether or not the overlay should be drawn on the side panel.
+     */
+    private volatile boolean isOverlayVisible;
+
+    /**
+     * Creates a new FrameProfiler with empty histograms.
+     */
+    public FrameProfiler() {
+        this.update = new LatencyHistogram("update");
+        this.render = new LatencyHistogram("render");
+        this.boardPaint = new LatencyHistogram("board paint");
+        this.sidePaint = new LatencyHistogram("side paint");
+        this.frame = new LatencyHistogram("frame");
+    }
+
+    /**
+     * Gets the histogram for the game update.
+     *
+     * @return The update histogram.
+     */
+    public LatencyHistogram getUpdate() {
+        return update;
+    }
+
+    /**
+     * Gets the histogram for the render request.
+     *
+     * @return The render histogram.
+     */
+    public LatencyHistogram getRender() {
+        return render;
+    }
+
+    /**
+     * Gets the histogram for painting the board.
+     *
+     * @return The board paint histogram.
+     */
+    public LatencyHistogram getBoardPaint() {
+        return boardPaint;
+    }
+
+    /**
+     * Gets the histogram for painting the side panel.
+     *
+     * @return The side paint histogram.
+     */
+    public LatencyHistogram getSidePaint() {
+        return sidePaint;
+    }
+
+    /**
+     * Gets the histogram for whole frames.
+     *
+     * @return The frame histogram.
+     */
+    public LatencyHistogram getFrame() {
+        return frame;
+    }
+
+    /**
+     * Records the length of a whole frame and counts it as an overrun if it
+     * went over the budget.
+     *
+     * @param nanos The length of the frame, in nanoseconds.
+     * @param budgetNanos The frame budget, in nanoseconds.
+     */
+    public void recordFrame(long nanos, long budgetNanos) {
+        frame.record(nanos);
+        if (nanos > budgetNanos) {
+            overruns++;
+        }
+    }
+
+    /**
+     * Gets the number of frames that went over the budget.
+     *
+     * @return The number of overruns.
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * Checks to see whether or not the overlay is visible.
+     *
+     * @return Whether or not the overlay is visible.
+     */
+    public boolean isOverlayVisible() {
+        return isOverlayVisible;
+    }
+
+    /**
+     * Shows the overlay if it is hidden, and hides it otherwise.
+     */
+    public void toggleOverlay() {
+        isOverlayVisible = !isOverlayVisible;
+    }
+
+    /**
+     * Prints every histogram and the overrun count.
+     *
+     * @param out The stream to print to.
+     */
+    public void dump(PrintStream out) {
+        out.println("Frame timings:");
+        out.println("  " + update.summary());
+        out.println("  " + render.summary());
+        out.println("  " + boardPaint.summary());
+        out.println("  " + sidePaint.summary());
+        out.println("  " + frame.summary());
+        out.println("  overruns     " + overruns);
+    }
+}
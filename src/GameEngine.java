@@ -0,0 +1,1191 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code GameEngine} class holds the state of a single game (the board,
+ * the current and next piece, the score and the speed) and applies the game
+ * rules to it. It has no window, sound or timer, so the same rules drive the
+ * {@code Tetris} window and the headless games of the {@code GameServer}.
+ *
+ * The window and the headless games both call {@code tick} once every
+ * frame, which moves the piece down with a fixed time step, so a game only
+ * depends on its seed and its inputs, and those are counted in ticks.
+ *
+ * The whole state of a game, generator included, can be copied into a
+ * {@code Snapshot} and put back later, which only copies the board and a
+ * few numbers, so going back to an earlier tick is cheap.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class GameEngine implements Serializable {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = 6188290135417416711L;
+
+    /**
+     * The number of frames per second, both in the window and headless.
+     */
+    public static final int TICKS_PER_SECOND = 50;
+
+    /**
+     * Returned by {@code tick} when the piece didn't lock.
+     */
+    public static final int NOT_LOCKED = -1;
+
+    /**
+     * Returned by {@code RotationSystem.rotate} when a piece can't be rotated.
+     */
+    public static final long BLOCKED = Long.MIN_VALUE;
+
+    /**
+     * Starts a save file, followed by the name of the piece set. A save
+     * without it is from before piece sets, and starts with the level, which
+     * is never negative.
+     */
+    private static final int PIECE_SET_TAG = Integer.MIN_VALUE;
+
+    /**
+     * The number of frames after a spawn before the piece can be dropped.
+     */
+    private static final int DROP_COOLDOWN = 25;
+
+    /**
+     * The number of lines to clear to go up a level.
+     */
+    private static final int LINES_PER_LEVEL = 10;
+
+    /**
+     * The board.
+     */
+    private final Board board;
+
+    /**
+     * The random number generator. This is used to spit out pieces randomly.
+     */
+    private final PieceRandom random;
+
+    /**
+     * Whether or not we've played a game yet. This is set to true initially and
+     * then set to false when the game starts.
+     */
+    private boolean isNewGame;
+
+    /**
+     * Whether or not the game is over.
+     */
+    private boolean isGameOver;
+
+    /**
+     * The current level we're on.
+     */
+    private int level;
+
+    /**
+     * The current score.
+     */
+    private int score;
+
+    /**
+     * The number of lines cleared so far.
+     */
+    private int lines;
+
+    /**
+     * The current type of tile.
+     */
+    private TileType currentType;
+
+    /**
+     * The next type of tile.
+     */
+    private TileType nextType;
+
+    /**
+     * The current column of our tile.
+     */
+    private int currentCol;
+
+    /**
+     * The current row of our tile.
+     */
+    private int currentRow;
+
+    /**
+     * The current rotation of our tile.
+     */
+    private int currentRotation;
+
+    /**
+     * Ensures that a certain amount of time passes after a piece is spawned
+     * before we can drop it.
+     */
+    private int dropCooldown;
+
+    /**
+     * The lines cleared since the last level up.
+     */
+    private int levelLines;
+
+    /**
+     * The rules for how fast pieces fall and when they lock.
+     */
+    private Gravity gravity;
+
+    /**
+     * Whether or not the drop key is held.
+     */
+    private boolean isSoftDropping;
+
+    /**
+     * Whether or not the piece is dropped and locked on the next tick.
+     */
+    private boolean isHardDropping;
+
+    /**
+     * The part of a row the piece has fallen on top of its row, in
+     * {@code Gravity.ONE_ROW}ths.
+     */
+    private int subRow;
+
+    /**
+     * The number of ticks the piece has rested on the stack.
+     */
+    private int lockTimer;
+
+    /**
+     * The number of times the piece has started the lock delay over.
+     */
+    private int lockResets;
+
+    /**
+     * The lowest row the piece has reached.
+     */
+    private int lowestRow;
+
+    /**
+     * The garbage rows sent by opponents in a versus game.
+     */
+    private final GarbageInbox inbox;
+
+    /**
+     * The number of pieces spawned so far, so that a controller can tell
+     * when a new piece appears.
+     */
+    private int pieceCount;
+
+    /**
+     * The rule for where a piece ends up when it is rotated.
+     */
+    private RotationSystem rotationSystem;
+
+    /**
+     * Creates a new GameEngine that spawns pieces from the given seed.
+     *
+     * @param seed The seed of the piece generator.
+     */
+    public GameEngine(long seed) {
+        this(new PieceRandom(seed));
+    }
+
+    /**
+     * Creates a new GameEngine that spawns pieces from the given generator.
+     *
+     * @param random The piece generator.
+     */
+    public GameEngine(PieceRandom random) {
+        this(random, Board.COL_COUNT, Board.VISIBLE_ROW_COUNT,
+                PieceSet.STANDARD);
+    }
+
+    /**
+     * Creates a new GameEngine on a board of the given size that spawns
+     * pieces of the given set from the given generator.
+     *
+     * @param random The piece generator.
+     * @param colCount The number of columns of the board.
+     * @param visibleRowCount The number of visible rows of the board.
+     * @param pieceSet The pieces to play with.
+     */
+    public GameEngine(PieceRandom random, int colCount, int visibleRowCount,
+            PieceSet pieceSet) {
+        this.board = new Board(colCount, visibleRowCount, pieceSet);
+        this.random = random;
+        this.inbox = new GarbageInbox();
+        this.isNewGame = true;
+        this.level = 1;
+        this.gravity = Gravity.STANDARD;
+        this.rotationSystem = new SrsRotation();
+    }
+
+    /**
+     * Resets the game variables to their default values at the start of a new
+     * game, and spawns the first piece.
+     */
+    public void reset() {
+        this.level = 1;
+        this.score = 0;
+        this.lines = 0;
+        this.levelLines = 0;
+        this.isSoftDropping = false;
+        this.isHardDropping = false;
+        this.nextType = nextPiece();
+        this.isNewGame = false;
+        this.isGameOver = false;
+        //Garbage sent during the last game doesn't carry over.
+        inbox.take();
+        board.clear();
+        spawnPiece();
+    }
+
+    /**
+     * Picks the next piece at random from the piece set.
+     *
+     * @return The piece.
+     */
+    private TileType nextPiece() {
+        PieceSet pieceSet = board.getPieceSet();
+        return pieceSet.get(random.nextInt(pieceSet.size()));
+    }
+
+    /**
+     * Spawns a new piece and resets our piece's variables to their default
+     * values. If the spawn point is taken, the game is over.
+     */
+    private void spawnPiece() {
+        /*
+         * Poll the last piece and reset our position and rotation to their
+         * default variables, then pick the next piece to use.
+         */
+        this.currentType = nextType;
+        this.currentCol = board.getSpawnColumn(currentType);
+        this.currentRow = currentType.getSpawnRow();
+        this.currentRotation = 0;
+        this.nextType = nextPiece();
+        this.pieceCount++;
+        this.subRow = 0;
+        this.lockTimer = 0;
+        this.lockResets = 0;
+        this.lowestRow = currentRow;
+
+        /*
+         * If the spawn point is invalid, we need to flag that we've lost
+         * because it means that the pieces on the board have gotten too high.
+         * While every column is below the spawn area, there is nothing to
+         * test.
+         */
+        if (board.getMaxHeight() > board.getRowCount() - currentRow
+                - currentType.getDimension()
+                && !board.isValidAndEmpty(currentType, currentCol,
+                currentRow, currentRotation)) {
+            this.isGameOver = true;
+        }
+    }
+
+    /**
+     * Lets gravity pull the current piece down for a tick. The piece falls as
+     * many whole rows as have built up, but never through the stack, and
+     * once it rests on the stack it locks when the lock delay runs out.
+     *
+     * @return The number of lines cleared, or {@code NOT_LOCKED} if the piece
+     * didn't lock.
+     */
+    private int fall() {
+        int speed = gravity.getGravity(level);
+        if (isSoftDropping) {
+            speed = Math.max(speed, Gravity.SOFT_DROP);
+        }
+        subRow += speed;
+        int landing = board.getLandingRow(currentType, currentCol, currentRow,
+                currentRotation);
+        currentRow = Math.min(currentRow + (subRow >> Gravity.ROW_SHIFT),
+                landing);
+        subRow &= Gravity.ONE_ROW - 1;
+
+        //Every new lowest row gives the piece its lock delay back in full.
+        if (currentRow > lowestRow) {
+            lowestRow = currentRow;
+            lockTimer = 0;
+            lockResets = 0;
+        }
+        if (currentRow < landing) {
+            return NOT_LOCKED;
+        }
+
+        //Gravity doesn't build up while the piece rests on the stack.
+        subRow = 0;
+        if (++lockTimer < gravity.getLockDelay()) {
+            return NOT_LOCKED;
+        }
+        return lock();
+    }
+
+    /**
+     * Locks the current piece onto the board where it is. Any full lines are
+     * cleared, the level goes up every {@code LINES_PER_LEVEL} lines and the
+     * next piece is spawned.
+     *
+     * @return The number of lines cleared.
+     */
+    private int lock() {
+        board.addPiece(currentType, currentCol, currentRow, currentRotation);
+
+        /*
+         * Check to see if adding the new piece resulted in any cleared
+         * lines. If so,increase the player's score. (Up to 4 lines can be
+         * cleared in a single go; [1 = 100pts, 2 = 200pts, 3 = 400pts, 4 =
+         * 800pts]).
+         */
+        int cleared = board.checkLines();
+        if (cleared > 0) {
+            score += 50 << cleared;
+            lines += cleared;
+        }
+
+        /*
+         * Update the level, which sets how fast the next pieces fall.
+         * Landing a piece also ends a soft drop.
+         */
+        levelLines += cleared;
+        while (levelLines >= LINES_PER_LEVEL) {
+            levelLines -= LINES_PER_LEVEL;
+            level++;
+        }
+        isSoftDropping = false;
+
+        /*
+         * Set the drop cooldown so the next piece doesn't automatically
+         * come flying in from the heavens immediately after this piece hits
+         * if we've not reacted yet. (~0.5 second buffer).
+         */
+        dropCooldown = DROP_COOLDOWN;
+
+        /*
+         * Spawn a new piece to control.
+         */
+        spawnPiece();
+        return cleared;
+    }
+
+    /**
+     * Starts the lock delay over after the piece was moved or rotated, if it
+     * is resting and has resets left.
+     */
+    private void resetLockDelay() {
+        if (lockTimer > 0 && lockResets < gravity.getMaxResets()) {
+            lockTimer = 0;
+            lockResets++;
+        }
+    }
+
+    /**
+     * Advances the game by one frame. This first adds any garbage that
+     * opponents sent since the last frame, then either drops and locks the
+     * piece if a hard drop was asked for, or lets gravity pull it down, then
+     * counts down the drop cooldown.
+     *
+     * @return The number of lines cleared, or {@code NOT_LOCKED} if no piece
+     * was locked this frame.
+     */
+    public int tick() {
+        if (isNewGame || isGameOver) {
+            return NOT_LOCKED;
+        }
+
+        addGarbage();
+        if (isGameOver) {
+            return NOT_LOCKED;
+        }
+
+        int result;
+        if (isHardDropping) {
+            //Landed after the garbage, which may have pushed the piece up.
+            isHardDropping = false;
+            currentRow = board.getLandingRow(currentType, currentCol,
+                    currentRow, currentRotation);
+            result = lock();
+        } else {
+            result = fall();
+        }
+
+        //Decrement the drop cool down if necessary.
+        coolDown();
+        return result;
+    }
+
+    /**
+     * Adds the garbage rows waiting in the inbox to the bottom of the board,
+     * with the hole in a random column. The current piece is pushed up along
+     * with the board if it would overlap the garbage. The game is over if
+     * either the board or the piece is pushed off the top.
+     */
+    private void addGarbage() {
+        if (!inbox.take()) {
+            return;
+        }
+        int count = inbox.getTakenCount();
+        if (board.addGarbage(count, random.nextInt(board.getColCount()),
+                board.getPieceSet().get(inbox.getTakenType()))) {
+            this.isGameOver = true;
+            return;
+        }
+        //The rows the piece reached moved up with the board.
+        lowestRow -= count;
+        for (int i = 0; i < count && !board.isValidAndEmpty(currentType,
+                currentCol, currentRow, currentRotation); i++) {
+            currentRow--;
+        }
+        if (!board.isValidAndEmpty(currentType, currentCol, currentRow,
+                currentRotation)) {
+            this.isGameOver = true;
+        }
+    }
+
+    /**
+     * Counts down the drop cooldown by one frame.
+     */
+    public void coolDown() {
+        if (dropCooldown > 0) {
+            dropCooldown--;
+        }
+    }
+
+    /**
+     * Moves the current piece one column to the left, if there is room.
+     *
+     * @return Whether or not the piece moved.
+     */
+    public boolean moveLeft() {
+        if (board.isValidAndEmpty(currentType, currentCol - 1, currentRow,
+                currentRotation)) {
+            currentCol--;
+            resetLockDelay();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves the current piece one column to the right, if there is room.
+     *
+     * @return Whether or not the piece moved.
+     */
+    public boolean moveRight() {
+        if (board.isValidAndEmpty(currentType, currentCol + 1, currentRow,
+                currentRotation)) {
+            currentCol++;
+            resetLockDelay();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Starts or stops a soft drop. A soft drop can only start once the drop
+     * cooldown is over.
+     *
+     * @param isPressed Whether or not the drop key is held.
+     */
+    public void setSoftDrop(boolean isPressed) {
+        if (isPressed) {
+            if (dropCooldown == 0) {
+                isSoftDropping = true;
+            }
+        } else {
+            isSoftDropping = false;
+        }
+    }
+
+    /**
+     * Asks for a hard drop: on the next {@code tick} the piece falls straight
+     * to where it lands and locks there at once. Like a soft drop, a hard drop
+     * can only happen once the drop cooldown is over.
+     *
+     * @return Whether or not the piece will be dropped.
+     */
+    public boolean hardDrop() {
+        if (dropCooldown > 0) {
+            return false;
+        }
+        isHardDropping = true;
+        return true;
+    }
+
+    /**
+     * Attempts to rotate the current piece clockwise.
+     *
+     * @return Whether or not the piece was rotated.
+     */
+    public boolean rotateClockwise() {
+        return rotatePiece((currentRotation == 3) ? 0 : currentRotation + 1);
+    }
+
+    /**
+     * Attempts to rotate the current piece anticlockwise.
+     *
+     * @return Whether or not the piece was rotated.
+     */
+    public boolean rotateAnticlockwise() {
+        return rotatePiece((currentRotation == 0) ? 3 : currentRotation - 1);
+    }
+
+    /**
+     * Attempts to set the rotation of the current piece to newRotation.
+     *
+     * @param newRotation The rotation of the new peice.
+     * @return Whether or not the piece was rotated.
+     */
+    public boolean rotatePiece(int newRotation) {
+        long position = rotationSystem.rotate(board, currentType, currentCol,
+                currentRow, currentRotation, newRotation);
+        if (position == BLOCKED) {
+            return false;
+        }
+        currentRotation = newRotation;
+        currentCol = (int) position;
+        currentRow = (int) (position >> 32);
+        resetLockDelay();
+        return true;
+    }
+
+    /**
+     * Writes the game to a save file, starting with the name of the piece
+     * set it is played with.
+     *
+     * @param out The file to write to.
+     * @throws IOException
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(PIECE_SET_TAG);
+        out.writeUTF(board.getPieceSet().getName());
+        out.writeInt(level);
+        out.writeInt(score);
+        out.writeInt(currentCol);
+        out.writeInt(currentRow);
+        out.writeInt(currentRotation);
+        out.writeInt(currentType.getType());
+        out.writeInt(nextType.getType());
+        //A placeholder where the speed used to be kept, which is ignored.
+        out.writeFloat(0.0f);
+        out.writeBoolean(isGameOver);
+        out.writeBoolean(isNewGame);
+
+        int matStatus[][] = board.getMatrix();
+
+        out.writeInt(matStatus.length);
+        out.writeInt(matStatus[0].length);
+        for (int iR = 0; iR < matStatus.length; iR++) {
+            for (int iC = 0; iC < matStatus[0].length; iC++) {
+                out.writeInt(matStatus[iR][iC]);
+            }
+        }
+    }
+
+    /**
+     * Reads a game from a save file written by {@code write}, switching to
+     * its piece set. Saves from before piece sets are of standard games.
+     *
+     * @param in The file to read from.
+     * @throws IOException
+     */
+    public void read(DataInput in) throws IOException {
+        PieceSet pieceSet = PieceSet.STANDARD;
+        int first = in.readInt();
+        if (first == PIECE_SET_TAG) {
+            pieceSet = PieceSet.forName(in.readUTF());
+            first = in.readInt();
+        }
+        this.level = first;
+        this.score = in.readInt();
+        this.currentCol = in.readInt();
+        this.currentRow = in.readInt();
+        this.currentRotation = in.readInt();
+        this.currentType = pieceSet.get(in.readInt());
+        this.nextType = pieceSet.get(in.readInt());
+        //The placeholder, or the speed in older saves; it follows the level.
+        in.readFloat();
+        this.isGameOver = in.readBoolean();
+        this.isNewGame = in.readBoolean();
+        //Saves don't keep the lines, so the loaded game counts from none.
+        this.lines = 0;
+        this.levelLines = 0;
+        //The loaded piece is a new one to whoever is controlling it.
+        this.pieceCount++;
+        this.subRow = 0;
+        this.lockTimer = 0;
+        this.lockResets = 0;
+        this.lowestRow = currentRow;
+        this.isSoftDropping = false;
+        this.isHardDropping = false;
+
+        int i = in.readInt();
+        int j = in.readInt();
+        int matBoard[][] = new int[i][j];
+
+        for (int iR = 0; iR < i; iR++) {
+            for (int iC = 0; iC < j; iC++) {
+                matBoard[iR][iC] = in.readInt();
+            }
+        }
+        board.clear();
+        board.setMatrix(matBoard, pieceSet);
+    }
+
+    /**
+     * Takes a snapshot of the game, to be put back with {@code restore}.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot(board);
+        snapshot(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Takes a snapshot of the game into one taken before, without
+     * allocating.
+     *
+     * @param snapshot A snapshot of a game on a board of the same size and
+     * piece set.
+     */
+    public void snapshot(Snapshot snapshot) {
+        snapshot.check(board);
+        board.copyTiles(snapshot.tiles);
+        snapshot.randomState = random.getState();
+        snapshot.flags = (isNewGame ? Snapshot.NEW_GAME : 0)
+                | (isGameOver ? Snapshot.GAME_OVER : 0)
+                | (isSoftDropping ? Snapshot.SOFT_DROPPING : 0)
+                | (isHardDropping ? Snapshot.HARD_DROPPING : 0);
+        snapshot.level = level;
+        snapshot.score = score;
+        snapshot.lines = lines;
+        snapshot.levelLines = levelLines;
+        snapshot.pieceCount = pieceCount;
+        snapshot.currentType = currentType == null ? -1
+                : currentType.getType();
+        snapshot.nextType = nextType == null ? -1 : nextType.getType();
+        snapshot.currentCol = currentCol;
+        snapshot.currentRow = currentRow;
+        snapshot.currentRotation = currentRotation;
+        snapshot.dropCooldown = dropCooldown;
+        snapshot.subRow = subRow;
+        snapshot.lockTimer = lockTimer;
+        snapshot.lockResets = lockResets;
+        snapshot.lowestRow = lowestRow;
+    }
+
+    /**
+     * Puts the game back the way it was when a snapshot was taken. The
+     * garbage waiting in the inbox isn't part of the game, so it stays, and
+     * neither are the gravity and rotation rules.
+     *
+     * @param snapshot A snapshot of a game on a board of the same size and
+     * piece set.
+     */
+    public void restore(Snapshot snapshot) {
+        snapshot.check(board);
+        board.setTiles(snapshot.tiles);
+        random.setState(snapshot.randomState);
+        PieceSet pieceSet = board.getPieceSet();
+        this.isNewGame = (snapshot.flags & Snapshot.NEW_GAME) != 0;
+        this.isGameOver = (snapshot.flags & Snapshot.GAME_OVER) != 0;
+        this.isSoftDropping = (snapshot.flags & Snapshot.SOFT_DROPPING) != 0;
+        this.isHardDropping = (snapshot.flags & Snapshot.HARD_DROPPING) != 0;
+        this.level = snapshot.level;
+        this.score = snapshot.score;
+        this.lines = snapshot.lines;
+        this.levelLines = snapshot.levelLines;
+        this.pieceCount = snapshot.pieceCount;
+        this.currentType = snapshot.currentType < 0 ? null
+                : pieceSet.get(snapshot.currentType);
+        this.nextType = snapshot.nextType < 0 ? null
+                : pieceSet.get(snapshot.nextType);
+        this.currentCol = snapshot.currentCol;
+        this.currentRow = snapshot.currentRow;
+        this.currentRotation = snapshot.currentRotation;
+        this.dropCooldown = snapshot.dropCooldown;
+        this.subRow = snapshot.subRow;
+        this.lockTimer = snapshot.lockTimer;
+        this.lockResets = snapshot.lockResets;
+        this.lowestRow = snapshot.lowestRow;
+    }
+
+    /**
+     * Gets the board.
+     *
+     * @return The board.
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Gets the inbox opponents send garbage rows to.
+     *
+     * @return The inbox.
+     */
+    public GarbageInbox getInbox() {
+        return inbox;
+    }
+
+    /**
+     * Checks to see whether or not the drop key is making the piece fall
+     * faster.
+     *
+     * @return Whether or not the piece is soft dropping.
+     */
+    public boolean isSoftDropping() {
+        return isSoftDropping;
+    }
+
+    /**
+     * Gets the rules for how fast pieces fall and when they lock.
+     *
+     * @return The gravity.
+     */
+    public Gravity getGravity() {
+        return gravity;
+    }
+
+    /**
+     * Sets the rules for how fast pieces fall and when they lock.
+     *
+     * @param gravity The gravity.
+     */
+    public void setGravity(Gravity gravity) {
+        this.gravity = gravity;
+    }
+
+    /**
+     * Gets the rule for where a piece ends up when it is rotated.
+     *
+     * @return The rotation system.
+     */
+    public RotationSystem getRotationSystem() {
+        return rotationSystem;
+    }
+
+    /**
+     * Sets the rule for where a piece ends up when it is rotated.
+     *
+     * @param rotationSystem The rotation system.
+     */
+    public void setRotationSystem(RotationSystem rotationSystem) {
+        this.rotationSystem = rotationSystem;
+    }
+
+    /**
+     * Checks to see whether or not the game is over.
+     *
+     * @return Whether or not the game is over.
+     */
+    public boolean isGameOver() {
+        return isGameOver;
+    }
+
+    /**
+     * Checks to see whether or not we're on a new game.
+     *
+     * @return Whether or not this is a new game.
+     */
+    public boolean isNewGame() {
+        return isNewGame;
+    }
+
+    /**
+     * Gets the current score.
+     *
+     * @return The score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the current level.
+     *
+     * @return The level.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the number of lines cleared so far.
+     *
+     * @return The number of lines.
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Gets how fast pieces fall at the current level.
+     *
+     * @return The number of rows per second.
+     */
+    public float getGameSpeed() {
+        return (float) gravity.getGravity(level) * TICKS_PER_SECOND
+                / Gravity.ONE_ROW;
+    }
+
+    /**
+     * Gets the number of frames left before the piece can be dropped.
+     *
+     * @return The drop cooldown.
+     */
+    public int getDropCooldown() {
+        return dropCooldown;
+    }
+
+    /**
+     * Gets the current type of piece we're using.
+     *
+     * @return The piece type.
+     */
+    public TileType getPieceType() {
+        return currentType;
+    }
+
+    /**
+     * Gets the next type of piece we're using.
+     *
+     * @return The next piece.
+     */
+    public TileType getNextPieceType() {
+        return nextType;
+    }
+
+    /**
+     * Gets the number of pieces spawned so far.
+     *
+     * @return The number of pieces.
+     */
+    public int getPieceCount() {
+        return pieceCount;
+    }
+
+    /**
+     * Gets the column of the current piece.
+     *
+     * @return The column.
+     */
+    public int getPieceCol() {
+        return currentCol;
+    }
+
+    /**
+     * Gets the row of the current piece.
+     *
+     * @return The row.
+     */
+    public int getPieceRow() {
+        return currentRow;
+    }
+
+    /**
+     * Gets the rotation of the current piece.
+     *
+     * @return The rotation.
+     */
+    public int getPieceRotation() {
+        return currentRotation;
+    }
+
+    /**
+     * The {@code Snapshot} class holds the whole state of a game, and only
+     * that: the tiles of the board as a byte per cell, the state of the
+     * generator, and the few numbers that describe the score and the piece.
+     * Its encoding has the same size for every snapshot of a board size,
+     * {@code HEADER_BYTES} plus a byte per cell, which is under 300 bytes
+     * on a standard board, so snapshots can be kept in fixed slots of a
+     * buffer or a file.
+     *
+     * A snapshot only fits games on a board of the size and piece set it was
+     * taken on.
+     */
+    public static final class Snapshot {
+
+        /**
+         * Set in the flags when no game has been played yet.
+         */
+        private static final int NEW_GAME = 1;
+
+        /**
+         * Set in the flags when the game is over.
+         */
+        private static final int GAME_OVER = 2;
+
+        /**
+         * Set in the flags while the piece is soft dropping.
+         */
+        private static final int SOFT_DROPPING = 4;
+
+        /**
+         * Set in the flags when a hard drop is waiting for the next tick.
+         */
+        private static final int HARD_DROPPING = 8;
+
+        /**
+         * The number of bytes the encoding takes before the tiles: the state
+         * of the generator, a byte of flags, and fifteen ints.
+         */
+        public static final int HEADER_BYTES = 8 + 1 + 15 * 4;
+
+        /**
+         * The number of columns of the board.
+         */
+        private final int colCount;
+
+        /**
+         * The total number of rows of the board.
+         */
+        private final int rowCount;
+
+        /**
+         * The pieces the board is played with.
+         */
+        private final PieceSet pieceSet;
+
+        /**
+         * The tiles of the board, as {@code Board.copyTiles} gives them.
+         */
+        private final byte[] tiles;
+
+        /**
+         * The state of the generator.
+         */
+        private long randomState;
+
+        /**
+         * Whether or not the game is new, over, soft dropping or hard
+         * dropping, a bit each.
+         */
+        private int flags;
+
+        /**
+         * The level.
+         */
+        private int level;
+
+        /**
+         * The score.
+         */
+        private int score;
+
+        /**
+         * The number of lines cleared.
+         */
+        private int lines;
+
+        /**
+         * The number of lines cleared since the last level up.
+         */
+        private int levelLines;
+
+        /**
+         * The number of pieces spawned.
+         */
+        private int pieceCount;
+
+        /**
+         * The type of the current piece, or -1 if there is none.
+         */
+        private int currentType;
+
+        /**
+         * The type of the next piece, or -1 if there is none.
+         */
+        private int nextType;
+
+        /**
+         * The column of the current piece.
+         */
+        private int currentCol;
+
+        /**
+         * The row of the current piece.
+         */
+        private int currentRow;
+
+        /**
+         * The rotation of the current piece.
+         */
+        private int currentRotation;
+
+        /**
+         * The number of ticks left in the drop cooldown.
+         */
+        private int dropCooldown;
+
+        /**
+         * The part of a row gravity has built up.
+         */
+        private int subRow;
+
+        /**
+         * The number of ticks the piece has rested.
+         */
+        private int lockTimer;
+
+        /**
+         * The number of times the lock delay was started over.
+         */
+        private int lockResets;
+
+        /**
+         * The lowest row the piece reached.
+         */
+        private int lowestRow;
+
+        /**
+         * Creates a new, empty Snapshot for games on a board.
+         *
+         * @param board The board.
+         */
+        private Snapshot(Board board) {
+            this.colCount = board.getColCount();
+            this.rowCount = board.getRowCount();
+            this.pieceSet = board.getPieceSet();
+            this.tiles = new byte[colCount * rowCount];
+        }
+
+        /**
+         * Checks to see whether or not the snapshot fits games on a board.
+         *
+         * @param board The board.
+         * @return Whether or not the board is of the size and piece set the
+         * snapshot was taken on.
+         */
+        public boolean fits(Board board) {
+            return board.getColCount() == colCount
+                    && board.getRowCount() == rowCount
+                    && board.getPieceSet() == pieceSet;
+        }
+
+        /**
+         * Makes sure that the snapshot fits games on a board.
+         *
+         * @param board The board.
+         */
+        private void check(Board board) {
+            if (!fits(board)) {
+                throw new IllegalArgumentException("Can't use a snapshot of "
+                        + "a board of another size or piece set");
+            }
+        }
+
+        /**
+         * Gets the number of bytes the encoding of the snapshot takes.
+         *
+         * @return The number of bytes.
+         */
+        public int getByteCount() {
+            return HEADER_BYTES + tiles.length;
+        }
+
+        /**
+         * Writes the encoding of the snapshot, {@code getByteCount} bytes.
+         *
+         * @param out The buffer to write to.
+         */
+        public void write(ByteBuffer out) {
+            out.putLong(randomState);
+            out.put((byte) flags);
+            out.putInt(level);
+            out.putInt(score);
+            out.putInt(lines);
+            out.putInt(levelLines);
+            out.putInt(pieceCount);
+            out.putInt(currentType);
+            out.putInt(nextType);
+            out.putInt(currentCol);
+            out.putInt(currentRow);
+            out.putInt(currentRotation);
+            out.putInt(dropCooldown);
+            out.putInt(subRow);
+            out.putInt(lockTimer);
+            out.putInt(lockResets);
+            out.putInt(lowestRow);
+            out.put(tiles);
+        }
+
+        /**
+         * Reads an encoding written by {@code write} from a snapshot of a
+         * board of the same size into this one.
+         *
+         * @param in The buffer to read from.
+         */
+        public void read(ByteBuffer in) {
+            randomState = in.getLong();
+            flags = in.get();
+            level = in.getInt();
+            score = in.getInt();
+            lines = in.getInt();
+            levelLines = in.getInt();
+            pieceCount = in.getInt();
+            currentType = in.getInt();
+            nextType = in.getInt();
+            currentCol = in.getInt();
+            currentRow = in.getInt();
+            currentRotation = in.getInt();
+            dropCooldown = in.getInt();
+            subRow = in.getInt();
+            lockTimer = in.getInt();
+            lockResets = in.getInt();
+            lowestRow = in.getInt();
+            in.get(tiles);
+        }
+
+        /**
+         * Gets the number of columns of the board the snapshot was taken on.
+         *
+         * @return The number of columns.
+         */
+        public int getColCount() {
+            return colCount;
+        }
+
+        /**
+         * Gets the total number of rows of the board the snapshot was taken
+         * on, hidden ones included.
+         *
+         * @return The number of rows.
+         */
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Gets the pieces the board the snapshot was taken on is played with.
+         *
+         * @return The piece set.
+         */
+        public PieceSet getPieceSet() {
+            return pieceSet;
+        }
+
+        /**
+         * Gets the score of the game when the snapshot was taken.
+         *
+         * @return The score.
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Gets the number of pieces spawned when the snapshot was taken.
+         *
+         * @return The number of pieces.
+         */
+        public int getPieceCount() {
+            return pieceCount;
+        }
+    }
+}
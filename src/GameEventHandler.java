@@ -0,0 +1,29 @@
+/**
+ * The {@code GameEventHandler} interface is whatever reacts to the events a
+ * game publishes on an {@code EventBus}: the sounds, the board's animation,
+ * the telemetry. Each handler is called on a thread of its own, never on the
+ * game's, with the events in the order they were published.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public interface GameEventHandler {
+
+    /**
+     * Reacts to an event. The values mean what the kind of event says they
+     * mean, and are 0 when it doesn't use them.
+     *
+     * @param kind The kind of event, one of the {@code EventBus} constants.
+     * @param a The first value.
+     * @param b The second value.
+     * @param c The third value.
+     * @param d The fourth value.
+     */
+    void onEvent(int kind, int a, int b, int c, int d);
+
+    /**
+     * Called after the last event of a batch, before the handler waits for
+     * more, so work that only has to be done once per batch can be left for
+     * it.
+     */
+    void onBatchEnd();
+}
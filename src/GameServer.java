@@ -0,0 +1,472 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The {@code GameServer} class hosts many headless games in one JVM, one per
+ * connection. Connections are spread over one loop per core; each loop owns
+ * a non-blocking selector and ticks all of its sessions every frame, so a
+ * session never needs a thread of its own.
+ *
+ * Every few seconds the server prints how many sessions it is hosting, how
+ * late the ticks start (tick jitter), how long a tick of a whole loop takes
+ * and how many bytes each session sends per tick.
+ *
+ * Spectators connect to the next port up and are attached to the loop that
+ * runs the session they asked for, so broadcasting to them never crosses
+ * threads.
+ *
+ * Usage: {@code java GameServer [port]}
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class GameServer {
+
+    /**
+     * The port used when none is given.
+     */
+    public static final int DEFAULT_PORT = 7777;
+
+    /**
+     * The number of nanoseconds per tick.
+     */
+    private static final long TICK_NANOS = 1000000000L
+            / GameEngine.TICKS_PER_SECOND;
+
+    /**
+     * The number of milliseconds between two stats reports.
+     */
+    private static final long REPORT_MILLIS = 5000L;
+
+    /**
+     * How long a spectator has to send the id of the session to watch.
+     */
+    private static final int SPECTATOR_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * The socket that accepts new connections.
+     */
+    private final ServerSocketChannel server;
+
+    /**
+     * The socket that accepts spectators.
+     */
+    private final ServerSocketChannel spectatorServer;
+
+    /**
+     * The loops that run the sessions.
+     */
+    private final SessionLoop[] loops;
+
+    /**
+     * The id given to the next session.
+     */
+    private int nextId;
+
+    /**
+     * Creates a new GameServer listening on the given port.
+     *
+     * @param port The port.
+     * @param loopCount The number of loops (and threads) to run.
+     * @throws IOException
+     */
+    public GameServer(int port, int loopCount) throws IOException {
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        this.spectatorServer = ServerSocketChannel.open();
+        spectatorServer.bind(new InetSocketAddress(port + 1), 1024);
+        this.loops = new SessionLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new SessionLoop();
+            Thread thread = new Thread(loops[i], "Session Loop " + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Accepts connections forever, handing them to the loops in turn.
+     *
+     * @throws IOException
+     */
+    public void run() throws IOException {
+        Thread reporter = new Thread("Stats Reporter") {
+
+            @Override
+            public void run() {
+                report();
+            }
+
+        };
+        reporter.setDaemon(true);
+        reporter.start();
+
+        Thread spectators = new Thread("Spectator Acceptor") {
+
+            @Override
+            public void run() {
+                acceptSpectators();
+            }
+
+        };
+        spectators.setDaemon(true);
+        spectators.start();
+
+        while (true) {
+            SocketChannel channel = server.accept();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            int id = nextId++;
+            long seed = System.nanoTime() ^ ((long) id << 32);
+            loops[id % loops.length].add(new GameSession(id, seed, channel));
+        }
+    }
+
+    /**
+     * Accepts spectators forever. Each one has to send the id of the session
+     * it wants to watch before it is handed to the loop running that session.
+     */
+    private void acceptSpectators() {
+        while (true) {
+            SocketChannel channel = null;
+            try {
+                channel = spectatorServer.accept();
+                channel.socket().setSoTimeout(SPECTATOR_TIMEOUT_MILLIS);
+                int id = new DataInputStream(channel.socket()
+                        .getInputStream()).readInt();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                if (id >= 0) {
+                    loops[id % loops.length].addSpectator(id, channel);
+                } else {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                try {
+                    if (channel != null) {
+                        channel.close();
+                    }
+                } catch (IOException ex) {
+                    System.out.println("Error en " + ex.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the stats of every loop every {@code REPORT_MILLIS}.
+     */
+    private void report() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        while (true) {
+            try {
+                Thread.sleep(REPORT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            int sessions = 0;
+            int spectators = 0;
+            long sessionTicks = 0;
+            long bytes = 0;
+            long jitterP99 = 0;
+            long jitterMax = 0;
+            long tickP99 = 0;
+            for (SessionLoop loop : loops) {
+                sessions += loop.sessionCount;
+                spectators += loop.spectatorCount;
+                sessionTicks += loop.sessionTicks;
+                bytes += loop.bytesQueued;
+                jitterP99 = Math.max(jitterP99,
+                        loop.jitter.getValueAtPercentile(99.0));
+                jitterMax = Math.max(jitterMax, loop.jitter.getMax());
+                tickP99 = Math.max(tickP99,
+                        loop.tickTime.getValueAtPercentile(99.0));
+            }
+
+            System.out.println(String.format("sessions=%d (%.1f per core) "
+                    + "spectators=%d jitter p99=%.3fms max=%.3fms "
+                    + "tick p99=%.3fms bytes/tick=%.2f", sessions,
+                    (double) sessions / cores, spectators,
+                    jitterP99 / 1e6, jitterMax / 1e6, tickP99 / 1e6,
+                    sessionTicks == 0 ? 0.0 : (double) bytes / sessionTicks));
+        }
+    }
+
+    /**
+     * The {@code PendingSpectator} class is a spectator on its way to the
+     * loop that runs the session it wants to watch.
+     */
+    private static class PendingSpectator {
+
+        /**
+         * The id of the session to watch.
+         */
+        private final int id;
+
+        /**
+         * The connection to the spectator.
+         */
+        private final SocketChannel channel;
+
+        /**
+         * Creates a new PendingSpectator.
+         *
+         * @param id The id of the session to watch.
+         * @param channel The connection to the spectator.
+         */
+        private PendingSpectator(int id, SocketChannel channel) {
+            this.id = id;
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * The {@code SessionLoop} class runs a share of the sessions on its own
+     * thread and selector.
+     */
+    private static class SessionLoop implements Runnable {
+
+        /**
+         * The selector of the loop.
+         */
+        private final Selector selector;
+
+        /**
+         * The sessions waiting to be registered with the selector.
+         */
+        private final ConcurrentLinkedQueue<GameSession> pending;
+
+        /**
+         * The spectators waiting to be attached to their session.
+         */
+        private final ConcurrentLinkedQueue<PendingSpectator>
+                pendingSpectators;
+
+        /**
+         * The sessions of the loop by id. Only used by the loop's thread.
+         */
+        private final HashMap<Integer, GameSession> sessions;
+
+        /**
+         * How late each tick started.
+         */
+        private final LatencyHistogram jitter;
+
+        /**
+         * How long each tick of the whole loop took.
+         */
+        private final LatencyHistogram tickTime;
+
+        /**
+         * The number of sessions in the loop.
+         */
+        private volatile int sessionCount;
+
+        /**
+         * The number of spectators in the loop, as of the last tick.
+         */
+        private volatile int spectatorCount;
+
+        /**
+         * The number of session ticks run so far.
+         */
+        private volatile long sessionTicks;
+
+        /**
+         * The number of bytes queued for the players so far.
+         */
+        private volatile long bytesQueued;
+
+        /**
+         * Creates a new SessionLoop.
+         *
+         * @throws IOException
+         */
+        private SessionLoop() throws IOException {
+            this.selector = Selector.open();
+            this.pending = new ConcurrentLinkedQueue<GameSession>();
+            this.pendingSpectators
+                    = new ConcurrentLinkedQueue<PendingSpectator>();
+            this.sessions = new HashMap<Integer, GameSession>();
+            this.jitter = new LatencyHistogram("jitter");
+            this.tickTime = new LatencyHistogram("tick");
+        }
+
+        /**
+         * Hands a new session to the loop. Called by the accepting thread.
+         *
+         * @param session The session.
+         */
+        private void add(GameSession session) {
+            pending.add(session);
+            selector.wakeup();
+        }
+
+        /**
+         * Hands a new spectator to the loop. Called by the spectator
+         * accepting thread.
+         *
+         * @param id The id of the session to watch.
+         * @param channel The connection to the spectator.
+         */
+        private void addSpectator(int id, SocketChannel channel) {
+            pendingSpectators.add(new PendingSpectator(id, channel));
+        }
+
+        @Override
+        public void run() {
+            long nextTick = System.nanoTime() + TICK_NANOS;
+            while (true) {
+                try {
+                    long wait = nextTick - System.nanoTime();
+                    if (wait > 0) {
+                        selector.select(Math.max(1L, wait / 1000000L));
+                    } else {
+                        selector.selectNow();
+                    }
+                    handleKeys();
+                    registerPending();
+
+                    long now = System.nanoTime();
+                    if (now >= nextTick) {
+                        jitter.record(now - nextTick);
+                        tickAll();
+                        tickTime.record(System.nanoTime() - now);
+
+                        /*
+                         * If we fell more than a tick behind, skip the
+                         * missed ticks instead of trying to catch up.
+                         */
+                        nextTick += TICK_NANOS;
+                        if (nextTick < now) {
+                            nextTick = now + TICK_NANOS;
+                        }
+                    }
+                } catch (IOException e) {
+                    System.out.println("Error en " + e.toString());
+                }
+            }
+        }
+
+        /**
+         * Reads inputs from, and finishes writes to, the ready connections.
+         */
+        private void handleKeys() {
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                GameSession session = (GameSession) key.attachment();
+                try {
+                    if (key.isValid() && key.isReadable() && !session.read()) {
+                        close(session);
+                        continue;
+                    }
+                    if (key.isValid() && key.isWritable() && session.flush()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                } catch (IOException e) {
+                    close(session);
+                }
+            }
+        }
+
+        /**
+         * Registers the sessions handed over since the last pass.
+         *
+         * @throws IOException
+         */
+        private void registerPending() throws IOException {
+            GameSession session;
+            while ((session = pending.poll()) != null) {
+                session.setKey(session.getChannel().register(selector,
+                        SelectionKey.OP_READ | SelectionKey.OP_WRITE,
+                        session));
+                sessions.put(session.getId(), session);
+                sessionCount++;
+            }
+
+            PendingSpectator spectator;
+            while ((spectator = pendingSpectators.poll()) != null) {
+                session = sessions.get(spectator.id);
+                if (session != null) {
+                    session.addSpectator(spectator.channel);
+                } else {
+                    spectator.channel.close();
+                }
+            }
+        }
+
+        /**
+         * Ticks every session once and sends out what changed.
+         */
+        private void tickAll() {
+            long bytes = 0;
+            int count = 0;
+            int spectators = 0;
+            for (SelectionKey key : selector.keys()) {
+                if (!key.isValid()) {
+                    continue;
+                }
+                GameSession session = (GameSession) key.attachment();
+                try {
+                    int queued = session.tick();
+                    count++;
+                    spectators += session.getSpectatorCount();
+                    if (queued > 0) {
+                        bytes += queued;
+                        if (!session.flush()) {
+                            key.interestOps(SelectionKey.OP_READ
+                                    | SelectionKey.OP_WRITE);
+                        }
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    close(session);
+                }
+            }
+            sessionTicks += count;
+            bytesQueued += bytes;
+            spectatorCount = spectators;
+        }
+
+        /**
+         * Closes a session and forgets about it.
+         *
+         * @param session The session.
+         */
+        private void close(GameSession session) {
+            session.getKey().cancel();
+            sessions.remove(session.getId());
+            try {
+                session.close();
+            } catch (IOException e) {
+                System.out.println("Error en " + e.toString());
+            }
+            sessionCount--;
+        }
+    }
+
+    /**
+     * Entry-point of the server.
+     *
+     * @param args The port to listen on (optional).
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_PORT;
+        int cores = Runtime.getRuntime().availableProcessors();
+        GameServer gameServer = new GameServer(port, cores);
+        System.out.println("Listening on port " + port + " with " + cores
+                + " loops");
+        gameServer.run();
+    }
+}
@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The {@code GameSession} class is a single headless game hosted by the
+ * {@code GameServer}, together with the connection of the player driving it.
+ * Inputs read from the connection are queued and applied at the start of the
+ * next tick, and after every tick the changes are encoded into the outgoing
+ * buffer as described in {@code Protocol}. The same changes are broadcast
+ * to any spectators through a {@code SpectatorFeed}.
+ *
+ * A session is only ever touched by the thread of the loop it belongs to.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class GameSession {
+
+    /**
+     * The size of the incoming buffer. Inputs beyond this per tick are lost.
+     */
+    private static final int INPUT_BUFFER_SIZE = 256;
+
+    /**
+     * The size of the outgoing buffer. A client that falls this far behind
+     * is disconnected.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * The id of the session.
+     */
+    private final int id;
+
+    /**
+     * The seed of the piece generator.
+     */
+    private final long seed;
+
+    /**
+     * The connection to the player.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * The key of the connection in its loop's selector.
+     */
+    private SelectionKey key;
+
+    /**
+     * The game.
+     */
+    private final GameEngine engine;
+
+    /**
+     * The inputs received but not applied yet.
+     */
+    private final ByteBuffer in;
+
+    /**
+     * The messages not sent yet.
+     */
+    private final ByteBuffer out;
+
+    /**
+     * The packed rows of the board, as last sent to the player.
+     */
+    private final int[] sentRows;
+
+    /**
+     * The packed piece, as last sent to the player.
+     */
+    private int sentPiece;
+
+    /**
+     * The score, as last sent to the player.
+     */
+    private int sentScore;
+
+    /**
+     * The number of ticks played so far.
+     */
+    private int tick;
+
+    /**
+     * The feed of the spectators, or null until the first one joins.
+     */
+    private SpectatorFeed feed;
+
+    /**
+     * Creates a new GameSession and queues its hello message.
+     *
+     * @param id The id of the session.
+     * @param seed The seed of the piece generator.
+     * @param channel The connection to the player.
+     */
+    public GameSession(int id, long seed, SocketChannel channel) {
+        this.id = id;
+        this.seed = seed;
+        this.channel = channel;
+        this.engine = new GameEngine(seed);
+        this.in = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+        this.out = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        this.sentRows = new int[Board.ROW_COUNT];
+        this.sentPiece = -1;
+        Protocol.writeHello(out, id, seed);
+    }
+
+    /**
+     * Reads whatever inputs are waiting on the connection.
+     *
+     * @return Whether or not the connection is still open.
+     * @throws IOException
+     */
+    public boolean read() throws IOException {
+        if (!in.hasRemaining()) {
+            //Too many inputs this tick; drop the oldest half.
+            in.flip();
+            in.position(in.limit() / 2);
+            in.compact();
+        }
+        return channel.read(in) >= 0;
+    }
+
+    /**
+     * Advances the game by one tick: applies the queued inputs, runs the
+     * engine, and encodes what changed.
+     *
+     * @return The number of bytes queued for the player.
+     */
+    public int tick() {
+        in.flip();
+        while (in.hasRemaining()) {
+            Protocol.applyInput(engine, in.get());
+        }
+        in.clear();
+
+        engine.tick();
+        tick++;
+
+        if (feed != null) {
+            feed.publish(engine, tick);
+            feed.flush();
+        }
+        return encode();
+    }
+
+    /**
+     * Adds a spectator to the game.
+     *
+     * @param spectator The connection to the spectator.
+     */
+    public void addSpectator(WritableByteChannel spectator) {
+        if (feed == null) {
+            feed = new SpectatorFeed();
+        }
+        feed.subscribe(spectator);
+    }
+
+    /**
+     * Gets the number of spectators watching the game.
+     *
+     * @return The number of spectators.
+     */
+    public int getSpectatorCount() {
+        return feed == null ? 0 : feed.getSubscriberCount();
+    }
+
+    /**
+     * Closes the connection to the player and to every spectator.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if (feed != null) {
+            feed.close();
+        }
+        channel.close();
+    }
+
+    /**
+     * Encodes the rows and piece that changed since the last message. Nothing
+     * is queued if nothing changed.
+     *
+     * @return The number of bytes queued.
+     */
+    private int encode() {
+        Board board = engine.getBoard();
+        int changedMask = 0;
+        for (int row = 0; row < Board.ROW_COUNT; row++) {
+            int packed = board.packRow(row);
+            if (packed != sentRows[row]) {
+                sentRows[row] = packed;
+                changedMask |= 1 << row;
+            }
+        }
+
+        int piece = Protocol.packPiece(engine);
+        if (changedMask == 0 && piece == sentPiece
+                && engine.getScore() == sentScore) {
+            return 0;
+        }
+        sentPiece = piece;
+        sentScore = engine.getScore();
+
+        if (out.remaining() < Protocol.MAX_STATE_MESSAGE) {
+            throw new IllegalStateException("Session " + id
+                    + " is not keeping up");
+        }
+        int start = out.position();
+        Protocol.writeState(out, Protocol.MSG_STATE, engine, tick, sentRows,
+                changedMask);
+        return out.position() - start;
+    }
+
+    /**
+     * Writes as much of the queued messages as the connection will take.
+     *
+     * @return Whether or not everything was written.
+     * @throws IOException
+     */
+    public boolean flush() throws IOException {
+        out.flip();
+        channel.write(out);
+        boolean isDone = !out.hasRemaining();
+        out.compact();
+        return isDone;
+    }
+
+    /**
+     * Gets the id of the session.
+     *
+     * @return The id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the seed of the piece generator.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the game.
+     *
+     * @return The engine.
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the connection to the player.
+     *
+     * @return The channel.
+     */
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Gets the key of the connection.
+     *
+     * @return The key.
+     */
+    public SelectionKey getKey() {
+        return key;
+    }
+
+    /**
+     * Sets the key of the connection.
+     *
+     * @param key The key.
+     */
+    public void setKey(SelectionKey key) {
+        this.key = key;
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code GarbageInbox} class collects the garbage rows sent to one board
+ * by its opponents in a versus game. Any number of threads can send to it at
+ * once, and the thread that runs the board takes everything that arrived at
+ * the start of its next tick, so boards never wait on each other.
+ *
+ * The state is a single long: the number of rows waiting in the low half and
+ * the type of the last piece that sent some (plus one) in the high half,
+ * which is what the garbage is drawn with.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class GarbageInbox implements Serializable {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = 3419872602547398816L;
+
+    /**
+     * The mask of the number of rows in the state.
+     */
+    private static final long COUNT_MASK = 0xffffffffL;
+
+    /**
+     * The rows waiting and the type they were sent with.
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * The number of rows taken by the last call to {@code take}.
+     */
+    private int takenCount;
+
+    /**
+     * The type of tile taken by the last call to {@code take}, or -1.
+     */
+    private int takenType;
+
+    /**
+     * Sends garbage rows to the board. Safe to call from any thread.
+     *
+     * @param count The number of rows.
+     * @param type The piece that cleared the lines the garbage comes from.
+     */
+    public void send(int count, TileType type) {
+        long update;
+        long current;
+        do {
+            current = state.get();
+            update = (long) (type.getType() + 1) << 32
+                    | ((current & COUNT_MASK) + count) & COUNT_MASK;
+        } while (!state.compareAndSet(current, update));
+    }
+
+    /**
+     * Takes every garbage row waiting. Only the thread that runs the board
+     * may call this; the result is read with {@code getTakenCount} and
+     * {@code getTakenType}.
+     *
+     * @return Whether or not there was anything waiting.
+     */
+    public boolean take() {
+        long taken = state.getAndSet(0L);
+        takenCount = (int) (taken & COUNT_MASK);
+        takenType = (int) (taken >>> 32) - 1;
+        return takenCount > 0;
+    }
+
+    /**
+     * Gets the number of rows waiting, without taking them.
+     *
+     * @return The number of rows.
+     */
+    public int getPending() {
+        return (int) (state.get() & COUNT_MASK);
+    }
+
+    /**
+     * Gets the number of rows taken by the last call to {@code take}.
+     *
+     * @return The number of rows.
+     */
+    public int getTakenCount() {
+        return takenCount;
+    }
+
+    /**
+     * Gets the type of tile taken by the last call to {@code take}, which is
+     * its place in the piece set of the board.
+     *
+     * @return The type, or -1 if nothing was taken.
+     */
+    public int getTakenType() {
+        return takenType;
+    }
+}
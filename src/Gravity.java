@@ -0,0 +1,138 @@
+import java.io.Serializable;
+
+/**
+ * The {@code Gravity} class holds the rules for how fast pieces fall and
+ * when they lock. Gravity is in fixed point, in {@code ONE_ROW}ths of a row
+ * per tick, so a piece can fall a small part of a row or many rows in one
+ * tick, and a game comes out the same on every machine. How fast pieces fall
+ * at each level is read from a table, the standard one following the
+ * guideline curve up to level 20, where pieces reach the floor on the tick
+ * they spawn.
+ *
+ * A piece resting on the stack locks once it has rested for the lock delay.
+ * Moving or rotating it starts the delay over, up to a number of times per
+ * piece, and reaching a row lower than any it reached before gives it all
+ * of those back.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class Gravity implements Serializable {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = 3306615284460619127L;
+
+    /**
+     * The number of bits of gravity below a whole row.
+     */
+    public static final int ROW_SHIFT = 16;
+
+    /**
+     * One row, in fixed point.
+     */
+    public static final int ONE_ROW = 1 << ROW_SHIFT;
+
+    /**
+     * The gravity while the drop key is held, unless the level's is faster:
+     * 25 rows per second.
+     */
+    public static final int SOFT_DROP = ONE_ROW / 2;
+
+    /**
+     * The standard number of ticks a piece rests before it locks.
+     */
+    public static final int DEFAULT_LOCK_DELAY = 25;
+
+    /**
+     * The standard number of times a piece can start the lock delay over.
+     */
+    public static final int DEFAULT_MAX_RESETS = 15;
+
+    /**
+     * The gravity of each level from level 1, where a piece falls a row a
+     * second, to level 20, which is what every level after it uses. Each is
+     * {@code ONE_ROW / (TICKS_PER_SECOND * t)}, with
+     * {@code t = (0.8 - (level - 1) * 0.007) ^ (level - 1)} the guideline's
+     * seconds per row, rounded.
+     */
+    private static final int[] STANDARD_CURVE = {1311, 1653, 2122, 2773,
+        3690, 5003, 6910, 9728, 13961, 20432, 30499, 46450, 72203, 114580,
+        185691, 307424, 520110, 899516, 1590859, 2878187};
+
+    /**
+     * The standard rules.
+     */
+    public static final Gravity STANDARD = new Gravity(STANDARD_CURVE,
+            DEFAULT_LOCK_DELAY, DEFAULT_MAX_RESETS);
+
+    /**
+     * The gravity of each level, from level 1.
+     */
+    private final int[] curve;
+
+    /**
+     * The number of ticks a piece rests before it locks.
+     */
+    private final int lockDelay;
+
+    /**
+     * The number of times a piece can start the lock delay over.
+     */
+    private final int maxResets;
+
+    /**
+     * Creates new Gravity rules with the standard curve.
+     *
+     * @param lockDelay The number of ticks a piece rests before it locks.
+     * @param maxResets The number of times a piece can start the lock delay
+     * over.
+     */
+    public Gravity(int lockDelay, int maxResets) {
+        this(STANDARD_CURVE, lockDelay, maxResets);
+    }
+
+    /**
+     * Creates new Gravity rules.
+     *
+     * @param curve The gravity of each level, from level 1, in
+     * {@code ONE_ROW}ths of a row per tick. Levels past the end use the last
+     * one.
+     * @param lockDelay The number of ticks a piece rests before it locks.
+     * @param maxResets The number of times a piece can start the lock delay
+     * over.
+     */
+    public Gravity(int[] curve, int lockDelay, int maxResets) {
+        this.curve = curve.clone();
+        this.lockDelay = lockDelay;
+        this.maxResets = maxResets;
+    }
+
+    /**
+     * Gets the gravity of a level.
+     *
+     * @param level The level, from 1.
+     * @return The gravity, in {@code ONE_ROW}ths of a row per tick.
+     */
+    public int getGravity(int level) {
+        return curve[Math.max(0, Math.min(level, curve.length) - 1)];
+    }
+
+    /**
+     * Gets the number of ticks a piece rests before it locks.
+     *
+     * @return The lock delay.
+     */
+    public int getLockDelay() {
+        return lockDelay;
+    }
+
+    /**
+     * Gets the number of times a piece can start the lock delay over.
+     *
+     * @return The number of resets.
+     */
+    public int getMaxResets() {
+        return maxResets;
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+/**
+ * The {@code Heuristic} class scores a board for the {@code BotController}.
+ * The score is a weighted sum of a few features of the board: how high the
+ * columns are, how many holes are buried under them, how uneven they are,
+ * how tall the tallest one is, how often the rows and columns change between
+ * filled and empty, how deep the wells are, and how many lines the placement
+ * cleared. Higher is better, so features that are bad for the player get
+ * negative weights. The board features come from {@code BoardFeatures}.
+ *
+ * A heuristic never changes once it is made, so one can be shared by any
+ * number of bots and threads.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class Heuristic {
+
+    /**
+     * The sum of the heights of the columns.
+     */
+    public static final int AGGREGATE_HEIGHT = 0;
+
+    /**
+     * The number of empty cells with a tile somewhere above them.
+     */
+    public static final int HOLES = 1;
+
+    /**
+     * The sum of the height differences between neighbouring columns.
+     */
+    public static final int BUMPINESS = 2;
+
+    /**
+     * The number of lines cleared.
+     */
+    public static final int LINES = 3;
+
+    /**
+     * The height of the tallest column.
+     */
+    public static final int MAX_HEIGHT = 4;
+
+    /**
+     * The number of times a row goes from filled to empty or back.
+     */
+    public static final int ROW_TRANSITIONS = 5;
+
+    /**
+     * The number of times a column goes from filled to empty or back.
+     */
+    public static final int COLUMN_TRANSITIONS = 6;
+
+    /**
+     * The sum of the depths of the wells.
+     */
+    public static final int WELLS = 7;
+
+    /**
+     * The number of features.
+     */
+    public static final int FEATURE_COUNT = 8;
+
+    /**
+     * The weights that play a solid game: the well known weights for the
+     * first four features, and none for the rest.
+     */
+    public static final Heuristic DEFAULT = new Heuristic(new float[]{
+        -0.510066f, -0.35663f, -0.184483f, 0.760666f, 0.0f, 0.0f, 0.0f,
+        0.0f});
+
+    /**
+     * The weight of each feature.
+     */
+    private final float[] weights;
+
+    /**
+     * Creates a new Heuristic with the given weights.
+     *
+     * @param weights One weight per feature, in the order of the feature
+     * constants.
+     */
+    public Heuristic(float[] weights) {
+        if (weights.length != FEATURE_COUNT) {
+            throw new IllegalArgumentException("Expected " + FEATURE_COUNT
+                    + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Gets a copy of the weights.
+     *
+     * @return One weight per feature.
+     */
+    public float[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Scores a board.
+     *
+     * @param features The features of the board after the placement, as
+     * worked out by {@code BoardFeatures}.
+     * @param offset Where the features of the board start.
+     * @param lines The number of lines the placement cleared.
+     * @return The score. Higher is better.
+     */
+    public float evaluate(int[] features, int offset, int lines) {
+        return weights[AGGREGATE_HEIGHT]
+                * features[offset + BoardFeatures.AGGREGATE_HEIGHT]
+                + weights[HOLES] * features[offset + BoardFeatures.HOLES]
+                + weights[BUMPINESS]
+                * features[offset + BoardFeatures.BUMPINESS]
+                + weights[LINES] * lines
+                + weights[MAX_HEIGHT]
+                * features[offset + BoardFeatures.MAX_HEIGHT]
+                + weights[ROW_TRANSITIONS]
+                * features[offset + BoardFeatures.ROW_TRANSITIONS]
+                + weights[COLUMN_TRANSITIONS]
+                * features[offset + BoardFeatures.COLUMN_TRANSITIONS]
+                + weights[WELLS] * features[offset + BoardFeatures.WELLS];
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(weights);
+    }
+}
@@ -0,0 +1,219 @@
+import java.io.PrintStream;
+
+/**
+ * The {@code InputLatencyTracker} class measures how long it takes for a key
+ * press to show up on screen. Each key press is stamped in the key listener,
+ * the stamp is handed over when the press actually changes the game state,
+ * it goes with the first frame the board publishes after that change, and
+ * painting that frame records the latency.
+ *
+ * The latency is split in two: from the key press to the state change (the
+ * soft drop, for example, only moves the piece on the next logic cycle) and
+ * from the state change to the frame. Only the oldest unpainted change is
+ * tracked, so a burst of key presses between two frames counts once.
+ *
+ * State changes are made by the thread that plays the game, which is also
+ * the one that publishes its frames, and the frames are painted by the Swing
+ * thread. Where several games share a tracker, a change only goes with the
+ * frames of the thread that made it. The histograms are only written by the
+ * Swing thread when a frame is painted.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class InputLatencyTracker {
+
+    /**
+     * The time between a key press and the state change it caused.
+     */
+    private final LatencyHistogram inputToState;
+
+    /**
+     * The time between a state change and the frame that shows it.
+     */
+    private final LatencyHistogram stateToFrame;
+
+    /**
+     * The time between a key press and the frame that shows it.
+     */
+    private final LatencyHistogram inputToFrame;
+
+    /**
+     * Whether or not a state change is waiting for a frame.
+     */
+    private volatile boolean isStatePending;
+
+    /**
+     * The thread that made the state change waiting for a frame.
+     */
+    private Thread stateThread;
+
+    /**
+     * The key press stamp of the state change waiting for a frame.
+     */
+    private long stateInput;
+
+    /**
+     * The time of the state change waiting for a frame.
+     */
+    private long stateTime;
+
+    /**
+     * The key press stamp of the change being painted, or 0 if the frame
+     * being painted doesn't show a tracked change. Only used by the Swing
+     * thread.
+     */
+    private long frameInput;
+
+    /**
+     * The time of the change being painted. Only used by the Swing thread.
+     */
+    private long frameState;
+
+    /**
+     * The key press stamp of the last change painted, so a change that went
+     * with two frames is only recorded once. Only used by the Swing thread.
+     */
+    private long lastInput;
+
+    /**
+     * Creates a new InputLatencyTracker with empty histograms.
+     */
+    public InputLatencyTracker() {
+        this.inputToState = new LatencyHistogram("input to state");
+        this.stateToFrame = new LatencyHistogram("state to frame");
+        this.inputToFrame = new LatencyHistogram("input lag");
+    }
+
+    /**
+     * Stamps a key press. The stamp is carried around until the press
+     * changes the game state.
+     *
+     * @return The stamp.
+     */
+    public static long stamp() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks that a key press has changed the game state. Called by the thread
+     * that plays the game. If an earlier change hasn't gone with a frame yet
+     * this one is ignored, since it will show up in the same frame.
+     *
+     * @param inputStamp The stamp of the key press.
+     */
+    public synchronized void stateChanged(long inputStamp) {
+        if (!isStatePending) {
+            this.stateInput = inputStamp;
+            this.stateTime = System.nanoTime();
+            this.stateThread = Thread.currentThread();
+            this.isStatePending = true;
+        }
+    }
+
+    /**
+     * Called by the board when it publishes a frame, on the thread that plays
+     * the game. Hands over the change waiting for a frame, if this thread
+     * made it, so that it goes with the frame.
+     *
+     * @param change Where to store the key press stamp and the time of the
+     * change, in that order.
+     * @return Whether or not there was a change to hand over.
+     */
+    public boolean takeStateChange(long[] change) {
+        if (!isStatePending) {
+            return false;
+        }
+        synchronized (this) {
+            if (!isStatePending || stateThread != Thread.currentThread()) {
+                return false;
+            }
+            change[0] = stateInput;
+            change[1] = stateTime;
+            this.stateThread = null;
+            this.isStatePending = false;
+            return true;
+        }
+    }
+
+    /**
+     * Called by the board when it takes a frame to paint, with the change
+     * that went with the frame, if any. The change is recorded once the
+     * frame is presented.
+     *
+     * @param inputStamp The key press stamp of the change, or 0 if there is
+     * none.
+     * @param stateTime The time of the change.
+     */
+    public void frameTaken(long inputStamp, long stateTime) {
+        if (inputStamp == 0 || inputStamp == lastInput || frameInput != 0) {
+            return;
+        }
+        this.frameInput = inputStamp;
+        this.frameState = stateTime;
+        this.lastInput = inputStamp;
+    }
+
+    /**
+     * Checks to see whether or not the frame being painted shows a tracked
+     * change.
+     *
+     * @return Whether or not a measurement is in progress.
+     */
+    public boolean isFrameTracked() {
+        return frameInput != 0;
+    }
+
+    /**
+     * Called by the board once the frame has been painted and flushed to the
+     * screen. Records the latencies of the change shown by the frame, if any.
+     */
+    public void framePresented() {
+        if (frameInput == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        inputToState.record(frameState - frameInput);
+        stateToFrame.record(now - frameState);
+        inputToFrame.record(now - frameInput);
+        this.frameInput = 0;
+    }
+
+    /**
+     * Gets the time between key presses and the state changes they caused.
+     *
+     * @return The input to state histogram.
+     */
+    public LatencyHistogram getInputToState() {
+        return inputToState;
+    }
+
+    /**
+     * Gets the time between state changes and the frames that showed them.
+     *
+     * @return The state to frame histogram.
+     */
+    public LatencyHistogram getStateToFrame() {
+        return stateToFrame;
+    }
+
+    /**
+     * Gets the time between key presses and the frames that showed them.
+     *
+     * @return The input to frame histogram.
+     */
+    public LatencyHistogram getInputToFrame() {
+        return inputToFrame;
+    }
+
+    /**
+     * Prints every histogram.
+     *
+     * @param out The stream to print to.
+     */
+    public void dump(PrintStream out) {
+        out.println("Input latency:");
+        out.println("  " + inputToState.summary());
+        out.println("  " + stateToFrame.summary());
+        out.println("  " + inputToFrame.summary());
+    }
+}
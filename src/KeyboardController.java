@@ -0,0 +1,378 @@
+import java.awt.event.KeyEvent;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The {@code KeyboardController} class hands key presses from the Swing
+ * event thread to the thread that runs a game. Key presses and releases are
+ * queued, and read at the start of the next tick, so the game is never
+ * touched by two threads at once. Keys are named by the {@code Protocol}
+ * input they make, and everything they do after that is counted in ticks,
+ * so the desktop's own key repeat, which it keeps sending while a key is
+ * held, is ignored.
+ *
+ * A move is made on the tick its key goes down. If the key is held for the
+ * delayed auto-shift it is repeated, once every auto-repeat rate ticks, or
+ * all the way to the wall if the rate is 0. The key pressed last wins, and
+ * the charge carries over to the next piece while the key stays down. The
+ * soft drop lasts as long as its key is held, starting once the drop
+ * cooldown allows it. A rotation or a hard drop that can't happen when it is
+ * pressed, because the piece is blocked or the drop cooldown isn't over, is
+ * buffered and tried again every tick for a few ticks, so a press just
+ * before a piece locks still counts for the next one.
+ *
+ * The keys are the arrows to move and soft drop, Z and X to rotate, the
+ * space bar to hard drop and Enter to start a new game.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class KeyboardController implements Controller {
+
+    /**
+     * The number of ticks a move key is held before it repeats.
+     */
+    public static final int DEFAULT_DAS = 8;
+
+    /**
+     * The number of ticks between repeated moves.
+     */
+    public static final int DEFAULT_ARR = 2;
+
+    /**
+     * The number of ticks a rotation or hard drop is kept while it can't
+     * happen.
+     */
+    public static final int DEFAULT_BUFFER = 8;
+
+    /**
+     * Set in a queued key event when the key went down.
+     */
+    private static final long PRESSED = 0x80L;
+
+    /**
+     * Selects the input of a queued key event. The rest of the event is its
+     * stamp, which loses nothing measurable to the low byte.
+     */
+    private static final long INPUT_MASK = 0x7fL;
+
+    /**
+     * The number of inputs there are, so they can index arrays.
+     */
+    private static final int INPUT_COUNT = Protocol.INPUT_HARD_DROP + 1;
+
+    /**
+     * The number of ticks a move key is held before it repeats.
+     */
+    private final int das;
+
+    /**
+     * The number of ticks between repeated moves, or 0 to move all the way.
+     */
+    private final int arr;
+
+    /**
+     * The number of ticks a rotation or hard drop is kept while it can't
+     * happen.
+     */
+    private final int bufferTicks;
+
+    /**
+     * The tracker key presses are reported to, or null.
+     */
+    private final InputLatencyTracker latency;
+
+    /**
+     * The bus the rotations the keys make are published on, or null.
+     */
+    private EventBus bus;
+
+    /**
+     * The key events not read yet.
+     */
+    private final ConcurrentLinkedQueue<Long> events
+            = new ConcurrentLinkedQueue<Long>();
+
+    /**
+     * The keys held down, one bit per input.
+     */
+    private int held;
+
+    /**
+     * The move key that repeats, or 0 if there is none.
+     */
+    private int shiftKey;
+
+    /**
+     * The number of ticks the move key has been held, up to {@code das}.
+     */
+    private int charge;
+
+    /**
+     * The number of ticks since the last repeated move.
+     */
+    private int repeat;
+
+    /**
+     * The number of ticks each buffered input is still kept, or 0 if it
+     * isn't buffered.
+     */
+    private final int[] pending;
+
+    /**
+     * The stamp of the key press of each buffered input.
+     */
+    private final long[] stamps;
+
+    /**
+     * Creates a new KeyboardController with the default timings.
+     */
+    public KeyboardController() {
+        this(DEFAULT_DAS, DEFAULT_ARR, DEFAULT_BUFFER, null);
+    }
+
+    /**
+     * Creates a new KeyboardController.
+     *
+     * @param das The number of ticks a move key is held before it repeats.
+     * @param arr The number of ticks between repeated moves, or 0 to move all
+     * the way to the wall.
+     * @param bufferTicks The number of ticks a rotation or hard drop is kept
+     * while it can't happen.
+     * @param latency The tracker key presses are reported to, or null.
+     */
+    public KeyboardController(int das, int arr, int bufferTicks,
+            InputLatencyTracker latency) {
+        this.das = das;
+        this.arr = arr;
+        this.bufferTicks = bufferTicks;
+        this.latency = latency;
+        this.pending = new int[INPUT_COUNT];
+        this.stamps = new long[INPUT_COUNT];
+    }
+
+    /**
+     * Sets the bus to publish the rotations the keys make on, once they
+     * really turn the piece, so the game can react to them. Must be set
+     * before the game's thread starts.
+     *
+     * @param bus The bus, or null.
+     */
+    public void setBus(EventBus bus) {
+        this.bus = bus;
+    }
+
+    /**
+     * Gets the input a key makes.
+     *
+     * @param keyCode The code of the key, from a {@code KeyEvent}.
+     * @return The input, or 0 if the key isn't one of the game's.
+     */
+    public static byte inputForKey(int keyCode) {
+        switch (keyCode) {
+            case KeyEvent.VK_LEFT:
+                return Protocol.INPUT_LEFT;
+            case KeyEvent.VK_RIGHT:
+                return Protocol.INPUT_RIGHT;
+            case KeyEvent.VK_DOWN:
+                return Protocol.INPUT_DROP_PRESS;
+            case KeyEvent.VK_Z:
+                return Protocol.INPUT_ROTATE_CCW;
+            case KeyEvent.VK_X:
+                return Protocol.INPUT_ROTATE_CW;
+            case KeyEvent.VK_SPACE:
+                return Protocol.INPUT_HARD_DROP;
+            case KeyEvent.VK_ENTER:
+                return Protocol.INPUT_START;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Queues a key press. Safe to call from any thread.
+     *
+     * @param input The input the key makes.
+     */
+    public void press(byte input) {
+        events.offer((InputLatencyTracker.stamp() & ~0xffL) | PRESSED
+                | input);
+    }
+
+    /**
+     * Queues a key release. Safe to call from any thread.
+     *
+     * @param input The input the key makes.
+     */
+    public void release(byte input) {
+        events.offer((InputLatencyTracker.stamp() & ~0xffL) | input);
+    }
+
+    /**
+     * Forgets the key events not read yet, the keys held and the buffered
+     * inputs. Called on the ticks something else plays the game, so the
+     * queue doesn't grow and old presses aren't played once the keyboard
+     * takes over again.
+     */
+    public void discard() {
+        events.clear();
+        held = 0;
+        shiftKey = 0;
+        charge = 0;
+        repeat = 0;
+        Arrays.fill(pending, 0);
+    }
+
+    @Override
+    public void control(GameEngine engine) {
+        int wasHeld = held;
+        int released = 0;
+        int down = 0;
+        Long event;
+        while ((event = events.poll()) != null) {
+            long e = event;
+            int input = (int) (e & INPUT_MASK);
+            int bit = 1 << input;
+            if ((e & PRESSED) == 0) {
+                held &= ~bit;
+                released |= bit;
+                continue;
+            }
+            if ((held & bit) != 0) {
+                continue;
+            }
+            held |= bit;
+            //Let go of and pressed again in one tick is the desktop's repeat.
+            if ((wasHeld & released & bit) != 0) {
+                continue;
+            }
+            down |= bit;
+            pressed(engine, input, e & ~0xffL);
+        }
+
+        //The soft drop is held, rather than pressed.
+        int drop = 1 << Protocol.INPUT_DROP_PRESS;
+        if ((held & drop) != 0) {
+            if (!engine.isSoftDropping()) {
+                Protocol.applyInput(engine, Protocol.INPUT_DROP_PRESS);
+            }
+        } else if (((wasHeld | released) & drop) != 0) {
+            Protocol.applyInput(engine, Protocol.INPUT_DROP_RELEASE);
+        }
+
+        retry(engine, Protocol.INPUT_ROTATE_CW);
+        retry(engine, Protocol.INPUT_ROTATE_CCW);
+        retry(engine, Protocol.INPUT_HARD_DROP);
+        autoShift(engine, down);
+    }
+
+    /**
+     * Reacts to a key going down.
+     *
+     * @param engine The game.
+     * @param input The input the key makes.
+     * @param stamp The stamp of the key press.
+     */
+    private void pressed(GameEngine engine, int input, long stamp) {
+        switch (input) {
+            case Protocol.INPUT_LEFT:
+            case Protocol.INPUT_RIGHT:
+                shiftKey = input;
+                charge = 0;
+                repeat = 0;
+                apply(engine, input, stamp);
+                break;
+            case Protocol.INPUT_ROTATE_CW:
+            case Protocol.INPUT_ROTATE_CCW:
+            case Protocol.INPUT_HARD_DROP:
+                //Tried after every key is read, with the other buffered ones.
+                pending[input] = bufferTicks + 1;
+                stamps[input] = stamp;
+                break;
+            case Protocol.INPUT_START:
+                Protocol.applyInput(engine, Protocol.INPUT_START);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Tries a buffered input again, and forgets it once it happened or has
+     * been kept long enough.
+     *
+     * @param engine The game.
+     * @param input The input.
+     */
+    private void retry(GameEngine engine, int input) {
+        if (pending[input] == 0) {
+            return;
+        }
+        if (apply(engine, input, stamps[input])) {
+            pending[input] = 0;
+        } else {
+            pending[input]--;
+        }
+    }
+
+    /**
+     * Repeats the move of the move key while it is held, once it has been
+     * held for the delayed auto-shift.
+     *
+     * @param engine The game.
+     * @param down The keys that went down this tick, which moved already.
+     */
+    private void autoShift(GameEngine engine, int down) {
+        if (shiftKey != 0 && (held & (1 << shiftKey)) == 0) {
+            //The other move key takes over if it is still held.
+            int other = shiftKey == Protocol.INPUT_LEFT ? Protocol.INPUT_RIGHT
+                    : Protocol.INPUT_LEFT;
+            shiftKey = (held & (1 << other)) != 0 ? other : 0;
+            charge = 0;
+            repeat = 0;
+            return;
+        }
+        if (shiftKey == 0 || (down & (1 << shiftKey)) != 0) {
+            return;
+        }
+        if (charge < das) {
+            //The first repeat comes on the tick the shift is charged.
+            if (++charge < das) {
+                return;
+            }
+        } else if (arr > 0 && ++repeat < arr) {
+            return;
+        }
+        repeat = 0;
+        if (arr == 0) {
+            while (apply(engine, shiftKey, 0)) {
+                //Slide until the piece hits something.
+            }
+        } else {
+            apply(engine, shiftKey, 0);
+        }
+    }
+
+    /**
+     * Applies an input to a game, and reports it to the latency tracker if
+     * it changed the game.
+     *
+     * @param engine The game.
+     * @param input The input.
+     * @param stamp The stamp of the key press, or 0 for a repeated move.
+     * @return Whether or not the input changed the game.
+     */
+    private boolean apply(GameEngine engine, int input, long stamp) {
+        if (!Protocol.applyInput(engine, (byte) input)) {
+            return false;
+        }
+        if (latency != null && stamp != 0) {
+            latency.stateChanged(stamp);
+        }
+        if (bus != null && (input == Protocol.INPUT_ROTATE_CW
+                || input == Protocol.INPUT_ROTATE_CCW)) {
+            bus.publish(EventBus.ROTATE,
+                    input == Protocol.INPUT_ROTATE_CW ? 1 : 0, 0, 0, 0);
+        }
+        return true;
+    }
+}
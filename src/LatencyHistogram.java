@@ -0,0 +1,193 @@
+/**
+ * The {@code LatencyHistogram} class records latencies in nanoseconds into a
+ * fixed number of log-linear buckets, in the same spirit as an HDR histogram.
+ * Every power of two is split into {@code SUB_BUCKET_COUNT} linear buckets,
+ * so each recorded value is kept with a relative error of about 3% no matter
+ * how large it is.
+ *
+ * The bucket array is allocated once, so {@code record} never allocates and
+ * can be called from the game loop or from inside a paint method. Each
+ * histogram is meant to be written by a single thread; other threads may
+ * read it at any time and will simply see slightly stale numbers.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of bits used for the linear part of each bucket.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * The number of linear buckets inside every power of two.
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The total number of buckets. This covers every positive long value.
+     */
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS)
+            * SUB_BUCKET_COUNT;
+
+    /**
+     * The name of the histogram, used when printing it.
+     */
+    private final String name;
+
+    /**
+     * The number of values recorded in each bucket.
+     */
+    private final long[] counts;
+
+    /**
+     * The total number of values recorded.
+     */
+    private long totalCount;
+
+    /**
+     * The largest value recorded.
+     */
+    private long maxValue;
+
+    /**
+     * Creates a new, empty histogram.
+     *
+     * @param name The name of the histogram.
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+        this.counts = new long[BUCKET_COUNT];
+    }
+
+    /**
+     * Gets the name of this histogram.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a single value. Negative values are treated as 0.
+     *
+     * @param nanos The value to record, in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[bucketIndex(nanos)]++;
+        totalCount++;
+        if (nanos > maxValue) {
+            maxValue = nanos;
+        }
+    }
+
+    /**
+     * Clears every recorded value.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        maxValue = 0;
+    }
+
+    /**
+     * Gets the number of values recorded.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Gets the largest value recorded.
+     *
+     * @return The maximum, in nanoseconds.
+     */
+    public long getMax() {
+        return maxValue;
+    }
+
+    /**
+     * Gets the value below which {@code percentile} percent of the recorded
+     * values fall. The answer is the upper edge of the bucket that holds it,
+     * but never more than the real maximum.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The value, in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = totalCount;
+        if (total == 0) {
+            return 0;
+        }
+
+        //The rank of the value we are looking for (at least the first one).
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        if (rank < 1) {
+            rank = 1;
+        }
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * Builds a one-line summary with the count and the p50, p99 and max
+     * values in milliseconds.
+     *
+     * @return The summary.
+     */
+    public String summary() {
+        return String.format("%-12s n=%-8d p50=%7.3fms p99=%7.3fms "
+                + "max=%7.3fms", name, getCount(),
+                getValueAtPercentile(50.0) / 1e6,
+                getValueAtPercentile(99.0) / 1e6, getMax() / 1e6);
+    }
+
+    /**
+     * Finds the bucket that holds a value. Values smaller than
+     * {@code SUB_BUCKET_COUNT} get a bucket each; bigger values share a bucket
+     * with the values that have the same top {@code SUB_BUCKET_BITS + 1} bits.
+     *
+     * @param value The value, never negative.
+     * @return The bucket index.
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT
+                + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * Gets the largest value that falls into a bucket.
+     *
+     * @param index The bucket index.
+     * @return The largest value of the bucket.
+     */
+    private static long bucketUpperValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lower = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT)
+                << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
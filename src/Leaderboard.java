@@ -0,0 +1,1029 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * The {@code Leaderboard} class keeps every finished game on disk and answers
+ * top-N, per-player best and rank queries without loading the scores into
+ * memory.
+ *
+ * Games are appended to {@code scores.log} as fixed-size records, each with
+ * its own checksum. The index holds the same games sorted twice: by
+ * score, and by player and then score. The index is memory-mapped and
+ * searched in place, so every query is a binary search. Games added since the
+ * index was written are kept sorted in memory, and once
+ * {@code MAX_PENDING} of them pile up (or the leaderboard is closed) they
+ * are merged into a new index.
+ *
+ * A crash never leaves a broken leaderboard behind. A new index is written
+ * to a temporary file, synced, and renamed to the next generation,
+ * {@code scores.N.idx}, and it only ever covers games that were synced to
+ * the log first. The newest generation is the index; older ones are deleted
+ * once nothing maps them, since a mapped file can't be deleted or replaced
+ * everywhere. When the leaderboard
+ * is opened, any games the index doesn't cover are read back from the log,
+ * and the log is cut off at the first record whose checksum doesn't match,
+ * since that record was half-written when the crash happened. A game is
+ * safe once {@code flush} returns.
+ *
+ * The index is a single mapping, so it can hold up to about 89 million games.
+ *
+ * Usage: {@code java Leaderboard dir top [n] | best name | rank score |
+ * add name score | bench count}
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class Leaderboard implements Closeable {
+
+    /**
+     * The number of bytes a player's name is stored in. Longer names are
+     * cut short.
+     */
+    public static final int NAME_SIZE = 16;
+
+    /**
+     * The number of games kept in memory before they are merged into the
+     * index.
+     */
+    private static final int MAX_PENDING = 1 << 16;
+
+    /**
+     * The first int of the log ("TLBD").
+     */
+    private static final int LOG_MAGIC = 0x544c4244;
+
+    /**
+     * The first int of the index ("TLBI").
+     */
+    private static final int INDEX_MAGIC = 0x544c4249;
+
+    /**
+     * The version of both files.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The length of the log header: magic and version.
+     */
+    private static final int LOG_HEADER_SIZE = 8;
+
+    /**
+     * Where the name starts in a record, after the score, lines and level
+     * (an int each) and the time (long).
+     */
+    private static final int NAME_OFFSET = 20;
+
+    /**
+     * The length of a record: the fields before the name, the name and the
+     * checksum of everything before it (int).
+     */
+    private static final int RECORD_SIZE = NAME_OFFSET + NAME_SIZE + 4;
+
+    /**
+     * The length of the index header: magic, version and the number of games
+     * (long, twice, so a torn header can be told apart).
+     */
+    private static final int INDEX_HEADER_SIZE = 24;
+
+    /**
+     * The length of an entry sorted by score: score and record (an int each).
+     */
+    private static final int SCORE_ENTRY_SIZE = 8;
+
+    /**
+     * The length of an entry sorted by player: the hash of the name (long),
+     * score and record (an int each).
+     */
+    private static final int PLAYER_ENTRY_SIZE = 16;
+
+    /**
+     * The largest number of games the index can hold.
+     */
+    private static final long MAX_INDEXED = (Integer.MAX_VALUE
+            - INDEX_HEADER_SIZE) / (SCORE_ENTRY_SIZE + PLAYER_ENTRY_SIZE);
+
+    /**
+     * The {@code Entry} class is one finished game read back from the
+     * leaderboard.
+     */
+    public static class Entry {
+
+        /**
+         * The name of the player.
+         */
+        private final String name;
+
+        /**
+         * The score.
+         */
+        private final int score;
+
+        /**
+         * The number of lines cleared.
+         */
+        private final int lines;
+
+        /**
+         * The level reached.
+         */
+        private final int level;
+
+        /**
+         * When the game ended, in milliseconds since the epoch.
+         */
+        private final long time;
+
+        /**
+         * Creates a new Entry.
+         *
+         * @param name The name of the player.
+         * @param score The score.
+         * @param lines The number of lines cleared.
+         * @param level The level reached.
+         * @param time When the game ended.
+         */
+        private Entry(String name, int score, int lines, int level,
+                long time) {
+            this.name = name;
+            this.score = score;
+            this.lines = lines;
+            this.level = level;
+            this.time = time;
+        }
+
+        /**
+         * Gets the name of the player.
+         *
+         * @return The name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the score.
+         *
+         * @return The score.
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Gets the number of lines cleared.
+         *
+         * @return The number of lines.
+         */
+        public int getLines() {
+            return lines;
+        }
+
+        /**
+         * Gets the level reached.
+         *
+         * @return The level.
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * Gets when the game ended.
+         *
+         * @return The time, in milliseconds since the epoch.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-16s %10d lines=%d level=%d", name, score,
+                    lines, level);
+        }
+    }
+
+    /**
+     * The directory the leaderboard is kept in.
+     */
+    private final File dir;
+
+    /**
+     * The generation of the index.
+     */
+    private int generation;
+
+    /**
+     * The index file.
+     */
+    private File indexFile;
+
+    /**
+     * The file a new index is written to before it replaces the old one.
+     */
+    private final File tempFile;
+
+    /**
+     * The log of every game.
+     */
+    private final FileChannel log;
+
+    /**
+     * The number of games in the log.
+     */
+    private long recordCount;
+
+    /**
+     * The mapped index, or null if there is none yet.
+     */
+    private MappedByteBuffer index;
+
+    /**
+     * The number of games in the index. These are the first games of the
+     * log.
+     */
+    private int indexed;
+
+    /**
+     * Where the entries sorted by player start in the index.
+     */
+    private int playerBase;
+
+    /**
+     * The scores of the games not in the index, best first.
+     */
+    private final int[] pendingScores;
+
+    /**
+     * The records of the games not in the index, in the same order as
+     * {@code pendingScores}.
+     */
+    private final int[] pendingRecords;
+
+    /**
+     * The name hashes of the games not in the index, sorted by player and
+     * then score.
+     */
+    private final long[] playerHashes;
+
+    /**
+     * The scores of the games not in the index, in the same order as
+     * {@code playerHashes}.
+     */
+    private final int[] playerScores;
+
+    /**
+     * The records of the games not in the index, in the same order as
+     * {@code playerHashes}.
+     */
+    private final int[] playerRecords;
+
+    /**
+     * The number of games not in the index.
+     */
+    private int pendingCount;
+
+    /**
+     * The buffer records are read and written through.
+     */
+    private final ByteBuffer record;
+
+    /**
+     * The checksum of records.
+     */
+    private final CRC32 crc;
+
+    /**
+     * Opens the leaderboard kept in a directory, creating it if needed.
+     *
+     * @param dir The directory.
+     * @throws IOException
+     */
+    public Leaderboard(File dir) throws IOException {
+        dir.mkdirs();
+        this.dir = dir;
+        this.generation = newestGeneration();
+        this.indexFile = indexFile(generation);
+        this.tempFile = new File(dir, "scores.idx.tmp");
+        this.pendingScores = new int[MAX_PENDING];
+        this.pendingRecords = new int[MAX_PENDING];
+        this.playerHashes = new long[MAX_PENDING];
+        this.playerScores = new int[MAX_PENDING];
+        this.playerRecords = new int[MAX_PENDING];
+        this.record = ByteBuffer.allocate(RECORD_SIZE);
+        this.crc = new CRC32();
+
+        this.log = FileChannel.open(new File(dir, "scores.log").toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        if (log.size() < LOG_HEADER_SIZE) {
+            header.putInt(LOG_MAGIC).putInt(VERSION).flip();
+            log.truncate(0L);
+            write(header, 0L);
+            log.force(true);
+        } else {
+            read(header, 0L);
+            if (header.getInt(0) != LOG_MAGIC || header.getInt(4) != VERSION) {
+                log.close();
+                throw new IOException(dir + " is not a leaderboard");
+            }
+        }
+        this.recordCount = (log.size() - LOG_HEADER_SIZE) / RECORD_SIZE;
+
+        mapIndex();
+        recover();
+        deleteOldIndexes();
+    }
+
+    /**
+     * Gets the index file of a generation. The first generation has the
+     * name the index had before there were generations.
+     *
+     * @param generation The generation.
+     * @return The file.
+     */
+    private File indexFile(int generation) {
+        return new File(dir, generation == 0 ? "scores.idx"
+                : "scores." + generation + ".idx");
+    }
+
+    /**
+     * Gets the generation of an index file from its name.
+     *
+     * @param name The name of the file.
+     * @return The generation, or -1 if the file isn't an index.
+     */
+    private static int generationOf(String name) {
+        if (name.equals("scores.idx")) {
+            return 0;
+        }
+        if (!name.startsWith("scores.") || !name.endsWith(".idx")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(7, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Finds the newest generation of the index in the directory.
+     *
+     * @return The generation, or 0 if there is no index.
+     */
+    private int newestGeneration() {
+        int newest = 0;
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                newest = Math.max(newest, generationOf(name));
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Deletes the index files older than the current generation. A file
+     * that is still mapped may not be deleted yet, and is tried again after
+     * the next merge, or the next time the leaderboard is opened.
+     */
+    private void deleteOldIndexes() {
+        String[] names = dir.list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            int old = generationOf(name);
+            if (old >= 0 && old < generation) {
+                new File(dir, name).delete();
+            }
+        }
+    }
+
+    /**
+     * Maps the index, if there is a valid one. An index that doesn't match
+     * the log is ignored, and rebuilt from the log.
+     *
+     * @throws IOException
+     */
+    private void mapIndex() throws IOException {
+        index = null;
+        indexed = 0;
+        playerBase = INDEX_HEADER_SIZE;
+        if (!indexFile.isFile() || indexFile.length() < INDEX_HEADER_SIZE) {
+            return;
+        }
+
+        FileChannel channel = FileChannel.open(indexFile.toPath(),
+                StandardOpenOption.READ);
+        try {
+            MappedByteBuffer mapped = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            long count = mapped.getLong(8);
+            if (mapped.getInt(0) != INDEX_MAGIC || mapped.getInt(4) != VERSION
+                    || count != mapped.getLong(16) || count < 0L
+                    || count > recordCount || channel.size()
+                    != INDEX_HEADER_SIZE + count * (SCORE_ENTRY_SIZE
+                    + PLAYER_ENTRY_SIZE)) {
+                System.out.println("Rebuilding leaderboard index "
+                        + indexFile);
+                return;
+            }
+            index = mapped;
+            indexed = (int) count;
+            playerBase = INDEX_HEADER_SIZE + indexed * SCORE_ENTRY_SIZE;
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads back the games the index doesn't cover, and cuts the log off at
+     * the first one that was only half-written.
+     *
+     * @throws IOException
+     */
+    private void recover() throws IOException {
+        for (long r = indexed; r < recordCount; r++) {
+            readRecord((int) r);
+            crc.reset();
+            crc.update(record.array(), 0, RECORD_SIZE - 4);
+            if ((int) crc.getValue() != record.getInt(RECORD_SIZE - 4)) {
+                System.out.println("Leaderboard log cut off at game " + r);
+                recordCount = r;
+                break;
+            }
+            addPending((int) r, record.getInt(0),
+                    hash(record.array(), NAME_OFFSET));
+            if (pendingCount == MAX_PENDING) {
+                merge();
+            }
+        }
+        long end = LOG_HEADER_SIZE + recordCount * RECORD_SIZE;
+        if (log.size() > end) {
+            log.truncate(end);
+            log.force(true);
+        }
+    }
+
+    /**
+     * Adds a finished game. The game is only safe from a crash once
+     * {@code flush} has been called.
+     *
+     * @param name The name of the player.
+     * @param score The score.
+     * @param lines The number of lines cleared.
+     * @param level The level reached.
+     * @return The rank of the score, 1 being the best.
+     * @throws IOException
+     */
+    public synchronized int add(String name, int score, int lines, int level)
+            throws IOException {
+        if (recordCount >= Integer.MAX_VALUE) {
+            throw new IOException("The leaderboard is full");
+        }
+        int rank = rank(score);
+        int r = (int) recordCount;
+
+        record.clear();
+        record.putInt(score).putInt(lines).putInt(level);
+        record.putLong(System.currentTimeMillis());
+        record.put(encodeName(name));
+        crc.reset();
+        crc.update(record.array(), 0, RECORD_SIZE - 4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        write(record, LOG_HEADER_SIZE + (long) r * RECORD_SIZE);
+        recordCount++;
+
+        addPending(r, score, hash(record.array(), NAME_OFFSET));
+        if (pendingCount == MAX_PENDING) {
+            merge();
+        }
+        return rank;
+    }
+
+    /**
+     * Gets the rank a score would have: one more than the number of games
+     * with a better score.
+     *
+     * @param score The score.
+     * @return The rank, 1 being the best.
+     */
+    public synchronized int rank(int score) {
+        //Find the first game that isn't better than the score.
+        int low = 0;
+        int high = indexed;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (index.getInt(INDEX_HEADER_SIZE + mid * SCORE_ENTRY_SIZE)
+                    > score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int rank = low + 1;
+
+        low = 0;
+        high = pendingCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (pendingScores[mid] > score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return rank + low;
+    }
+
+    /**
+     * Gets the best games, best first. Games with the same score are in the
+     * order they were played.
+     *
+     * @param count The number of games.
+     * @return The games.
+     * @throws IOException
+     */
+    public synchronized Entry[] top(int count) throws IOException {
+        Entry[] entries = new Entry[(int) Math.min(count, recordCount)];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < entries.length; k++) {
+            int r;
+            if (j == pendingCount || (i < indexed && isBefore(
+                    index.getInt(INDEX_HEADER_SIZE + i * SCORE_ENTRY_SIZE),
+                    index.getInt(INDEX_HEADER_SIZE + i * SCORE_ENTRY_SIZE
+                            + 4), pendingScores[j], pendingRecords[j]))) {
+                r = index.getInt(INDEX_HEADER_SIZE + i * SCORE_ENTRY_SIZE + 4);
+                i++;
+            } else {
+                r = pendingRecords[j];
+                j++;
+            }
+            entries[k] = readEntry(r);
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the best game of a player.
+     *
+     * @param name The name of the player.
+     * @return The game, or null if the player has none.
+     * @throws IOException
+     */
+    public synchronized Entry best(String name) throws IOException {
+        byte[] bytes = encodeName(name);
+        long hash = hash(bytes, 0);
+
+        /*
+         * Games are sorted by the hash of the name and then by score, so the
+         * first game with the right name is the best one. Other names with
+         * the same hash are skipped.
+         */
+        int best = -1;
+        int bestScore = 0;
+        int low = 0;
+        int high = indexed;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (index.getLong(playerBase + mid * PLAYER_ENTRY_SIZE) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < indexed && index.getLong(playerBase
+                + i * PLAYER_ENTRY_SIZE) == hash; i++) {
+            int r = index.getInt(playerBase + i * PLAYER_ENTRY_SIZE + 12);
+            if (isNamed(r, bytes)) {
+                best = r;
+                bestScore = index.getInt(playerBase + i * PLAYER_ENTRY_SIZE
+                        + 8);
+                break;
+            }
+        }
+
+        low = 0;
+        high = pendingCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (playerHashes[mid] < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < pendingCount && playerHashes[i] == hash; i++) {
+            if (isNamed(playerRecords[i], bytes)) {
+                if (best < 0 || isBefore(playerScores[i], playerRecords[i],
+                        bestScore, best)) {
+                    best = playerRecords[i];
+                }
+                break;
+            }
+        }
+        return best < 0 ? null : readEntry(best);
+    }
+
+    /**
+     * Gets the number of games on the leaderboard.
+     *
+     * @return The number of games.
+     */
+    public synchronized long size() {
+        return recordCount;
+    }
+
+    /**
+     * Makes sure every game added so far survives a crash.
+     *
+     * @throws IOException
+     */
+    public synchronized void flush() throws IOException {
+        log.force(false);
+    }
+
+    /**
+     * Merges the games kept in memory into the index and closes the
+     * leaderboard.
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!log.isOpen()) {
+            return;
+        }
+        if (pendingCount > 0) {
+            merge();
+        }
+        log.close();
+    }
+
+    /**
+     * Writes a new index with every game, then maps it.
+     *
+     * @throws IOException
+     */
+    private void merge() throws IOException {
+        long count = (long) indexed + pendingCount;
+        if (count > MAX_INDEXED) {
+            throw new IOException("The leaderboard index is full");
+        }
+
+        //The index may only cover games that are safely in the log.
+        log.force(false);
+
+        FileOutputStream file = new FileOutputStream(tempFile);
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(file, 1 << 16));
+        try {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(count);
+            out.writeLong(count);
+
+            int i = 0;
+            int j = 0;
+            while (i < indexed || j < pendingCount) {
+                int offset = INDEX_HEADER_SIZE + i * SCORE_ENTRY_SIZE;
+                if (j == pendingCount || (i < indexed && isBefore(
+                        index.getInt(offset), index.getInt(offset + 4),
+                        pendingScores[j], pendingRecords[j]))) {
+                    out.writeInt(index.getInt(offset));
+                    out.writeInt(index.getInt(offset + 4));
+                    i++;
+                } else {
+                    out.writeInt(pendingScores[j]);
+                    out.writeInt(pendingRecords[j]);
+                    j++;
+                }
+            }
+
+            i = 0;
+            j = 0;
+            while (i < indexed || j < pendingCount) {
+                int offset = playerBase + i * PLAYER_ENTRY_SIZE;
+                if (j == pendingCount || (i < indexed && isBefore(
+                        index.getLong(offset), index.getInt(offset + 8),
+                        index.getInt(offset + 12), playerHashes[j],
+                        playerScores[j], playerRecords[j]))) {
+                    out.writeLong(index.getLong(offset));
+                    out.writeInt(index.getInt(offset + 8));
+                    out.writeInt(index.getInt(offset + 12));
+                    i++;
+                } else {
+                    out.writeLong(playerHashes[j]);
+                    out.writeInt(playerScores[j]);
+                    out.writeInt(playerRecords[j]);
+                    j++;
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        } finally {
+            out.close();
+        }
+
+        //The old index is still mapped, so the new one gets a name of its own.
+        File next = indexFile(generation + 1);
+        Files.move(tempFile.toPath(), next.toPath(),
+                StandardCopyOption.ATOMIC_MOVE);
+        generation++;
+        indexFile = next;
+        pendingCount = 0;
+        mapIndex();
+        deleteOldIndexes();
+    }
+
+    /**
+     * Adds a game to the ones kept in memory, keeping them sorted.
+     *
+     * @param r The record of the game.
+     * @param score The score.
+     * @param hash The hash of the name.
+     */
+    private void addPending(int r, int score, long hash) {
+        //The new record is the newest, so it goes after any equal score.
+        int low = 0;
+        int high = pendingCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (pendingScores[mid] >= score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        System.arraycopy(pendingScores, low, pendingScores, low + 1,
+                pendingCount - low);
+        System.arraycopy(pendingRecords, low, pendingRecords, low + 1,
+                pendingCount - low);
+        pendingScores[low] = score;
+        pendingRecords[low] = r;
+
+        low = 0;
+        high = pendingCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (playerHashes[mid] < hash || (playerHashes[mid] == hash
+                    && playerScores[mid] >= score)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        System.arraycopy(playerHashes, low, playerHashes, low + 1,
+                pendingCount - low);
+        System.arraycopy(playerScores, low, playerScores, low + 1,
+                pendingCount - low);
+        System.arraycopy(playerRecords, low, playerRecords, low + 1,
+                pendingCount - low);
+        playerHashes[low] = hash;
+        playerScores[low] = score;
+        playerRecords[low] = r;
+        pendingCount++;
+    }
+
+    /**
+     * Checks whether one game comes before another when sorted by score.
+     *
+     * @param score The score of the first game.
+     * @param r The record of the first game.
+     * @param otherScore The score of the second game.
+     * @param other The record of the second game.
+     * @return Whether or not the first game comes first.
+     */
+    private static boolean isBefore(int score, int r, int otherScore,
+            int other) {
+        return score > otherScore || (score == otherScore && r < other);
+    }
+
+    /**
+     * Checks whether one game comes before another when sorted by player.
+     *
+     * @param hash The hash of the name of the first game.
+     * @param score The score of the first game.
+     * @param r The record of the first game.
+     * @param otherHash The hash of the name of the second game.
+     * @param otherScore The score of the second game.
+     * @param other The record of the second game.
+     * @return Whether or not the first game comes first.
+     */
+    private static boolean isBefore(long hash, int score, int r,
+            long otherHash, int otherScore, int other) {
+        return hash < otherHash || (hash == otherHash
+                && isBefore(score, r, otherScore, other));
+    }
+
+    /**
+     * Reads a game from the log.
+     *
+     * @param r The record of the game.
+     * @return The game.
+     * @throws IOException
+     */
+    private Entry readEntry(int r) throws IOException {
+        readRecord(r);
+        byte[] bytes = record.array();
+        int length = 0;
+        while (length < NAME_SIZE && bytes[NAME_OFFSET + length] != 0) {
+            length++;
+        }
+        return new Entry(new String(bytes, NAME_OFFSET, length,
+                StandardCharsets.UTF_8), record.getInt(0), record.getInt(4),
+                record.getInt(8), record.getLong(12));
+    }
+
+    /**
+     * Checks whether a game in the log was played by the given player.
+     *
+     * @param r The record of the game.
+     * @param name The encoded name of the player.
+     * @return Whether or not the names match.
+     * @throws IOException
+     */
+    private boolean isNamed(int r, byte[] name) throws IOException {
+        readRecord(r);
+        byte[] bytes = record.array();
+        for (int i = 0; i < NAME_SIZE; i++) {
+            if (bytes[NAME_OFFSET + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a record from the log into {@code record}.
+     *
+     * @param r The record.
+     * @throws IOException
+     */
+    private void readRecord(int r) throws IOException {
+        record.clear();
+        read(record, LOG_HEADER_SIZE + (long) r * RECORD_SIZE);
+    }
+
+    /**
+     * Fills a buffer from the log.
+     *
+     * @param buffer The buffer.
+     * @param position Where to read from.
+     * @throws IOException
+     */
+    private void read(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = log.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of leaderboard log");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Writes a whole buffer to the log.
+     *
+     * @param buffer The buffer.
+     * @param position Where to write to.
+     * @throws IOException
+     */
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += log.write(buffer, position);
+        }
+    }
+
+    /**
+     * Encodes a name into {@code NAME_SIZE} bytes of UTF-8, padded with
+     * zeros. Names that don't fit are cut short between two characters.
+     *
+     * @param name The name.
+     * @return The encoded name.
+     */
+    private static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, NAME_SIZE);
+        //Don't cut a character in half.
+        while (length < bytes.length && length > 0
+                && (bytes[length] & 0xc0) == 0x80) {
+            length--;
+        }
+        byte[] encoded = new byte[NAME_SIZE];
+        System.arraycopy(bytes, 0, encoded, 0, length);
+        return encoded;
+    }
+
+    /**
+     * Hashes an encoded name with 64-bit FNV-1a.
+     *
+     * @param bytes The bytes holding the name.
+     * @param offset Where the name starts.
+     * @return The hash.
+     */
+    private static long hash(byte[] bytes, int offset) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < NAME_SIZE; i++) {
+            hash ^= bytes[offset + i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Entry-point of the leaderboard tool.
+     *
+     * @param args The directory of the leaderboard, a command and its
+     * argument.
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java Leaderboard dir top [n] | "
+                    + "best name | rank score | add name score | "
+                    + "bench count");
+            return;
+        }
+        Leaderboard leaderboard = new Leaderboard(new File(args[0]));
+        try {
+            String command = args[1];
+            if (command.equals("top")) {
+                Entry[] entries = leaderboard.top(args.length > 2
+                        ? Integer.parseInt(args[2]) : 10);
+                for (int i = 0; i < entries.length; i++) {
+                    System.out.println(String.format("%4d. %s", i + 1,
+                            entries[i]));
+                }
+            } else if (command.equals("best")) {
+                System.out.println(leaderboard.best(args[2]));
+            } else if (command.equals("rank")) {
+                System.out.println(leaderboard.rank(
+                        Integer.parseInt(args[2])));
+            } else if (command.equals("add")) {
+                System.out.println(leaderboard.add(args[2],
+                        Integer.parseInt(args[3]), 0, 1));
+                leaderboard.flush();
+            } else if (command.equals("bench")) {
+                bench(leaderboard, Integer.parseInt(args[2]));
+            }
+            System.out.println(leaderboard.size() + " games");
+        } finally {
+            leaderboard.close();
+        }
+    }
+
+    /**
+     * Adds random games from a few thousand players and times the queries.
+     *
+     * @param leaderboard The leaderboard.
+     * @param count The number of games to add.
+     * @throws IOException
+     */
+    private static void bench(Leaderboard leaderboard, int count)
+            throws IOException {
+        Random random = new Random(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            leaderboard.add("bot" + random.nextInt(10000),
+                    random.nextInt(1000000), 0, 1);
+        }
+        leaderboard.flush();
+        long added = System.nanoTime();
+        System.out.println(String.format("add: %.2f us/game",
+                (added - start) / 1e3 / count));
+
+        int queries = 10000;
+        for (int i = 0; i < queries; i++) {
+            leaderboard.rank(random.nextInt(1000000));
+        }
+        long ranked = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            leaderboard.best("bot" + random.nextInt(10000));
+        }
+        long bested = System.nanoTime();
+        leaderboard.top(100);
+        long topped = System.nanoTime();
+        System.out.println(String.format("rank: %.2f us best: %.2f us "
+                + "top 100: %.2f ms", (ranked - added) / 1e3 / queries,
+                (bested - ranked) / 1e3 / queries, (topped - bested) / 1e6));
+    }
+}
@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * The {@code LoadTestClient} class drives many simulated players against a
+ * {@code GameServer} over loopback from a single thread. Every player starts a
+ * game, presses a random key now and then, and starts a new game when the
+ * last one is over. Spectators can be spread over the players' games too. At
+ * the end it prints how many bytes and messages each player and spectator
+ * received per tick.
+ *
+ * Usage: {@code java LoadTestClient [host] [port] [sessions] [seconds]
+ * [spectators]}
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class LoadTestClient {
+
+    /**
+     * The number of milliseconds per tick.
+     */
+    private static final long TICK_MILLIS = 1000L
+            / GameEngine.TICKS_PER_SECOND;
+
+    /**
+     * The chance that a player presses a key on a given tick.
+     */
+    private static final float INPUT_CHANCE = 0.1f;
+
+    /**
+     * The inputs a player picks from.
+     */
+    private static final byte[] INPUTS = {Protocol.INPUT_LEFT,
+        Protocol.INPUT_RIGHT, Protocol.INPUT_ROTATE_CW,
+        Protocol.INPUT_ROTATE_CCW, Protocol.INPUT_DROP_PRESS,
+        Protocol.INPUT_DROP_RELEASE};
+
+    /**
+     * The {@code Player} class is the state of one simulated player.
+     */
+    private static class Player {
+
+        /**
+         * The connection to the server.
+         */
+        private final SocketChannel channel;
+
+        /**
+         * The bytes received but not parsed yet.
+         */
+        private final ByteBuffer in = ByteBuffer.allocate(8 * 1024);
+
+        /**
+         * A single input waiting to be sent.
+         */
+        private final ByteBuffer input = ByteBuffer.allocate(1);
+
+        /**
+         * Whether or not the last game is over.
+         */
+        private boolean isGameOver = true;
+
+        /**
+         * Whether or not this is a spectator rather than a player.
+         */
+        private final boolean isSpectator;
+
+        /**
+         * The id of the session, once the server has said hello.
+         */
+        private int sessionId = -1;
+
+        /**
+         * Creates a new Player.
+         *
+         * @param channel The connection to the server.
+         * @param isSpectator Whether or not this is a spectator.
+         */
+        private Player(SocketChannel channel, boolean isSpectator) {
+            this.channel = channel;
+            this.isSpectator = isSpectator;
+        }
+    }
+
+    /**
+     * The total number of bytes received.
+     */
+    private long bytes;
+
+    /**
+     * The total number of messages received.
+     */
+    private long messages;
+
+    /**
+     * The number of games that ended.
+     */
+    private long gamesOver;
+
+    /**
+     * The total number of bytes received by spectators.
+     */
+    private long spectatorBytes;
+
+    /**
+     * The total number of keyframes received by spectators.
+     */
+    private long keyframes;
+
+    /**
+     * The number of players the server has said hello to.
+     */
+    private int hellos;
+
+    /**
+     * Runs the load test.
+     *
+     * @param host The host of the server.
+     * @param port The port of the server.
+     * @param count The number of players.
+     * @param seconds How long to run for.
+     * @param spectatorCount The number of spectators.
+     * @throws IOException
+     */
+    private void run(String host, int port, int count, int seconds,
+            int spectatorCount) throws IOException {
+        Selector selector = Selector.open();
+        Player[] players = new Player[count];
+        for (int i = 0; i < count; i++) {
+            SocketChannel channel = SocketChannel.open(
+                    new InetSocketAddress(host, port));
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            players[i] = new Player(channel, false);
+            channel.register(selector, SelectionKey.OP_READ, players[i]);
+        }
+        System.out.println("Connected " + count + " players");
+
+        /*
+         * Spectators need the session ids, so wait for every hello before
+         * spreading them over the games.
+         */
+        Player[] spectators = new Player[spectatorCount];
+        if (spectatorCount > 0) {
+            while (hellos < count) {
+                selector.select(100L);
+                Iterator<SelectionKey> keys
+                        = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    receive((Player) key.attachment());
+                }
+            }
+            ByteBuffer id = ByteBuffer.allocate(4);
+            for (int i = 0; i < spectatorCount; i++) {
+                SocketChannel channel = SocketChannel.open(
+                        new InetSocketAddress(host, port + 1));
+                id.clear();
+                id.putInt(players[i % count].sessionId);
+                id.flip();
+                channel.write(id);
+                channel.configureBlocking(false);
+                spectators[i] = new Player(channel, true);
+                channel.register(selector, SelectionKey.OP_READ,
+                        spectators[i]);
+            }
+            System.out.println("Connected " + spectatorCount
+                    + " spectators");
+        }
+
+        Random random = new Random();
+        long start = System.currentTimeMillis();
+        long end = start + seconds * 1000L;
+        long nextTick = start;
+        long ticks = 0;
+
+        while (System.currentTimeMillis() < end) {
+            selector.select(Math.max(1L, nextTick
+                    - System.currentTimeMillis()));
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                receive((Player) key.attachment());
+            }
+
+            if (System.currentTimeMillis() >= nextTick) {
+                for (Player player : players) {
+                    if (player.isGameOver) {
+                        send(player, Protocol.INPUT_START);
+                        player.isGameOver = false;
+                    } else if (random.nextFloat() < INPUT_CHANCE) {
+                        send(player, INPUTS[random.nextInt(INPUTS.length)]);
+                    }
+                }
+                nextTick += TICK_MILLIS;
+                ticks++;
+            }
+        }
+
+        double sessionTicks = (double) ticks * count;
+        System.out.println(String.format("players=%d ticks=%d bytes=%d "
+                + "messages=%d games over=%d", count, ticks, bytes, messages,
+                gamesOver));
+        System.out.println(String.format("bytes/tick per player=%.2f "
+                + "messages/tick per player=%.3f", bytes / sessionTicks,
+                messages / sessionTicks));
+        if (spectatorCount > 0) {
+            System.out.println(String.format("bytes/tick per spectator=%.2f "
+                    + "keyframes=%d", spectatorBytes
+                    / ((double) ticks * spectatorCount), keyframes));
+        }
+
+        for (Player player : players) {
+            player.channel.close();
+        }
+        for (Player spectator : spectators) {
+            spectator.channel.close();
+        }
+        selector.close();
+    }
+
+    /**
+     * Sends a single input.
+     *
+     * @param player The player.
+     * @param input The input.
+     * @throws IOException
+     */
+    private void send(Player player, byte input) throws IOException {
+        player.input.clear();
+        player.input.put(input);
+        player.input.flip();
+        player.channel.write(player.input);
+    }
+
+    /**
+     * Reads and parses whatever the server sent a player.
+     *
+     * @param player The player.
+     * @throws IOException
+     */
+    private void receive(Player player) throws IOException {
+        int read = player.channel.read(player.in);
+        if (read <= 0) {
+            return;
+        }
+        if (player.isSpectator) {
+            spectatorBytes += read;
+        } else {
+            bytes += read;
+        }
+
+        ByteBuffer in = player.in;
+        in.flip();
+        while (in.remaining() >= Protocol.HEADER_SIZE) {
+            int start = in.position();
+            byte type = in.get(start);
+            int length = in.getShort(start + 1) & 0xffff;
+            if (in.remaining() < Protocol.HEADER_SIZE + length) {
+                break;
+            }
+            if (type == Protocol.MSG_HELLO) {
+                player.sessionId = in.getInt(start + Protocol.HEADER_SIZE);
+                hellos++;
+            } else if (type == Protocol.MSG_KEYFRAME) {
+                keyframes++;
+            } else if (type == Protocol.MSG_STATE && !player.isSpectator) {
+                //The flags come after the tick, score and level.
+                int flags = in.get(start + Protocol.HEADER_SIZE + 10);
+                if ((flags & Protocol.FLAG_GAME_OVER) != 0
+                        && !player.isGameOver) {
+                    player.isGameOver = true;
+                    gamesOver++;
+                }
+            }
+            if (!player.isSpectator) {
+                messages++;
+            }
+            in.position(start + Protocol.HEADER_SIZE + length);
+        }
+        in.compact();
+    }
+
+    /**
+     * Entry-point of the load test.
+     *
+     * @param args The host, port, number of players, number of seconds and
+     * number of spectators.
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1])
+                : GameServer.DEFAULT_PORT;
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+        int spectators = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        new LoadTestClient().run(host, port, count, seconds, spectators);
+    }
+}
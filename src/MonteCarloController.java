@@ -0,0 +1,608 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The {@code MonteCarloController} class is a stronger bot that looks
+ * further ahead than the {@code BotController} it builds on. It narrows the
+ * placements of the current piece down to the few that look best with the
+ * next piece, then plays many short games (rollouts) from each one: the next
+ * piece first, since the preview shows it, then a few more picked the same
+ * way the game picks them. The placement whose rollouts end best on average
+ * wins, by the full {@code Heuristic}.
+ *
+ * Inside a rollout a piece is placed by a cheaper policy than the full
+ * heuristic: it only keeps the height of each column, lands the piece on
+ * them, and scores the change in height, bumpiness and maximum height, the
+ * holes left under the piece and the lines it clears with the heuristic's
+ * own weights, without looking at the rest of the board.
+ *
+ * Rollouts run in parallel on a fork-join pool, in rounds that give every
+ * placement a few more rollouts, until the time budget for the move runs
+ * out. The deadline leaves a margin of the budget unused and is checked
+ * before every piece a rollout places, so a move doesn't run over; a rollout
+ * cut short by the deadline isn't counted. Rollouts work on bare row masks
+ * through {@code PlacementTable}, so setting one up is a single copy of
+ * {@code Board.ROW_COUNT} ints, and each part of the work has its own
+ * scratch boards and random number generator, so nothing is allocated or
+ * shared while they run.
+ *
+ * Run on its own, this class plays headless games and reports the lines
+ * cleared, the decision times and the number of rollouts per move.
+ *
+ * Usage: {@code java MonteCarloController [games] [budgetMillis] [ticks]}
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class MonteCarloController extends BotController {
+
+    /**
+     * The number of placements that get rollouts.
+     */
+    private static final int CANDIDATE_COUNT = 6;
+
+    /**
+     * The number of random pieces played in each rollout after the next
+     * piece.
+     */
+    private static final int DEPTH = 4;
+
+    /**
+     * The number of rollouts each part of the work plays per round.
+     */
+    private static final int ROLLOUTS_PER_ROUND = 16;
+
+    /**
+     * The share of the budget, in percent, that is left unused so the move
+     * is made in time even if the last pieces run late.
+     */
+    private static final int MARGIN_PERCENT = 10;
+
+    /**
+     * The mask of a full row.
+     */
+    private static final int FULL_ROW = (1 << Board.COL_COUNT) - 1;
+
+    /**
+     * The score of a rollout that ends the game.
+     */
+    private static final float TOP_OUT = -1000.0f;
+
+    /**
+     * The pieces the game picks from, which are the standard set since the
+     * bots only play on standard boards.
+     */
+    private static final PieceSet PIECES = PieceSet.STANDARD;
+
+    /**
+     * The pool the rollouts run on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The time each move may take, in nanoseconds.
+     */
+    private final long budgetNanos;
+
+    /**
+     * The weights of the heuristic, which the rollout policy scores with.
+     */
+    private final float[] weights;
+
+    /**
+     * The number of parts the work for each placement is split into.
+     */
+    private final int partsPerCandidate;
+
+    /**
+     * The column each rotation of the current piece ends up in.
+     */
+    private final int[] rotatedCol;
+
+    /**
+     * The row each rotation of the current piece ends up in.
+     */
+    private final int[] rotatedRow;
+
+    /**
+     * Whether or not each rotation of the current piece can be reached.
+     */
+    private final boolean[] isRotatable;
+
+    /**
+     * The board after each placement of the current piece.
+     */
+    private final int[][] placed;
+
+    /**
+     * The rotation of each placement of the current piece.
+     */
+    private final int[] placedRotation;
+
+    /**
+     * The column of each placement of the current piece.
+     */
+    private final int[] placedCol;
+
+    /**
+     * The lines each placement of the current piece cleared.
+     */
+    private final int[] placedLines;
+
+    /**
+     * The score of each placement of the current piece with the next piece
+     * placed greedily after it.
+     */
+    private final float[] placedScore;
+
+    /**
+     * The placements that get rollouts, best first.
+     */
+    private final int[] candidates;
+
+    /**
+     * A scratch board for each part of the work.
+     */
+    private final int[][] rolloutRows;
+
+    /**
+     * The height of each column of the scratch board of each part of the
+     * work.
+     */
+    private final int[][] heights;
+
+    /**
+     * Scratch column heights for each part of the work.
+     */
+    private final int[][] raised;
+
+    /**
+     * Scratch features for each part of the work.
+     */
+    private final int[][] features;
+
+    /**
+     * The random number generator for each part of the work.
+     */
+    private final SplittableRandom[] randoms;
+
+    /**
+     * The sum of the rollout scores of each part of the work.
+     */
+    private final double[] sums;
+
+    /**
+     * The number of rollouts each part of the work played.
+     */
+    private final int[] counts;
+
+    /**
+     * The time the current move must be made by, in nanoseconds.
+     */
+    private volatile long deadline;
+
+    /**
+     * The number of placements that get rollouts this move.
+     */
+    private int candidateCount;
+
+    /**
+     * The next piece, for the current move.
+     */
+    private TileType nextType;
+
+    /**
+     * The number of rollouts played.
+     */
+    private long rollouts;
+
+    /**
+     * Creates a new MonteCarloController.
+     *
+     * @param heuristic How boards are scored.
+     * @param movesPerTick The number of inputs the bot may press each tick.
+     * @param pool The pool the rollouts run on.
+     * @param budgetNanos The time each move may take, in nanoseconds.
+     * @param seed The seed of the pieces the rollouts play.
+     */
+    public MonteCarloController(Heuristic heuristic, int movesPerTick,
+            ForkJoinPool pool, long budgetNanos, long seed) {
+        super(heuristic, movesPerTick);
+        this.pool = pool;
+        this.budgetNanos = budgetNanos;
+        this.weights = heuristic.getWeights();
+        this.partsPerCandidate = Math.max(1, (2 * pool.getParallelism()
+                + CANDIDATE_COUNT - 1) / CANDIDATE_COUNT);
+        this.rotatedCol = new int[ROTATION_COUNT];
+        this.rotatedRow = new int[ROTATION_COUNT];
+        this.isRotatable = new boolean[ROTATION_COUNT];
+        this.placed = new int[MAX_PLACEMENTS][Board.ROW_COUNT];
+        this.placedRotation = new int[MAX_PLACEMENTS];
+        this.placedCol = new int[MAX_PLACEMENTS];
+        this.placedLines = new int[MAX_PLACEMENTS];
+        this.placedScore = new float[MAX_PLACEMENTS];
+        this.candidates = new int[CANDIDATE_COUNT];
+
+        int parts = CANDIDATE_COUNT * partsPerCandidate;
+        this.rolloutRows = new int[parts][Board.ROW_COUNT];
+        this.heights = new int[parts][Board.COL_COUNT];
+        this.raised = new int[parts][Board.COL_COUNT];
+        this.features = new int[parts][BoardFeatures.FEATURE_COUNT];
+        this.randoms = new SplittableRandom[parts];
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int i = 0; i < parts; i++) {
+            randoms[i] = root.split();
+        }
+        this.sums = new double[parts];
+        this.counts = new int[parts];
+    }
+
+    @Override
+    protected void plan(GameEngine engine) {
+        deadline = System.nanoTime() + budgetNanos
+                - budgetNanos * MARGIN_PERCENT / 100;
+        Board board = engine.getBoard();
+        TileType type = engine.getPieceType();
+        int rotation = engine.getPieceRotation();
+        nextType = engine.getNextPieceType();
+        setTarget(rotation, engine.getPieceCol(), rotation);
+
+        /*
+         * Place the current piece everywhere it can reach, and score each
+         * placement by the best place for the next piece after it.
+         */
+        findRotations(engine.getRotationSystem(), board, type,
+                engine.getPieceCol(), engine.getPieceRow(), rotation,
+                rotatedCol, rotatedRow, isRotatable);
+        int count = 0;
+        for (int r = 0; r < ROTATION_COUNT; r++) {
+            if (!isRotatable[r]) {
+                continue;
+            }
+            int row = rotatedRow[r];
+            int left = leftmost(board, type, rotatedCol[r], row, r);
+            int right = rightmost(board, type, rotatedCol[r], row, r);
+            for (int col = left; col <= right; col++) {
+                int[] rows = placed[count];
+                board.copyRowMasks(rows, 0);
+                placedLines[count] = PlacementTable.place(rows, type, col,
+                        board.getLandingRow(type, col, row, r), r);
+                placedRotation[count] = r;
+                placedCol[count] = col;
+
+                int[] scratch = rolloutRows[0];
+                System.arraycopy(rows, 0, scratch, 0, Board.ROW_COUNT);
+                profile(scratch, heights[0]);
+                int cleared = placeGreedily(scratch, nextType, heights[0],
+                        raised[0]);
+                if (cleared < 0) {
+                    placedScore[count] = TOP_OUT;
+                } else {
+                    BoardFeatures.extract(scratch, 0, features[0], 0);
+                    placedScore[count] = getHeuristic().evaluate(features[0],
+                            0, placedLines[count] + cleared);
+                }
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+
+        //Keep the best few, best first.
+        candidateCount = 0;
+        for (int i = 0; i < count; i++) {
+            int at = Math.min(candidateCount, CANDIDATE_COUNT - 1);
+            if (candidateCount == CANDIDATE_COUNT
+                    && placedScore[i] <= placedScore[candidates[at]]) {
+                continue;
+            }
+            while (at > 0 && placedScore[i] > placedScore[candidates[at - 1]]) {
+                candidates[at] = candidates[at - 1];
+                at--;
+            }
+            candidates[at] = i;
+            candidateCount = Math.min(candidateCount + 1, CANDIDATE_COUNT);
+        }
+
+        //Play rollouts in rounds until the time is up.
+        int parts = candidateCount * partsPerCandidate;
+        for (int i = 0; i < parts; i++) {
+            sums[i] = 0.0;
+            counts[i] = 0;
+        }
+        while (System.nanoTime() < deadline) {
+            pool.invoke(new RolloutTask(0, parts));
+        }
+
+        /*
+         * Pick the placement with the best average. A placement that got no
+         * rollouts at all keeps its place in the greedy order.
+         */
+        int best = candidates[0];
+        double bestAverage = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < candidateCount; c++) {
+            double sum = 0.0;
+            int played = 0;
+            for (int p = 0; p < partsPerCandidate; p++) {
+                sum += sums[c * partsPerCandidate + p];
+                played += counts[c * partsPerCandidate + p];
+            }
+            rollouts += played;
+            if (played > 0 && sum / played > bestAverage) {
+                bestAverage = sum / played;
+                best = candidates[c];
+            }
+        }
+        setTarget(placedRotation[best], placedCol[best], rotation);
+    }
+
+    /**
+     * Plays a round of rollouts for one part of the work.
+     *
+     * @param part The part of the work.
+     */
+    private void runPart(int part) {
+        int[] start = placed[candidates[part / partsPerCandidate]];
+        int lines = placedLines[candidates[part / partsPerCandidate]];
+        int[] rows = rolloutRows[part];
+        for (int i = 0; i < ROLLOUTS_PER_ROUND; i++) {
+            System.arraycopy(start, 0, rows, 0, Board.ROW_COUNT);
+            profile(rows, heights[part]);
+            float score = rollout(rows, lines, heights[part], raised[part],
+                    features[part], randoms[part]);
+            if (Float.isNaN(score)) {
+                return;
+            }
+            sums[part] += score;
+            counts[part]++;
+        }
+    }
+
+    /**
+     * Plays one rollout: the next piece, then {@code DEPTH} random ones,
+     * each placed greedily.
+     *
+     * @param rows The board to play on.
+     * @param lines The lines cleared before the rollout.
+     * @param heights The height of each column of the board.
+     * @param raised Scratch column heights.
+     * @param features Scratch features.
+     * @param random Picks the pieces.
+     * @return The score of the board the rollout ends on, or NaN if the
+     * deadline passed first.
+     */
+    private float rollout(int[] rows, int lines, int[] heights, int[] raised,
+            int[] features, SplittableRandom random) {
+        TileType type = nextType;
+        for (int i = 0; i <= DEPTH; i++) {
+            if (System.nanoTime() >= deadline) {
+                return Float.NaN;
+            }
+            int cleared = placeGreedily(rows, type, heights, raised);
+            if (cleared < 0) {
+                return TOP_OUT;
+            }
+            lines += cleared;
+            type = PIECES.get(random.nextInt(PIECES.size()));
+        }
+        BoardFeatures.extract(rows, 0, features, 0);
+        return getHeuristic().evaluate(features, 0, lines);
+    }
+
+    /**
+     * Places a piece where the rollout policy likes it best, trying every
+     * rotation in every column it fits in where it spawns. Each placement is
+     * landed on the column heights and scored by what it changes, which is
+     * exact for the heights, bumpiness and holes under the piece, and treats
+     * cleared lines as lowering every column.
+     *
+     * @param rows The board, which the piece is placed on.
+     * @param type The piece.
+     * @param heights The height of each column of the board, which are
+     * brought up to date.
+     * @param raised Scratch column heights.
+     * @return The number of lines cleared, or -1 if the piece can't spawn.
+     */
+    private int placeGreedily(int[] rows, TileType type, int[] heights,
+            int[] raised) {
+        int spawnRow = type.getSpawnRow();
+        if (!PlacementTable.fits(rows, type, type.getSpawnColumn(), spawnRow,
+                0)) {
+            return -1;
+        }
+
+        int aggregate = heights[0];
+        int bumpiness = 0;
+        int maxHeight = heights[0];
+        for (int col = 1; col < Board.COL_COUNT; col++) {
+            aggregate += heights[col];
+            bumpiness += Math.abs(heights[col] - heights[col - 1]);
+            maxHeight = Math.max(maxHeight, heights[col]);
+        }
+        System.arraycopy(heights, 0, raised, 0, Board.COL_COUNT);
+
+        int dimension = type.getDimension();
+        float best = Float.NEGATIVE_INFINITY;
+        int bestRotation = 0;
+        int bestCol = 0;
+        int bestRow = -1;
+        for (int r = 0; r < ROTATION_COUNT; r++) {
+            int maxCol = PlacementTable.getMaxCol(type, r);
+            for (int col = PlacementTable.getMinCol(type, r); col <= maxCol;
+                    col++) {
+                if (!PlacementTable.fits(rows, type, col, spawnRow, r)) {
+                    continue;
+                }
+
+                //Land on the first column the piece's lowest tiles reach.
+                int row = Integer.MAX_VALUE;
+                int first = Board.COL_COUNT;
+                int last = -1;
+                for (int c = 0; c < dimension; c++) {
+                    int bottom = type.getBottom(c, r);
+                    if (bottom >= 0) {
+                        row = Math.min(row, Board.ROW_COUNT - heights[col + c]
+                                - 1 - bottom);
+                        first = Math.min(first, col + c);
+                        last = col + c;
+                    }
+                }
+                if (row < spawnRow) {
+                    continue;
+                }
+
+                //Raise the columns under the piece, counting the gaps left.
+                int holes = 0;
+                int added = 0;
+                int highest = maxHeight;
+                for (int x = first; x <= last; x++) {
+                    int bottom = type.getBottom(x - col, r);
+                    holes += Board.ROW_COUNT - heights[x] - row - bottom - 1;
+                    raised[x] = Board.ROW_COUNT - row
+                            - PlacementTable.getTop(type, x - col, r);
+                    added += raised[x] - heights[x];
+                    highest = Math.max(highest, raised[x]);
+                }
+                int bump = bumpiness;
+                for (int x = Math.max(1, first);
+                        x <= Math.min(Board.COL_COUNT - 1, last + 1); x++) {
+                    bump += Math.abs(raised[x] - raised[x - 1])
+                            - Math.abs(heights[x] - heights[x - 1]);
+                }
+                for (int x = first; x <= last; x++) {
+                    raised[x] = heights[x];
+                }
+
+                int lines = PlacementTable.countLines(rows, type, col, row,
+                        r);
+                float score = weights[Heuristic.AGGREGATE_HEIGHT]
+                        * (aggregate + added - lines * Board.COL_COUNT)
+                        + weights[Heuristic.HOLES] * holes
+                        + weights[Heuristic.BUMPINESS] * bump
+                        + weights[Heuristic.LINES] * lines
+                        + weights[Heuristic.MAX_HEIGHT] * (highest - lines);
+                if (score > best) {
+                    best = score;
+                    bestRotation = r;
+                    bestCol = col;
+                    bestRow = row;
+                }
+            }
+        }
+        if (bestRow < 0) {
+            return -1;
+        }
+        int cleared = PlacementTable.place(rows, type, bestCol, bestRow,
+                bestRotation);
+        profile(rows, heights);
+        return cleared;
+    }
+
+    /**
+     * Works out the height of each column of a board.
+     *
+     * @param rows The board.
+     * @param heights Where to store the heights.
+     */
+    private static void profile(int[] rows, int[] heights) {
+        for (int col = 0; col < Board.COL_COUNT; col++) {
+            heights[col] = 0;
+        }
+        int seen = 0;
+        for (int row = 0; row < Board.ROW_COUNT && seen != FULL_ROW; row++) {
+            int fresh = rows[row] & ~seen;
+            while (fresh != 0) {
+                heights[Integer.numberOfTrailingZeros(fresh)] =
+                        Board.ROW_COUNT - row;
+                fresh &= fresh - 1;
+            }
+            seen |= rows[row];
+        }
+    }
+
+    /**
+     * Gets the number of rollouts played so far.
+     *
+     * @return The number of rollouts.
+     */
+    public long getRollouts() {
+        return rollouts;
+    }
+
+    /**
+     * The {@code RolloutTask} class plays a round of rollouts for a range of
+     * parts of the work, splitting it in half until there is one part left.
+     */
+    private class RolloutTask extends RecursiveAction {
+
+        /**
+         * Serial Version UID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The first part of the work.
+         */
+        private final int from;
+
+        /**
+         * One past the last part of the work.
+         */
+        private final int to;
+
+        /**
+         * Creates a new RolloutTask.
+         *
+         * @param from The first part of the work.
+         * @param to One past the last part of the work.
+         */
+        RolloutTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                runPart(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RolloutTask(from, middle),
+                    new RolloutTask(middle, to));
+        }
+    }
+
+    /**
+     * Entry-point of the benchmark.
+     *
+     * @param args The number of games, the time budget per move in
+     * milliseconds and the number of ticks per game.
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        long budget = args.length > 1 ? Long.parseLong(args[1]) : 20L;
+        int maxTicks = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+
+        for (int g = 0; g < games; g++) {
+            GameEngine engine = new GameEngine(g);
+            MonteCarloController bot = new MonteCarloController(
+                    Heuristic.DEFAULT, Integer.MAX_VALUE,
+                    ForkJoinPool.commonPool(), budget * 1000000L, g);
+            engine.reset();
+            int tick = 0;
+            while (tick < maxTicks && !engine.isGameOver()) {
+                bot.control(engine);
+                engine.tick();
+                tick++;
+            }
+            LatencyHistogram times = bot.getDecisionTimes();
+            System.out.println("game " + g + " ticks=" + tick + " lines="
+                    + engine.getLines() + " over=" + engine.isGameOver()
+                    + " rollouts/move=" + bot.getRollouts()
+                    / Math.max(1L, times.getCount()) + " "
+                    + times.summary());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.Random;
+
+/**
+ * The {@code PieceRandom} class is the generator a {@code GameEngine} picks
+ * its pieces and garbage holes with. It gives exactly the numbers a
+ * {@code Random} with the same seed gives, so seeded games and their
+ * replays play out as they always have, but its whole state is a single
+ * long that can be read and put back, which is what lets a
+ * {@code GameEngine.Snapshot} take the generator along with the rest of the
+ * game.
+ *
+ * Unlike {@code Random}, it isn't safe to share between threads, which no
+ * engine does.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class PieceRandom extends Random {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = -8302719535482176943L;
+
+    /**
+     * The multiplier of the linear congruential generator.
+     */
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+
+    /**
+     * The addend of the linear congruential generator.
+     */
+    private static final long ADDEND = 0xBL;
+
+    /**
+     * Selects the 48 bits the generator keeps.
+     */
+    private static final long MASK = (1L << 48) - 1;
+
+    /**
+     * The state of the generator. It isn't given a value here, since the
+     * constructor of {@code Random} sets it through {@code setSeed} before
+     * the fields of this class would be.
+     */
+    private long state;
+
+    /**
+     * Creates a new PieceRandom with the given seed.
+     *
+     * @param seed The seed.
+     */
+    public PieceRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Gets the state of the generator.
+     *
+     * @return The state.
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Puts the generator back in a state it was in.
+     *
+     * @param state The state, from {@code getState}.
+     */
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,278 @@
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code PieceSet} class holds the pieces a game is played with. The
+ * standard set is the seven built in {@code TileType} pieces; any other set
+ * is loaded by name from a data file, {@code pieces/<name>.txt}, found next
+ * to the classes like the sounds are, or else in the working directory.
+ *
+ * A data file has one piece after another. Each piece starts with a line
+ * holding its name and the red, green and blue of its color, followed by
+ * the tiles of its spawn rotation as a square of {@code #} for a tile and
+ * {@code .} for an empty cell, one line per row. The other rotations are
+ * turned from it. Blank lines and lines starting with {@code ;} are
+ * skipped. For example:
+ *
+ * <pre>
+ * ; The T tetromino.
+ * T 128 35 128
+ * .#.
+ * ###
+ * ...
+ * </pre>
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class PieceSet implements Serializable {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = 8120963335706021437L;
+
+    /**
+     * The name of the standard set.
+     */
+    public static final String STANDARD_NAME = "standard";
+
+    /**
+     * The most pieces a set can have, so that a piece and an empty cell fit
+     * in a byte of a {@code Board}.
+     */
+    public static final int MAX_SIZE = Byte.MAX_VALUE;
+
+    /**
+     * The standard set: the seven tetrominoes.
+     */
+    public static final PieceSet STANDARD = new PieceSet(STANDARD_NAME,
+            new TileType[] {TileType.TypeI, TileType.TypeJ, TileType.TypeL,
+                TileType.TypeO, TileType.TypeS, TileType.TypeT,
+                TileType.TypeZ});
+
+    /**
+     * The directory the data files are in.
+     */
+    private static final String DIRECTORY = "pieces";
+
+    /**
+     * The sets loaded so far, by name, so that each is only loaded once.
+     */
+    private static final Map<String, PieceSet> LOADED =
+            new HashMap<String, PieceSet>();
+
+    /**
+     * The name of the set.
+     */
+    private final String name;
+
+    /**
+     * The pieces, in order of their type.
+     */
+    private final TileType[] types;
+
+    /**
+     * The largest dimension of a piece in the set.
+     */
+    private final int maxDimension;
+
+    /**
+     * Creates a new PieceSet.
+     *
+     * @param name The name of the set.
+     * @param types The pieces, in order of their type.
+     */
+    private PieceSet(String name, TileType[] types) {
+        this.name = name;
+        this.types = types;
+        int max = 0;
+        for (TileType type : types) {
+            max = Math.max(max, type.getDimension());
+        }
+        this.maxDimension = max;
+    }
+
+    /**
+     * Gets a set by its name, loading it the first time.
+     *
+     * @param name The name of the set.
+     * @return The set.
+     * @throws IOException If the set can't be found or is malformed.
+     */
+    public static PieceSet forName(String name) throws IOException {
+        if (STANDARD_NAME.equals(name)) {
+            return STANDARD;
+        }
+        synchronized (LOADED) {
+            PieceSet set = LOADED.get(name);
+            if (set != null) {
+                return set;
+            }
+
+            String path = DIRECTORY + "/" + name + ".txt";
+            InputStream in = PieceSet.class.getResourceAsStream(path);
+            if (in == null) {
+                File file = new File(path);
+                if (!file.isFile()) {
+                    throw new IOException("No piece set called " + name);
+                }
+                in = new FileInputStream(file);
+            }
+            try (Reader reader = new InputStreamReader(in,
+                    StandardCharsets.UTF_8)) {
+                set = read(name, reader);
+            }
+            LOADED.put(name, set);
+            return set;
+        }
+    }
+
+    /**
+     * Reads a set from a data file.
+     *
+     * @param name The name of the set.
+     * @param reader The data file.
+     * @return The set.
+     * @throws IOException If the data file is malformed.
+     */
+    public static PieceSet read(String name, Reader reader)
+            throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        List<TileType> types = new ArrayList<TileType>();
+        int lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith(";")) {
+                continue;
+            }
+
+            //The first line of a piece is its name and color.
+            String[] fields = line.split("\\s+");
+            if (fields.length != 4) {
+                throw malformed(name, lineNumber, "expected a name and a "
+                        + "color");
+            }
+            Color color;
+            try {
+                color = new Color(Integer.parseInt(fields[1]),
+                        Integer.parseInt(fields[2]),
+                        Integer.parseInt(fields[3]));
+            } catch (IllegalArgumentException e) {
+                throw malformed(name, lineNumber, "bad color");
+            }
+
+            //Then its rows, as many as the first one is long.
+            boolean[] tiles = null;
+            int dimension = 0;
+            boolean isEmpty = true;
+            for (int row = 0; tiles == null || row < dimension; row++) {
+                line = in.readLine();
+                lineNumber++;
+                if (line == null) {
+                    throw malformed(name, lineNumber, "missing rows");
+                }
+                line = line.trim();
+                if (tiles == null) {
+                    dimension = line.length();
+                    if (dimension < 1
+                            || dimension > TileType.MAX_DIMENSION) {
+                        throw malformed(name, lineNumber, "pieces can be "
+                                + "1 to " + TileType.MAX_DIMENSION
+                                + " wide");
+                    }
+                    tiles = new boolean[dimension * dimension];
+                }
+                if (line.length() != dimension) {
+                    throw malformed(name, lineNumber, "pieces must be "
+                            + "square");
+                }
+                for (int col = 0; col < dimension; col++) {
+                    char c = line.charAt(col);
+                    if (c != '#' && c != '.') {
+                        throw malformed(name, lineNumber, "bad tile " + c);
+                    }
+                    tiles[row * dimension + col] = c == '#';
+                    isEmpty &= c != '#';
+                }
+            }
+            if (isEmpty) {
+                throw malformed(name, lineNumber, "piece with no tiles");
+            }
+            if (types.size() == MAX_SIZE) {
+                throw malformed(name, lineNumber, "more than " + MAX_SIZE
+                        + " pieces");
+            }
+            types.add(new TileType(fields[0], color, dimension, tiles,
+                    types.size()));
+        }
+        if (types.isEmpty()) {
+            throw malformed(name, lineNumber, "no pieces");
+        }
+        return new PieceSet(name, types.toArray(new TileType[0]));
+    }
+
+    /**
+     * Makes the exception thrown for a malformed data file.
+     *
+     * @param name The name of the set.
+     * @param lineNumber The line the problem was found on.
+     * @param problem The problem.
+     * @return The exception.
+     */
+    private static IOException malformed(String name, int lineNumber,
+            String problem) {
+        return new IOException("Piece set " + name + ", line " + lineNumber
+                + ": " + problem);
+    }
+
+    /**
+     * Gets the name of the set, which is what saves record.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of pieces in the set.
+     *
+     * @return The number of pieces.
+     */
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * Gets a piece by its type.
+     *
+     * @param type The type, from 0 to {@code size() - 1}.
+     * @return The piece.
+     */
+    public TileType get(int type) {
+        return types[type];
+    }
+
+    /**
+     * Gets the largest dimension of a piece in the set.
+     *
+     * @return The dimension.
+     */
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+}
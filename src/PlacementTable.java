@@ -0,0 +1,301 @@
+/**
+ * The {@code PlacementTable} class holds everything about placing a piece of
+ * the standard set on a standard board, worked out once when the class is
+ * loaded: the columns and rows each piece can be in and the mask of each of
+ * its rows already shifted into every column it can be in. With these,
+ * testing a position is a bounds check and an AND per row of the piece, and
+ * finding where a piece lands only looks at the columns under its lowest
+ * tiles. Standard boards here are just the masks, one int per row from the
+ * top down with bit {@code col} set when the cell is occupied, so copying one
+ * is a single array copy, which is what the bots' rollouts play on.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class PlacementTable {
+
+    /**
+     * The number of rotations a piece has.
+     */
+    public static final int ROTATION_COUNT = TileType.ROTATION_COUNT;
+
+    /**
+     * The largest dimension of a piece of the standard set.
+     */
+    public static final int MAX_DIMENSION = 4;
+
+    /**
+     * The mask of a full row.
+     */
+    private static final int FULL_ROW = (1 << Board.COL_COUNT) - 1;
+
+    /**
+     * The leftmost column each piece can be in on a standard board, by piece
+     * and rotation.
+     */
+    private static final int[] MIN_COL;
+
+    /**
+     * The rightmost column each piece can be in on a standard board, by
+     * piece and rotation.
+     */
+    private static final int[] MAX_COL;
+
+    /**
+     * The highest row each piece can be in on a standard board, by piece and
+     * rotation.
+     */
+    private static final int[] MIN_ROW;
+
+    /**
+     * The lowest row each piece can be in on a standard board, by piece and
+     * rotation.
+     */
+    private static final int[] MAX_ROW;
+
+    /**
+     * The mask of each row of each piece in each column it can be in on a
+     * standard board, by piece, rotation, column from the leftmost and row of
+     * the piece.
+     */
+    private static final int[] MASKS;
+
+    /**
+     * The row of the highest tile in each column of each piece, by piece,
+     * rotation and column of the piece, or -1 if the column has no tiles.
+     */
+    private static final int[] TOPS;
+
+    static {
+        int count = PieceSet.STANDARD.size() * ROTATION_COUNT;
+        MIN_COL = new int[count];
+        MAX_COL = new int[count];
+        MIN_ROW = new int[count];
+        MAX_ROW = new int[count];
+        MASKS = new int[count * Board.COL_COUNT * MAX_DIMENSION];
+        TOPS = new int[count * MAX_DIMENSION];
+
+        for (int t = 0; t < PieceSet.STANDARD.size(); t++) {
+            TileType type = PieceSet.STANDARD.get(t);
+            int dimension = type.getDimension();
+            for (int rotation = 0; rotation < ROTATION_COUNT; rotation++) {
+                int index = index(type, rotation);
+                MIN_COL[index] = -type.getLeftInset(rotation);
+                MAX_COL[index] = Board.COL_COUNT - dimension
+                        + type.getRightInset(rotation) - 1;
+                MIN_ROW[index] = -type.getTopInset(rotation);
+                MAX_ROW[index] = Board.ROW_COUNT - dimension
+                        + type.getBottomInset(rotation) - 1;
+
+                for (int col = 0; col < MAX_DIMENSION; col++) {
+                    int top = -1;
+                    for (int row = dimension - 1; row >= 0; row--) {
+                        if (col < dimension
+                                && type.isTile(col, row, rotation)) {
+                            top = row;
+                        }
+                    }
+                    TOPS[index * MAX_DIMENSION + col] = top;
+                }
+
+                //Shift the rows into every column the piece can be in.
+                for (int x = MIN_COL[index]; x <= MAX_COL[index]; x++) {
+                    for (int row = 0; row < dimension; row++) {
+                        int mask = (int) type.getShape(row, rotation)
+                                << type.getLeftInset(rotation);
+                        MASKS[maskIndex(index, x, row)] = x < 0
+                                ? mask >>> -x
+                                : mask << x;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new PlacementTable. There is nothing to create, as this class
+     * only holds static methods.
+     */
+    private PlacementTable() {
+    }
+
+    /**
+     * Gets the index of a piece and rotation in the tables.
+     *
+     * @param type The type of the piece.
+     * @param rotation The rotation of the piece.
+     * @return The index.
+     */
+    private static int index(TileType type, int rotation) {
+        return type.getType() * ROTATION_COUNT + rotation;
+    }
+
+    /**
+     * Gets the index of a row mask in {@code MASKS}.
+     *
+     * @param index The index of the piece and rotation.
+     * @param x The column of the piece.
+     * @param row The row of the piece.
+     * @return The index.
+     */
+    private static int maskIndex(int index, int x, int row) {
+        return (index * Board.COL_COUNT + x - MIN_COL[index]) * MAX_DIMENSION
+                + row;
+    }
+
+    /**
+     * Gets the leftmost column a piece can be in on a standard board.
+     *
+     * @param type The type of the piece.
+     * @param rotation The rotation of the piece.
+     * @return The column.
+     */
+    public static int getMinCol(TileType type, int rotation) {
+        return MIN_COL[index(type, rotation)];
+    }
+
+    /**
+     * Gets the rightmost column a piece can be in on a standard board.
+     *
+     * @param type The type of the piece.
+     * @param rotation The rotation of the piece.
+     * @return The column.
+     */
+    public static int getMaxCol(TileType type, int rotation) {
+        return MAX_COL[index(type, rotation)];
+    }
+
+    /**
+     * Gets the row of the highest tile in a column of a piece of the
+     * standard set.
+     *
+     * @param type The type of the piece.
+     * @param col The column, from 0 to {@code getDimension() - 1}.
+     * @param rotation The rotation of the piece.
+     * @return The row, or -1 if the column has no tiles.
+     */
+    public static int getTop(TileType type, int col, int rotation) {
+        return TOPS[index(type, rotation) * MAX_DIMENSION + col];
+    }
+
+    /**
+     * Determines whether or not a piece can be placed at the coordinates of
+     * a standard board.
+     *
+     * @param rows The row masks of the board.
+     * @param type The type of the piece.
+     * @param x The column of the piece.
+     * @param y The row of the piece.
+     * @param rotation The rotation of the piece.
+     * @return Whether or not the position is valid.
+     */
+    public static boolean fits(int[] rows, TileType type, int x, int y,
+            int rotation) {
+        int index = index(type, rotation);
+        if (x < MIN_COL[index] || x > MAX_COL[index] || y < MIN_ROW[index]
+                || y > MAX_ROW[index]) {
+            return false;
+        }
+
+        /*
+         * Test each row of the piece against the row of the board it covers.
+         * Rows of the piece that have no tiles may hang off the board, so
+         * they are skipped before looking at the board.
+         */
+        int first = maskIndex(index, x, 0);
+        for (int row = 0; row < type.getDimension(); row++) {
+            int mask = MASKS[first + row];
+            if (mask != 0 && (rows[y + row] & mask) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the row a piece lands on when it is dropped straight down from
+     * the coordinates of a standard board, which must be valid. Only the
+     * cells under the lowest tile of each column of the piece are looked at.
+     *
+     * @param rows The row masks of the board.
+     * @param type The type of the piece.
+     * @param x The column of the piece.
+     * @param y The row of the piece.
+     * @param rotation The rotation of the piece.
+     * @return The row the piece lands on.
+     */
+    public static int getLandingRow(int[] rows, TileType type, int x, int y,
+            int rotation) {
+        int landing = Integer.MAX_VALUE;
+        for (int col = 0; col < type.getDimension(); col++) {
+            int bottom = type.getBottom(col, rotation);
+            if (bottom < 0) {
+                continue;
+            }
+
+            //Find the first occupied cell (or the floor) under this column.
+            int bit = 1 << (x + col);
+            int below = y + bottom + 1;
+            while (below < rows.length && (rows[below] & bit) == 0) {
+                below++;
+            }
+            landing = Math.min(landing, below - 1 - bottom);
+        }
+        return landing;
+    }
+
+    /**
+     * Counts the lines a piece would clear at the coordinates of a standard
+     * board, which must be valid, without placing it.
+     *
+     * @param rows The row masks of the board.
+     * @param type The type of the piece.
+     * @param x The column of the piece.
+     * @param y The row of the piece.
+     * @param rotation The rotation of the piece.
+     * @return The number of lines.
+     */
+    public static int countLines(int[] rows, TileType type, int x, int y,
+            int rotation) {
+        int first = maskIndex(index(type, rotation), x, 0);
+        int lines = 0;
+        for (int row = 0; row < type.getDimension(); row++) {
+            int mask = MASKS[first + row];
+            if (mask != 0 && (rows[y + row] | mask) == FULL_ROW) {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Places a piece on a standard board of row masks and clears any full
+     * lines. The position must be valid.
+     *
+     * @param rows The row masks of the board.
+     * @param type The type of the piece.
+     * @param x The column of the piece.
+     * @param y The row of the piece.
+     * @param rotation The rotation of the piece.
+     * @return The number of lines cleared.
+     */
+    public static int place(int[] rows, TileType type, int x, int y,
+            int rotation) {
+        int first = maskIndex(index(type, rotation), x, 0);
+        int cleared = 0;
+        for (int row = 0; row < type.getDimension(); row++) {
+            int mask = MASKS[first + row];
+            if (mask == 0) {
+                continue;
+            }
+            rows[y + row] |= mask;
+
+            //Shift everything above a full row down over it.
+            if (rows[y + row] == FULL_ROW) {
+                System.arraycopy(rows, 0, rows, 1, y + row);
+                rows[0] = 0;
+                cleared++;
+            }
+        }
+        return cleared;
+    }
+}
@@ -0,0 +1,253 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code Protocol} class describes the binary protocol spoken between the
+ * {@code GameServer} and its clients.
+ *
+ * Clients send one byte per input. The server sends messages made of a one
+ * byte type and a two byte payload length followed by the payload, all
+ * big-endian. After a {@code MSG_HELLO} the server sends a {@code MSG_STATE}
+ * on every frame where something changed. A state message only carries the
+ * board rows that changed since the last one, each packed as in
+ * {@code Board.packRow}.
+ *
+ * Spectators connect to the port after the game port and send the id of the
+ * session they want to watch as an int. They then receive the same state
+ * messages, starting with a {@code MSG_KEYFRAME}.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public final class Protocol {
+
+    /**
+     * Starts a new game if there is none running.
+     */
+    public static final byte INPUT_START = 1;
+
+    /**
+     * Moves the piece to the left.
+     */
+    public static final byte INPUT_LEFT = 2;
+
+    /**
+     * Moves the piece to the right.
+     */
+    public static final byte INPUT_RIGHT = 3;
+
+    /**
+     * Rotates the piece clockwise.
+     */
+    public static final byte INPUT_ROTATE_CW = 4;
+
+    /**
+     * Rotates the piece anticlockwise.
+     */
+    public static final byte INPUT_ROTATE_CCW = 5;
+
+    /**
+     * Presses the drop key.
+     */
+    public static final byte INPUT_DROP_PRESS = 6;
+
+    /**
+     * Releases the drop key.
+     */
+    public static final byte INPUT_DROP_RELEASE = 7;
+
+    /**
+     * Drops the piece straight down and locks it on the next tick.
+     */
+    public static final byte INPUT_HARD_DROP = 8;
+
+    /**
+     * Sent once when a client connects. Payload: session id (int) and the
+     * seed of its piece generator (long).
+     */
+    public static final byte MSG_HELLO = 1;
+
+    /**
+     * Sent when the state of the game changed. Payload: tick (int), score
+     * (int), level (short), flags (byte), piece type, next type, column, row
+     * and rotation (a byte each), the mask of changed rows (int) and then one
+     * packed row (int) for every bit set in the mask, from the top row down.
+     */
+    public static final byte MSG_STATE = 2;
+
+    /**
+     * Sent to spectators every so often, and whenever they need to catch up.
+     * Same payload as {@code MSG_STATE}, but every row is present, so a
+     * spectator can start (or restart) following a game from it.
+     */
+    public static final byte MSG_KEYFRAME = 3;
+
+    /**
+     * The mask that selects every row of the board.
+     */
+    public static final int ALL_ROWS = (1 << Board.ROW_COUNT) - 1;
+
+    /**
+     * The length of a message header.
+     */
+    public static final int HEADER_SIZE = 3;
+
+    /**
+     * The length of the payload of a hello message.
+     */
+    public static final int HELLO_SIZE = 12;
+
+    /**
+     * The length of the payload of a state message without any rows.
+     */
+    public static final int STATE_SIZE = 20;
+
+    /**
+     * The largest possible state message.
+     */
+    public static final int MAX_STATE_MESSAGE = HEADER_SIZE + STATE_SIZE
+            + 4 * Board.ROW_COUNT;
+
+    /**
+     * The state flag set when the game is over.
+     */
+    public static final int FLAG_GAME_OVER = 1;
+
+    /**
+     * The state flag set before the first game has started.
+     */
+    public static final int FLAG_NEW_GAME = 2;
+
+    /**
+     * The piece type sent when there is no piece.
+     */
+    public static final int NO_PIECE = 0xff;
+
+    /**
+     * This class only holds static members.
+     */
+    private Protocol() {
+    }
+
+    /**
+     * Applies a single input to a game.
+     *
+     * @param engine The game.
+     * @param input The input.
+     * @return Whether or not the input changed the state of the game.
+     */
+    public static boolean applyInput(GameEngine engine, byte input) {
+        if (input == INPUT_START) {
+            if (engine.isNewGame() || engine.isGameOver()) {
+                engine.reset();
+                return true;
+            }
+            return false;
+        }
+        if (engine.isNewGame() || engine.isGameOver()) {
+            return false;
+        }
+
+        switch (input) {
+            case INPUT_LEFT:
+                return engine.moveLeft();
+            case INPUT_RIGHT:
+                return engine.moveRight();
+            case INPUT_ROTATE_CW:
+                return engine.rotateClockwise();
+            case INPUT_ROTATE_CCW:
+                return engine.rotateAnticlockwise();
+            case INPUT_DROP_PRESS:
+                engine.setSoftDrop(true);
+                return false;
+            case INPUT_DROP_RELEASE:
+                engine.setSoftDrop(false);
+                return false;
+            case INPUT_HARD_DROP:
+                return engine.hardDrop();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Writes a hello message.
+     *
+     * @param out The buffer to write to.
+     * @param sessionId The id of the session.
+     * @param seed The seed of the piece generator.
+     */
+    public static void writeHello(ByteBuffer out, int sessionId, long seed) {
+        out.put(MSG_HELLO);
+        out.putShort((short) HELLO_SIZE);
+        out.putInt(sessionId);
+        out.putLong(seed);
+    }
+
+    /**
+     * Packs the current piece and flags of a game into one int, so a sender
+     * can cheaply tell whether they changed.
+     *
+     * @param engine The game.
+     * @return The packed piece.
+     */
+    public static int packPiece(GameEngine engine) {
+        return pieceType(engine.getPieceType()) << 24
+                | (engine.getPieceCol() & 0xff) << 16
+                | (engine.getPieceRow() & 0xff) << 8
+                | engine.getPieceRotation() << 4
+                | flags(engine);
+    }
+
+    /**
+     * Writes a state message with the given rows.
+     *
+     * @param out The buffer to write to. It must have room for
+     * {@code MAX_STATE_MESSAGE} bytes.
+     * @param type Either {@code MSG_STATE} or {@code MSG_KEYFRAME}.
+     * @param engine The game.
+     * @param tick The tick the state belongs to.
+     * @param rows The packed rows of the board.
+     * @param changedMask The rows to send, one bit per row.
+     */
+    public static void writeState(ByteBuffer out, byte type,
+            GameEngine engine, int tick, int[] rows, int changedMask) {
+        out.put(type);
+        out.putShort((short) (STATE_SIZE
+                + 4 * Integer.bitCount(changedMask)));
+        out.putInt(tick);
+        out.putInt(engine.getScore());
+        out.putShort((short) engine.getLevel());
+        out.put((byte) flags(engine));
+        out.put((byte) pieceType(engine.getPieceType()));
+        out.put((byte) pieceType(engine.getNextPieceType()));
+        out.put((byte) engine.getPieceCol());
+        out.put((byte) engine.getPieceRow());
+        out.put((byte) engine.getPieceRotation());
+        out.putInt(changedMask);
+        for (int row = 0; row < Board.ROW_COUNT; row++) {
+            if ((changedMask & 1 << row) != 0) {
+                out.putInt(rows[row]);
+            }
+        }
+    }
+
+    /**
+     * Gets the flags of a game.
+     *
+     * @param engine The game.
+     * @return The flags.
+     */
+    private static int flags(GameEngine engine) {
+        return (engine.isGameOver() ? FLAG_GAME_OVER : 0)
+                | (engine.isNewGame() ? FLAG_NEW_GAME : 0);
+    }
+
+    /**
+     * Gets the number sent for a piece type.
+     *
+     * @param type The type, or null.
+     * @return The number.
+     */
+    private static int pieceType(TileType type) {
+        return type == null ? NO_PIECE : type.getType();
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.Random;
+
+/**
+ * The {@code RandomController} class presses a random key now and then, like
+ * the players of the {@code LoadTestClient}. It is the simplest opponent a
+ * versus game can have.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class RandomController implements Controller {
+
+    /**
+     * The chance that a key is pressed on a given tick.
+     */
+    private static final float INPUT_CHANCE = 0.1f;
+
+    /**
+     * The inputs to pick from.
+     */
+    private static final byte[] INPUTS = {Protocol.INPUT_LEFT,
+        Protocol.INPUT_RIGHT, Protocol.INPUT_ROTATE_CW,
+        Protocol.INPUT_ROTATE_CCW, Protocol.INPUT_DROP_PRESS,
+        Protocol.INPUT_DROP_RELEASE};
+
+    /**
+     * The random number generator.
+     */
+    private final Random random;
+
+    /**
+     * Creates a new RandomController.
+     *
+     * @param seed The seed of the key presses.
+     */
+    public RandomController(long seed) {
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void control(GameEngine engine) {
+        if (random.nextFloat() < INPUT_CHANCE) {
+            Protocol.applyInput(engine, INPUTS[random.nextInt(INPUTS.length)]);
+        }
+    }
+}
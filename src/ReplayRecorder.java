@@ -0,0 +1,110 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The {@code ReplayRecorder} class records the inputs of a headless game so
+ * the game can be played again, exactly, by a {@code ReplayVerifier}.
+ *
+ * A replay is the seed of the game, the score and lines the player claims,
+ * the number of ticks played and the inputs. Every input is stored as the
+ * number of ticks since the last one (a variable length int) followed by the
+ * {@code Protocol} input byte, so a whole game takes a few hundred bytes.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class ReplayRecorder {
+
+    /**
+     * The length of a replay without any inputs: seed (long), score, lines,
+     * ticks and number of inputs (an int each).
+     */
+    public static final int HEADER_SIZE = 24;
+
+    /**
+     * The seed of the game.
+     */
+    private final long seed;
+
+    /**
+     * The encoded inputs.
+     */
+    private byte[] inputs;
+
+    /**
+     * The number of bytes of {@code inputs} in use.
+     */
+    private int length;
+
+    /**
+     * The number of inputs recorded.
+     */
+    private int count;
+
+    /**
+     * The tick of the last input.
+     */
+    private int lastTick;
+
+    /**
+     * Creates a new ReplayRecorder for a game.
+     *
+     * @param seed The seed of the game.
+     */
+    public ReplayRecorder(long seed) {
+        this.seed = seed;
+        this.inputs = new byte[256];
+    }
+
+    /**
+     * Records an input. Inputs must be recorded in the order they were
+     * applied, before the tick they were applied in.
+     *
+     * @param tick The number of ticks played before the input.
+     * @param input The input.
+     */
+    public void record(int tick, byte input) {
+        if (length + 6 > inputs.length) {
+            inputs = Arrays.copyOf(inputs, inputs.length * 2);
+        }
+        int delta = tick - lastTick;
+        while ((delta & ~0x7f) != 0) {
+            inputs[length++] = (byte) (delta & 0x7f | 0x80);
+            delta >>>= 7;
+        }
+        inputs[length++] = (byte) delta;
+        inputs[length++] = input;
+        lastTick = tick;
+        count++;
+    }
+
+    /**
+     * Writes the replay, preceded by its length, so that many replays can be
+     * written one after the other into a batch.
+     *
+     * @param out Where to write to.
+     * @param ticks The number of ticks played.
+     * @param score The score claimed.
+     * @param lines The number of lines claimed.
+     * @throws IOException
+     */
+    public void write(DataOutput out, int ticks, int score, int lines)
+            throws IOException {
+        out.writeInt(HEADER_SIZE + length);
+        out.writeLong(seed);
+        out.writeInt(score);
+        out.writeInt(lines);
+        out.writeInt(ticks);
+        out.writeInt(count);
+        out.write(inputs, 0, length);
+    }
+
+    /**
+     * Forgets every input, to record another game with the same seed.
+     */
+    public void clear() {
+        length = 0;
+        count = 0;
+        lastTick = 0;
+    }
+}
@@ -0,0 +1,380 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code ReplayVerifier} class rejects forged scores by playing recorded
+ * games again. Every replay written by a {@code ReplayRecorder} is run
+ * through a fresh {@code GameEngine} with the same seed and the same inputs
+ * on the same ticks, which gives exactly the same game, and the score and
+ * lines it ends with are compared with the ones claimed.
+ *
+ * A batch of replays is read by one thread and verified by several. Replays
+ * are handed over through a bounded queue, so a batch of any size is
+ * verified in the same amount of memory.
+ *
+ * Usage: {@code java ReplayVerifier verify file [threads]} or
+ * {@code java ReplayVerifier generate file count [forged%]}
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class ReplayVerifier {
+
+    /**
+     * The replay matches the game.
+     */
+    public static final int VALID = 0;
+
+    /**
+     * The claimed score doesn't match the game.
+     */
+    public static final int WRONG_SCORE = 1;
+
+    /**
+     * The claimed lines don't match the game.
+     */
+    public static final int WRONG_LINES = 2;
+
+    /**
+     * The replay couldn't be read.
+     */
+    public static final int MALFORMED = 3;
+
+    /**
+     * The number of results.
+     */
+    private static final int RESULT_COUNT = 4;
+
+    /**
+     * The largest replay that is accepted.
+     */
+    public static final int MAX_REPLAY_SIZE = 1 << 20;
+
+    /**
+     * The longest game that is accepted, in ticks (four hours).
+     */
+    public static final int MAX_TICKS = 4 * 60 * 60
+            * GameEngine.TICKS_PER_SECOND;
+
+    /**
+     * The number of replays waiting for each worker.
+     */
+    private static final int QUEUE_PER_WORKER = 16;
+
+    /**
+     * Put on the queue to stop a worker.
+     */
+    private static final Submission END = new Submission(-1L, new byte[0]);
+
+    /**
+     * The {@code Submission} class is one replay read from a batch.
+     */
+    private static class Submission {
+
+        /**
+         * The position of the replay in the batch.
+         */
+        private final long index;
+
+        /**
+         * The replay.
+         */
+        private final byte[] replay;
+
+        /**
+         * Creates a new Submission.
+         *
+         * @param index The position of the replay in the batch.
+         * @param replay The replay.
+         */
+        private Submission(long index, byte[] replay) {
+            this.index = index;
+            this.replay = replay;
+        }
+    }
+
+    /**
+     * This class only holds static members.
+     */
+    private ReplayVerifier() {
+    }
+
+    /**
+     * Plays a replay again and checks it.
+     *
+     * @param replay The replay, as written by {@code ReplayRecorder}, without
+     * its length.
+     * @return {@code VALID}, {@code WRONG_SCORE}, {@code WRONG_LINES} or
+     * {@code MALFORMED}.
+     */
+    public static int verify(byte[] replay) {
+        ByteBuffer in = ByteBuffer.wrap(replay);
+        try {
+            long seed = in.getLong();
+            int score = in.getInt();
+            int lines = in.getInt();
+            int ticks = in.getInt();
+            int count = in.getInt();
+            if (ticks < 0 || ticks > MAX_TICKS || count < 0) {
+                return MALFORMED;
+            }
+
+            GameEngine engine = new GameEngine(seed);
+            int nextTick = count > 0 ? readDelta(in) : ticks;
+            for (int tick = 0; tick < ticks; tick++) {
+                while (count > 0 && nextTick == tick) {
+                    Protocol.applyInput(engine, in.get());
+                    count--;
+                    nextTick = count > 0 ? tick + readDelta(in) : ticks;
+                }
+                engine.tick();
+            }
+
+            //Inputs after the last tick, or bytes after the last input.
+            if (count > 0 || in.hasRemaining()) {
+                return MALFORMED;
+            }
+            if (engine.getScore() != score) {
+                return WRONG_SCORE;
+            }
+            if (engine.getLines() != lines) {
+                return WRONG_LINES;
+            }
+            return VALID;
+        } catch (BufferUnderflowException e) {
+            return MALFORMED;
+        }
+    }
+
+    /**
+     * Reads the number of ticks between two inputs.
+     *
+     * @param in The replay.
+     * @return The number of ticks.
+     */
+    private static int readDelta(ByteBuffer in) {
+        int delta = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get();
+            delta |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return delta < 0 ? MAX_TICKS : delta;
+            }
+        }
+        return MAX_TICKS;
+    }
+
+    /**
+     * Verifies every replay in a batch.
+     *
+     * @param in The batch: replays one after the other, each preceded by its
+     * length.
+     * @param threads The number of threads that verify replays.
+     * @param rejected Where to report the replays that aren't valid, or null.
+     * @return The number of replays with each result.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static long[] verifyBatch(DataInputStream in, int threads,
+            final PrintStream rejected)
+            throws IOException, InterruptedException {
+        final AtomicLongArray results = new AtomicLongArray(RESULT_COUNT);
+        final BlockingQueue<Submission> queue
+                = new ArrayBlockingQueue<Submission>(threads
+                        * QUEUE_PER_WORKER);
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread("Replay Verifier " + i) {
+
+                @Override
+                public void run() {
+                    try {
+                        Submission submission;
+                        while ((submission = queue.take()) != END) {
+                            int result = verify(submission.replay);
+                            results.incrementAndGet(result);
+                            if (result != VALID && rejected != null) {
+                                rejected.println("Replay "
+                                        + submission.index + " rejected: "
+                                        + describe(result));
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        System.out.println("Error en " + e.toString());
+                    }
+                }
+
+            };
+            workers[i].start();
+        }
+
+        try {
+            long index = 0;
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < ReplayRecorder.HEADER_SIZE
+                        || length > MAX_REPLAY_SIZE) {
+                    //The rest of the batch can't be trusted either.
+                    results.incrementAndGet(MALFORMED);
+                    if (rejected != null) {
+                        rejected.println("Replay " + index + " has a bad "
+                                + "length; the rest of the batch is skipped");
+                    }
+                    break;
+                }
+                byte[] replay = new byte[length];
+                try {
+                    in.readFully(replay);
+                } catch (EOFException e) {
+                    results.incrementAndGet(MALFORMED);
+                    if (rejected != null) {
+                        rejected.println("Replay " + index + " is cut short");
+                    }
+                    break;
+                }
+                queue.put(new Submission(index++, replay));
+            }
+        } finally {
+            for (int i = 0; i < threads; i++) {
+                queue.put(END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+
+        long[] counts = new long[RESULT_COUNT];
+        for (int i = 0; i < RESULT_COUNT; i++) {
+            counts[i] = results.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Describes a result.
+     *
+     * @param result The result.
+     * @return The description.
+     */
+    public static String describe(int result) {
+        switch (result) {
+            case VALID:
+                return "valid";
+            case WRONG_SCORE:
+                return "wrong score";
+            case WRONG_LINES:
+                return "wrong lines";
+            default:
+                return "malformed";
+        }
+    }
+
+    /**
+     * Writes a batch of games played with random inputs, with some of the
+     * scores forged.
+     *
+     * @param file The file to write to.
+     * @param count The number of games.
+     * @param forged The percentage of games whose score is forged.
+     * @throws IOException
+     */
+    private static void generate(String file, int count, int forged)
+            throws IOException {
+        byte[] inputs = {Protocol.INPUT_LEFT, Protocol.INPUT_RIGHT,
+            Protocol.INPUT_ROTATE_CW, Protocol.INPUT_ROTATE_CCW,
+            Protocol.INPUT_DROP_PRESS, Protocol.INPUT_DROP_RELEASE};
+        Random random = new Random(count);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 1 << 16));
+        try {
+            for (int i = 0; i < count; i++) {
+                long seed = random.nextLong();
+                GameEngine engine = new GameEngine(seed);
+                ReplayRecorder recorder = new ReplayRecorder(seed);
+                recorder.record(0, Protocol.INPUT_START);
+                Protocol.applyInput(engine, Protocol.INPUT_START);
+
+                int tick = 0;
+                while (!engine.isGameOver() && tick < MAX_TICKS) {
+                    if (random.nextFloat() < 0.1f) {
+                        byte input = inputs[random.nextInt(inputs.length)];
+                        recorder.record(tick, input);
+                        Protocol.applyInput(engine, input);
+                    }
+                    engine.tick();
+                    tick++;
+                }
+
+                int score = engine.getScore();
+                if (random.nextInt(100) < forged) {
+                    score += 100;
+                }
+                recorder.write(out, tick, score, engine.getLines());
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Entry-point of the verifier.
+     *
+     * @param args The command, the batch file and the number of threads, or
+     * the number of games and forged percentage to generate.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: java ReplayVerifier verify file "
+                    + "[threads] | generate file count [forged%]");
+            return;
+        }
+        if (args[0].equals("generate")) {
+            generate(args[1], Integer.parseInt(args[2]), args.length > 3
+                    ? Integer.parseInt(args[3]) : 10);
+            return;
+        }
+
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(args[1]), 1 << 16));
+        long start = System.nanoTime();
+        long[] counts;
+        try {
+            counts = verifyBatch(in, threads, System.out);
+        } finally {
+            in.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = 0;
+        for (int i = 0; i < RESULT_COUNT; i++) {
+            total += counts[i];
+            System.out.println(describe(i) + ": " + counts[i]);
+        }
+        System.out.println(String.format("%d games in %.2f s: %.0f games/s, "
+                + "%.0f games/s per thread", total, seconds, total / seconds,
+                total / seconds / threads));
+    }
+}
@@ -0,0 +1,192 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code RewindBuffer} class keeps the last few seconds of a game, so
+ * the player can go back through them. A snapshot of the game is recorded
+ * after every tick into a ring of fixed slots in a single buffer, the oldest
+ * one making room for the newest, and stepping back puts the game back the
+ * way it was a tick earlier. Playing on from there records over the ticks
+ * that were rewound.
+ *
+ * The ring holds as many seconds as it is asked to, but never takes more
+ * than its budget of bytes, which only fits a few ticks of a stress sized
+ * board. It is allocated on the first tick and again only if a saved game
+ * of another size is loaded, so recording and stepping back allocate
+ * nothing.
+ *
+ * The buffer isn't safe to share between threads. It belongs to the thread
+ * that first uses it, which is the one that plays the game, and any other
+ * thread that tries to change it is refused.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class RewindBuffer {
+
+    /**
+     * The number of seconds kept if none is given.
+     */
+    public static final int DEFAULT_SECONDS = 10;
+
+    /**
+     * The number of bytes the ring may take if no budget is given.
+     */
+    public static final int DEFAULT_BUDGET = 1 << 20;
+
+    /**
+     * The number of ticks to keep.
+     */
+    private final int maxTicks;
+
+    /**
+     * The number of bytes the ring may take.
+     */
+    private final int budget;
+
+    /**
+     * The snapshot each tick goes through on its way in and out of the
+     * ring, or null before the first tick.
+     */
+    private GameEngine.Snapshot scratch;
+
+    /**
+     * The slots of the ring, {@code slotBytes} bytes each.
+     */
+    private ByteBuffer ring;
+
+    /**
+     * The number of bytes of each slot.
+     */
+    private int slotBytes;
+
+    /**
+     * The number of slots.
+     */
+    private int capacity;
+
+    /**
+     * The slot of the newest snapshot.
+     */
+    private int newest;
+
+    /**
+     * The number of snapshots kept.
+     */
+    private int count;
+
+    /**
+     * The thread the buffer belongs to, or null before it is first used.
+     */
+    private Thread owner;
+
+    /**
+     * Creates a new RewindBuffer.
+     *
+     * @param seconds The number of seconds to keep.
+     * @param budget The number of bytes the ring may take.
+     */
+    public RewindBuffer(int seconds, int budget) {
+        this.maxTicks = Math.max(0, seconds) * GameEngine.TICKS_PER_SECOND;
+        this.budget = Math.max(0, budget);
+    }
+
+    /**
+     * Makes sure the buffer is used by the thread it belongs to, which it
+     * first comes to belong to here.
+     *
+     * @throws IllegalStateException If another thread uses it.
+     */
+    private void checkThread() {
+        Thread current = Thread.currentThread();
+        if (owner == null) {
+            owner = current;
+        } else if (owner != current) {
+            throw new IllegalStateException("The rewind buffer of "
+                    + owner.getName() + " was used by " + current.getName());
+        }
+    }
+
+    /**
+     * Makes room for snapshots of a game, unless there is already room for
+     * them.
+     *
+     * @param engine The game.
+     */
+    private void allocate(GameEngine engine) {
+        if (scratch != null && scratch.fits(engine.getBoard())) {
+            return;
+        }
+        scratch = engine.snapshot();
+        slotBytes = scratch.getByteCount();
+        capacity = Math.min(maxTicks, budget / slotBytes);
+        ring = ByteBuffer.allocate(capacity * slotBytes);
+        count = 0;
+    }
+
+    /**
+     * Records the game the way it is after a tick.
+     *
+     * @param engine The game.
+     */
+    public void record(GameEngine engine) {
+        checkThread();
+        if (maxTicks == 0) {
+            return;
+        }
+        allocate(engine);
+        if (capacity == 0) {
+            return;
+        }
+        newest = (newest + 1) % capacity;
+        count = Math.min(count + 1, capacity);
+        engine.snapshot(scratch);
+        ring.position(newest * slotBytes);
+        scratch.write(ring);
+    }
+
+    /**
+     * Puts the game back the way it was a tick before the newest snapshot,
+     * and forgets the newest.
+     *
+     * @param engine The game.
+     * @return Whether or not there was a tick to go back to.
+     */
+    public boolean stepBack(GameEngine engine) {
+        checkThread();
+        if (count < 2 || !scratch.fits(engine.getBoard())) {
+            return false;
+        }
+        newest = (newest + capacity - 1) % capacity;
+        count--;
+        ring.position(newest * slotBytes);
+        scratch.read(ring);
+        engine.restore(scratch);
+        return true;
+    }
+
+    /**
+     * Forgets every snapshot, as when a new game starts.
+     */
+    public void clear() {
+        checkThread();
+        count = 0;
+    }
+
+    /**
+     * Gets the number of ticks that can be gone back through.
+     *
+     * @return The number of ticks.
+     */
+    public int getCount() {
+        return Math.max(0, count - 1);
+    }
+
+    /**
+     * Gets the most ticks the ring holds, which is 0 before the first tick
+     * is recorded.
+     *
+     * @return The number of ticks.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * The {@code RotationSystem} interface is the rule for where a piece ends up
+ * when it is rotated: which positions are tried, in order, until one fits.
+ * The game uses {@code SrsRotation} unless it is given another one, and the
+ * bots ask the game for its rule so they only plan rotations it allows.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public interface RotationSystem {
+
+    /**
+     * Works out where a piece ends up when it is rotated, without changing
+     * the board.
+     *
+     * @param board The board.
+     * @param type The type of the piece.
+     * @param col The column of the piece.
+     * @param row The row of the piece.
+     * @param rotation The rotation the piece is in.
+     * @param newRotation The rotation to turn the piece to.
+     * @return The new row in the high half and the new column in the low
+     * half, or {@code GameEngine.BLOCKED} if the piece can't be rotated.
+     */
+    long rotate(Board board, TileType type, int col, int row, int rotation,
+            int newRotation);
+}
@@ -115,6 +115,7 @@ public class SidePanel extends JPanel {
      * @param g The Graphics object to use.
      */
     public void paintComponent(Graphics g) {
+        long paintStart = System.nanoTime();
         super.paintComponent(g);
 
         //Set the color for drawing.
@@ -137,11 +138,18 @@ public class SidePanel extends JPanel {
                 TEXT_STRIDE);
         g.drawString("Score: " + tetris.getScore(), LARGE_INSET, offset += 
                 TEXT_STRIDE);
+        g.drawString("Best: " + tetris.getBestScore(), LARGE_INSET,
+                offset += TEXT_STRIDE);
 
         /*
-	 * Draw the "Controls" category.
+	 * Draw the "Controls" category, or the frame timings in its place when
+	 * the overlay is turned on.
          */
-        drawControls(g, offset);
+        if (tetris.getProfiler().isOverlayVisible()) {
+            drawFrameStats(g);
+        } else {
+            drawControls(g, offset);
+        }
 
         /*
 	 * Draw the next piece preview box.
@@ -153,6 +161,9 @@ public class SidePanel extends JPanel {
         
         /*Draws the next tile on the pannel*/
         drawNextTile(g);
+
+        tetris.getProfiler().getSidePaint().record(System.nanoTime()
+                - paintStart);
     }
     
     /*
@@ -162,18 +173,59 @@ public class SidePanel extends JPanel {
         g.setFont(LARGE_FONT);
         g.drawString("Controls", SMALL_INSET, offset = CONTROLS_INSET);
         g.setFont(SMALL_FONT);
-        g.drawString("Left Arrow - Move Left", LARGE_INSET, offset += 
-                TEXT_STRIDE);
-        g.drawString("Right Arrow - Move Right", LARGE_INSET, offset += 
+        g.drawString("Left / Right - Move", LARGE_INSET, offset += 
                 TEXT_STRIDE);
         g.drawString("Z - Rotate Anticlockwise", LARGE_INSET, offset += 
                 TEXT_STRIDE);
         g.drawString("X - Rotate Clockwise", LARGE_INSET, offset += 
                 TEXT_STRIDE);
         g.drawString("Down Arrow - Drop", LARGE_INSET, offset += TEXT_STRIDE);
-        g.drawString("P - Pause Game", LARGE_INSET, offset += TEXT_STRIDE);
-        g.drawString("C - Load Game", LARGE_INSET, offset += TEXT_STRIDE);
-        g.drawString("G - Save Game", LARGE_INSET, offset += TEXT_STRIDE);
+        g.drawString("Space - Hard Drop", LARGE_INSET, offset += TEXT_STRIDE);
+        g.drawString("P / R - Pause / Rewind", LARGE_INSET, offset += 
+                TEXT_STRIDE);
+        g.drawString("G / C - Save / Load", LARGE_INSET, offset += 
+                TEXT_STRIDE);
+        g.drawString("F - Frame Stats", LARGE_INSET, offset += TEXT_STRIDE);
+        g.drawString("B - Bot / Lookahead", LARGE_INSET, offset += 
+                TEXT_STRIDE);
+    }
+
+    /*
+    * Draw the "Frame Stats" category. Each line shows the p50, p99 and max
+    * times of one phase of the frame, in milliseconds.
+    */
+    public void drawFrameStats(Graphics g) {
+        FrameProfiler profiler = tetris.getProfiler();
+        int offset;
+
+        g.setFont(LARGE_FONT);
+        g.drawString("Frame Stats", SMALL_INSET, offset = CONTROLS_INSET);
+        g.setFont(SMALL_FONT);
+        g.drawString("p50 / p99 / max (ms)", LARGE_INSET, offset +=
+                TEXT_STRIDE);
+        drawHistogram(g, profiler.getUpdate(), offset += TEXT_STRIDE);
+        drawHistogram(g, profiler.getRender(), offset += TEXT_STRIDE);
+        drawHistogram(g, profiler.getBoardPaint(), offset += TEXT_STRIDE);
+        drawHistogram(g, profiler.getSidePaint(), offset += TEXT_STRIDE);
+        drawHistogram(g, profiler.getFrame(), offset += TEXT_STRIDE);
+        drawHistogram(g, tetris.getInputLatency().getInputToFrame(),
+                offset += TEXT_STRIDE);
+        g.drawString("Overruns: " + profiler.getOverruns(), LARGE_INSET,
+                offset += TEXT_STRIDE);
+    }
+
+    /**
+     * Draws the name of a histogram, followed by its p50, p99 and max values.
+     *
+     * @param g The graphics object.
+     * @param histogram The histogram to draw.
+     * @param y The y coordinate of the line.
+     */
+    private void drawHistogram(Graphics g, LatencyHistogram histogram, int y) {
+        g.drawString(String.format("%s: %.2f / %.2f / %.2f",
+                histogram.getName(), histogram.getValueAtPercentile(50.0)
+                / 1e6, histogram.getValueAtPercentile(99.0) / 1e6,
+                histogram.getMax() / 1e6), SMALL_INSET, y);
     }
     
     
@@ -30,6 +30,8 @@ public class SoundClip implements Serializable {
             clip = AudioSystem.getClip();
         } catch (LineUnavailableException e) {
 
+        } catch (IllegalArgumentException e) {
+            //No se puede reproducir sonido en esta maquina.
         }
     }
 
@@ -180,7 +182,9 @@ public class SoundClip implements Serializable {
      * Metodo que detiene el sonido.
      */
     public void stop() {
-        clip.stop();
+        if (clip != null) {
+            clip.stop();
+        }
     }
 
 }
@@ -0,0 +1,298 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+
+/**
+ * The {@code SpectatorFeed} class broadcasts the state of one game to any
+ * number of spectators.
+ *
+ * Every tick the changes since the last tick (the rows that changed and the
+ * piece) are encoded once into a frame, and every spectator is sent a
+ * duplicate of that same buffer, so the cost of encoding doesn't grow with the
+ * number of spectators and the bytes are never copied. Every
+ * {@code KEYFRAME_INTERVAL} ticks, and whenever someone joins or falls behind,
+ * a keyframe with the whole board is sent instead so spectators can pick up
+ * the game from there.
+ *
+ * Frames are kept in a small ring. A spectator that is more than a ring's
+ * worth of frames behind skips ahead to the next keyframe; one that is that
+ * far behind in the middle of a frame is disconnected.
+ *
+ * A feed is only ever touched by the thread that ticks its game.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class SpectatorFeed {
+
+    /**
+     * The number of ticks between two regular keyframes.
+     */
+    private static final int KEYFRAME_INTERVAL = 250;
+
+    /**
+     * The number of frames kept in the ring.
+     */
+    private static final int FRAME_COUNT = 64;
+
+    /**
+     * The {@code Subscriber} class is the progress of one spectator through
+     * the frames.
+     */
+    private static class Subscriber {
+
+        /**
+         * The connection to the spectator.
+         */
+        private final WritableByteChannel channel;
+
+        /**
+         * The sequence number of the next frame to send.
+         */
+        private long next;
+
+        /**
+         * The part of a frame that couldn't be written yet, or null.
+         */
+        private ByteBuffer pending;
+
+        /**
+         * The sequence number of the pending frame.
+         */
+        private long pendingSequence;
+
+        /**
+         * Whether or not the spectator has received a keyframe since it
+         * joined or last fell behind.
+         */
+        private boolean isSynced;
+
+        /**
+         * Creates a new Subscriber that starts at the given frame.
+         *
+         * @param channel The connection to the spectator.
+         * @param next The sequence number of the next frame.
+         */
+        private Subscriber(WritableByteChannel channel, long next) {
+            this.channel = channel;
+            this.next = next;
+        }
+    }
+
+    /**
+     * The ring of encoded frames.
+     */
+    private final ByteBuffer[] frames;
+
+    /**
+     * Whether or not each frame in the ring is a keyframe.
+     */
+    private final boolean[] isKeyframe;
+
+    /**
+     * The packed rows of the board, as of the last frame.
+     */
+    private final int[] rows;
+
+    /**
+     * The spectators.
+     */
+    private final ArrayList<Subscriber> subscribers;
+
+    /**
+     * The packed piece, as of the last frame.
+     */
+    private int sentPiece;
+
+    /**
+     * The score, as of the last frame.
+     */
+    private int sentScore;
+
+    /**
+     * The sequence number of the next frame.
+     */
+    private long sequence;
+
+    /**
+     * The number of ticks since the last keyframe.
+     */
+    private int ticksSinceKeyframe;
+
+    /**
+     * Whether or not the next frame has to be a keyframe.
+     */
+    private boolean isKeyframeRequested;
+
+    /**
+     * Creates a new SpectatorFeed with no spectators.
+     */
+    public SpectatorFeed() {
+        this.frames = new ByteBuffer[FRAME_COUNT];
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            frames[i] = ByteBuffer.allocateDirect(Protocol.MAX_STATE_MESSAGE);
+        }
+        this.isKeyframe = new boolean[FRAME_COUNT];
+        this.rows = new int[Board.ROW_COUNT];
+        this.subscribers = new ArrayList<Subscriber>();
+        this.sentPiece = -1;
+        this.isKeyframeRequested = true;
+    }
+
+    /**
+     * Adds a spectator. It will be sent the next keyframe and everything
+     * after it.
+     *
+     * @param channel The connection to the spectator.
+     */
+    public void subscribe(WritableByteChannel channel) {
+        subscribers.add(new Subscriber(channel, sequence));
+        isKeyframeRequested = true;
+    }
+
+    /**
+     * Gets the number of spectators.
+     *
+     * @return The number of spectators.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Encodes what changed in the game since the last frame. Nothing is
+     * encoded if nothing changed, unless a keyframe is due.
+     *
+     * @param engine The game.
+     * @param tick The tick the state belongs to.
+     */
+    public void publish(GameEngine engine, int tick) {
+        ticksSinceKeyframe++;
+        boolean isKey = isKeyframeRequested
+                || ticksSinceKeyframe >= KEYFRAME_INTERVAL;
+
+        Board board = engine.getBoard();
+        int changedMask = 0;
+        for (int row = 0; row < Board.ROW_COUNT; row++) {
+            int packed = board.packRow(row);
+            if (packed != rows[row]) {
+                rows[row] = packed;
+                changedMask |= 1 << row;
+            }
+        }
+
+        int piece = Protocol.packPiece(engine);
+        if (!isKey && changedMask == 0 && piece == sentPiece
+                && engine.getScore() == sentScore) {
+            return;
+        }
+        sentPiece = piece;
+        sentScore = engine.getScore();
+
+        int slot = (int) (sequence % FRAME_COUNT);
+        ByteBuffer frame = frames[slot];
+        frame.clear();
+        if (isKey) {
+            Protocol.writeState(frame, Protocol.MSG_KEYFRAME, engine, tick,
+                    rows, Protocol.ALL_ROWS);
+            ticksSinceKeyframe = 0;
+            isKeyframeRequested = false;
+        } else {
+            Protocol.writeState(frame, Protocol.MSG_STATE, engine, tick, rows,
+                    changedMask);
+        }
+        frame.flip();
+        isKeyframe[slot] = isKey;
+        sequence++;
+    }
+
+    /**
+     * Sends every spectator as many frames as its connection will take.
+     * Spectators whose connection failed are dropped.
+     */
+    public void flush() {
+        for (int i = subscribers.size() - 1; i >= 0; i--) {
+            Subscriber subscriber = subscribers.get(i);
+            try {
+                if (!drain(subscriber)) {
+                    remove(i);
+                }
+            } catch (IOException e) {
+                remove(i);
+            }
+        }
+    }
+
+    /**
+     * Closes every spectator connection.
+     */
+    public void close() {
+        for (int i = subscribers.size() - 1; i >= 0; i--) {
+            remove(i);
+        }
+    }
+
+    /**
+     * Sends a spectator as many frames as its connection will take.
+     *
+     * @param subscriber The spectator.
+     * @return Whether or not the spectator can keep watching.
+     * @throws IOException
+     */
+    private boolean drain(Subscriber subscriber) throws IOException {
+        while (true) {
+            if (subscriber.pending != null) {
+                //The frame was overwritten before we could finish sending it.
+                if (sequence - subscriber.pendingSequence > FRAME_COUNT) {
+                    return false;
+                }
+                subscriber.channel.write(subscriber.pending);
+                if (subscriber.pending.hasRemaining()) {
+                    return true;
+                }
+                subscriber.pending = null;
+            }
+
+            if (subscriber.next == sequence) {
+                return true;
+            }
+
+            /*
+             * If the frames the spectator needs are gone, skip everything
+             * and wait for a fresh keyframe.
+             */
+            if (sequence - subscriber.next >= FRAME_COUNT) {
+                subscriber.next = sequence;
+                subscriber.isSynced = false;
+                isKeyframeRequested = true;
+                return true;
+            }
+
+            int slot = (int) (subscriber.next % FRAME_COUNT);
+            if (!subscriber.isSynced) {
+                if (!isKeyframe[slot]) {
+                    subscriber.next++;
+                    continue;
+                }
+                subscriber.isSynced = true;
+            }
+            subscriber.pending = frames[slot].duplicate();
+            subscriber.pendingSequence = subscriber.next;
+            subscriber.next++;
+        }
+    }
+
+    /**
+     * Drops a spectator and closes its connection.
+     *
+     * @param index The index of the spectator.
+     */
+    private void remove(int index) {
+        Subscriber subscriber = subscribers.remove(index);
+        try {
+            subscriber.channel.close();
+        } catch (IOException e) {
+            System.out.println("Error en " + e.toString());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+import java.io.Serializable;
+
+/**
+ * The {@code SrsRotation} class is the Super Rotation System, the rotation
+ * rule of modern Tetris. A piece turns in place, and if it doesn't fit there
+ * it tries four other offsets, kicking it off walls, the floor and the
+ * stack. The offsets depend on the piece and on the rotations it turns from
+ * and to, and are kept in tables, so a rotation costs at most five
+ * {@code isValidAndEmpty} tests and nothing else.
+ *
+ * The I piece has its own table, the O piece never moves, and every other
+ * piece, including those of other piece sets, uses the table of the J, L, S,
+ * T and Z pieces.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class SrsRotation implements RotationSystem, Serializable {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long serialVersionUID = 4471263018215936025L;
+
+    /**
+     * The number of rotations a piece has.
+     */
+    private static final int ROTATION_COUNT = TileType.ROTATION_COUNT;
+
+    /**
+     * The offsets of the J, L, S, T and Z pieces as the guideline gives
+     * them, with y going up: the rotation turned from, the rotation turned
+     * to, then five x, y pairs in the order they are tried.
+     */
+    private static final int[][] JLSTZ_DATA = {
+        {0, 1, 0, 0, -1, 0, -1, 1, 0, -2, -1, -2},
+        {1, 0, 0, 0, 1, 0, 1, -1, 0, 2, 1, 2},
+        {1, 2, 0, 0, 1, 0, 1, -1, 0, 2, 1, 2},
+        {2, 1, 0, 0, -1, 0, -1, 1, 0, -2, -1, -2},
+        {2, 3, 0, 0, 1, 0, 1, 1, 0, -2, 1, -2},
+        {3, 2, 0, 0, -1, 0, -1, -1, 0, 2, -1, 2},
+        {3, 0, 0, 0, -1, 0, -1, -1, 0, 2, -1, 2},
+        {0, 3, 0, 0, 1, 0, 1, 1, 0, -2, 1, -2}};
+
+    /**
+     * The offsets of the I piece, laid out like {@code JLSTZ_DATA}.
+     */
+    private static final int[][] I_DATA = {
+        {0, 1, 0, 0, -2, 0, 1, 0, -2, -1, 1, 2},
+        {1, 0, 0, 0, 2, 0, -1, 0, 2, 1, -1, -2},
+        {1, 2, 0, 0, -1, 0, 2, 0, -1, 2, 2, -1},
+        {2, 1, 0, 0, 1, 0, -2, 0, 1, -2, -2, 1},
+        {2, 3, 0, 0, 2, 0, -1, 0, 2, 1, -1, -2},
+        {3, 2, 0, 0, -2, 0, 1, 0, -2, -1, 1, 2},
+        {3, 0, 0, 0, 1, 0, -2, 0, 1, -2, -2, 1},
+        {0, 3, 0, 0, -1, 0, 2, 0, -1, 2, 2, -1}};
+
+    /**
+     * The offsets of a piece that turns in place or not at all.
+     */
+    private static final int[] NO_KICKS = {0, 0};
+
+    /**
+     * The offsets of the J, L, S, T and Z pieces, by the rotation turned
+     * from and the rotation turned to, as column and row pairs.
+     */
+    private static final int[][] JLSTZ_KICKS = compile(JLSTZ_DATA);
+
+    /**
+     * The offsets of the I piece, laid out like {@code JLSTZ_KICKS}.
+     */
+    private static final int[][] I_KICKS = compile(I_DATA);
+
+    /**
+     * Turns offsets as the guideline gives them into a table by rotation,
+     * with rows going down like they do on the board. Turns that aren't to
+     * the next rotation either way, like half turns, aren't kicked.
+     *
+     * @param data The offsets.
+     * @return The table.
+     */
+    private static int[][] compile(int[][] data) {
+        int[][] kicks = new int[ROTATION_COUNT * ROTATION_COUNT][];
+        for (int i = 0; i < kicks.length; i++) {
+            kicks[i] = NO_KICKS;
+        }
+        for (int[] transition : data) {
+            int[] offsets = new int[transition.length - 2];
+            for (int i = 0; i < offsets.length; i += 2) {
+                offsets[i] = transition[i + 2];
+                offsets[i + 1] = -transition[i + 3];
+            }
+            kicks[transition[0] * ROTATION_COUNT + transition[1]] = offsets;
+        }
+        return kicks;
+    }
+
+    /**
+     * Gets the offsets a piece tries when it is rotated, in order. This is
+     * the table {@code rotate} goes through, for bots that search it
+     * themselves. The array is shared and must not be changed.
+     *
+     * @param type The type of the piece.
+     * @param rotation The rotation the piece is in.
+     * @param newRotation The rotation to turn the piece to.
+     * @return The offsets, as column and row pairs.
+     */
+    public int[] getKicks(TileType type, int rotation, int newRotation) {
+        if (type == TileType.TypeO) {
+            return NO_KICKS;
+        }
+        int[][] kicks = type == TileType.TypeI ? I_KICKS : JLSTZ_KICKS;
+        return kicks[rotation * ROTATION_COUNT + newRotation];
+    }
+
+    @Override
+    public long rotate(Board board, TileType type, int col, int row,
+            int rotation, int newRotation) {
+        int[] kicks = getKicks(type, rotation, newRotation);
+        for (int i = 0; i < kicks.length; i += 2) {
+            int newCol = col + kicks[i];
+            int newRow = row + kicks[i + 1];
+            if (board.isValidAndEmpty(type, newCol, newRow, newRotation)) {
+                return (long) newRow << 32 | (newCol & 0xffffffffL);
+            }
+        }
+        return GameEngine.BLOCKED;
+    }
+}
@@ -0,0 +1,201 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code StartupBenchmark} class times how long the game takes to start,
+ * with and without a class data sharing archive. The game is launched the
+ * given number of times each way, taking turns, with the
+ * {@code tetris.autoplay} property set so that it closes itself as soon as
+ * it has started. Each launch is timed from the moment it is started until
+ * the game prints its startup report, which it does once the first frame is
+ * painted and the sounds are loaded, and the time of the first frame is read
+ * from the report. The median and the best of both are printed for each way.
+ *
+ * Usage: {@code java StartupBenchmark runs jar archive dir [java]}, where
+ * {@code dir} is the directory the game runs in, which keeps the leaderboard
+ * of its games out of the player's.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class StartupBenchmark {
+
+    /**
+     * The time until the startup report is printed.
+     */
+    private static final int READY = 0;
+
+    /**
+     * The time of the first frame in the startup report.
+     */
+    private static final int FIRST_FRAME = 1;
+
+    /**
+     * The number of timings taken of each launch.
+     */
+    private static final int TIMING_COUNT = 2;
+
+    /**
+     * Launches the game and times it.
+     *
+     * @param command The command that launches the game.
+     * @param dir The directory to run the game in.
+     * @return The timings, in milliseconds, or null if the game didn't
+     * start.
+     * @throws IOException If the game couldn't be launched.
+     * @throws InterruptedException If interrupted while the game closes.
+     */
+    private static double[] launch(List<String> command, File dir)
+            throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.directory(dir);
+        builder.redirectErrorStream(true);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        double[] timings = new double[TIMING_COUNT];
+        Arrays.fill(timings, -1);
+        StringBuilder output = new StringBuilder();
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                process.getInputStream()));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                output.append(line).append('\n');
+                if (line.startsWith("Startup (ms since launch")) {
+                    timings[READY] = (System.nanoTime() - start) / 1.0e6;
+                } else if (line.endsWith("ms  first frame")) {
+                    timings[FIRST_FRAME] = Double.parseDouble(line.substring(
+                            0, line.indexOf("ms")).trim().replace(',', '.'));
+                }
+            }
+        } finally {
+            in.close();
+        }
+        int exit = process.waitFor();
+        if (exit != 0 || timings[READY] < 0 || timings[FIRST_FRAME] < 0) {
+            System.out.println("The game didn't start (exit " + exit + "):");
+            System.out.print(output);
+            return null;
+        }
+        return timings;
+    }
+
+    /**
+     * Gets the median of some timings.
+     *
+     * @param timings The timings.
+     * @param count The number of timings.
+     * @return The median.
+     */
+    private static double median(double[] timings, int count) {
+        double[] sorted = Arrays.copyOf(timings, count);
+        Arrays.sort(sorted);
+        return count % 2 == 1 ? sorted[count / 2]
+                : (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+    }
+
+    /**
+     * Gets the best of some timings.
+     *
+     * @param timings The timings.
+     * @param count The number of timings.
+     * @return The lowest timing.
+     */
+    private static double best(double[] timings, int count) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            best = Math.min(best, timings[i]);
+        }
+        return best;
+    }
+
+    /**
+     * Prints the timings of one way of launching the game.
+     *
+     * @param name The way the game was launched.
+     * @param timings The timings, by kind and then by launch.
+     * @param count The number of launches.
+     */
+    private static void print(String name, double[][] timings, int count) {
+        System.out.println(String.format("%-10s %8.1f %8.1f %10.1f %8.1f",
+                name, median(timings[READY], count),
+                best(timings[READY], count),
+                median(timings[FIRST_FRAME], count),
+                best(timings[FIRST_FRAME], count)));
+    }
+
+    /**
+     * Times the launches of the game.
+     *
+     * @param args The number of launches each way, the jar, the archive, the
+     * directory to run the game in, and the java launcher to use.
+     * @throws IOException If the game couldn't be launched.
+     * @throws InterruptedException If interrupted while a game closes.
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        if (args.length < 4) {
+            System.out.println("Usage: java StartupBenchmark runs jar "
+                    + "archive dir [java]");
+            return;
+        }
+        int runs = Integer.parseInt(args[0]);
+        String jar = new File(args[1]).getAbsolutePath();
+        String archive = new File(args[2]).getAbsolutePath();
+        File dir = new File(args[3]);
+        String java = args.length > 4 ? args[4] : System.getProperty(
+                "java.home") + File.separator + "bin" + File.separator
+                + "java";
+        if (!new File(archive).isFile()) {
+            System.out.println("No archive at " + archive);
+            return;
+        }
+        dir.mkdirs();
+
+        List<String> plain = new ArrayList<String>();
+        plain.add(java);
+        plain.add("-Dtetris.autoplay=0");
+        plain.add("-cp");
+        plain.add(jar);
+        plain.add("Tetris");
+        List<String> shared = new ArrayList<String>(plain);
+        shared.add(1, "-Xshare:auto");
+        shared.add(2, "-XX:SharedArchiveFile=" + archive);
+
+        /*
+         * Launch once each way first and throw the timings away, so the jar
+         * and the archive are in the file cache for every timed launch.
+         */
+        if (launch(plain, dir) == null || launch(shared, dir) == null) {
+            return;
+        }
+        double[][] plainTimings = new double[TIMING_COUNT][runs];
+        double[][] sharedTimings = new double[TIMING_COUNT][runs];
+        for (int i = 0; i < runs; i++) {
+            double[] plainRun = launch(plain, dir);
+            double[] sharedRun = launch(shared, dir);
+            if (plainRun == null || sharedRun == null) {
+                return;
+            }
+            for (int j = 0; j < TIMING_COUNT; j++) {
+                plainTimings[j][i] = plainRun[j];
+                sharedTimings[j][i] = sharedRun[j];
+            }
+        }
+
+        System.out.println(String.format("%d launches each, in ms%n"
+                + "%-10s %8s %8s %10s %8s", runs, "", "ready", "best",
+                "1st frame", "best"));
+        print("default", plainTimings, runs);
+        print("archive", sharedTimings, runs);
+        double before = median(plainTimings[READY], runs);
+        double after = median(sharedTimings[READY], runs);
+        System.out.println(String.format("The archive starts the game %.1f "
+                + "ms (%.0f%%) sooner", before - after,
+                100 * (before - after) / before));
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The {@code StartupReport} class times how the game starts: each phase of
+ * the window being built, each asset loaded in the background and the first
+ * frame painted, in milliseconds since the game was launched. The report is
+ * printed once the first frame is painted and every asset is loaded, which
+ * can happen in either order and on different threads.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class StartupReport {
+
+    /**
+     * The time the report was started, in nanoseconds.
+     */
+    private final long start;
+
+    /**
+     * The milliseconds the process ran before the report was started, or -1
+     * if the operating system doesn't say when the process started.
+     */
+    private final long launchMillis;
+
+    /**
+     * The lines of the report, in the order they happened.
+     */
+    private final List<String> lines;
+
+    /**
+     * Whether or not the first frame has been painted.
+     */
+    private boolean isFramePainted;
+
+    /**
+     * Whether or not every asset has been loaded.
+     */
+    private boolean isLoaded;
+
+    /**
+     * Whether or not the report has been printed.
+     */
+    private boolean isPrinted;
+
+    /**
+     * Creates a new StartupReport, starting the clock.
+     */
+    public StartupReport() {
+        this.start = System.nanoTime();
+        Optional<Instant> launch = ProcessHandle.current().info()
+                .startInstant();
+        this.launchMillis = launch.isPresent() ? System.currentTimeMillis()
+                - launch.get().toEpochMilli() : -1;
+        this.lines = new ArrayList<String>();
+    }
+
+    /**
+     * Records that a phase of the startup has finished.
+     *
+     * @param phase The name of the phase.
+     */
+    public synchronized void phase(String phase) {
+        lines.add(String.format("%8.1f ms  %s", sinceLaunch(), phase));
+    }
+
+    /**
+     * Records that an asset has been loaded.
+     *
+     * @param name The name of the asset.
+     * @param nanos The time it took to load, in nanoseconds.
+     */
+    public synchronized void asset(String name, long nanos) {
+        lines.add(String.format("%8.1f ms  loaded %s in %.1f ms on %s",
+                sinceLaunch(), name, nanos / 1.0e6,
+                Thread.currentThread().getName()));
+    }
+
+    /**
+     * Records that the first frame has been painted. Only the first call
+     * counts.
+     */
+    public synchronized void framePainted() {
+        if (!isFramePainted) {
+            isFramePainted = true;
+            phase("first frame");
+            printIfDone();
+        }
+    }
+
+    /**
+     * Records that every asset has been loaded.
+     */
+    public synchronized void loaded() {
+        isLoaded = true;
+        phase("assets loaded");
+        printIfDone();
+    }
+
+    /**
+     * Prints the report once both the first frame and the assets are in.
+     */
+    private void printIfDone() {
+        if (isFramePainted && isLoaded && !isPrinted) {
+            isPrinted = true;
+            print(System.out);
+        }
+    }
+
+    /**
+     * Checks to see whether or not the report has been printed.
+     *
+     * @return Whether or not the first frame is painted and every asset is
+     * loaded.
+     */
+    public synchronized boolean isDone() {
+        return isPrinted;
+    }
+
+    /**
+     * Prints the report.
+     *
+     * @param out The stream to print to.
+     */
+    public synchronized void print(PrintStream out) {
+        out.println("Startup (ms since launch"
+                + (launchMillis < 0 ? ", launch unknown" : "") + "):");
+        for (String line : lines) {
+            out.println(line);
+        }
+    }
+
+    /**
+     * Gets the time since the game was launched, or since the report was
+     * started if the launch time isn't known.
+     *
+     * @return The time, in milliseconds.
+     */
+    private double sinceLaunch() {
+        return Math.max(launchMillis, 0) + (System.nanoTime() - start)
+                / 1.0e6;
+    }
+}
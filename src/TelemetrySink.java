@@ -0,0 +1,606 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The {@code TelemetrySink} class writes one small record for every gameplay
+ * event to a local file, so games can be analysed offline.
+ *
+ * Events are put into a preallocated ring of primitive slots and written by a
+ * background thread in batches, so the game loop never waits for the disk.
+ * When the ring is full the event is dropped and counted instead of blocking,
+ * and the writer records the count in the file whenever it grows.
+ * Files are rotated once they reach a size limit, and only the newest few are
+ * kept.
+ *
+ * The sink is configured with system properties: {@code tetris.telemetry}
+ * selects the format ({@code json} or {@code binary}, anything else turns
+ * telemetry off) and {@code tetris.telemetry.dir} the directory to write to.
+ * Event times are in nanoseconds (microseconds in JSON) since the sink was
+ * created.
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class TelemetrySink {
+
+    /**
+     * The file formats the sink can write.
+     */
+    public enum Format {
+
+        /**
+         * Fixed-size big-endian records after a short header.
+         */
+        BINARY("bin"),
+
+        /**
+         * One JSON object per line.
+         */
+        JSON_LINES("jsonl");
+
+        /**
+         * The file extension of the format.
+         */
+        private final String extension;
+
+        /**
+         * Creates a new Format.
+         *
+         * @param extension The file extension.
+         */
+        private Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * A new piece was spawned. a = type.
+     */
+    public static final int SPAWN = 1;
+
+    /**
+     * A piece was locked. a = type, b = column, c = rotation << 16 | row,
+     * with the row in the low 16 bits as a signed short, since a piece can
+     * lock with its top rows above the board.
+     */
+    public static final int PLACEMENT = 2;
+
+    /**
+     * Lines were cleared. a = count.
+     */
+    public static final int LINES = 3;
+
+    /**
+     * The score changed. a = score, b = change.
+     */
+    public static final int SCORE = 4;
+
+    /**
+     * The game was paused or resumed. a = 1 if paused.
+     */
+    public static final int PAUSE = 5;
+
+    /**
+     * The game was saved. a = bytes written.
+     */
+    public static final int SAVE = 6;
+
+    /**
+     * The game is over. a = score, b = level.
+     */
+    public static final int GAME_OVER = 7;
+
+    /**
+     * Events were dropped because the ring was full. a = the number dropped
+     * so far. Written by the writer itself whenever the number has grown.
+     */
+    public static final int DROPPED = 8;
+
+    /**
+     * The names of the event kinds, used by the JSON format.
+     */
+    private static final String[] KIND_NAMES = {null, "spawn", "placement",
+        "lines", "score", "pause", "save", "gameover", "dropped"};
+
+    /**
+     * The magic number at the start of every binary file ("TTLM").
+     */
+    private static final int BINARY_MAGIC = 0x54544c4d;
+
+    /**
+     * The version of the binary format.
+     */
+    private static final int BINARY_VERSION = 2;
+
+    /**
+     * The number of slots in the ring. Must be a power of two.
+     */
+    private static final int CAPACITY = 4096;
+
+    /**
+     * How long the writer waits between batches, in milliseconds.
+     */
+    private static final long FLUSH_MILLIS = 200L;
+
+    /**
+     * The size a file may reach before a new one is started.
+     */
+    private static final long MAX_FILE_BYTES = 8L * 1024L * 1024L;
+
+    /**
+     * The number of files that are kept.
+     */
+    private static final int MAX_FILES = 5;
+
+    /**
+     * Whether or not events are recorded at all.
+     */
+    private final boolean isEnabled;
+
+    /**
+     * The format of the files.
+     */
+    private final Format format;
+
+    /**
+     * The directory the files are written to.
+     */
+    private final File directory;
+
+    /**
+     * The time the sink was created; event times are relative to it.
+     */
+    private final long startTime;
+
+    /**
+     * The wall clock time the sink was created, used to name its files.
+     */
+    private final long runId;
+
+    /**
+     * The times of the events in the ring.
+     */
+    private final long[] times = new long[CAPACITY];
+
+    /**
+     * The kinds of the events in the ring.
+     */
+    private final int[] kinds = new int[CAPACITY];
+
+    /**
+     * The types of piece of the events in the ring, or null for the events
+     * that have none. Kept as given, so a load of another piece set can't
+     * change how the events before it are named.
+     */
+    private final TileType[] types = new TileType[CAPACITY];
+
+    /**
+     * The first value of the events in the ring.
+     */
+    private final int[] valuesA = new int[CAPACITY];
+
+    /**
+     * The second value of the events in the ring.
+     */
+    private final int[] valuesB = new int[CAPACITY];
+
+    /**
+     * The third value of the events in the ring.
+     */
+    private final int[] valuesC = new int[CAPACITY];
+
+    /**
+     * The index of the oldest event that hasn't been written yet.
+     */
+    private long head;
+
+    /**
+     * The index the next event will be put at.
+     */
+    private long tail;
+
+    /**
+     * The number of events dropped because the ring was full.
+     */
+    private long dropped;
+
+    /**
+     * Whether or not the writer should keep running.
+     */
+    private boolean isRunning;
+
+    /**
+     * The thread that writes the events.
+     */
+    private Thread writer;
+
+    /**
+     * The file being written, or null before the first batch.
+     */
+    private DataOutputStream out;
+
+    /**
+     * The number of bytes written to the current file.
+     */
+    private long fileBytes;
+
+    /**
+     * The sequence number of the current file.
+     */
+    private int fileIndex;
+
+    /**
+     * The line being built by the JSON format. Only used by the writer.
+     */
+    private final StringBuilder line = new StringBuilder(96);
+
+    /**
+     * Creates a new TelemetrySink. The writer is not started until
+     * {@code start} is called.
+     *
+     * @param format The format, or null to record nothing.
+     * @param directory The directory to write to.
+     */
+    public TelemetrySink(Format format, File directory) {
+        this.isEnabled = format != null;
+        this.format = format;
+        this.directory = directory;
+        this.startTime = System.nanoTime();
+        this.runId = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates a sink configured by the {@code tetris.telemetry} and
+     * {@code tetris.telemetry.dir} system properties.
+     *
+     * @return The sink. It records nothing if telemetry is turned off.
+     */
+    public static TelemetrySink fromSystemProperties() {
+        String value = System.getProperty("tetris.telemetry", "");
+        Format format = null;
+        if (value.equalsIgnoreCase("json")) {
+            format = Format.JSON_LINES;
+        } else if (value.equalsIgnoreCase("binary")) {
+            format = Format.BINARY;
+        }
+        return new TelemetrySink(format, new File(System.getProperty(
+                "tetris.telemetry.dir", "telemetry")));
+    }
+
+    /**
+     * Starts the writer thread, if telemetry is turned on.
+     */
+    public synchronized void start() {
+        if (!isEnabled || isRunning) {
+            return;
+        }
+        isRunning = true;
+        writer = new Thread("Telemetry Writer") {
+
+            @Override
+            public void run() {
+                writeLoop();
+            }
+
+        };
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops the writer after it has written every queued event, and closes
+     * the file.
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (!isRunning) {
+                return;
+            }
+            isRunning = false;
+            notifyAll();
+            thread = writer;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records that a piece was spawned.
+     *
+     * @param type The type of the piece.
+     */
+    public void spawn(TileType type) {
+        offer(SPAWN, type, type.getType(), 0, 0);
+    }
+
+    /**
+     * Records where a piece was locked.
+     *
+     * @param type The type of the piece.
+     * @param col The column of the piece.
+     * @param row The row of the piece.
+     * @param rotation The rotation of the piece.
+     */
+    public void placement(TileType type, int col, int row, int rotation) {
+        offer(PLACEMENT, type, type.getType(), col,
+                rotation << 16 | row & 0xffff);
+    }
+
+    /**
+     * Records that lines were cleared.
+     *
+     * @param count The number of lines.
+     */
+    public void lines(int count) {
+        offer(LINES, null, count, 0, 0);
+    }
+
+    /**
+     * Records a change of score.
+     *
+     * @param score The new score.
+     * @param change The points added.
+     */
+    public void score(int score, int change) {
+        offer(SCORE, null, score, change, 0);
+    }
+
+    /**
+     * Records that the game was paused or resumed.
+     *
+     * @param isPaused Whether or not the game is now paused.
+     */
+    public void pause(boolean isPaused) {
+        offer(PAUSE, null, isPaused ? 1 : 0, 0, 0);
+    }
+
+    /**
+     * Records that the game was saved.
+     *
+     * @param bytes The number of bytes written.
+     */
+    public void save(long bytes) {
+        offer(SAVE, null, (int) bytes, 0, 0);
+    }
+
+    /**
+     * Records that the game is over.
+     *
+     * @param score The final score.
+     * @param level The final level.
+     */
+    public void gameOver(int score, int level) {
+        offer(GAME_OVER, null, score, level, 0);
+    }
+
+    /**
+     * Gets the number of events dropped because the ring was full.
+     *
+     * @return The number of dropped events.
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Puts an event into the ring, or drops it if the ring is full.
+     *
+     * @param kind The kind of event.
+     * @param type The type of piece, or null if the event has none.
+     * @param a The first value.
+     * @param b The second value.
+     * @param c The third value.
+     */
+    private void offer(int kind, TileType type, int a, int b, int c) {
+        if (!isEnabled) {
+            return;
+        }
+        long time = System.nanoTime() - startTime;
+        synchronized (this) {
+            if (tail - head == CAPACITY) {
+                dropped++;
+                return;
+            }
+            int slot = (int) tail & (CAPACITY - 1);
+            times[slot] = time;
+            kinds[slot] = kind;
+            types[slot] = type;
+            valuesA[slot] = a;
+            valuesB[slot] = b;
+            valuesC[slot] = c;
+            tail++;
+        }
+    }
+
+    /**
+     * The body of the writer thread. Waits for a batch to build up, copies it
+     * out of the ring and writes it outside the lock.
+     */
+    private void writeLoop() {
+        long[] batchTimes = new long[CAPACITY];
+        int[] batchKinds = new int[CAPACITY];
+        TileType[] batchTypes = new TileType[CAPACITY];
+        int[] batchA = new int[CAPACITY];
+        int[] batchB = new int[CAPACITY];
+        int[] batchC = new int[CAPACITY];
+        long reported = 0;
+        boolean isLast = false;
+
+        while (!isLast) {
+            int count = 0;
+            long lost;
+            synchronized (this) {
+                if (isRunning) {
+                    try {
+                        wait(FLUSH_MILLIS);
+                    } catch (InterruptedException e) {
+                        isRunning = false;
+                    }
+                }
+                isLast = !isRunning;
+                while (head != tail) {
+                    int slot = (int) head & (CAPACITY - 1);
+                    batchTimes[count] = times[slot];
+                    batchKinds[count] = kinds[slot];
+                    batchTypes[count] = types[slot];
+                    types[slot] = null;
+                    batchA[count] = valuesA[slot];
+                    batchB[count] = valuesB[slot];
+                    batchC[count] = valuesC[slot];
+                    count++;
+                    head++;
+                }
+                lost = dropped;
+            }
+
+            try {
+                for (int i = 0; i < count; i++) {
+                    try {
+                        write(batchTimes[i], batchKinds[i], batchTypes[i],
+                                batchA[i], batchB[i], batchC[i]);
+                    } catch (RuntimeException e) {
+                        //A bad event mustn't stop the ones after it.
+                        System.out.println("Error en " + e.toString());
+                    }
+                    batchTypes[i] = null;
+                }
+                if (lost != reported) {
+                    write(System.nanoTime() - startTime, DROPPED, null,
+                            (int) Math.min(lost, Integer.MAX_VALUE), 0, 0);
+                    reported = lost;
+                }
+                if (out != null) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                System.out.println("Error en " + e.toString());
+            }
+        }
+
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Error en " + e.toString());
+        }
+    }
+
+    /**
+     * Writes a single event to the current file, rotating it first if it is
+     * full.
+     *
+     * @param time The time of the event.
+     * @param kind The kind of event.
+     * @param type The type of piece, or null if the event has none.
+     * @param a The first value.
+     * @param b The second value.
+     * @param c The third value.
+     * @throws IOException
+     */
+    private void write(long time, int kind, TileType type, int a, int b,
+            int c) throws IOException {
+        if (out == null || fileBytes >= MAX_FILE_BYTES) {
+            rotate();
+        }
+
+        if (format == Format.BINARY) {
+            out.writeByte(kind);
+            out.writeLong(time);
+            out.writeInt(a);
+            out.writeInt(b);
+            out.writeInt(c);
+            fileBytes += 21;
+            return;
+        }
+
+        line.setLength(0);
+        line.append("{\"t\":").append(time / 1000L)
+                .append(",\"e\":\"").append(KIND_NAMES[kind]).append('"');
+        switch (kind) {
+            case SPAWN:
+                line.append(",\"type\":\"")
+                        .append(type.getName()).append('"');
+                break;
+            case PLACEMENT:
+                line.append(",\"type\":\"")
+                        .append(type.getName())
+                        .append("\",\"col\":").append(b)
+                        .append(",\"row\":").append((short) c)
+                        .append(",\"rotation\":").append(c >>> 16);
+                break;
+            case LINES:
+                line.append(",\"count\":").append(a);
+                break;
+            case SCORE:
+                line.append(",\"score\":").append(a)
+                        .append(",\"change\":").append(b);
+                break;
+            case PAUSE:
+                line.append(",\"paused\":").append(a == 1);
+                break;
+            case SAVE:
+                line.append(",\"bytes\":").append(a);
+                break;
+            case GAME_OVER:
+                line.append(",\"score\":").append(a)
+                        .append(",\"level\":").append(b);
+                break;
+            case DROPPED:
+                line.append(",\"count\":").append(a);
+                break;
+        }
+        line.append("}\n");
+
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        fileBytes += bytes.length;
+    }
+
+    /**
+     * Closes the current file, starts the next one and deletes the oldest
+     * file if there are too many.
+     *
+     * @throws IOException
+     */
+    private void rotate() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        directory.mkdirs();
+
+        fileIndex++;
+        File old = fileFor(fileIndex - MAX_FILES);
+        if (old.exists()) {
+            old.delete();
+        }
+
+        out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(fileFor(fileIndex)), 64 * 1024));
+        fileBytes = 0;
+        if (format == Format.BINARY) {
+            out.writeInt(BINARY_MAGIC);
+            out.writeByte(BINARY_VERSION);
+            fileBytes = 5;
+        }
+    }
+
+    /**
+     * Gets the file with the given sequence number. Each run uses its own
+     * prefix so it doesn't overwrite the files of an earlier run.
+     *
+     * @param index The sequence number.
+     * @return The file.
+     */
+    private File fileFor(int index) {
+        return new File(directory, "telemetry-" + runId + "-" + index + "."
+                + format.extension);
+    }
+}
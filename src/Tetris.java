@@ -1,16 +1,56 @@
 
 import java.awt.BorderLayout;
+import java.awt.Dimension;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
 import javax.swing.JFrame;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 
 /**
- * The {@code Tetris} class is responsible for handling much of the game logic
- * and reading user input.
+ * The {@code Tetris} class is responsible for running the game loop, reading
+ * user input and playing sounds. The rules themselves live in the
+ * {@code GameEngine}.
+ *
+ * The board is standard unless the {@code tetris.cols} and
+ * {@code tetris.rows} properties give it another number of columns and
+ * visible rows, or the {@code tetris.pieces} property names another
+ * {@code PieceSet} to play with. A board too big for the screen scrolls to
+ * follow the piece. The bots and the leaderboard only work on standard
+ * boards. Pieces rotate by the Super Rotation System unless the
+ * {@code tetris.rotation} property is {@code classic}, which keeps the old
+ * rule, and lock after resting for the {@code Gravity} lock delay, which the
+ * {@code tetris.lock} and {@code tetris.resets} properties can change, in
+ * ticks and in resets per piece. Scores made with other rules stay off the
+ * leaderboard, so that every score there was played by the same rules.
+ *
+ * The game moves on one tick every frame. Keys are read by a
+ * {@code KeyboardController} at the start of each tick, with the delayed
+ * auto-shift and auto-repeat rate given in ticks by the {@code tetris.das}
+ * and {@code tetris.arr} properties.
+ *
+ * The game loop doesn't play sounds, animate the board or write telemetry
+ * itself. It publishes what happens on an {@code EventBus}, and each of
+ * those is done by a handler on its own thread, so none of them can hold
+ * the game up.
+ *
+ * Holding R takes the game back through its last few seconds, which a
+ * {@code RewindBuffer} keeps: {@code tetris.rewind} seconds, 10 unless set,
+ * in at most {@code tetris.rewind.budget} kilobytes. A game that was rewound
+ * is practice, and stays off the leaderboard.
+ *
+ * If the {@code tetris.autoplay} property is set, a game starts straight
+ * away with the bot playing, and the window closes itself once the startup
+ * report is printed and the bot has played that many ticks. The build's
+ * training run for the class data sharing archive and the startup benchmark
+ * launch the game this way.
  *
  * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
  *
@@ -28,15 +68,64 @@ public class Tetris extends JFrame implements Serializable {
     private static final long FRAME_TIME = 1000L / 50L;
 
     /**
-     * The number of pieces that exist.
+     * The time the bot that looks further ahead may take per move, in
+     * nanoseconds: half a frame, so the game keeps its frame rate.
+     */
+    private static final long LOOKAHEAD_BUDGET = FRAME_TIME * 1000000L / 2L;
+
+    /**
+     * The number of nanoseconds per tick of the game.
+     */
+    private static final long TICK_TIME = 1000000000L
+            / GameEngine.TICKS_PER_SECOND;
+
+    /**
+     * The most ticks run in one frame to catch up after a slow one. Past
+     * that the game slows down instead.
+     */
+    private static final int MAX_CATCH_UP = 5;
+
+    /**
+     * The number of ticks the game goes back each tick the rewind key is
+     * held, so going back is quicker than playing was.
+     */
+    private static final int REWIND_SPEED = 2;
+
+    /**
+     * The number of sounds the game plays.
+     */
+    private static final int SOUND_COUNT = 5;
+
+    /**
+     * The widest the view of the board gets before it scrolls, in pixels.
+     */
+    private static final int MAX_VIEW_WIDTH = BoardPanel.PANEL_WIDTH * 4;
+
+    /**
+     * The tallest the view of the board gets before it scrolls, in pixels.
+     */
+    private static final int MAX_VIEW_HEIGHT = BoardPanel.PANEL_HEIGHT;
+
+    /**
+     * The GameEngine instance that holds the state of the game.
      */
-    private static final int TYPE_COUNT = TileType.values().length;
+    private GameEngine engine;
 
     /**
      * The BoardPanel instance.
      */
     private BoardPanel board;
 
+    /**
+     * The scroll pane the BoardPanel is shown in.
+     */
+    private JScrollPane boardView;
+
+    /**
+     * Scrolls the board to the piece, on the event dispatch thread.
+     */
+    transient private Runnable followPiece;
+
     /**
      * The SidePanel instance.
      */
@@ -45,115 +134,165 @@ public class Tetris extends JFrame implements Serializable {
     /**
      * Whether or not the game is paused.
      */
-    private boolean isPaused;
+    private volatile boolean isPaused;
 
     /**
-     * Whether or not we've played a game yet. This is set to true initially and
-     * then set to false when the game starts.
+     * The keyboard, which plays the game while the bot isn't.
      */
-    private boolean isNewGame;
+    transient private KeyboardController keyboard;
 
     /**
-     * Whether or not the game is over.
+     * Name of the file where the game's progress is saved.
      */
-    private boolean isGameOver;
+    private String nombreArchivo;    //Nombre del archivo.
 
     /**
-     * The current level we're on.
+     * Background Music.
      */
-    private int level;
+    transient private Future<SoundClip> souBackgroundB;
 
     /**
-     * The current score.
+     * clockwise turn Music.
      */
-    private int score;
+    transient private Future<SoundClip> souTurnCW;
 
     /**
-     * The random number generator. This is used to spit out pieces randomly.
+     * Counter clockwise turn Music.
      */
-    private Random random;
+    transient private Future<SoundClip> souTurnCCW;
 
     /**
-     * The clock that handles the update logic.
+     * Counter clockwise turn Music.
      */
-    transient private Clock logicTimer;
+    transient private Future<SoundClip> souClick;
 
     /**
-     * The current type of tile.
+     * Counter clockwise turn Music.
      */
-    private TileType currentType;
+    private int iCounterAddedPiece;
 
     /**
-     * The next type of tile.
+     * Counter clockwise turn Music.
      */
-    private TileType nextType;
+    transient private Future<SoundClip> souLevelUp;
 
     /**
-     * The current column of our tile.
+     * The profiler that keeps the frame timings.
      */
-    private int currentCol;
+    transient private FrameProfiler profiler;
 
     /**
-     * Name of the file where the game's progress is saved.
+     * The tracker that measures the time from a key press to the screen.
      */
-    private String nombreArchivo;    //Nombre del archivo.
+    transient private InputLatencyTracker inputLatency;
 
     /**
-     * The current row of our tile.
+     * The stamp of the soft drop key press that hasn't moved the piece yet,
+     * or 0 if there is none.
      */
-    private int currentRow;
+    transient private volatile long softDropStamp;
 
     /**
-     * The current rotation of our tile.
+     * The sink that writes gameplay events to disk for offline analysis.
      */
-    private int currentRotation;
+    transient private TelemetrySink telemetry;
 
     /**
-     * Ensures that a certain amount of time passes after a piece is spawned
-     * before we can drop it.
+     * The piece sets the game has played with, in the order it first used
+     * them. The bus only carries numbers, so it names a set by its index.
      */
-    private int dropCooldown;
+    transient private volatile PieceSet[] pieceSets;
 
     /**
-     * The speed of the game.
+     * The bus the game publishes what happens on, for the sounds, the board
+     * and the telemetry to react to.
      */
-    private float gameSpeed;
+    transient private EventBus events;
 
     /**
-     * Background Music.
+     * The bot that plays the game while {@code isBotPlaying} is set.
      */
-    transient private SoundClip souBackgroundB;
+    transient private BotController bot;
 
     /**
-     * clockwise turn Music.
+     * The bot that looks further ahead, which plays instead of {@code bot}
+     * while {@code isLookahead} is set.
      */
-    transient private SoundClip souTurnCW;
+    transient private MonteCarloController lookaheadBot;
 
     /**
-     * Counter clockwise turn Music.
+     * Whether or not the bot is playing.
      */
-    transient private SoundClip souTurnCCW;
+    transient private volatile boolean isBotPlaying;
 
     /**
-     * Counter clockwise turn Music.
+     * Whether or not the bot that looks further ahead is the one playing.
      */
-    private SoundClip souClick;
+    transient private volatile boolean isLookahead;
 
     /**
-     * Counter clockwise turn Music.
+     * The last few seconds of the game, to go back through.
      */
-    private int iCounterAddedPiece;
+    transient private RewindBuffer rewind;
 
     /**
-     * Counter clockwise turn Music.
+     * Whether or not the rewind key is held.
+     */
+    transient private volatile boolean isRewinding;
+
+    /**
+     * Whether or not the saved game is to be loaded, which the game's thread
+     * does at the start of its next frame.
+     */
+    transient private volatile boolean isLoadPending;
+
+    /**
+     * Whether or not the game is to be saved, which the game's thread does
+     * at the start of its next frame.
+     */
+    transient private volatile boolean isSavePending;
+
+    /**
+     * Whether or not the game was rewound, loaded or played by a bot, any
+     * of which keeps it off the leaderboard.
      */
-    private SoundClip souLevelUp;
+    transient private boolean isPractice;
+
+    /**
+     * The leaderboard every finished game is added to, or null if it
+     * couldn't be opened.
+     */
+    transient private Leaderboard leaderboard;
+
+    /**
+     * The name the games are added to the leaderboard under.
+     */
+    private String playerName;
+
+    /**
+     * The best score of the player on the leaderboard.
+     */
+    private int bestScore;
+
+    /**
+     * The timings of the startup, printed once the first frame is painted
+     * and the sounds are loaded.
+     */
+    transient private StartupReport startup;
+
+    /**
+     * The number of ticks the bot still plays before the game closes itself,
+     * or -1 if the game is played as usual.
+     */
+    transient private int autoplayTicks;
 
     /**
      * Creates a new Tetris instance. Sets up the window's properties, and adds
      * a controller listener.
+     *
+     * @param startup The timings of the startup.
      */
-    private Tetris() {
+    private Tetris(StartupReport startup) {
         /*
 		 * Set the basic properties of the window.
          */
@@ -161,33 +300,128 @@ public class Tetris extends JFrame implements Serializable {
         setLayout(new BorderLayout());
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setResizable(false);
+        this.startup = startup;
+        this.autoplayTicks = Integer.getInteger("tetris.autoplay", -1);
+        startup.phase("frame created");
+
+        /*
+         * Initialize the profiler before the panels, since they record their
+         * paint times into it.
+         */
+        this.profiler = new FrameProfiler();
+        this.inputLatency = new InputLatencyTracker();
+
+        /*
+         * Start the telemetry writer. It does nothing unless it was turned on
+         * with the tetris.telemetry property.
+         */
+        this.telemetry = TelemetrySink.fromSystemProperties();
+        telemetry.start();
+        startup.phase("telemetry started");
+
+        /*
+         * Open the leaderboard. The game still works without one.
+         */
+        this.playerName = System.getProperty("tetris.player",
+                System.getProperty("user.name", "player"));
+        try {
+            this.leaderboard = new Leaderboard(new File(System.getProperty(
+                    "tetris.leaderboard.dir", "leaderboard")));
+            Leaderboard.Entry best = leaderboard.best(playerName);
+            this.bestScore = best == null ? 0 : best.getScore();
+        } catch (IOException e) {
+            System.out.println("Error en " + e.toString());
+        }
+
+        /*
+         * Initialize the engine before the panels, since they draw its state.
+         */
+        PieceSet pieceSet = PieceSet.STANDARD;
+        try {
+            pieceSet = PieceSet.forName(System.getProperty("tetris.pieces",
+                    PieceSet.STANDARD_NAME));
+        } catch (IOException e) {
+            System.out.println("Error en " + e.toString());
+        }
+        this.engine = new GameEngine(new PieceRandom(System.nanoTime()),
+                Integer.getInteger("tetris.cols", Board.COL_COUNT),
+                Integer.getInteger("tetris.rows", Board.VISIBLE_ROW_COUNT),
+                pieceSet);
+        if ("classic".equals(System.getProperty("tetris.rotation"))) {
+            engine.setRotationSystem(new ClassicRotation());
+        }
+        int lockDelay = Integer.getInteger("tetris.lock",
+                Gravity.DEFAULT_LOCK_DELAY);
+        int lockResets = Integer.getInteger("tetris.resets",
+                Gravity.DEFAULT_MAX_RESETS);
+        if (lockDelay != Gravity.DEFAULT_LOCK_DELAY
+                || lockResets != Gravity.DEFAULT_MAX_RESETS) {
+            engine.setGravity(new Gravity(lockDelay, lockResets));
+        }
+        this.pieceSets = new PieceSet[] {pieceSet};
+        startup.phase("engine created");
+        int das = Integer.getInteger("tetris.das",
+                KeyboardController.DEFAULT_DAS);
+        int arr = Integer.getInteger("tetris.arr",
+                KeyboardController.DEFAULT_ARR);
+        this.keyboard = new KeyboardController(das, arr,
+                KeyboardController.DEFAULT_BUFFER, inputLatency);
+        this.rewind = new RewindBuffer(Integer.getInteger("tetris.rewind",
+                RewindBuffer.DEFAULT_SECONDS), Integer.getInteger(
+                "tetris.rewind.budget", RewindBuffer.DEFAULT_BUDGET >> 10)
+                << 10);
+        this.bot = new BotController(Heuristic.DEFAULT, 1);
+        this.lookaheadBot = new MonteCarloController(Heuristic.DEFAULT, 1,
+                ForkJoinPool.commonPool(), LOOKAHEAD_BUDGET, System.nanoTime());
 
         /*
 		 * Initialize the BoardPanel and SidePanel instances.
          */
         this.board = new BoardPanel(this);
         this.side = new SidePanel(this);
+        this.boardView = new JScrollPane(board);
+        boardView.setBorder(null);
+        fitBoardView();
+        this.followPiece = new Runnable() {
+
+            @Override
+            public void run() {
+                board.followPiece();
+            }
+
+        };
 
         /*
 		 * Add the BoardPanel and SidePanel instances to the window.
          */
-        add(board, BorderLayout.CENTER);
+        add(boardView, BorderLayout.CENTER);
         add(side, BorderLayout.EAST);
 
+        startup.phase("panels built");
+
         /*
-		* Initialize Sound Clips 
+         * Ask for the sounds, which load in the background once the window
+         * is shown, and are waited for the first time they play.
          */
-        souBackgroundB = new SoundClip("audio/BackgroundB.wav");
-        souTurnCCW = new SoundClip("audio/TurnCCW.wav");
-        souTurnCW = new SoundClip("audio/TurnCW.wav");
-        souClick = new SoundClip("audio/click.wav");
-        souLevelUp = new SoundClip("audio/LevelUp.wav");
+        AssetLoader assets = new AssetLoader(SOUND_COUNT, startup);
+        souBackgroundB = assets.loadSound("audio/BackgroundB.wav");
+        souTurnCCW = assets.loadSound("audio/TurnCCW.wav");
+        souTurnCW = assets.loadSound("audio/TurnCW.wav");
+        souClick = assets.loadSound("audio/click.wav");
+        souLevelUp = assets.loadSound("audio/LevelUp.wav");
 
         /*
 	 * Initialize File Name
          */
         nombreArchivo = "LoadFile.dat";//nombre del archivo
 
+        /*
+         * Start the handlers of the game's events.
+         */
+        this.events = new EventBus();
+        subscribeHandlers();
+        keyboard.setBus(events);
+
         /*
 	 * Initialize counter
          */
@@ -200,77 +434,25 @@ public class Tetris extends JFrame implements Serializable {
 
             @Override
             public void keyPressed(KeyEvent e) {
-
-                switch (e.getKeyCode()) {
-
-                    /*
-                    * Drop - When pressed, we check to see that the game is not
-                    * paused and that there is no drop cooldown, then set the
-                    * logic timer to run at a speed of 25 cycles per second.
-                     */
-                    case KeyEvent.VK_DOWN:
-                        if (!isPaused && dropCooldown == 0) {
-                            logicTimer.setCyclesPerSecond(25.0f);
-                        }
-                        break;
-
-                    /*
-                     * Move Left - When pressed, we check to see that the game 
-                     * is not paused and that the position to the left of the 
-                     * current position is valid. If so, we decrement 
-                     * the current column by 1.
-                     */
-                    case KeyEvent.VK_LEFT:
-                        if (!isPaused && board.isValidAndEmpty(currentType,
-                                currentCol - 1, currentRow, currentRotation)) {
-                            currentCol--;
+                long stamp = InputLatencyTracker.stamp();
+
+                /*
+                 * The keys that play the game are read by the keyboard on
+                 * the next tick, and do nothing while the game is paused.
+                 */
+                byte input = KeyboardController.inputForKey(e.getKeyCode());
+                if (input != 0) {
+                    if (!isPaused) {
+                        keyboard.press(input);
+                        if (input == Protocol.INPUT_DROP_PRESS
+                                && softDropStamp == 0) {
+                            softDropStamp = stamp;
                         }
-                        break;
-
-                    /**
-                     * Move Right. When pressed, we check to see that the game
-                     * is not paused and that the position to the right of the
-                     * current position is valid. If so, we increment the
-                     * current column by 1.
-                     */
-                    case KeyEvent.VK_RIGHT:
-                        if (!isPaused && board.isValidAndEmpty(currentType,
-                                currentCol + 1, currentRow, currentRotation)) {
-                            currentCol++;
-                        }
-                        break;
-
-                    /*
-                     * Rotate Anticlockwise - When pressed, check to see that 
-                     * the game is not paused and then attempt to rotate the 
-                     * piece anticlockwise. Because of the size and
-                     * complexity of the rotation code, as well as it's 
-                     * similarity to clockwise rotation, the code for rotating 
-                     * the piece is handled in another method.
-                     */
-                    case KeyEvent.VK_Z:
-                        if (!isPaused) {
-                            rotatePiece((currentRotation == 0) ? 3
-                                    : currentRotation - 1);
-                            souTurnCCW.play();
-                        }
-                        break;
+                    }
+                    return;
+                }
 
-                    /*
-                     * Rotate Clockwise - When pressed, check to see that the 
-                     * game is not paused and then attempt to rotate the piece 
-                     * clockwise. Because of the size and complexity of the
-                     * rotation code, as well as it's similarity to 
-                     * anticlockwise rotation, the code for rotating the piece
-                     * is handled in another method.
-                     */
-                    case KeyEvent.VK_X:
-                        if (!isPaused) {
-                            rotatePiece((currentRotation == 3) ? 0
-                                    : currentRotation + 1);
-                            souTurnCW.play();
-                        }
-                        break;
+                switch (e.getKeyCode()) {
 
                     /*
                      * Pause Game - When pressed, check to see that we're 
@@ -282,27 +464,53 @@ public class Tetris extends JFrame implements Serializable {
                      * minute or so.
                      */
                     case KeyEvent.VK_P:
-                        if (!isGameOver && !isNewGame) {
+                        if (!engine.isGameOver() && !engine.isNewGame()) {
                             isPaused = !isPaused;
-                            logicTimer.setPaused(isPaused);
+                            board.setPaused(isPaused);
+                            telemetry.pause(isPaused);
 
                             if (isPaused) {
-                                souBackgroundB.stop();
+                                sound(souBackgroundB).stop();
                             } else {
 
-                                souBackgroundB.play();
+                                sound(souBackgroundB).play();
                             }
                         }
                         break;
 
                     /*
-                     * Start Game - When pressed, check to see that we're in 
-                     *either a game over or new
-                     * game state. If so, reset the game.
+                     * Frame Stats - When pressed, show or hide the frame
+                     * timings overlay on the side panel.
                      */
-                    case KeyEvent.VK_ENTER:
-                        if (isGameOver || isNewGame) {
-                            resetGame();
+                    case KeyEvent.VK_F:
+                        profiler.toggleOverlay();
+                        break;
+
+                    /*
+                     * Rewind - While held, take the game back a little
+                     * every tick.
+                     */
+                    case KeyEvent.VK_R:
+                        isRewinding = true;
+                        board.setRewinding(true);
+                        break;
+
+                    /*
+                     * Bot - When pressed, let the bot play, then switch to
+                     * the bot that looks further ahead, then take the game
+                     * back.
+                     */
+                    case KeyEvent.VK_B:
+                        if (!engine.getBoard().isStandard()) {
+                            break;
+                        }
+                        if (!isBotPlaying) {
+                            isLookahead = false;
+                            isBotPlaying = true;
+                        } else if (!isLookahead) {
+                            isLookahead = true;
+                        } else {
+                            isBotPlaying = false;
                         }
                         break;
 
@@ -311,41 +519,44 @@ public class Tetris extends JFrame implements Serializable {
 
             @Override
             public void keyReleased(KeyEvent e) {
+                /*
+                 * Keys let go of are always passed on, so that none stays
+                 * held over a pause.
+                 */
+                byte input = KeyboardController.inputForKey(e.getKeyCode());
+                if (input != 0) {
+                    keyboard.release(input);
+                    if (input == Protocol.INPUT_DROP_PRESS) {
+                        softDropStamp = 0;
+                    }
+                    return;
+                }
 
                 switch (e.getKeyCode()) {
 
                     /*
-                     * Drop - When released, we set the speed of the logic timer
-                     * back to whatever the current game speed is and clear out
-                     * any cycles that might still be elapsed.
+                     * Rewind - When let go of, play on from where the game
+                     * was taken back to.
                      */
-                    case KeyEvent.VK_DOWN:
-                        logicTimer.setCyclesPerSecond(gameSpeed);
-                        logicTimer.reset();
+                    case KeyEvent.VK_R:
+                        isRewinding = false;
+                        board.setRewinding(false);
                         break;
+
                     /*
                      * Save Game - When pressed, saves the current
-                     *       process of the game.
+                     *       process of the game, on the game's thread.
                      */
                     case KeyEvent.VK_G:
-                        try {
-                            grabaArchivo();
-
-                        } catch (IOException ex) {
-                            System.out.println("Error en " + ex.toString());
-                        }
+                        isSavePending = true;
                         break;
 
                     /*
                     * Load Game - When pressed, starts the game 
-                        based on what is saved.
+                        based on what is saved, on the game's thread.
                      */
                     case KeyEvent.VK_C:
-                        try {
-                            leeArchivo();
-                        } catch (IOException ex) {
-                            System.out.println("Error en " + ex.toString());
-                        }
+                        isLoadPending = true;
                         break;
 
                 }
@@ -354,6 +565,28 @@ public class Tetris extends JFrame implements Serializable {
 
         });
 
+        /*
+         * Print the frame timings when the game is closed.
+         */
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                events.close();
+                telemetry.close();
+                if (leaderboard != null) {
+                    try {
+                        leaderboard.close();
+                    } catch (IOException e) {
+                        System.out.println("Error en " + e.toString());
+                    }
+                }
+                profiler.dump(System.out);
+                inputLatency.dump(System.out);
+            }
+
+        });
+
         /**
          * Here we resize the frame to hold the BoardPanel and SidePanel
          * instances center the window on the screen, and show it to the user.
@@ -361,28 +594,21 @@ public class Tetris extends JFrame implements Serializable {
         pack();
         setLocationRelativeTo(null);
         setVisible(true);
+        startup.phase("window shown");
+
+        //The window is up, so the sounds can load.
+        assets.start();
     }
 
     /**
      * Starts the game running. Initializes everything and enters the game loop.
      */
     private void startGame() {
-        /**
-         * Initialize our random number generator, logic timer, and new game
-         * variables.
-         */
-
-        this.random = new Random();
-        this.isNewGame = true;
-        this.gameSpeed = 1.0f;
-
-        /**
-         * Setup the timer to keep the game from running before the user presses
-         * enter to start it.
-         */
-        this.logicTimer = new Clock(gameSpeed);
-        logicTimer.setPaused(true);
-
+        if (autoplayTicks >= 0) {
+            resetGame();
+            isBotPlaying = true;
+        }
+        long nextTick = System.nanoTime();
         while (true) {
             //Get the time that the frame started.
             long start = System.nanoTime();
@@ -399,29 +625,84 @@ public class Tetris extends JFrame implements Serializable {
 
             iCounterAddedPiece++;
 
-            //Update the logic timer.
-            logicTimer.update();
+            //Save or load the game if asked to, before it moves on.
+            try {
+                if (isSavePending) {
+                    isSavePending = false;
+                    grabaArchivo();
+                }
+                if (isLoadPending) {
+                    isLoadPending = false;
+                    leeArchivo();
+                }
+            } catch (IOException e) {
+                System.out.println("Error en " + e.toString());
+            }
 
             /*
-            * If a cycle has elapsed on the timer, we can update the game and
-             * move our current piece down.
+             * Unless the game is paused, run every tick that is due by now,
+             * letting the player or the bot press their keys before each.
+             * The game moves at the same speed whatever the frame rate.
              */
-            if (logicTimer.hasElapsedCycle()) {
-                updateGame();
+            if (isPaused) {
+                nextTick = start;
             }
-
-            //Decrement the drop cool down if necessary.
-            if (dropCooldown > 0) {
-                dropCooldown--;
+            for (int ticks = 0; !isPaused && start - nextTick >= 0; ticks++) {
+                if (ticks == MAX_CATCH_UP) {
+                    nextTick = start;
+                    break;
+                }
+                if (isRewinding) {
+                    rewindGame();
+                    nextTick += TICK_TIME;
+                    continue;
+                }
+                /*
+                 * The keyboard starts a new game with Enter, even while the
+                 * bot is on, since the bot only plays a running game.
+                 */
+                boolean wasRunning = !engine.isNewGame()
+                        && !engine.isGameOver();
+                if (!isBotPlaying || !wasRunning) {
+                    keyboard.control(engine);
+                } else {
+                    keyboard.discard();
+                    isPractice = true;
+                    (isLookahead ? lookaheadBot : bot).control(engine);
+                }
+                boolean isRunning = !engine.isNewGame() && !engine.isGameOver();
+                if (isRunning && !wasRunning) {
+                    gameStarted();
+                }
+                long updateStart = System.nanoTime();
+                updateGame();
+                if (isRunning) {
+                    rewind.record(engine);
+                }
+                profiler.getUpdate().record(System.nanoTime() - updateStart);
+                nextTick += TICK_TIME;
+                if (autoplayTicks > 0) {
+                    autoplayTicks--;
+                }
             }
 
             //Display the window to the user.
+            long renderStart = System.nanoTime();
             renderGame();
+            long end = System.nanoTime();
+            profiler.getRender().record(end - renderStart);
+            profiler.recordFrame(end - start, FRAME_TIME * 1000000L);
+            if (end - start > FRAME_TIME * 1000000L) {
+                FlightEvents.frameOverrun(end - start, FRAME_TIME * 1000000L);
+            }
+            if (autoplayTicks == 0 && startup.isDone()) {
+                System.exit(0);
+            }
 
             /*
              * Sleep to cap the framerate.
              */
-            long delta = (System.nanoTime() - start) / 1000000L;
+            long delta = (end - start) / 1000000L;
             if (delta < FRAME_TIME) {
                 try {
                     Thread.sleep(FRAME_TIME - delta);
@@ -433,188 +714,299 @@ public class Tetris extends JFrame implements Serializable {
     }
 
     /**
-     * Updates the game and handles the bulk of it's logic.
+     * Moves the game on by a tick and reacts to whatever happened.
      */
     private void updateGame() {
-        /**
-         * Check to see if the piece's position can move down to the next row.
+        /*
+         * Remember where the piece is, since the engine spawns the next one
+         * as soon as this one locks.
          */
-        if (board.isValidAndEmpty(currentType, currentCol, currentRow + 1,
-                currentRotation)) {
-            //Increment the current row if it's safe to do so.
-            currentRow++;
+        TileType type = engine.getPieceType();
+        int col = engine.getPieceCol();
+        int row = engine.getPieceRow();
+        int rotation = engine.getPieceRotation();
+        int previousScore = engine.getScore();
+        int previousLevel = engine.getLevel();
+
+        int cleared = engine.tick();
+        if (cleared == GameEngine.NOT_LOCKED) {
             //AQUI CAMBIAR EL COLOR 
 
-        } else {
-            /**
-             * We've either reached the bottom of the board, or landed on
-             * another piece, so we need to add the piece to the board.
-             */
-            board.addPiece(currentType, currentCol, currentRow,
-                    currentRotation);
-
-            //added piece image
-            board.isAdded(true);
-
-            /**
-             * Check to see if adding the new piece resulted in any cleared
-             * lines. If so,increase the player's score. (Up to 4 lines can be
-             * cleared in a single go; [1 = 100pts, 2 = 200pts, 3 = 400pts, 4 =
-             * 800pts]).
-             */
-            int cleared = board.checkLines();
-            if (cleared > 0) {
-                score += 50 << cleared;
-
-                souLevelUp.play();
+            //The first row moved by a soft drop is the state change it caused.
+            long stamp = softDropStamp;
+            if (stamp != 0 && engine.isSoftDropping()
+                    && engine.getPieceRow() != row) {
+                inputLatency.stateChanged(stamp);
+                softDropStamp = 0;
             }
+            return;
+        }
 
-            /**
-             * Increase the speed slightly for the next piece and update the
-             * game's timer to reflect the increase.
-             */
-            gameSpeed += 0.035f;
-            logicTimer.setCyclesPerSecond(gameSpeed);
-            logicTimer.reset();
+        /*
+         * The piece was added to the board.
+         */
+        FlightEvents.pieceLocked(type, col, row, rotation);
+        events.publish(EventBus.LOCK, type.getType(), col, row, rotation);
 
-            /**
-             * Set the drop cooldown so the next piece doesn't automatically
-             * come flying in from the heavens immediately after this piece hits
-             * if we've not reacted yet. (~0.5 second buffer).
-             */
-            dropCooldown = 25;
+        /*
+         * If adding the piece cleared any lines the score went up.
+         */
+        int score = engine.getScore();
+        if (cleared > 0) {
+            FlightEvents.linesCleared(cleared, score);
+            events.publish(EventBus.CLEAR, cleared, score,
+                    score - previousScore, 0);
+        }
 
-            /**
-             * Update the difficulty level. This has no effect on the game, and
-             * is only used in the "Level" string in the SidePanel.
-             */
-            level = (int) (gameSpeed * 1.70f);
+        if (engine.getLevel() > previousLevel) {
+            FlightEvents.levelUp(engine.getLevel(), engine.getGameSpeed());
+            events.publish(EventBus.LEVEL_UP, engine.getLevel(), 0, 0, 0);
+        }
 
-            /*
-            * Spawn a new piece to control.
-             */
-            spawnPiece();
+        pieceSpawned();
+    }
 
+    /**
+     * Takes the game back {@code REWIND_SPEED} ticks, or as far as the
+     * rewind buffer goes. Going back from the end of a game plays it on.
+     */
+    private void rewindGame() {
+        boolean wasGameOver = engine.isGameOver();
+        for (int i = 0; i < REWIND_SPEED && rewind.stepBack(engine); i++) {
+            isPractice = true;
+        }
+        if (wasGameOver && !engine.isGameOver()) {
+            sound(souBackgroundB).play();
         }
     }
 
     /**
-     * Forces the BoardPanel and SidePanel to repaint.
+     * Forces the BoardPanel and SidePanel to repaint. The BoardPanel paints
+     * a frame of the game published here, so it never reads the game while
+     * it is played.
      */
     private void renderGame() {
+        board.publish();
+        if (!engine.getBoard().isStandard()) {
+            SwingUtilities.invokeLater(followPiece);
+        }
         board.repaint();
         side.repaint();
     }
 
+    /**
+     * Sizes the view of the board to the board, up to the largest view, past
+     * which it scrolls.
+     */
+    private void fitBoardView() {
+        board.updateBoard();
+        Dimension size = board.getPreferredSize();
+        boardView.getViewport().setPreferredSize(new Dimension(
+                Math.min(size.width, MAX_VIEW_WIDTH),
+                Math.min(size.height, MAX_VIEW_HEIGHT)));
+    }
+
     /**
      * Resets the game variables to their default values at the start of a new
      * game.
      */
     private void resetGame() {
-        this.level = 1;
-        this.score = 0;
-        this.gameSpeed = 1.0f;
-        this.nextType = TileType.values()[random.nextInt(TYPE_COUNT)];
-        this.isNewGame = false;
-        this.isGameOver = false;
-        board.clear();
-        logicTimer.reset();
-        logicTimer.setCyclesPerSecond(gameSpeed);
-        spawnPiece();
-        souBackgroundB.play();
-        souBackgroundB.setLooping(true);
-    }
-
-    /**
-     * Spawns a new piece and resets our piece's variables to their default
-     * values.
-     */
-    private void spawnPiece() {
-        
-        /**
-         * Poll the last piece and reset our position and rotation to their
-         * default variables, then pick the next piece to use.
-         */
-        this.currentType = nextType;
-        this.currentCol = currentType.getSpawnColumn();
-        this.currentRow = currentType.getSpawnRow();
-        this.currentRotation = 0;
-        this.nextType = TileType.values()[random.nextInt(TYPE_COUNT)];
-        souClick.play();
+        engine.reset();
+        gameStarted();
+    }
 
-        /**
-         * If the spawn point is invalid, we need to pause the game and flag
-         * that we've lost because it means that the pieces on the board have
-         * gotten too high.
-         */
-        if (!board.isValidAndEmpty(currentType, currentCol, currentRow,
-                currentRotation)) {
-            this.isGameOver = true;
-            souBackgroundB.stop();
-            logicTimer.setPaused(true);
+    /**
+     * Reacts to a new game having started, whether the engine was reset here
+     * or by the keyboard.
+     */
+    private void gameStarted() {
+        rewind.clear();
+        isPractice = false;
+        pieceSpawned();
+        sound(souBackgroundB).play();
+        sound(souBackgroundB).setLooping(true);
+    }
 
+    /**
+     * Reacts to the engine spawning a new piece. If the spawn point was
+     * invalid the game is over, so we need to pause the game.
+     */
+    private void pieceSpawned() {
+        FlightEvents.pieceSpawned(engine.getPieceType(),
+                engine.getNextPieceType());
+        events.publish(EventBus.SPAWN, engine.getPieceType().getType(),
+                engine.getNextPieceType().getType(), 0, 0);
+
+        if (engine.isGameOver()) {
+            events.publish(EventBus.GAME_OVER, engine.getScore(),
+                    engine.getLevel(), engine.getLines(), 0);
+            addToLeaderboard();
         }
     }
 
     /**
-     * Attempts to set the rotation of the current piece to newRotation.
-     *
-     * @param newRotation The rotation of the new peice.
+     * Subscribes the handlers of the game's events: one plays the sounds,
+     * one animates the board, and one writes the telemetry. The sounds and
+     * the board only react once to each batch, however many pieces it
+     * holds.
      */
-    private void rotatePiece(int newRotation) {
-        /**
-         * Sometimes pieces will need to be moved when rotated to avoid clipping
-         * out of the board (the I piece is a good example of this). Here we
-         * store temporary row and column in case we need to move the tile as
-         * well.
-         */
-        int newColumn = currentCol;
-        int newRow = currentRow;
+    private void subscribeHandlers() {
+        events.subscribe("Game Audio", new GameEventHandler() {
 
-        /**
-         * Get the insets for each of the sides. These are used to determine how
-         * many empty rows or columns there are on a given side.
-         */
-        int left = currentType.getLeftInset(newRotation);
-        int right = currentType.getRightInset(newRotation);
-        int top = currentType.getTopInset(newRotation);
-        int bottom = currentType.getBottomInset(newRotation);
+            /**
+             * Whether or not a piece spawned in this batch.
+             */
+            private boolean isSpawned;
 
-        /**
-         * If the current piece is too far to the left or right, move the piece
-         * away from the edges so that the piece doesn't clip out of the map and
-         * automatically become invalid.
-         */
-        if (currentCol < -left) {
-            newColumn -= currentCol - left;
-        } else if (currentCol + currentType.getDimension() - right
-                >= BoardPanel.COL_COUNT) {
-            newColumn -= (currentCol + currentType.getDimension() - right)
-                    - BoardPanel.COL_COUNT + 1;
-        }
+            /**
+             * Whether or not lines were cleared in this batch.
+             */
+            private boolean isCleared;
 
-        /**
-         * If the current piece is too far to the top or bottom, move the piece
-         * away from the edges so that the piece doesn't clip out of the map and
-         * automatically become invalid.
-         */
-        if (currentRow < -top) {
-            newRow -= currentRow - top;
-        } else if (currentRow + currentType.getDimension() - bottom
-                >= BoardPanel.ROW_COUNT) {
-            newRow -= (currentRow + currentType.getDimension() - bottom)
-                    - BoardPanel.ROW_COUNT + 1;
-        }
+            /**
+             * Whether or not the game ended in this batch.
+             */
+            private boolean isOver;
 
-        /**
-         * Check to see if the new position is acceptable. If it is, update the
-         * rotation and position of the piece.
-         */
-        if (board.isValidAndEmpty(currentType, newColumn, newRow, newRotation)) 
-                {
-            currentRotation = newRotation;
-            currentRow = newRow;
-            currentCol = newColumn;
+            /**
+             * Whether or not a key turned the piece clockwise in this batch.
+             */
+            private boolean isTurnedCW;
+
+            /**
+             * Whether or not a key turned the piece anticlockwise in this
+             * batch.
+             */
+            private boolean isTurnedCCW;
+
+            @Override
+            public void onEvent(int kind, int a, int b, int c, int d) {
+                isSpawned |= kind == EventBus.SPAWN;
+                isCleared |= kind == EventBus.CLEAR;
+                isOver |= kind == EventBus.GAME_OVER;
+                isTurnedCW |= kind == EventBus.ROTATE && a == 1;
+                isTurnedCCW |= kind == EventBus.ROTATE && a == 0;
+            }
+
+            @Override
+            public void onBatchEnd() {
+                if (isTurnedCW) {
+                    sound(souTurnCW).play();
+                }
+                if (isTurnedCCW) {
+                    sound(souTurnCCW).play();
+                }
+                if (isCleared) {
+                    sound(souLevelUp).play();
+                }
+                if (isSpawned) {
+                    sound(souClick).play();
+                }
+                if (isOver) {
+                    sound(souBackgroundB).stop();
+                }
+                isSpawned = false;
+                isCleared = false;
+                isOver = false;
+                isTurnedCW = false;
+                isTurnedCCW = false;
+            }
+
+        });
+
+        events.subscribe("Board Animation", new GameEventHandler() {
+
+            /**
+             * Whether or not a piece locked in this batch.
+             */
+            private boolean isLocked;
+
+            @Override
+            public void onEvent(int kind, int a, int b, int c, int d) {
+                isLocked |= kind == EventBus.LOCK;
+            }
+
+            /**
+             * Flashes the board on the Swing event thread.
+             */
+            private final Runnable flash = new Runnable() {
+
+                @Override
+                public void run() {
+                    //added piece image
+                    board.isAdded(true);
+                    board.repaint();
+                }
+
+            };
+
+            @Override
+            public void onBatchEnd() {
+                if (isLocked) {
+                    SwingUtilities.invokeLater(flash);
+                    isLocked = false;
+                }
+            }
+
+        });
+
+        events.subscribe("Telemetry Events", new GameEventHandler() {
+
+            /**
+             * The piece set the events being handled were published under.
+             */
+            private PieceSet pieceSet = pieceSets[0];
+
+            @Override
+            public void onEvent(int kind, int a, int b, int c, int d) {
+                switch (kind) {
+                    case EventBus.PIECE_SET:
+                        pieceSet = pieceSets[a];
+                        break;
+                    case EventBus.SPAWN:
+                        telemetry.spawn(pieceSet.get(a));
+                        break;
+                    case EventBus.LOCK:
+                        telemetry.placement(pieceSet.get(a), b, c, d);
+                        break;
+                    case EventBus.CLEAR:
+                        telemetry.lines(a);
+                        telemetry.score(b, c);
+                        break;
+                    case EventBus.GAME_OVER:
+                        telemetry.gameOver(a, b);
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            @Override
+            public void onBatchEnd() {
+            }
+
+        });
+    }
+
+    /**
+     * Adds the game that just ended to the leaderboard.
+     */
+    private void addToLeaderboard() {
+        if (leaderboard == null || isPractice
+                || !engine.getBoard().isStandard()
+                || !(engine.getRotationSystem() instanceof SrsRotation)
+                || engine.getGravity() != Gravity.STANDARD) {
+            return;
+        }
+        try {
+            int rank = leaderboard.add(playerName, engine.getScore(),
+                    engine.getLines(), engine.getLevel());
+            leaderboard.flush();
+            bestScore = Math.max(bestScore, engine.getScore());
+            System.out.println(playerName + " scored " + engine.getScore()
+                    + ", rank " + rank + " of " + leaderboard.size());
+        } catch (IOException e) {
+            System.out.println("Error en " + e.toString());
         }
     }
 
@@ -633,7 +1025,7 @@ public class Tetris extends JFrame implements Serializable {
      * @return Whether or not the game is over.
      */
     public boolean isGameOver() {
-        return isGameOver;
+        return engine.isGameOver();
     }
 
     /**
@@ -642,7 +1034,7 @@ public class Tetris extends JFrame implements Serializable {
      * @return Whether or not this is a new game.
      */
     public boolean isNewGame() {
-        return isNewGame;
+        return engine.isNewGame();
     }
 
     /**
@@ -651,7 +1043,7 @@ public class Tetris extends JFrame implements Serializable {
      * @return The score.
      */
     public int getScore() {
-        return score;
+        return engine.getScore();
     }
 
     /**
@@ -660,7 +1052,7 @@ public class Tetris extends JFrame implements Serializable {
      * @return The level.
      */
     public int getLevel() {
-        return level;
+        return engine.getLevel();
     }
 
     /**
@@ -669,7 +1061,7 @@ public class Tetris extends JFrame implements Serializable {
      * @return The piece type.
      */
     public TileType getPieceType() {
-        return currentType;
+        return engine.getPieceType();
     }
 
     /**
@@ -678,7 +1070,7 @@ public class Tetris extends JFrame implements Serializable {
      * @return The next piece.
      */
     public TileType getNextPieceType() {
-        return nextType;
+        return engine.getNextPieceType();
     }
 
     /**
@@ -687,7 +1079,7 @@ public class Tetris extends JFrame implements Serializable {
      * @return The column.
      */
     public int getPieceCol() {
-        return currentCol;
+        return engine.getPieceCol();
     }
 
     /**
@@ -696,7 +1088,7 @@ public class Tetris extends JFrame implements Serializable {
      * @return The row.
      */
     public int getPieceRow() {
-        return currentRow;
+        return engine.getPieceRow();
     }
 
     /**
@@ -705,77 +1097,159 @@ public class Tetris extends JFrame implements Serializable {
      * @return The rotation.
      */
     public int getPieceRotation() {
-        return currentRotation;
+        return engine.getPieceRotation();
+    }
+
+    /**
+     * Gets the engine that holds the state of the game.
+     *
+     * @return The engine.
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the best score of the player on the leaderboard.
+     *
+     * @return The best score.
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Gets the profiler that keeps the frame timings.
+     *
+     * @return The profiler.
+     */
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Gets the tracker that measures the time from a key press to the screen.
+     *
+     * @return The input latency tracker.
+     */
+    public InputLatencyTracker getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Gets the timings of the startup.
+     *
+     * @return The startup report.
+     */
+    public StartupReport getStartup() {
+        return startup;
+    }
+
+    /**
+     * Gets a sound, waiting for it if it is still loading.
+     *
+     * @param clip The sound.
+     * @return The sound, or a silent one if it couldn't be loaded.
+     */
+    private static SoundClip sound(Future<SoundClip> clip) {
+        SoundClip sound = AssetLoader.get(clip);
+        return sound != null ? sound : Silence.CLIP;
+    }
+
+    /**
+     * The {@code Silence} class holds the clip that stands in for every sound
+     * that couldn't be loaded. It is made the first time one is needed, and
+     * only once, since each clip holds on to an audio line.
+     */
+    private static final class Silence {
+
+        /**
+         * The silent clip.
+         */
+        private static final SoundClip CLIP = new SoundClip();
+    }
+
+    /**
+     * Tells the handlers of the bus that the events published from now on
+     * name their types of piece from the given set. Must be called on the
+     * game's thread, so the events before it keep the set they had.
+     *
+     * @param pieceSet The piece set.
+     */
+    private void publishPieceSet(PieceSet pieceSet) {
+        int index = 0;
+        while (index < pieceSets.length && pieceSets[index] != pieceSet) {
+            index++;
+        }
+        if (index == pieceSets.length) {
+            PieceSet[] grown = Arrays.copyOf(pieceSets, index + 1);
+            grown[index] = pieceSet;
+            pieceSets = grown;
+        }
+        events.publish(EventBus.PIECE_SET, index, 0, 0, 0);
     }
 
     /**
      * Metodo que lee a informacion de un archivo y lo agrega a un vector.
+     * Must be called on the game's thread, and sizes the window to the board
+     * it read on the Swing event thread.
      *
      * @throws IOException
      */
     public void leeArchivo() throws IOException {
+        FlightEvents.LoadGame event = new FlightEvents.LoadGame();
+        event.begin();
         RandomAccessFile finArchivo = new RandomAccessFile(nombreArchivo, "rw");
+        try {
+            engine.read(finArchivo);
+            event.bytes = finArchivo.getFilePointer();
+        } finally {
+            finArchivo.close();
+        }
+        rewind.clear();
+
+        //A loaded game didn't start from nothing, so it isn't ranked.
+        isPractice = true;
+
+        //The saved board may be of another size or piece set.
+        publishPieceSet(engine.getBoard().getPieceSet());
+        board.publish();
+        SwingUtilities.invokeLater(new Runnable() {
 
-        this.level = finArchivo.readInt();
-        this.score = finArchivo.readInt();
-        this.currentCol = finArchivo.readInt();
-        this.currentRow = finArchivo.readInt();
-        this.currentRotation = finArchivo.readInt();
-        this.currentType = TileType.values()[finArchivo.readInt()];
-        this.nextType = TileType.values()[finArchivo.readInt()];
-        this.gameSpeed = finArchivo.readFloat();
-        this.isGameOver = finArchivo.readBoolean();
-        this.isNewGame = finArchivo.readBoolean();
-
-        logicTimer.reset();
-        logicTimer.setCyclesPerSecond(gameSpeed);
-
-        int i = finArchivo.readInt();
-        int j = finArchivo.readInt();
-        int matBoard[][] = new int[i][j];
-
-        for (int iR = 0; iR < i; iR++) {
-            for (int iC = 0; iC < j; iC++) {
-                matBoard[iR][iC] = finArchivo.readInt();
+            @Override
+            public void run() {
+                fitBoardView();
+                pack();
             }
-        }
-        board.clear();
-        board.setMatrix(matBoard);
-        finArchivo.close();
+
+        });
+
+        event.file = nombreArchivo;
+        event.commit();
 
     }
 
     /**
      * Metodo que agrega la informacion del vector al archivo.
+     * Must be called on the game's thread.
      *
      * @throws IOException
      */
     public void grabaArchivo() throws IOException {
+        FlightEvents.SaveGame event = new FlightEvents.SaveGame();
+        event.begin();
 
         RandomAccessFile fpwArchivo = new RandomAccessFile(nombreArchivo, "rw");
-
-        fpwArchivo.writeInt(level);
-        fpwArchivo.writeInt(score);
-        fpwArchivo.writeInt(currentCol);
-        fpwArchivo.writeInt(currentRow);
-        fpwArchivo.writeInt(currentRotation);
-        fpwArchivo.writeInt(currentType.getType());
-        fpwArchivo.writeInt(nextType.getType());
-        fpwArchivo.writeFloat(gameSpeed);
-        fpwArchivo.writeBoolean(isGameOver);
-        fpwArchivo.writeBoolean(isNewGame);
-
-        int matStatus[][] = board.getMatrix();
-
-        fpwArchivo.writeInt(matStatus.length);
-        fpwArchivo.writeInt(matStatus[0].length);
-        for (int iR = 0; iR < matStatus.length; iR++) {
-            for (int iC = 0; iC < matStatus[0].length; iC++) {
-                fpwArchivo.writeInt(matStatus[iR][iC]);
-            }
+        try {
+            engine.write(fpwArchivo);
+            event.bytes = fpwArchivo.getFilePointer();
+        } finally {
+            fpwArchivo.close();
         }
+        telemetry.save(event.bytes);
 
-        fpwArchivo.close();
+        event.file = nombreArchivo;
+        event.commit();
     }
 
     /**
@@ -785,7 +1259,8 @@ public class Tetris extends JFrame implements Serializable {
      * @param args Unused.
      */
     public static void main(String[] args) {
-        Tetris tetris = new Tetris();
+        StartupReport startup = new StartupReport();
+        Tetris tetris = new Tetris(startup);
         tetris.startGame();
 
     }
@@ -1,18 +1,42 @@
 import java.awt.Color;
+import java.io.Serializable;
 
 /**
- * The {@code PieceType} enum describes the properties of the various pieces 
- *      that can be used in the game.
+ * The {@code PieceType} class describes the properties of the various pieces 
+ *      that can be used in the game. The seven standard pieces are built in,
+ *      and a {@code PieceSet} can load others from a data file.
+ *
+ * Every piece is compiled when it is made: each rotation becomes a bitmask,
+ *      its insets and the lowest tile of each of its columns go into tables,
+ *      and each of its rows becomes a mask for the long words of a
+ *      {@code Board} row, so nothing the game does with a piece allocates.
  * @authors Sergio Diaz          A01192313
  *         Ana Karen Beltran     A01192508
  *
  */
-public enum TileType {
+public class TileType implements Serializable {
+
+	/**
+	 * Serial Version UID.
+	 */
+	private static final long serialVersionUID = -6164236316329722415L;
+
+	/**
+	 * The number of rotations a piece has.
+	 */
+	public static final int ROTATION_COUNT = 4;
+
+	/**
+	 * The largest dimension of a piece, so that every rotation fits in the
+	 * 64 bits of a bitmask.
+	 */
+	public static final int MAX_DIMENSION = 8;
 
 	/**
 	 * Piece TypeI.
 	 */
-	TypeI(new Color(BoardPanel.COLOR_MIN, BoardPanel.COLOR_MAX, 
+	public static final TileType TypeI = new TileType("TypeI",
+			new Color(BoardPanel.COLOR_MIN, BoardPanel.COLOR_MAX, 
                 BoardPanel.COLOR_MAX), 4, 4, 1, new boolean[][] {
 		{
 			false,	false,	false,	false,
@@ -38,12 +62,13 @@ public enum TileType {
 			false,	true,	false,	false,
 			false,	true,	false,	false,
 		}
-	},0),
+	}, 0);
 	
 	/**
 	 * Piece TypeJ.
 	 */
-	TypeJ(new Color(BoardPanel.COLOR_MIN, BoardPanel.COLOR_MIN, 
+	public static final TileType TypeJ = new TileType("TypeJ",
+			new Color(BoardPanel.COLOR_MIN, BoardPanel.COLOR_MIN, 
                 BoardPanel.COLOR_MAX), 3, 3, 2, new boolean[][] {
 		{
 			true,	false,	false,
@@ -65,12 +90,13 @@ public enum TileType {
 			false,	true,	false,
 			true,	true,	false,
 		}
-	},1),
+	}, 1);
 	
 	/**
 	 * Piece TypeL.
 	 */
-	TypeL(new Color(BoardPanel.COLOR_MAX, 127, BoardPanel.COLOR_MIN), 
+	public static final TileType TypeL = new TileType("TypeL",
+			new Color(BoardPanel.COLOR_MAX, 127, BoardPanel.COLOR_MIN), 
                 3, 3, 2, new boolean[][] {
 		{
 			false,	false,	true,
@@ -92,12 +118,13 @@ public enum TileType {
 			false,	true,	false,
 			false,	true,	false,
 		}
-	},2),
+	}, 2);
 	
 	/**
 	 * Piece TypeO.
 	 */
-	TypeO(new Color(BoardPanel.COLOR_MAX, BoardPanel.COLOR_MAX, 
+	public static final TileType TypeO = new TileType("TypeO",
+			new Color(BoardPanel.COLOR_MAX, BoardPanel.COLOR_MAX, 
                 BoardPanel.COLOR_MIN), 2, 2, 2, new boolean[][] {
 		{
 			true,	true,
@@ -115,12 +142,13 @@ public enum TileType {
 			true,	true,
 			true,	true,
 		}
-	},3),
+	}, 3);
 	
 	/**
 	 * Piece TypeS.
 	 */
-	TypeS(new Color(BoardPanel.COLOR_MIN, BoardPanel.COLOR_MAX, 
+	public static final TileType TypeS = new TileType("TypeS",
+			new Color(BoardPanel.COLOR_MIN, BoardPanel.COLOR_MAX, 
                 BoardPanel.COLOR_MIN), 3, 3, 2, new boolean[][] {
 		{
 			false,	true,	true,
@@ -142,12 +170,13 @@ public enum TileType {
 			true,	true,	false,
 			false,	true,	false,
 		}
-	},4),
+	}, 4);
 	
 	/**
 	 * Piece TypeT.
 	 */
-	TypeT(new Color(128, BoardPanel.COLOR_MIN, 128), 3, 3, 2, 
+	public static final TileType TypeT = new TileType("TypeT",
+			new Color(128, BoardPanel.COLOR_MIN, 128), 3, 3, 2, 
                 new boolean[][] {
 		{
 			false,	true,	false,
@@ -169,12 +198,13 @@ public enum TileType {
 			true,	true,	false,
 			false,	true,	false,
 		}
-	},5),
+	}, 5);
 	
 	/**
 	 * Piece TypeZ.
 	 */
-	TypeZ(new Color(BoardPanel.COLOR_MAX, BoardPanel.COLOR_MIN, 
+	public static final TileType TypeZ = new TileType("TypeZ",
+			new Color(BoardPanel.COLOR_MAX, BoardPanel.COLOR_MIN, 
                 BoardPanel.COLOR_MIN), 3, 3, 2, new boolean[][] {
 		{
 			true,	true,	false,
@@ -196,8 +226,13 @@ public enum TileType {
 			true,	true,	false,
 			true,	false,	false,
 		}
-	},6);
+	}, 6);
 		
+	/**
+	 * The name of this type.
+	 */
+	private String name;
+
 	/**
 	 * The base color of tiles of this type.
 	 */
@@ -243,39 +278,175 @@ public enum TileType {
 	public int iCols;
 	
 	/**
-	 * The tiles for this piece. Each piece has an array of tiles for each 
-         * rotation.
+	 * The tiles for this piece, one bitmask for each rotation with bit
+	 * {@code y * iDimension + x} set when there is a tile at x, y.
 	 */
-	private boolean[][] bMatTiles;
-        
+	private long[] lMasks;
+
+	/**
+	 * The left inset of each rotation.
+	 */
+	private int[] iLeftInsets;
+
+	/**
+	 * The right inset of each rotation.
+	 */
+	private int[] iRightInsets;
+
+	/**
+	 * The top inset of each rotation.
+	 */
+	private int[] iTopInsets;
+
+	/**
+	 * The bottom inset of each rotation.
+	 */
+	private int[] iBottomInsets;
+
+	/**
+	 * The tiles of each row of each rotation, with bit 0 for the leftmost
+	 * column of the rotation that has a tile, by rotation and row.
+	 */
+	private long[] lShapes;
+
+	/**
+	 * The row of the lowest tile in each column of each rotation, or -1 if
+	 * the column is empty, by rotation and column.
+	 */
+	private int[] iBottoms;
         
         /**
-	 * The type of a tile represented as an integer.
+	 * The type of a tile represented as an integer: its place in its
+	 * piece set.
 	 */
         private int iType;
 	
 	/**
 	 * Creates a new TileType.
+	 * @param name The name of the type.
 	 * @param color The base color of the tile.
 	 * @param dimension The dimensions of the tiles array.
 	 * @param cols The number of columns.
 	 * @param rows The number of rows.
 	 * @param tiles The tiles.
+	 * @param iType The place of the type in its piece set.
 	 */
-	private TileType(Color color, int dimension, int cols, int rows, 
-                boolean[][] tiles, int iType) {
+	private TileType(String name, Color color, int dimension, int cols,
+                int rows, boolean[][] tiles, int iType) {
+		this.name = name;
 		this.baseColor = color;
 		this.lightColor = color.brighter();
 		this.darkColor = color.darker();
 		this.iDimension = dimension;
-		this.bMatTiles = tiles;
 		this.iCols = cols;
 		this.iRows = rows;
 		this.iType = iType;
-		this.iSpawnCol = 5 - (dimension >> 1);
+		compile(tiles);
+		this.iSpawnCol = Board.COL_COUNT / 2 - (dimension >> 1);
 		this.iSpawnRow = getTopInset(0);
 	}
+
+	/**
+	 * Creates a new TileType from the tiles of its spawn rotation. The
+	 * other rotations are turned clockwise from it, about the middle of
+	 * the array.
+	 * @param name The name of the type.
+	 * @param color The base color of the tile.
+	 * @param dimension The dimensions of the tiles array.
+	 * @param tiles The tiles of the spawn rotation, row by row.
+	 * @param iType The place of the type in its piece set.
+	 */
+	TileType(String name, Color color, int dimension, boolean[] tiles,
+                int iType) {
+		this(name, color, dimension, 0, 0, turn(dimension, tiles), iType);
+		this.iCols = dimension - getLeftInset(0) - getRightInset(0) + 1;
+		this.iRows = dimension - getTopInset(0) - getBottomInset(0) + 1;
+	}
+
+	/**
+	 * Turns the tiles of a spawn rotation clockwise into every rotation.
+	 * @param dimension The dimensions of the tiles array.
+	 * @param tiles The tiles of the spawn rotation.
+	 * @return The tiles of every rotation.
+	 */
+	private static boolean[][] turn(int dimension, boolean[] tiles) {
+		boolean[][] rotations = new boolean[ROTATION_COUNT][];
+		rotations[0] = tiles;
+		for (int r = 1; r < ROTATION_COUNT; r++) {
+			rotations[r] = new boolean[dimension * dimension];
+			for (int y = 0; y < dimension; y++) {
+				for (int x = 0; x < dimension; x++) {
+					int from = (dimension - 1 - x) * dimension + y;
+					rotations[r][y * dimension + x] =
+                                                rotations[r - 1][from];
+				}
+			}
+		}
+		return rotations;
+	}
+
+	/**
+	 * Compiles the tiles of every rotation into the bitmasks and tables.
+	 * @param tiles The tiles.
+	 */
+	private void compile(boolean[][] tiles) {
+		int dimension = iDimension;
+		lMasks = new long[ROTATION_COUNT];
+		iLeftInsets = new int[ROTATION_COUNT];
+		iRightInsets = new int[ROTATION_COUNT];
+		iTopInsets = new int[ROTATION_COUNT];
+		iBottomInsets = new int[ROTATION_COUNT];
+		lShapes = new long[ROTATION_COUNT * dimension];
+		iBottoms = new int[ROTATION_COUNT * dimension];
+		for (int r = 0; r < ROTATION_COUNT; r++) {
+			int left = dimension;
+			int right = -1;
+			int top = dimension;
+			int bottom = -1;
+			for (int y = 0; y < dimension; y++) {
+				for (int x = 0; x < dimension; x++) {
+					if (tiles[r][y * dimension + x]) {
+						lMasks[r] |= 1L << (y * dimension + x);
+						left = Math.min(left, x);
+						right = Math.max(right, x);
+						top = Math.min(top, y);
+						bottom = Math.max(bottom, y);
+					}
+				}
+			}
+
+			/*
+			 * The right and bottom insets count from the far side of
+			 * the array, as they always have.
+			 */
+			iLeftInsets[r] = left;
+			iRightInsets[r] = dimension - right;
+			iTopInsets[r] = top;
+			iBottomInsets[r] = dimension - bottom;
+
+			for (int x = 0; x < dimension; x++) {
+				iBottoms[r * dimension + x] = -1;
+			}
+			for (int y = 0; y < dimension; y++) {
+				for (int x = 0; x < dimension; x++) {
+					if (tiles[r][y * dimension + x]) {
+						lShapes[r * dimension + y] |=
+                                                        1L << (x - left);
+						iBottoms[r * dimension + x] = y;
+					}
+				}
+			}
+		}
+	}
 	
+	/**
+	 * Gets the name of this type.
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+
 	/**
 	 * Gets the base color of this type.
 	 * @return The base color.
@@ -309,7 +480,7 @@ public enum TileType {
 	}
 	
 	/**
-	 * Gets the spawn column of this type.
+	 * Gets the spawn column of this type on a standard board.
 	 * @return The spawn column.
 	 */
 	public int getSpawnColumn() {
@@ -345,10 +516,8 @@ public enum TileType {
 	}
 	
         /**
-	 * Gets the type of tile of the tile. (Only valid when rotation 
-         * is 0 or 2, but it's fine since this is only used for the preview 
-         * which uses rotation 0).
-	 * @return The number of columns.
+	 * Gets the type of tile of the tile: its place in its piece set.
+	 * @return The type.
 	 */
         public int getType() {
 		return iType;
@@ -362,7 +531,7 @@ public enum TileType {
 	 * @return Whether or not a tile resides there.
 	 */
 	public boolean isTile(int x, int y, int rotation) {
-		return bMatTiles[rotation][y * iDimension + x];
+		return (lMasks[rotation] >>> (y * iDimension + x) & 1L) != 0L;
 	}
 	
 	/**
@@ -372,39 +541,17 @@ public enum TileType {
 	 * @return The left inset.
 	 */
 	public int getLeftInset(int rotation) {
-		/*
-		 * Loop through from left to right until we find a tile then 
-                 * return the column.
-		 */
-		for(int x = 0; x < iDimension; x++) {
-			for(int y = 0; y < iDimension; y++) {
-				if(isTile(x, y, rotation)) {
-					return x;
-				}
-			}
-		}
-		return -1;
+		return iLeftInsets[rotation];
 	}
 	
 	/**
 	 * The right inset is represented by the number of empty columns on the 
-         * left side of the array for the given rotation.
+         * right side of the array for the given rotation, plus one.
 	 * @param rotation The rotation.
 	 * @return The right inset.
 	 */
 	public int getRightInset(int rotation) {
-		/*
-		 * Loop through from right to left until we find a tile then 
-                 * return the column.
-		 */
-		for(int x = iDimension - 1; x >= 0; x--) {
-			for(int y = 0; y < iDimension; y++) {
-				if(isTile(x, y, rotation)) {
-					return iDimension - x;
-				}
-			}
-		}
-		return -1;
+		return iRightInsets[rotation];
 	}
 	
 	/**
@@ -414,39 +561,43 @@ public enum TileType {
 	 * @return The top inset.
 	 */
 	public int getTopInset(int rotation) {
-		/*
-		 * Loop through from top to bottom until we find a tile then 
-                 * return
-		 * the row.
-		 */
-		for(int y = 0; y < iDimension; y++) {
-			for(int x = 0; x < iDimension; x++) {
-				if(isTile(x, y, rotation)) {
-					return y;
-				}
-			}
-		}
-		return -1;
+		return iTopInsets[rotation];
 	}
 	
 	/**
 	 * The bottom inset is represented by the number of empty rows on the 
-         * bottom side of the array for the given rotation.
+         * bottom side of the array for the given rotation, plus one.
 	 * @param rotation The rotation.
 	 * @return The bottom inset.
 	 */
 	public int getBottomInset(int rotation) {
-		/*
-		 * Loop through from bottom to top until we find a tile then 
-                 * return the row.
-		 */
-		for(int y = iDimension - 1; y >= 0; y--) {
-			for(int x = 0; x < iDimension; x++) {
-				if(isTile(x, y, rotation)) {
-					return iDimension - y;
-				}
-			}
-		}
-		return -1;
+		return iBottomInsets[rotation];
+	}
+
+	/**
+	 * Gets the tiles of one row of a rotation.
+	 * @param row The row, from 0 to {@code getDimension() - 1}.
+	 * @param rotation The rotation.
+	 * @return The tiles, with bit 0 for the leftmost column of the rotation
+	 * that has a tile, which is {@code getLeftInset} columns right of the
+	 * piece's own column.
+	 */
+	public long getShape(int row, int rotation) {
+		return lShapes[rotation * iDimension + row];
+	}
+
+	/**
+	 * Gets the row of the lowest tile in a column of a rotation.
+	 * @param col The column, from 0 to {@code getDimension() - 1}.
+	 * @param rotation The rotation.
+	 * @return The row, or -1 if the column has no tiles.
+	 */
+	public int getBottom(int col, int rotation) {
+		return iBottoms[rotation * iDimension + col];
+	}
+
+	@Override
+	public String toString() {
+		return name;
 	}
 }
@@ -0,0 +1,167 @@
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import javax.swing.JFrame;
+import javax.swing.Timer;
+
+/**
+ * The {@code VersusGame} class is a split-screen versus game on one screen.
+ * The first board is played with the keyboard and every other board by a
+ * {@code BotController}. Each board runs on its own thread through a
+ * {@code VersusMatch}; the window only draws them.
+ *
+ * Usage: {@code java VersusGame [boards]}
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class VersusGame extends JFrame {
+
+    /**
+     * The Serial Version UID.
+     */
+    private static final long serialVersionUID = 2870131944761840213L;
+
+    /**
+     * The number of milliseconds between two repaints.
+     */
+    private static final int FRAME_TIME = 1000 / GameEngine.TICKS_PER_SECOND;
+
+    /**
+     * The games, one per board.
+     */
+    private final GameEngine[] engines;
+
+    /**
+     * What plays each game.
+     */
+    private final Controller[] controllers;
+
+    /**
+     * What hands each board's panel a frame of its game, run by the
+     * board's thread after each tick.
+     */
+    private final Runnable[] publishers;
+
+    /**
+     * The keyboard, which plays the first board.
+     */
+    private final KeyboardController keyboard;
+
+    /**
+     * The match being played, or null before the first one.
+     */
+    private transient VersusMatch match;
+
+    /**
+     * Creates a new VersusGame window with the given number of boards.
+     *
+     * @param count The number of boards.
+     */
+    public VersusGame(int count) {
+        super("Tetris Versus");
+        setLayout(new GridLayout(1, count, 10, 0));
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setResizable(false);
+
+        /*
+         * Every board shares one profiler, since they are all painted by the
+         * same thread.
+         */
+        FrameProfiler profiler = new FrameProfiler();
+        InputLatencyTracker inputLatency = new InputLatencyTracker();
+
+        this.engines = new GameEngine[count];
+        this.controllers = new Controller[count];
+        this.publishers = new Runnable[count];
+        this.keyboard = new KeyboardController(KeyboardController.DEFAULT_DAS,
+                KeyboardController.DEFAULT_ARR,
+                KeyboardController.DEFAULT_BUFFER, inputLatency);
+        for (int i = 0; i < count; i++) {
+            engines[i] = new GameEngine(System.nanoTime());
+            controllers[i] = i == 0 ? keyboard
+                    : new BotController(Heuristic.DEFAULT, 1);
+            final BoardPanel panel = new BoardPanel(engines[i], profiler,
+                    inputLatency);
+            publishers[i] = new Runnable() {
+                @Override
+                public void run() {
+                    panel.publish();
+                }
+            };
+            add(panel);
+        }
+
+        /*
+         * The keys are the same as in the single player game, and are read
+         * by the first board's thread.
+         */
+        addKeyListener(new KeyAdapter() {
+
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                    if (match == null || match.isOver()) {
+                        startMatch();
+                    }
+                    return;
+                }
+                byte input = KeyboardController.inputForKey(e.getKeyCode());
+                if (input != 0) {
+                    keyboard.press(input);
+                }
+            }
+
+            @Override
+            public void keyReleased(KeyEvent e) {
+                byte input = KeyboardController.inputForKey(e.getKeyCode());
+                if (input != 0) {
+                    keyboard.release(input);
+                }
+            }
+        });
+
+        /*
+         * Repaint every board once a frame. Each board's thread hands its
+         * panel a frame after every tick, so a repaint never reads a game
+         * while it is being played.
+         */
+        new Timer(FRAME_TIME, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                repaint();
+            }
+        }).start();
+
+        pack();
+        setLocationRelativeTo(null);
+        setVisible(true);
+    }
+
+    /**
+     * Starts a new match on every board.
+     */
+    private void startMatch() {
+        if (match != null) {
+            //The boards of the last match may still be finishing a tick.
+            try {
+                match.join();
+            } catch (InterruptedException e) {
+                System.out.println("Error en " + e.toString());
+            }
+        }
+        match = new VersusMatch(engines, controllers, publishers,
+                GameEngine.TICKS_PER_SECOND, 0);
+        match.start();
+    }
+
+    /**
+     * Entry-point of the versus game.
+     *
+     * @param args The number of boards.
+     */
+    public static void main(String[] args) {
+        new VersusGame(args.length > 0 ? Integer.parseInt(args[0]) : 2);
+    }
+}
@@ -0,0 +1,402 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code VersusMatch} class runs a versus game: several boards played at
+ * the same time, each on its own thread, where clearing lines sends garbage
+ * rows to an opponent. The last board standing wins.
+ *
+ * Boards only talk to each other through their {@code GarbageInbox}, which a
+ * sender adds to without locking and the receiver empties at the start of its
+ * own tick, so a slow board never holds up the others. Every board keeps to
+ * the same tick rate measured from a shared start time, which keeps them
+ * roughly in step however fast the rate is.
+ *
+ * Run on its own, this class plays a tournament of headless matches between
+ * {@code BotController}s (or {@code RandomController}s) and reports how many
+ * each seat won. Matches are stopped after ten minutes of play.
+ *
+ * Usage: {@code java VersusMatch [matches] [players] [ticksPerSecond]
+ * [parallelMatches] [bot|random]}
+ *
+ * @authors Sergio Diaz A01192313 Ana Karen Beltran A01192508
+ */
+public class VersusMatch {
+
+    /**
+     * The number of garbage rows sent for clearing 0 to 4 lines at once.
+     */
+    private static final int[] GARBAGE = {0, 0, 1, 2, 4};
+
+    /**
+     * The games.
+     */
+    private final GameEngine[] engines;
+
+    /**
+     * What plays each game.
+     */
+    private final Controller[] controllers;
+
+    /**
+     * What each board's thread runs after each of its ticks, or null for
+     * nothing.
+     */
+    private final Runnable[] afterTicks;
+
+    /**
+     * The number of ticks each board runs per second.
+     */
+    private final int ticksPerSecond;
+
+    /**
+     * The number of ticks after which the match is stopped, or 0 for none.
+     */
+    private final int maxTicks;
+
+    /**
+     * The place each board finished in, 1 being the winner, 0 while it is
+     * still playing or -1 for the moment it takes to record a loss.
+     */
+    private final AtomicIntegerArray places;
+
+    /**
+     * The number of boards still playing.
+     */
+    private final AtomicInteger alive;
+
+    /**
+     * The number of garbage rows each board sent. Only written by the
+     * board's own thread.
+     */
+    private final int[] sent;
+
+    /**
+     * The number of ticks each board played. Only written by the board's own
+     * thread.
+     */
+    private final int[] ticks;
+
+    /**
+     * The threads that run the boards.
+     */
+    private final Thread[] threads;
+
+    /**
+     * When the first tick is due, in nanoseconds.
+     */
+    private long startNanos;
+
+    /**
+     * Whether or not the match is over.
+     */
+    private volatile boolean isOver;
+
+    /**
+     * Creates a new VersusMatch between the given games.
+     *
+     * @param engines The games, one per board.
+     * @param controllers What plays each game.
+     * @param ticksPerSecond The number of ticks each board runs per second.
+     * @param maxTicks The number of ticks after which the match is stopped,
+     * or 0 to play until there is a winner.
+     */
+    public VersusMatch(GameEngine[] engines, Controller[] controllers,
+            int ticksPerSecond, int maxTicks) {
+        this(engines, controllers, null, ticksPerSecond, maxTicks);
+    }
+
+    /**
+     * Creates a new VersusMatch between the given games, where each board's
+     * thread runs something after each of its ticks, such as handing a
+     * frame of its game to the panel that draws it.
+     *
+     * @param engines The games, one per board.
+     * @param controllers What plays each game.
+     * @param afterTicks What each board's thread runs after each of its
+     * ticks, or null for nothing.
+     * @param ticksPerSecond The number of ticks each board runs per second.
+     * @param maxTicks The number of ticks after which the match is stopped,
+     * or 0 to play until there is a winner.
+     */
+    public VersusMatch(GameEngine[] engines, Controller[] controllers,
+            Runnable[] afterTicks, int ticksPerSecond, int maxTicks) {
+        if (engines.length < 2 || engines.length != controllers.length
+                || afterTicks != null
+                && afterTicks.length != engines.length) {
+            throw new IllegalArgumentException("A match needs at least two "
+                    + "boards, each with a controller");
+        }
+        this.engines = engines;
+        this.controllers = controllers;
+        this.afterTicks = afterTicks;
+        this.ticksPerSecond = ticksPerSecond;
+        this.maxTicks = maxTicks;
+        this.places = new AtomicIntegerArray(engines.length);
+        this.alive = new AtomicInteger(engines.length);
+        this.sent = new int[engines.length];
+        this.ticks = new int[engines.length];
+        this.threads = new Thread[engines.length];
+    }
+
+    /**
+     * Starts a new game on every board and starts the threads that run them.
+     */
+    public void start() {
+        for (GameEngine engine : engines) {
+            engine.reset();
+        }
+        startNanos = System.nanoTime();
+        for (int i = 0; i < engines.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runBoard(index);
+                }
+            }, "Versus Board " + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Stops the match, leaving every board that is still playing without a
+     * place.
+     */
+    public void stop() {
+        isOver = true;
+    }
+
+    /**
+     * Waits for every board to stop.
+     *
+     * @throws InterruptedException
+     */
+    public void join() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Runs one board until it loses or the match is over.
+     *
+     * @param index The index of the board.
+     */
+    private void runBoard(int index) {
+        GameEngine engine = engines[index];
+        Controller controller = controllers[index];
+        long tickNanos = 1000000000L / ticksPerSecond;
+        int target = index;
+        int tick = 0;
+
+        while (!isOver) {
+            controller.control(engine);
+            int cleared = engine.tick();
+            if (cleared > 0 && GARBAGE[cleared] > 0) {
+                target = nextOpponent(index, target);
+                if (target != index) {
+                    engines[target].getInbox().send(GARBAGE[cleared],
+                            engine.getPieceType());
+                    sent[index] += GARBAGE[cleared];
+                }
+            }
+            tick++;
+            ticks[index] = tick;
+            if (afterTicks != null) {
+                afterTicks[index].run();
+            }
+
+            if (engine.isGameOver()) {
+                finish(index);
+                return;
+            }
+            if (maxTicks > 0 && tick >= maxTicks) {
+                isOver = true;
+                return;
+            }
+
+            long wait = startNanos + tick * tickNanos - System.nanoTime();
+            if (wait > 0L) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    /**
+     * Picks the next board still playing after the last one a board sent
+     * garbage to, so garbage is spread over every opponent in turn.
+     *
+     * @param index The board sending garbage.
+     * @param last The board it sent garbage to last.
+     * @return The board to send to, or {@code index} if there is none.
+     */
+    private int nextOpponent(int index, int last) {
+        for (int i = 1; i <= engines.length; i++) {
+            int candidate = (last + i) % engines.length;
+            if (candidate != index && places.get(candidate) == 0) {
+                return candidate;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Records that a board lost. When a single board is left standing, it
+     * wins and the match is over.
+     *
+     * @param index The index of the board.
+     */
+    private void finish(int index) {
+        //Another board may have lost at the same time and made this one win.
+        if (!places.compareAndSet(index, 0, -1)) {
+            return;
+        }
+        int place = alive.getAndDecrement();
+        places.set(index, place);
+        if (place == 2) {
+            for (int i = 0; i < engines.length; i++) {
+                if (places.compareAndSet(i, 0, 1)) {
+                    alive.decrementAndGet();
+                }
+            }
+            isOver = true;
+        }
+    }
+
+    /**
+     * Checks to see whether or not the match is over.
+     *
+     * @return Whether or not the match is over.
+     */
+    public boolean isOver() {
+        return isOver;
+    }
+
+    /**
+     * Gets the board that won, once the match is over. If the match was
+     * stopped before there was a winner, the board still playing with the
+     * highest score is taken as the winner.
+     *
+     * @return The index of the winner.
+     */
+    public int getWinner() {
+        int winner = -1;
+        for (int i = 0; i < engines.length; i++) {
+            if (places.get(i) == 1) {
+                return i;
+            }
+            if (places.get(i) == 0 && (winner < 0
+                    || engines[i].getScore() > engines[winner].getScore())) {
+                winner = i;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * Gets the place a board finished in.
+     *
+     * @param index The index of the board.
+     * @return The place, 1 being the winner, or 0 if it didn't finish.
+     */
+    public int getPlace(int index) {
+        return places.get(index);
+    }
+
+    /**
+     * Gets the number of garbage rows a board sent. Only meaningful after
+     * {@code join}.
+     *
+     * @param index The index of the board.
+     * @return The number of rows.
+     */
+    public int getSent(int index) {
+        return sent[index];
+    }
+
+    /**
+     * Gets the number of ticks a board played. Only meaningful after
+     * {@code join}.
+     *
+     * @param index The index of the board.
+     * @return The number of ticks.
+     */
+    public int getTicks(int index) {
+        return ticks[index];
+    }
+
+    /**
+     * Entry-point of the tournament.
+     *
+     * @param args The number of matches, boards per match, ticks per second,
+     * matches played at the same time and what plays the boards.
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        final int players = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        final int ticksPerSecond = args.length > 2
+                ? Integer.parseInt(args[2]) : 2000;
+        int parallel = args.length > 3 ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+        final boolean isRandom = args.length > 4 && args[4].equals("random");
+
+        final AtomicIntegerArray wins = new AtomicIntegerArray(players);
+        final AtomicLong totalTicks = new AtomicLong();
+        final AtomicLong totalSent = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(parallel);
+        long start = System.nanoTime();
+
+        for (int m = 0; m < matches; m++) {
+            final long seed = m;
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    GameEngine[] engines = new GameEngine[players];
+                    Controller[] controllers = new Controller[players];
+                    for (int i = 0; i < players; i++) {
+                        //Every board gets the same pieces.
+                        engines[i] = new GameEngine(seed);
+                        controllers[i] = isRandom
+                                ? new RandomController(seed * players + i)
+                                : new BotController(Heuristic.DEFAULT, 1);
+                    }
+                    VersusMatch match = new VersusMatch(engines, controllers,
+                            ticksPerSecond, 10 * 60
+                            * GameEngine.TICKS_PER_SECOND);
+                    match.start();
+                    try {
+                        match.join();
+                    } catch (InterruptedException e) {
+                        System.out.println("Error en " + e.toString());
+                        return;
+                    }
+                    wins.incrementAndGet(match.getWinner());
+                    for (int i = 0; i < players; i++) {
+                        totalTicks.addAndGet(match.getTicks(i));
+                        totalSent.addAndGet(match.getSent(i));
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("matches=%d players=%d "
+                + "ticks/s=%d seconds=%.1f matches/s=%.2f", matches, players,
+                ticksPerSecond, seconds, matches / seconds));
+        System.out.println(String.format("board ticks=%d garbage rows=%d",
+                totalTicks.get(), totalSent.get()));
+        for (int i = 0; i < players; i++) {
+            System.out.println("seat " + i + " wins=" + wins.get(i));
+        }
+    }
+}